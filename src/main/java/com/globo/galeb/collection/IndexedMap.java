@@ -40,6 +40,9 @@ public class IndexedMap<K, V> extends TreeMap<K, V> {
     /** The last index. */
     private int lastIndex = 0;
 
+    /** The version (incremented by each put, remove or clear). */
+    private long version = 0L;
+
     /**
      * Instantiates a new indexed map.
      */
@@ -64,6 +67,7 @@ public class IndexedMap<K, V> extends TreeMap<K, V> {
     public V put(K key, V value) {
         lastIndex = getNextIndex();
         indexedKeys.put(lastIndex, key);
+        version++;
         return super.put(key, value);
     }
 
@@ -78,6 +82,7 @@ public class IndexedMap<K, V> extends TreeMap<K, V> {
     public V put(K key, V value, int index) {
         lastIndex = index;
         indexedKeys.put(index, key);
+        version++;
         return super.put(key, value);
     }
 
@@ -88,6 +93,7 @@ public class IndexedMap<K, V> extends TreeMap<K, V> {
     @Override
     public void putAll(Map<? extends K, ? extends V> m) {
         putAllToIndex(m);
+        version++;
         super.putAll(m);
     }
 
@@ -97,6 +103,7 @@ public class IndexedMap<K, V> extends TreeMap<K, V> {
     @Override
     public V remove(Object key) {
         indexedKeys.remove(key);
+        version++;
         return super.remove(key);
     }
 
@@ -107,6 +114,7 @@ public class IndexedMap<K, V> extends TreeMap<K, V> {
     public void clear() {
         super.clear();
         indexedKeys.clear();
+        version++;
     }
 
     /**
@@ -194,4 +202,14 @@ public class IndexedMap<K, V> extends TreeMap<K, V> {
         return lastIndex;
     }
 
+    /**
+     * Gets the version: it changes with the membership of the map, so a
+     * consumer can detect a swapped entry even when the size is the same.
+     *
+     * @return the version
+     */
+    public long getVersion() {
+        return version;
+    }
+
 }
@@ -15,13 +15,21 @@
  */
 package com.globo.galeb.consistenthash;
 
+import java.net.InetAddress;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.SortedMap;
-import java.util.TreeMap;
 
 /**
  * Class ConsistentHash.
  *
+ * The circle is kept in two parallel arrays, the sorted points (int) and
+ * the node of each point, and a lookup is a binary search. Each node owns
+ * numberOfReplicas points (virtual nodes). If two points collide, the
+ * first node of the collection keeps it. A change of nodes rebuilds the
+ * circle (the candidate set of the backend pool is prepared again).
+ *
+ * Not thread safe: rebuild must not run with lookups in other threads.
+ *
  * @param <T> the generic type of node
  * @author: See AUTHORS file.
  * @version: 1.0.0, 19/10/2014.
@@ -34,8 +42,11 @@ public class ConsistentHash<T> {
     /** The number of replicas. */
     private int                         numberOfReplicas;
 
-    /** The circle. */
-    private final SortedMap<Integer, T> circle  = new TreeMap<Integer, T>();
+    /** The points of the circle (sorted). */
+    private int[]                       points  = new int[0];
+
+    /** The node of each point. */
+    private Object[]                    nodes   = new Object[0];
 
     /**
      * Instantiates a new consistent hash.
@@ -47,53 +58,73 @@ public class ConsistentHash<T> {
     public ConsistentHash(HashAlgorithm hashAlgorithm, int numberOfReplicas,
             Collection<T> nodes) {
         this.hashAlgorithm = hashAlgorithm;
-        this.numberOfReplicas = numberOfReplicas;
-
-        for (T node : nodes) {
-            add(node);
-        }
+        this.numberOfReplicas = Math.max(numberOfReplicas, 1);
+        build(nodes);
     }
 
     /**
-     * Adds a node.
+     * Gets a node.
      *
-     * @param node a node
+     * @param key a key
+     * @return a node from cicle
      */
-    public void add(T node) {
-        for (int i = 0; i < numberOfReplicas; i++) {
-            circle.put(hashAlgorithm.hash(node.toString() + i).asInt(), node);
+    public T get(String key) {
+        if (points.length == 0) {
+            return null;
         }
+        return getByHash(hashAlgorithm.hashInt(key));
     }
 
     /**
-     * Removes a node.
+     * Gets a node by address (hashed from its bytes).
      *
-     * @param node a node
+     * @param address the address
+     * @return a node from cicle
      */
-    public void remove(T node) {
-        for (int i = 0; i < numberOfReplicas; i++) {
-            circle.remove(hashAlgorithm.hash(node.toString() + i).asInt());
+    public T get(InetAddress address) {
+        if (points.length == 0) {
+            return null;
         }
+        return getByHash(hashAlgorithm.hashInt(address));
     }
 
     /**
-     * Gets a node.
+     * Gets the node of the first point at or after a hash.
      *
-     * @param key a key
+     * @param hash the hash
      * @return a node from cicle
      */
-    public T get(String key) {
-        if (circle.isEmpty()) {
+    @SuppressWarnings("unchecked")
+    public T getByHash(int hash) {
+        if (points.length == 0) {
             return null;
         }
+        int pos = Arrays.binarySearch(points, hash);
+        if (pos < 0) {
+            pos = -pos - 1;
+            if (pos == points.length) {
+                pos = 0;
+            }
+        }
+        return (T) nodes[pos];
+    }
 
-        int hash= hashAlgorithm.hash(key).asInt();
+    /**
+     * Gets the number of points of the circle.
+     *
+     * @return the size
+     */
+    public int size() {
+        return points.length;
+    }
 
-        if (!circle.containsKey(hash)) {
-            SortedMap<Integer, T> tailMap = circle.tailMap(hash);
-            hash = tailMap.isEmpty() ? circle.firstKey() : tailMap.firstKey();
-        }
-        return circle.get(hash);
+    /**
+     * Gets the number of replicas.
+     *
+     * @return the number of replicas
+     */
+    public int getNumberOfReplicas() {
+        return numberOfReplicas;
     }
 
     /**
@@ -109,13 +140,44 @@ public class ConsistentHash<T> {
             this.hashAlgorithm = hashAlgorithm;
         }
         if (numberOfReplicas!=null) {
-            this.numberOfReplicas = numberOfReplicas;
+            this.numberOfReplicas = Math.max(numberOfReplicas, 1);
+        }
+        build(nodes);
+    }
+
+    /**
+     * Build the circle: each point is packed with the position of its
+     * node in a long (point in the high bits), so one sort orders the
+     * points and keeps the first node of colliding points in front.
+     *
+     * @param nodeCollection nodes collection
+     */
+    private void build(Collection<T> nodeCollection) {
+        Object[] nodeArray = nodeCollection.toArray();
+        long[] packed = new long[nodeArray.length * numberOfReplicas];
+        int size = 0;
+        for (int nodePos = 0; nodePos < nodeArray.length; nodePos++) {
+            String nodeKey = nodeArray[nodePos].toString();
+            for (int i = 0; i < numberOfReplicas; i++) {
+                long point = hashAlgorithm.hashInt(nodeKey + i);
+                packed[size++] = (point << 32) | nodePos;
+            }
         }
+        Arrays.sort(packed);
 
-        circle.clear();
-        for (T node : nodes) {
-            add(node);
+        int[] newPoints = new int[size];
+        Object[] newNodes = new Object[size];
+        int count = 0;
+        for (int pos = 0; pos < size; pos++) {
+            int point = (int) (packed[pos] >> 32);
+            if (count > 0 && newPoints[count - 1] == point) {
+                continue;
+            }
+            newPoints[count] = point;
+            newNodes[count++] = nodeArray[(int) packed[pos]];
         }
+        points = Arrays.copyOf(newPoints, count);
+        nodes = Arrays.copyOf(newNodes, count);
     }
 
 }
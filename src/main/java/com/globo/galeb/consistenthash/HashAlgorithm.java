@@ -15,6 +15,8 @@
  */
 package com.globo.galeb.consistenthash;
 
+import java.net.Inet4Address;
+import java.net.InetAddress;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Map;
@@ -28,6 +30,11 @@ import com.google.common.hash.Hashing;
 /**
  * The Class HashAlgorithm.
  *
+ * Stateless: the hashes are returned as primitives, so an instance can be
+ * shared by all threads. The keys are hashed as UTF-8 bytes; the ASCII keys
+ * (addresses, ids) of the in-tree algorithms are encoded in a per thread
+ * buffer, without allocation.
+ *
  * @author: See AUTHORS file.
  * @version: 1.0.0, 19/10/2014.
  */
@@ -43,8 +50,8 @@ public class HashAlgorithm {
 
         /** It's not so bad, but is a little slow. */
         MD5,
-        /** Slow. */
-        //MURMUR3_128,
+        /** Fast and reliable (in-tree, first 64 bits). */
+        MURMUR3_128,
         /** Fast and reliable, but not so good for small keys. */
         MURMUR3_32,
         /** Super Fast, but with excessive collisions. Why this was released? */
@@ -60,7 +67,9 @@ public class HashAlgorithm {
         /** Reliable, but very slow. */
         //SHA512,
         /** Fast and reliable. The best for small keys. */
-        SIP24
+        SIP24,
+        /** The fastest (in-tree) and reliable. */
+        XXHASH64
     }
 
     /** The Constant HASH_TYPE_MAP. */
@@ -71,11 +80,22 @@ public class HashAlgorithm {
         }
     }
 
+    /** The Constant MAX_BUFFERED_KEY: longer keys are encoded in a new array. */
+    private static final int MAX_BUFFERED_KEY = 256;
+
+    /** The key buffer of each thread. */
+    private static final ThreadLocal<byte[]> KEY_BUFFER = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[MAX_BUFFERED_KEY];
+        }
+    };
+
     /** The hash type. */
     private final HashType hashType;
 
-    /** The hash code. */
-    private HashCode hashCode;
+    /** The Guava hash function (null if the algorithm is in-tree). */
+    private final HashFunction hashFunction;
 
     /* (non-Javadoc)
      * @see java.lang.Object#toString()
@@ -91,7 +111,8 @@ public class HashAlgorithm {
      * @param hashType the hash type
      */
     public HashAlgorithm(HashType hashType) {
-        this.hashType = hashType;
+        this.hashType = hashType!=null ? hashType : HashType.SIP24;
+        this.hashFunction = getHashFunction(this.hashType);
     }
 
     /**
@@ -100,61 +121,160 @@ public class HashAlgorithm {
      * @param hashTypeStr the hash type str
      */
     public HashAlgorithm(String hashTypeStr) {
-        this.hashType = HASH_TYPE_MAP.containsKey(hashTypeStr) ? HashType.valueOf(hashTypeStr) : HashType.SIP24;
+        this(HASH_TYPE_MAP.get(hashTypeStr));
     }
 
     /**
-     * Calc Hash.
+     * Gets the Guava hash function of a hash type.
      *
-     * @param key the key
-     * @return int hash
+     * @param hashType the hash type
+     * @return the hash function, or null if the algorithm is in-tree
      */
-    public HashAlgorithm hash(Object key) {
-        HashFunction hashAlgorithm;
+    private static HashFunction getHashFunction(HashType hashType) {
         switch (hashType) {
             case MD5:
-                hashAlgorithm = Hashing.md5();
-                break;
+                return Hashing.md5();
             case MURMUR3_32:
-                hashAlgorithm = Hashing.murmur3_32();
-                break;
+                return Hashing.murmur3_32();
             case SHA256:
-                hashAlgorithm = Hashing.sha256();
-                break;
+                return Hashing.sha256();
+            case MURMUR3_128:
+            case XXHASH64:
+                return null;
             case SIP24:
-                hashAlgorithm = Hashing.sipHash24();
-                break;
             default:
-                hashAlgorithm = Hashing.sipHash24();
-                break;
+                return Hashing.sipHash24();
+        }
+    }
+
+    /**
+     * Gets the hash type.
+     *
+     * @return the hash type
+     */
+    public HashType getHashType() {
+        return hashType;
+    }
+
+    /**
+     * Calc the hash of a key.
+     *
+     * @param key the key
+     * @return the hash (the first 64 bits)
+     */
+    public long hashLong(String key) {
+        if (hashFunction!=null) {
+            return hashFunction.hashString(key, Charsets.UTF_8).padToLong();
         }
-        if (key instanceof String) {
-            hashCode = hashAlgorithm.newHasher().putString((String)key,Charsets.UTF_8).hash();
-        } else if (key instanceof Long) {
-            hashCode = hashAlgorithm.newHasher().putLong((Long)key).hash();
-        } else {
-            hashCode = hashAlgorithm.newHasher().hash();
+        int length = key.length();
+        if (length<=MAX_BUFFERED_KEY) {
+            byte[] buffer = KEY_BUFFER.get();
+            int pos = 0;
+            while (pos<length) {
+                char c = key.charAt(pos);
+                if (c>=0x80) {
+                    break;
+                }
+                buffer[pos++] = (byte) c;
+            }
+            if (pos==length) {
+                return hashBytes(buffer, length);
+            }
         }
-        return this;
+        byte[] bytes = key.getBytes(Charsets.UTF_8);
+        return hashBytes(bytes, bytes.length);
     }
 
     /**
-     * HashCode as int.
+     * Calc the hash of a key.
      *
-     * @return the int
+     * @param key the key
+     * @return the hash (the first 32 bits)
      */
-    public int asInt() {
-        return hashCode.asInt();
+    public int hashInt(String key) {
+        return (int) hashLong(key);
     }
 
     /**
-     * HashCode as string.
+     * Calc the hash of a long, as its 8 bytes (little endian).
      *
-     * @return the string
+     * @param key the key
+     * @return the hash (the first 64 bits)
      */
-    public String asString() {
-        return hashCode.toString();
+    public long hashLong(long key) {
+        switch (hashType) {
+            case MURMUR3_128:
+                return Murmur3Hash128.hash(key, 0);
+            case XXHASH64:
+                return XxHash64.hash(key, 0L);
+            default:
+                return hashFunction.hashLong(key).padToLong();
+        }
     }
 
-}
+    /**
+     * Calc the hash of a long, as its 8 bytes (little endian).
+     *
+     * @param key the key
+     * @return the hash (the first 32 bits)
+     */
+    public int hashInt(long key) {
+        return (int) hashLong(key);
+    }
+
+    /**
+     * Calc the hash of bytes.
+     *
+     * @param key the key
+     * @return the hash (the first 64 bits)
+     */
+    public long hashLong(byte[] key) {
+        if (hashFunction!=null) {
+            return hashFunction.hashBytes(key).padToLong();
+        }
+        return hashBytes(key, key.length);
+    }
+
+    /**
+     * Calc the hash of an address: an IPv4 address is hashed as a long (as
+     * RemoteUser.ipToLong), from its packed int hashCode without copying its
+     * bytes, an IPv6 as its 16 bytes.
+     *
+     * @param address the address
+     * @return the hash (the first 32 bits)
+     */
+    public int hashInt(InetAddress address) {
+        if (address instanceof Inet4Address) {
+            return hashInt(address.hashCode() & 0xFFFFFFFFL);
+        }
+        return (int) hashLong(address.getAddress());
+    }
 
+    /**
+     * Calc the hash of a key, as hex string.
+     *
+     * @param key the key
+     * @return the hash as string
+     */
+    public String hashAsString(String key) {
+        if (hashFunction!=null) {
+            return hashFunction.hashString(key, Charsets.UTF_8).toString();
+        }
+        return HashCode.fromLong(hashLong(key)).toString();
+    }
+
+    /**
+     * Calc the hash of bytes with an in-tree algorithm.
+     *
+     * @param bytes the bytes
+     * @param length the length
+     * @return the hash (the first 64 bits)
+     */
+    private long hashBytes(byte[] bytes, int length) {
+        if (hashType==HashType.MURMUR3_128) {
+            return Murmur3Hash128.hash(bytes, 0, length, 0);
+        }
+        return XxHash64.hash(bytes, 0, length, 0L);
+    }
+
+}
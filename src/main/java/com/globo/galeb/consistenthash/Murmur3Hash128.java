@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.consistenthash;
+
+/**
+ * Class Murmur3Hash128.
+ *
+ * MurmurHash3 x64 128 bits of Austin Appleby. Returns the first 64 bits of
+ * the hash, the same value of Guava Hashing.murmur3_128().hashBytes().asLong(),
+ * without allocating a hasher. Stateless and thread safe.
+ *
+ * @author See AUTHORS file.
+ * @version 1.0.0, Oct 18, 2026.
+ */
+public final class Murmur3Hash128 {
+
+    /** The Constant C1. */
+    private static final long C1 = 0x87C37B91114253D5L;
+
+    /** The Constant C2. */
+    private static final long C2 = 0x4CF5AD432745937FL;
+
+    /**
+     * Instantiates a new murmur3 hash128 (not used).
+     */
+    private Murmur3Hash128() {
+    }
+
+    /**
+     * Hash bytes.
+     *
+     * @param data the data
+     * @param offset the offset
+     * @param length the length
+     * @param seed the seed
+     * @return the first 64 bits of the hash
+     */
+    public static long hash(byte[] data, int offset, int length, int seed) {
+        long h1 = seed;
+        long h2 = seed;
+        int pos = offset;
+        int end = offset + length;
+
+        while (pos + 16 <= end) {
+            long k1 = XxHash64.getLong(data, pos);
+            long k2 = XxHash64.getLong(data, pos + 8);
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52DCE729;
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495AB5;
+            pos += 16;
+        }
+
+        long k1 = 0L;
+        long k2 = 0L;
+        int remaining = end - pos;
+        for (int i = remaining - 1; i >= 8; i--) {
+            k2 = k2 << 8 | (data[pos + i] & 0xFFL);
+        }
+        for (int i = Math.min(remaining, 8) - 1; i >= 0; i--) {
+            k1 = k1 << 8 | (data[pos + i] & 0xFFL);
+        }
+        h1 ^= mixK1(k1);
+        h2 ^= mixK2(k2);
+
+        return finish(h1, h2, length);
+    }
+
+    /**
+     * Hash a long, as its 8 bytes (little endian).
+     *
+     * @param value the value
+     * @param seed the seed
+     * @return the first 64 bits of the hash
+     */
+    public static long hash(long value, int seed) {
+        long h1 = seed;
+        long h2 = seed;
+        h1 ^= mixK1(value);
+        return finish(h1, h2, 8);
+    }
+
+    /**
+     * Mix k1.
+     *
+     * @param k1 the k1
+     * @return the mixed k1
+     */
+    private static long mixK1(long k1) {
+        return Long.rotateLeft(k1 * C1, 31) * C2;
+    }
+
+    /**
+     * Mix k2.
+     *
+     * @param k2 the k2
+     * @return the mixed k2
+     */
+    private static long mixK2(long k2) {
+        return Long.rotateLeft(k2 * C2, 33) * C1;
+    }
+
+    /**
+     * Finalization.
+     *
+     * @param h1 the h1
+     * @param h2 the h2
+     * @param length the length
+     * @return the first 64 bits of the hash
+     */
+    private static long finish(long h1, long h2, int length) {
+        long r1 = h1 ^ length;
+        long r2 = h2 ^ length;
+        r1 += r2;
+        r2 += r1;
+        r1 = fmix64(r1);
+        r2 = fmix64(r2);
+        return r1 + r2;
+    }
+
+    /**
+     * Final mix.
+     *
+     * @param k the k
+     * @return the mixed k
+     */
+    private static long fmix64(long k) {
+        long result = k;
+        result ^= result >>> 33;
+        result *= 0xFF51AFD7ED558CCDL;
+        result ^= result >>> 33;
+        result *= 0xC4CEB9FE1A85EC53L;
+        result ^= result >>> 33;
+        return result;
+    }
+
+}
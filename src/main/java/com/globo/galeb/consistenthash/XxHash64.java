@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.consistenthash;
+
+/**
+ * Class XxHash64.
+ *
+ * xxHash (64 bits) of Yann Collet: a fast non-cryptographic hash.
+ * Stateless and thread safe.
+ *
+ * @author See AUTHORS file.
+ * @version 1.0.0, Oct 18, 2026.
+ */
+public final class XxHash64 {
+
+    /** The Constant PRIME1. */
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+
+    /** The Constant PRIME2. */
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+
+    /** The Constant PRIME3. */
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+
+    /** The Constant PRIME4. */
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+
+    /** The Constant PRIME5. */
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+    /**
+     * Instantiates a new xx hash64 (not used).
+     */
+    private XxHash64() {
+    }
+
+    /**
+     * Hash bytes.
+     *
+     * @param data the data
+     * @param offset the offset
+     * @param length the length
+     * @param seed the seed
+     * @return the hash
+     */
+    public static long hash(byte[] data, int offset, int length, long seed) {
+        int pos = offset;
+        int end = offset + length;
+        long hash;
+
+        if (length >= 32) {
+            long v1 = seed + PRIME1 + PRIME2;
+            long v2 = seed + PRIME2;
+            long v3 = seed;
+            long v4 = seed - PRIME1;
+            int limit = end - 32;
+            do {
+                v1 = round(v1, getLong(data, pos));
+                v2 = round(v2, getLong(data, pos + 8));
+                v3 = round(v3, getLong(data, pos + 16));
+                v4 = round(v4, getLong(data, pos + 24));
+                pos += 32;
+            } while (pos <= limit);
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = mergeRound(hash, v1);
+            hash = mergeRound(hash, v2);
+            hash = mergeRound(hash, v3);
+            hash = mergeRound(hash, v4);
+        } else {
+            hash = seed + PRIME5;
+        }
+
+        hash += length;
+
+        while (pos + 8 <= end) {
+            hash ^= round(0, getLong(data, pos));
+            hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+            pos += 8;
+        }
+        if (pos + 4 <= end) {
+            hash ^= (getInt(data, pos) & 0xFFFFFFFFL) * PRIME1;
+            hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+            pos += 4;
+        }
+        while (pos < end) {
+            hash ^= (data[pos] & 0xFFL) * PRIME5;
+            hash = Long.rotateLeft(hash, 11) * PRIME1;
+            pos++;
+        }
+        return avalanche(hash);
+    }
+
+    /**
+     * Hash a long, as its 8 bytes (little endian).
+     *
+     * @param value the value
+     * @param seed the seed
+     * @return the hash
+     */
+    public static long hash(long value, long seed) {
+        long hash = seed + PRIME5 + 8;
+        hash ^= round(0, value);
+        hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+        return avalanche(hash);
+    }
+
+    /**
+     * Round.
+     *
+     * @param acc the accumulator
+     * @param input the input
+     * @return the accumulator
+     */
+    private static long round(long acc, long input) {
+        return Long.rotateLeft(acc + input * PRIME2, 31) * PRIME1;
+    }
+
+    /**
+     * Merge round.
+     *
+     * @param acc the accumulator
+     * @param value the value
+     * @return the accumulator
+     */
+    private static long mergeRound(long acc, long value) {
+        return (acc ^ round(0, value)) * PRIME1 + PRIME4;
+    }
+
+    /**
+     * Avalanche.
+     *
+     * @param hash the hash
+     * @return the hash
+     */
+    private static long avalanche(long hash) {
+        long result = hash;
+        result ^= result >>> 33;
+        result *= PRIME2;
+        result ^= result >>> 29;
+        result *= PRIME3;
+        result ^= result >>> 32;
+        return result;
+    }
+
+    /**
+     * Gets a long (little endian).
+     *
+     * @param data the data
+     * @param pos the position
+     * @return the long
+     */
+    static long getLong(byte[] data, int pos) {
+        return (data[pos] & 0xFFL)
+                | (data[pos + 1] & 0xFFL) << 8
+                | (data[pos + 2] & 0xFFL) << 16
+                | (data[pos + 3] & 0xFFL) << 24
+                | (data[pos + 4] & 0xFFL) << 32
+                | (data[pos + 5] & 0xFFL) << 40
+                | (data[pos + 6] & 0xFFL) << 48
+                | (data[pos + 7] & 0xFFL) << 56;
+    }
+
+    /**
+     * Gets an int (little endian).
+     *
+     * @param data the data
+     * @param pos the position
+     * @return the int
+     */
+    static int getInt(byte[] data, int pos) {
+        return (data[pos] & 0xFF)
+                | (data[pos + 1] & 0xFF) << 8
+                | (data[pos + 2] & 0xFF) << 16
+                | (data[pos + 3] & 0xFF) << 24;
+    }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.criteria;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import org.vertx.java.core.json.JsonObject;
+
+import com.globo.galeb.entity.impl.backend.IBackend;
+
+/**
+ * Class CandidateSet.
+ *
+ * Handle returned by ISelectionCriterion.prepare: a snapshot array of the
+ * candidates and the properties used to compile it. Criteria with
+ * precomputed state (cursor, hash ring, index) extend it.
+ *
+ * @author See AUTHORS file.
+ * @version 1.0.0, Oct 18, 2026.
+ * @param <T> the generic type
+ */
+public class CandidateSet<T> {
+
+    /** The candidates. */
+    private final Object[] candidates;
+
+    /** The properties. */
+    private final JsonObject properties;
+
+    /**
+     * Instantiates a new empty candidate set.
+     */
+    public CandidateSet() {
+        this(Collections.<T>emptyList(), new JsonObject());
+    }
+
+    /**
+     * Instantiates a new candidate set.
+     *
+     * @param candidates the candidates
+     * @param properties the properties
+     */
+    public CandidateSet(final Collection<T> candidates, final JsonObject properties) {
+        this.candidates = candidates!=null ? candidates.toArray() : new Object[0];
+        this.properties = properties!=null ? properties : new JsonObject();
+    }
+
+    /**
+     * Gets the number of candidates.
+     *
+     * @return the size
+     */
+    public int size() {
+        return candidates.length;
+    }
+
+    /**
+     * Checks if there are no candidates.
+     *
+     * @return true, if is empty
+     */
+    public boolean isEmpty() {
+        return candidates.length==0;
+    }
+
+    /**
+     * Gets the candidate at a position.
+     *
+     * @param pos the position
+     * @return the candidate
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int pos) {
+        return (T) candidates[pos];
+    }
+
+    /**
+     * Gets the weight of the candidate at a position: the backend weight, or
+     * the default weight if the candidate is not a backend.
+     *
+     * @param pos the position
+     * @return the weight
+     */
+    public int getWeight(int pos) {
+        Object candidate = candidates[pos];
+        return candidate instanceof IBackend ? ((IBackend) candidate).getWeight() : IBackend.DEFAULT_WEIGHT;
+    }
+
+    /**
+     * Gets the properties.
+     *
+     * @return the properties
+     */
+    public JsonObject getProperties() {
+        return properties;
+    }
+
+    /**
+     * Notify that the load of a candidate changed (connect or close).
+     * Does nothing by default.
+     *
+     * @param candidate the candidate
+     */
+    public void update(final T candidate) {
+        // nothing by default
+    }
+
+    /**
+     * Notify that a request was sent to a candidate.
+     * Does nothing by default.
+     *
+     * @param candidate the candidate
+     */
+    public void requestStarted(final T candidate) {
+        // nothing by default
+    }
+
+    /**
+     * Notify that a request to a candidate ended.
+     * Does nothing by default.
+     *
+     * @param candidate the candidate
+     * @param responseTime the response time (ms), or -1 if unknown
+     */
+    public void requestEnded(final T candidate, long responseTime) {
+        // nothing by default
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.criteria;
+
+import java.util.Map;
+
+import org.vertx.java.core.json.JsonObject;
+
+import com.globo.galeb.request.RequestView;
+
+/**
+ * Interface ISelectionCriterion.
+ *
+ * Reentrant selection: prepare compiles the candidates into a handle
+ * (CandidateSet) that keeps all the per-pool state, and select only uses
+ * the handle and the request view, never a per-request field of the
+ * criterion. A handle with mutable state (e.g. the in-flight counters of
+ * LeastConn and PowerOfTwo) is not thread safe: like the entities, it
+ * belongs to one event loop.
+ *
+ * @author See AUTHORS file.
+ * @version 1.0.0, Oct 18, 2026.
+ * @param <T> the generic type
+ */
+public interface ISelectionCriterion<T> {
+
+    /**
+     * Compile the candidates. Called again when the candidates change.
+     *
+     * @param candidates the candidates
+     * @param properties the properties (read only)
+     * @return the candidate set (handle)
+     */
+    public CandidateSet<T> prepare(Map<String, T> candidates, JsonObject properties);
+
+    /**
+     * Select a candidate.
+     *
+     * @param candidates the candidate set returned by prepare
+     * @param requestView the request view
+     * @return the candidate, or null if none
+     */
+    public T select(CandidateSet<T> candidates, RequestView requestView);
+
+}
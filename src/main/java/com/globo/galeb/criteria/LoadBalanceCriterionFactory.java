@@ -15,9 +15,6 @@
  */
 package com.globo.galeb.criteria;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import com.globo.galeb.criteria.impl.RandomCriterion;
 import com.globo.galeb.entity.impl.backend.IBackend;
 
@@ -35,41 +32,55 @@ public class LoadBalanceCriterionFactory {
     /** The Constant DEFAULT_LOADBALANCE. */
     public static final String DEFAULT_LOADBALANCE = RandomCriterion.class.getSimpleName().replaceFirst(CLASS_SUFFIX, "");
 
-    private static Map<String, ICriterion<IBackend>> mapOfLoadBalanceClasses = new HashMap<>();
-
     /**
-     * Creates the load balance by name
+     * Creates the load balance by name. Each call returns a new instance:
+     * criteria keep per pool state, so an instance is never shared.
      *
      * @param loadBalanceName the load balance name
      * @return the criterion
      */
-    @SuppressWarnings("unchecked")
     public static ICriterion<IBackend> create(String loadBalanceName) {
         if (loadBalanceName==null || "".equals(loadBalanceName)) {
             return create(DEFAULT_LOADBALANCE);
         }
+        ICriterion<IBackend> instance = loadInstance(CLASS_PACKAGE+loadBalanceName+CLASS_SUFFIX);
+        return instance!=null ? instance : create(DEFAULT_LOADBALANCE);
+    }
 
+    /**
+     * Load a criterion class and instantiate it.
+     *
+     * @param loadBalanceFullName the criterion class name
+     * @return the criterion, or null if the class is not a criterion
+     */
+    @SuppressWarnings("unchecked")
+    private static ICriterion<IBackend> loadInstance(String loadBalanceFullName) {
         ClassLoader loader = Thread.currentThread().getContextClassLoader();
-        String loadBalanceFullName = CLASS_PACKAGE+loadBalanceName+CLASS_SUFFIX;
-
-        if (mapOfLoadBalanceClasses.containsKey(loadBalanceFullName)) {
-            return mapOfLoadBalanceClasses.get(loadBalanceFullName);
-        }
-
         try {
-            Class<ICriterion<IBackend>> clazz = (Class<ICriterion<IBackend>>) loader.loadClass(loadBalanceFullName);
-            ICriterion<IBackend> instance = clazz.newInstance();
-            mapOfLoadBalanceClasses.put(loadBalanceFullName, instance);
-            return instance;
+            Class<?> clazz = loader.loadClass(loadBalanceFullName);
+            if (!ICriterion.class.isAssignableFrom(clazz)) {
+                return null;
+            }
+            return (ICriterion<IBackend>) clazz.newInstance();
 
         } catch (ClassNotFoundException | InstantiationException | IllegalAccessException e) {
-            // Load default
-            return create(DEFAULT_LOADBALANCE);
+            return null;
         }
     }
 
-    public static void reset(String loadBalanceName) {
-        mapOfLoadBalanceClasses.remove(loadBalanceName);
+    /**
+     * Creates a new selection criterion (stateless API) by name.
+     *
+     * @param loadBalanceName the load balance name
+     * @return the selection criterion
+     */
+    @SuppressWarnings("unchecked")
+    public static ISelectionCriterion<IBackend> newSelectionInstance(String loadBalanceName) {
+        ICriterion<IBackend> instance = create(loadBalanceName);
+        if (instance instanceof ISelectionCriterion) {
+            return (ISelectionCriterion<IBackend>) instance;
+        }
+        return new RandomCriterion<IBackend>();
     }
 
 }
@@ -15,23 +15,81 @@
  */
 package com.globo.galeb.criteria.impl;
 
+import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
-//import com.globo.galeb.core.Virtualhost;
+import com.globo.galeb.criteria.CandidateSet;
 import com.globo.galeb.criteria.ICriterion;
+import com.globo.galeb.criteria.ISelectionCriterion;
+import com.globo.galeb.entity.impl.frontend.Virtualhost;
 import com.globo.galeb.logger.SafeLogger;
+import com.globo.galeb.request.RequestView;
 
 import org.vertx.java.core.http.HttpHeaders;
 import org.vertx.java.core.http.HttpServerRequest;
+import org.vertx.java.core.json.JsonObject;
 
 /**
  * Class HostHeaderCriterion.
  *
+ * The Host header is read directly from the request and resolved by a
+ * HostIndex (exact and wildcard hosts). The index is compiled again at the
+ * first lookup after a RESET_REQUIRED action, so a burst of virtualhost
+ * changes costs one build. The aliases of a Virtualhost are resolved to
+ * the same instance (the hosts keep precedence over the aliases, and the
+ * first alias over a duplicated one). Conflicting aliases are logged.
+ *
  * @author See AUTHORS file.
  * @version 1.0.0, Nov 7, 2014.
  * @param <T> the generic type
  */
-public class HostHeaderCriterion<T> implements ICriterion<T> {
+public class HostHeaderCriterion<T> implements ICriterion<T>, ISelectionCriterion<T> {
+
+    /**
+     * Class HostSet: the candidates and their host index.
+     *
+     * @author See AUTHORS file.
+     * @version 1.0.0, Oct 18, 2026.
+     * @param <T> the generic type
+     */
+    public static class HostSet<T> extends CandidateSet<T> {
+
+        /** The host index. */
+        private final HostIndex<T> hostIndex;
+
+        /**
+         * Instantiates a new host set.
+         *
+         * @param candidates the candidates
+         * @param properties the properties
+         */
+        public HostSet(final Map<String, T> candidates, final JsonObject properties) {
+            this(candidates, properties, null);
+        }
+
+        /**
+         * Instantiates a new host set.
+         *
+         * @param candidates the candidates
+         * @param properties the properties
+         * @param log the log of the alias conflicts (may be null)
+         */
+        public HostSet(final Map<String, T> candidates, final JsonObject properties, final SafeLogger log) {
+            super(candidates.values(), properties);
+            this.hostIndex = compileHostIndex(candidates, 0L, log);
+        }
+
+        /**
+         * Gets the host index.
+         *
+         * @return the host index
+         */
+        public HostIndex<T> getHostIndex() {
+            return hostIndex;
+        }
+    }
 
     /** The log. */
     private SafeLogger log = null;
@@ -42,6 +100,12 @@ public class HostHeaderCriterion<T> implements ICriterion<T> {
     /** The map. */
     private Map<String, T> map = null;
 
+    /** The map version (incremented by RESET_REQUIRED). */
+    private final AtomicLong mapVersion = new AtomicLong(0L);
+
+    /** The host index. */
+    private final AtomicReference<HostIndex<T>> hostIndex = new AtomicReference<>(new HostIndex<T>());
+
     /* (non-Javadoc)
      * @see com.globo.galeb.criteria.ICriterion#setLog(org.vertx.java.core.logging.Logger)
      */
@@ -57,6 +121,7 @@ public class HostHeaderCriterion<T> implements ICriterion<T> {
     @Override
     public ICriterion<T> given(final Map<String, T> map) {
         this.map = map;
+        mapVersion.incrementAndGet();
         return this;
     }
 
@@ -65,8 +130,11 @@ public class HostHeaderCriterion<T> implements ICriterion<T> {
      */
     @Override
     public ICriterion<T> when(final Object param) {
-        if (param instanceof HttpServerRequest) {
-            host = new RequestMatch((HttpServerRequest)param).getHeader(HttpHeaders.HOST.toString());
+        if (param instanceof RequestView) {
+            host = ((RequestView)param).getHost();
+        } else if (param instanceof HttpServerRequest) {
+            String hostHeader = ((HttpServerRequest)param).headers().get(HttpHeaders.HOST);
+            host = hostHeader!=null ? hostHeader : "";
         } else {
             if (log!=null){
                 log.warn(String.format("Param is instance of %s.class. Expected %s.class",
@@ -85,13 +153,12 @@ public class HostHeaderCriterion<T> implements ICriterion<T> {
             log.warn("Host UNDEF");
             return null;
         }
-        String hostWithoutPort = host.split(":")[0];
-        if (!map.containsKey(hostWithoutPort)) {
-            log.warn(String.format("Host: %s UNDEF", hostWithoutPort));
-            return null;
+        T result = getHostIndex().find(host);
+        if (result==null) {
+            log.warn(String.format("Host: %s UNDEF", host));
         }
 
-        return map.get(hostWithoutPort);
+        return result;
     }
 
     /* (non-Javadoc)
@@ -99,6 +166,66 @@ public class HostHeaderCriterion<T> implements ICriterion<T> {
      */
     @Override
     public ICriterion<T> action(ICriterion.CriterionAction criterionAction) {
+        if (criterionAction==ICriterion.CriterionAction.RESET_REQUIRED) {
+            mapVersion.incrementAndGet();
+        }
         return this;
     }
+
+    /**
+     * Gets the host index, compiling it if the map changed.
+     *
+     * @return the host index
+     */
+    public HostIndex<T> getHostIndex() {
+        HostIndex<T> currentIndex = hostIndex.get();
+        long version = mapVersion.get();
+        if (currentIndex.getVersion()!=version && map!=null) {
+            currentIndex = compileHostIndex(map, version, log);
+            hostIndex.set(currentIndex);
+        }
+        return currentIndex;
+    }
+
+    /**
+     * Compile the host index: the hosts, then the aliases. An alias already
+     * resolved to another virtualhost (as its host or alias) is ignored and logged.
+     *
+     * @param <T> the generic type
+     * @param map the map
+     * @param version the version
+     * @param log the log (may be null)
+     * @return the host index
+     */
+    private static <T> HostIndex<T> compileHostIndex(final Map<String, T> map, long version, final SafeLogger log) {
+        HostIndex<T> newIndex = new HostIndex<>(map, version);
+        for (T entity: map.values()) {
+            if (entity instanceof Virtualhost) {
+                for (String alias: ((Virtualhost) entity).getAliases()) {
+                    T owner = newIndex.putIfAbsent(alias, entity);
+                    if (owner!=null && owner!=entity && log!=null) {
+                        log.warn(String.format("Alias %s of Virtualhost %s ignored. Already resolved to Virtualhost %s",
+                                alias, entity, owner));
+                    }
+                }
+            }
+        }
+        return newIndex;
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.criteria.ISelectionCriterion#prepare(java.util.Map, org.vertx.java.core.json.JsonObject)
+     */
+    @Override
+    public CandidateSet<T> prepare(final Map<String, T> candidates, final JsonObject properties) {
+        return new HostSet<T>(candidates!=null ? candidates : Collections.<String, T>emptyMap(), properties, log);
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.criteria.ISelectionCriterion#select(com.globo.galeb.criteria.CandidateSet, com.globo.galeb.request.RequestView)
+     */
+    @Override
+    public T select(final CandidateSet<T> candidates, final RequestView requestView) {
+        return ((HostSet<T>) candidates).getHostIndex().find(requestView.getHost());
+    }
 }
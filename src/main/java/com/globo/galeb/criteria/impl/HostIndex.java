@@ -0,0 +1,408 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.criteria.impl;
+
+import java.util.Map;
+
+/**
+ * Class HostIndex.
+ *
+ * Index of hosts (virtualhosts). Exact hosts are kept in a hash table with
+ * lowercase keys. Wildcard hosts (*.example.com) are kept in a trie of
+ * reversed labels (com -&gt; example), and match any host with at least one
+ * label before the suffix. An exact host wins over the wildcards, and the
+ * longest wildcard suffix wins over the others.
+ *
+ * The lookup reads the Host header in place: the port is ignored, the case
+ * is folded while hashing and the labels are compared as regions, so no
+ * string is created by a lookup.
+ *
+ * Immutable after the build: a new (versioned) index is compiled when the
+ * hosts change.
+ *
+ * @author See AUTHORS file.
+ * @version 1.0.0, Oct 18, 2026.
+ * @param <T> the generic type
+ */
+public class HostIndex<T> {
+
+    /** The wildcard prefix. */
+    public static final String WILDCARD_PREFIX = "*.";
+
+    /**
+     * Class Table.
+     *
+     * Open addressing hash table, with lowercase keys, searched by a case
+     * insensitive region of a char sequence.
+     *
+     * @author See AUTHORS file.
+     * @version 1.0.0, Oct 18, 2026.
+     * @param <V> the value type
+     */
+    private static final class Table<V> {
+
+        /** The keys. */
+        private String[] keys = new String[4];
+
+        /** The values. */
+        private Object[] values = new Object[4];
+
+        /** The size. */
+        private int size = 0;
+
+        /**
+         * Gets the value of a key region.
+         *
+         * @param chars the chars
+         * @param start the region start
+         * @param end the region end (exclusive)
+         * @return the value, or null if not found
+         */
+        @SuppressWarnings("unchecked")
+        private V get(final CharSequence chars, int start, int end) {
+            int mask = keys.length - 1;
+            int pos = hash(chars, start, end) & mask;
+            String key;
+            while ((key = keys[pos])!=null) {
+                if (regionEquals(key, chars, start, end)) {
+                    return (V) values[pos];
+                }
+                pos = (pos + 1) & mask;
+            }
+            return null;
+        }
+
+        /**
+         * Add a key, if absent.
+         *
+         * @param key the key (lowercase)
+         * @param value the value
+         * @return the value of the key (the older value, if already present)
+         */
+        @SuppressWarnings("unchecked")
+        private V putIfAbsent(String key, V value) {
+            if ((size + 1) * 2 > keys.length) {
+                resize(keys.length * 2);
+            }
+            int mask = keys.length - 1;
+            int pos = hash(key, 0, key.length()) & mask;
+            while (keys[pos]!=null) {
+                if (keys[pos].equals(key)) {
+                    return (V) values[pos];
+                }
+                pos = (pos + 1) & mask;
+            }
+            keys[pos] = key;
+            values[pos] = value;
+            size++;
+            return value;
+        }
+
+        /**
+         * Resize and rehash.
+         *
+         * @param capacity the new capacity (power of two)
+         */
+        private void resize(int capacity) {
+            String[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new String[capacity];
+            values = new Object[capacity];
+            int mask = capacity - 1;
+            for (int x=0; x<oldKeys.length; x++) {
+                if (oldKeys[x]!=null) {
+                    int pos = hash(oldKeys[x], 0, oldKeys[x].length()) & mask;
+                    while (keys[pos]!=null) {
+                        pos = (pos + 1) & mask;
+                    }
+                    keys[pos] = oldKeys[x];
+                    values[pos] = oldValues[x];
+                }
+            }
+        }
+    }
+
+    /**
+     * Class Node.
+     *
+     * @author See AUTHORS file.
+     * @version 1.0.0, Oct 18, 2026.
+     * @param <V> the value type
+     */
+    private static final class Node<V> {
+
+        /** The children, by label. */
+        private Table<Node<V>> children = null;
+
+        /** The wildcard value (suffix ending here). */
+        private V value = null;
+    }
+
+    /** The exact hosts. */
+    private final Table<T> exactHosts = new Table<>();
+
+    /** The wildcard root. */
+    private final Node<T> wildcardRoot = new Node<>();
+
+    /** The number of wildcards. */
+    private int wildcardSize = 0;
+
+    /** The version. */
+    private final long version;
+
+    /**
+     * Instantiates a new empty host index.
+     */
+    public HostIndex() {
+        this(0L);
+    }
+
+    /**
+     * Instantiates a new empty host index.
+     *
+     * @param version the version
+     */
+    public HostIndex(long version) {
+        this.version = version;
+    }
+
+    /**
+     * Instantiates a new host index.
+     *
+     * @param hosts the values by host
+     * @param version the version
+     */
+    public HostIndex(final Map<String, T> hosts, long version) {
+        this(version);
+        for (Map.Entry<String, T> entry: hosts.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Add a host. Wildcard hosts start with WILDCARD_PREFIX. If the host
+     * (case insensitive) already exists, the first value is kept.
+     *
+     * @param host the host
+     * @param value the value
+     * @return this
+     */
+    public HostIndex<T> put(String host, T value) {
+        putIfAbsent(host, value);
+        return this;
+    }
+
+    /**
+     * Add a host, if absent (case insensitive). Wildcard hosts start with
+     * WILDCARD_PREFIX.
+     *
+     * @param host the host
+     * @param value the value
+     * @return the value of the host (the older value, if already present),
+     *         or null if the host or the value is invalid
+     */
+    public T putIfAbsent(String host, T value) {
+        if (host==null || "".equals(host) || value==null) {
+            return null;
+        }
+        String key = toLowerCase(host);
+        if (key.startsWith(WILDCARD_PREFIX) && key.length()>WILDCARD_PREFIX.length()) {
+            return putWildcard(key, value);
+        }
+        return exactHosts.putIfAbsent(key, value);
+    }
+
+    /**
+     * Gets the value of a Host header (the port is ignored).
+     *
+     * @param hostHeader the Host header
+     * @return the value, or null if not found
+     */
+    public T find(final CharSequence hostHeader) {
+        if (hostHeader==null) {
+            return null;
+        }
+        int end = hostEnd(hostHeader);
+        if (end==0) {
+            return null;
+        }
+        T value = exactHosts.get(hostHeader, 0, end);
+        if (value!=null || wildcardSize==0) {
+            return value;
+        }
+
+        Node<T> node = wildcardRoot;
+        int labelEnd = end;
+        while (node.children!=null) {
+            int dot = labelEnd - 1;
+            while (dot>=0 && hostHeader.charAt(dot)!='.') {
+                dot--;
+            }
+            node = node.children.get(hostHeader, dot + 1, labelEnd);
+            if (node==null || dot<0) {
+                break;
+            }
+            if (node.value!=null) {
+                value = node.value;
+            }
+            labelEnd = dot;
+        }
+        return value;
+    }
+
+    /**
+     * Gets the version.
+     *
+     * @return the version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the number of hosts (exact and wildcards).
+     *
+     * @return the size
+     */
+    public int size() {
+        return exactHosts.size + wildcardSize;
+    }
+
+    /**
+     * Gets the number of wildcard hosts.
+     *
+     * @return the wildcard size
+     */
+    public int getWildcardSize() {
+        return wildcardSize;
+    }
+
+    /**
+     * Add a wildcard host.
+     *
+     * @param key the wildcard host (lowercase)
+     * @param value the value
+     * @return the value of the wildcard host (the older value, if already present)
+     */
+    private T putWildcard(String key, T value) {
+        Node<T> node = wildcardRoot;
+        int labelEnd = key.length();
+        int start = WILDCARD_PREFIX.length();
+        while (labelEnd>=start) {
+            int dot = key.lastIndexOf('.', labelEnd - 1);
+            if (dot<start-1) {
+                dot = start-1;
+            }
+            if (node.children==null) {
+                node.children = new Table<>();
+            }
+            node = node.children.putIfAbsent(key.substring(dot + 1, labelEnd), new Node<T>());
+            labelEnd = dot;
+        }
+        if (node.value==null) {
+            node.value = value;
+            wildcardSize++;
+        }
+        return node.value;
+    }
+
+    /**
+     * Gets the end of the host name in a Host header, without the port
+     * (IPv6 literals between brackets are kept whole) and the trailing dot.
+     *
+     * @param hostHeader the Host header
+     * @return the end (exclusive)
+     */
+    private static int hostEnd(final CharSequence hostHeader) {
+        int length = hostHeader.length();
+        int end = 0;
+        if (length>0 && hostHeader.charAt(0)=='[') {
+            while (end<length && hostHeader.charAt(end)!=']') {
+                end++;
+            }
+            return end<length ? end + 1 : length;
+        }
+        while (end<length && hostHeader.charAt(end)!=':') {
+            end++;
+        }
+        if (end>0 && hostHeader.charAt(end-1)=='.') {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Lowercase an ASCII char.
+     *
+     * @param c the char
+     * @return the lowercase char
+     */
+    private static char toLowerCase(char c) {
+        return (c>='A' && c<='Z') ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    /**
+     * Lowercase (ASCII) a host.
+     *
+     * @param host the host
+     * @return the lowercase host
+     */
+    private static String toLowerCase(String host) {
+        char[] chars = host.toCharArray();
+        for (int x=0; x<chars.length; x++) {
+            chars[x] = toLowerCase(chars[x]);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Case insensitive hash of a region.
+     *
+     * @param chars the chars
+     * @param start the region start
+     * @param end the region end (exclusive)
+     * @return the hash
+     */
+    private static int hash(final CharSequence chars, int start, int end) {
+        int hash = 0;
+        for (int x=start; x<end; x++) {
+            hash = 31 * hash + toLowerCase(chars.charAt(x));
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Checks if a lowercase key is equal to a region (case insensitive).
+     *
+     * @param key the key
+     * @param chars the chars
+     * @param start the region start
+     * @param end the region end (exclusive)
+     * @return true, if equals
+     */
+    private static boolean regionEquals(String key, final CharSequence chars, int start, int end) {
+        if (key.length()!=end-start) {
+            return false;
+        }
+        for (int x=start; x<end; x++) {
+            if (key.charAt(x-start)!=toLowerCase(chars.charAt(x))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
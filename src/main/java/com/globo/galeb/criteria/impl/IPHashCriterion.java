@@ -17,15 +17,22 @@ package com.globo.galeb.criteria.impl;
 
 import static com.globo.galeb.consistenthash.HashAlgorithm.HashType.*;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.net.InetAddress;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 
+import com.globo.galeb.collection.IndexedMap;
 import com.globo.galeb.consistenthash.ConsistentHash;
 import com.globo.galeb.consistenthash.HashAlgorithm;
+import com.globo.galeb.criteria.CandidateSet;
 import com.globo.galeb.criteria.ICriterion;
+import com.globo.galeb.criteria.ISelectionCriterion;
+import com.globo.galeb.criteria.IWhenMatch;
 import com.globo.galeb.logger.SafeLogger;
 import com.globo.galeb.request.RequestData;
+import com.globo.galeb.request.RequestView;
+import com.google.common.net.InetAddresses;
 
 import org.vertx.java.core.json.JsonObject;
 
@@ -37,7 +44,7 @@ import org.vertx.java.core.json.JsonObject;
  * @version 1.0.0, Nov 9, 2014.
  * @param <T> the generic type
  */
-public class IPHashCriterion<T> implements ICriterion<T> {
+public class IPHashCriterion<T> implements ICriterion<T>, ISelectionCriterion<T> {
 
     /** The Constant DEFAULT_HASH_ALGORITHM. */
     public static final String DEFAULT_HASH_ALGORITHM     = SIP24.toString();
@@ -45,13 +52,111 @@ public class IPHashCriterion<T> implements ICriterion<T> {
     /** The Constant HASH_ALGORITHM_FIELDNAME. */
     public static final String HASH_ALGORITHM_FIELDNAME   = "hashAlgorithm";
 
+    /** The Constant VIRTUAL_NODES_FIELDNAME. */
+    public static final String VIRTUAL_NODES_FIELDNAME    = "virtualNodes";
+
+    /** The Constant DEFAULT_VIRTUAL_NODES. */
+    public static final int    DEFAULT_VIRTUAL_NODES      = 128;
+
+    /** The Constant MAX_VIRTUAL_NODES. */
+    public static final int    MAX_VIRTUAL_NODES          = 1024;
+
+    /**
+     * Class Ring: the candidates of a pool and its consistent hash.
+     *
+     * @author See AUTHORS file.
+     * @version 1.0.0, Oct 18, 2026.
+     * @param <T> the generic type
+     */
+    public static class Ring<T> extends CandidateSet<T> {
+
+        /** The consistent hash. */
+        private final ConsistentHash<T> consistentHash;
+
+        /**
+         * Instantiates a new ring.
+         *
+         * @param candidates the candidates
+         * @param properties the properties
+         */
+        public Ring(final Collection<T> candidates, final JsonObject properties) {
+            super(candidates, properties);
+            String hashType = getProperties().getString(HASH_ALGORITHM_FIELDNAME, DEFAULT_HASH_ALGORITHM);
+            this.consistentHash = new ConsistentHash<T>(new HashAlgorithm(hashType),
+                    getVirtualNodes(getProperties()), candidates!=null ? candidates : Collections.<T>emptyList());
+        }
+
+        /**
+         * Gets the node of a remote address string.
+         *
+         * @param key the key
+         * @return the node
+         */
+        public T locate(String key) {
+            return IPHashCriterion.locate(consistentHash, key);
+        }
+
+        /**
+         * Gets the node of an address (hashed from its bytes).
+         *
+         * @param address the address
+         * @return the node
+         */
+        public T locate(InetAddress address) {
+            return consistentHash.get(address);
+        }
+
+        /**
+         * Gets the consistent hash.
+         *
+         * @return the consistent hash
+         */
+        public ConsistentHash<T> getConsistentHash() {
+            return consistentHash;
+        }
+    }
+
+    /**
+     * Gets the virtual nodes (points per backend) of the ring.
+     *
+     * @param properties the properties
+     * @return the virtual nodes, between 1 and MAX_VIRTUAL_NODES
+     */
+    public static int getVirtualNodes(final JsonObject properties) {
+        Object virtualNodes = properties.getValue(VIRTUAL_NODES_FIELDNAME);
+        if (!(virtualNodes instanceof Number)) {
+            return DEFAULT_VIRTUAL_NODES;
+        }
+        return Math.min(Math.max(((Number) virtualNodes).intValue(), 1), MAX_VIRTUAL_NODES);
+    }
+
+    /**
+     * Gets the node of a remote address string: an ip literal is hashed as
+     * its address, so the same key as select with the socket address.
+     *
+     * @param consistentHash the consistent hash
+     * @param remoteAddress the remote address
+     * @return the node
+     */
+    private static <T> T locate(final ConsistentHash<T> consistentHash, String remoteAddress) {
+        if (InetAddresses.isInetAddress(remoteAddress)) {
+            return consistentHash.get(InetAddresses.forString(remoteAddress));
+        }
+        return consistentHash.get(remoteAddress);
+    }
 
     /** The log. */
     @SuppressWarnings("unused")
     private SafeLogger        log            = null;
 
-    /** The collection. */
-    private List<T>           collection     = new ArrayList<T>();
+    /** The map. */
+    private Map<String, T>    map            = null;
+
+    /** The map version (if the map is an IndexedMap). */
+    private long              mapVersion     = 0L;
+
+    /** The map size. */
+    private int               mapSize        = 0;
 
     /** The request data. */
     private RequestData       requestData    = new RequestData();
@@ -60,7 +165,10 @@ public class IPHashCriterion<T> implements ICriterion<T> {
     private ConsistentHash<T> consistentHash = null;
 
     /** The hash type. */
-    private String            hashType       = "";
+    private String            hashType       = DEFAULT_HASH_ALGORITHM;
+
+    /** The virtual nodes. */
+    private int               virtualNodes   = DEFAULT_VIRTUAL_NODES;
 
     /** The source ip. */
     private String            sourceIp       = "";
@@ -80,9 +188,11 @@ public class IPHashCriterion<T> implements ICriterion<T> {
     @Override
     public ICriterion<T> given(final Map<String, T> map) {
         if (map!=null) {
-            int lastCollectionSize = collection.size();
-            this.collection     = new ArrayList<T>(map.values());
-            if (collection.size()!=lastCollectionSize) {
+            long version = map instanceof IndexedMap ? ((IndexedMap<String, T>) map).getVersion() : 0L;
+            if (map!=this.map || version!=mapVersion || map.size()!=mapSize) {
+                this.map = map;
+                this.mapVersion = version;
+                this.mapSize = map.size();
                 consistentHash = null;
             }
         }
@@ -99,10 +209,14 @@ public class IPHashCriterion<T> implements ICriterion<T> {
             JsonObject requestDataProperties = ((RequestData) param).getProperties();
             String lastHashType = hashType;
             this.hashType = requestDataProperties.getString(HASH_ALGORITHM_FIELDNAME, DEFAULT_HASH_ALGORITHM);
-            if (!hashType.equals(lastHashType)) {
+            int lastVirtualNodes = virtualNodes;
+            this.virtualNodes = getVirtualNodes(requestDataProperties);
+            if (!hashType.equals(lastHashType) || virtualNodes!=lastVirtualNodes) {
                 consistentHash = null;
             }
             this.sourceIp = requestData.getRemoteAddress();
+        } else if (param instanceof IWhenMatch) {
+            this.sourceIp = ((IWhenMatch) param).getRemoteAddress();
         }
         return this;
     }
@@ -113,18 +227,16 @@ public class IPHashCriterion<T> implements ICriterion<T> {
     @Override
     public T thenGetResult() {
 
-        if (collection.isEmpty() || "".equals(sourceIp)) {
+        if (map==null || map.isEmpty() || "".equals(sourceIp)) {
             return null;
         }
 
-        int numberOfReplicas = 1;
-
         if (consistentHash == null) {
             consistentHash = new ConsistentHash<T>(new HashAlgorithm(hashType),
-                                                    numberOfReplicas, collection);
+                                                    virtualNodes, map.values());
         }
 
-        return consistentHash.get(sourceIp);
+        return locate(consistentHash, sourceIp);
     }
 
     /* (non-Javadoc)
@@ -132,7 +244,39 @@ public class IPHashCriterion<T> implements ICriterion<T> {
      */
     @Override
     public ICriterion<T> action(ICriterion.CriterionAction criterionAction) {
+        switch (criterionAction) {
+            case RESET_REQUIRED:
+                consistentHash = null;
+                break;
+
+            default:
+                break;
+        }
         return this;
     }
 
+    /* (non-Javadoc)
+     * @see com.globo.galeb.criteria.ISelectionCriterion#prepare(java.util.Map, org.vertx.java.core.json.JsonObject)
+     */
+    @Override
+    public CandidateSet<T> prepare(final Map<String, T> candidates, final JsonObject properties) {
+        return new Ring<T>(candidates!=null ? candidates.values() : null, properties);
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.criteria.ISelectionCriterion#select(com.globo.galeb.criteria.CandidateSet, com.globo.galeb.request.RequestView)
+     */
+    @Override
+    public T select(final CandidateSet<T> candidates, final RequestView requestView) {
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        InetAddress address = requestView.getRemoteSocketAddress().getAddress();
+        if (address!=null) {
+            return ((Ring<T>) candidates).locate(address);
+        }
+        String remoteAddress = requestView.getRemoteAddress();
+        return "".equals(remoteAddress) ? null : ((Ring<T>) candidates).locate(remoteAddress);
+    }
+
 }
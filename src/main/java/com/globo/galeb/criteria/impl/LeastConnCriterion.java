@@ -15,34 +15,230 @@
  */
 package com.globo.galeb.criteria.impl;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
+import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
+import org.vertx.java.core.json.JsonObject;
+
+import com.globo.galeb.criteria.CandidateSet;
 import com.globo.galeb.criteria.ICriterion;
+import com.globo.galeb.criteria.ISelectionCriterion;
 import com.globo.galeb.entity.impl.backend.IBackend;
 import com.globo.galeb.logger.SafeLogger;
+import com.globo.galeb.request.RequestView;
 
 
 /**
  * Class LeastConnCriterion.
  *
+ * Keeps the candidates in buckets by active connections (Buckets), moved
+ * when the router connects or closes (CandidateSet.update). A choice takes
+ * a random candidate of the lowest bucket, so ties do not herd on the
+ * same backend. Connections not seen by the router (other instances, idle
+ * sessions expired) are read again every size() choices.
+ *
  * @author See AUTHORS file.
  * @version 1.0.0, Nov 9, 2014.
  * @param <T> the generic type
  */
-public class LeastConnCriterion<T extends Comparable<T>> implements ICriterion<T> {
+public class LeastConnCriterion<T> implements ICriterion<T>, ISelectionCriterion<T> {
+
+    /** The Constant MAX_BUCKET: connections above it share the last bucket. */
+    public static final int MAX_BUCKET = 4096;
+
+    /**
+     * Class Buckets: the candidates of a pool by active connections.
+     *
+     * Not thread safe: one per pool route (one event loop).
+     *
+     * @author See AUTHORS file.
+     * @version 1.0.0, Oct 18, 2026.
+     * @param <T> the generic type
+     */
+    public static class Buckets<T> extends CandidateSet<T> {
+
+        /** The candidate positions. */
+        private final Map<T, Integer> positions = new IdentityHashMap<>();
+
+        /** The known connections (bucket) of each candidate. */
+        private final int[] loads;
+
+        /** The slot of each candidate in its bucket. */
+        private final int[] slots;
+
+        /** The candidates (positions) of each bucket. */
+        private int[][] buckets = new int[1][];
+
+        /** The size of each bucket. */
+        private int[] bucketSizes = new int[1];
+
+        /** The lowest bucket not empty. */
+        private int minLoad = 0;
+
+        /** The choices since the last refresh. */
+        private int choices = 0;
+
+        /**
+         * Instantiates a new buckets.
+         *
+         * @param candidates the candidates
+         * @param properties the properties
+         */
+        public Buckets(final Collection<T> candidates, final JsonObject properties) {
+            super(candidates, properties);
+            this.loads = new int[size()];
+            this.slots = new int[size()];
+            buckets[0] = new int[Math.max(size(), 1)];
+            for (int pos=0; pos<size(); pos++) {
+                positions.put(get(pos), pos);
+                place(pos, liveLoad(pos));
+            }
+        }
+
+        /* (non-Javadoc)
+         * @see com.globo.galeb.criteria.CandidateSet#update(java.lang.Object)
+         */
+        @Override
+        public void update(final T candidate) {
+            Integer pos = positions.get(candidate);
+            if (pos!=null) {
+                move(pos, liveLoad(pos));
+            }
+        }
+
+        /**
+         * Choose a candidate with the least connections (random between ties).
+         *
+         * @return the candidate, or null if empty
+         */
+        public T choose() {
+            if (isEmpty()) {
+                return null;
+            }
+            if (++choices>=size()) {
+                choices = 0;
+                refresh();
+            }
+            int pos = 0;
+            for (int tries=0; tries<size(); tries++) {
+                pos = randomOfMinBucket();
+                int load = liveLoad(pos);
+                if (load==loads[pos]) {
+                    return get(pos);
+                }
+                // stale: move it and try again
+                move(pos, load);
+            }
+            return get(pos);
+        }
+
+        /**
+         * Gets the known connections of a candidate.
+         *
+         * @param candidate the candidate
+         * @return the connections (bucket), or -1 if not a candidate
+         */
+        public int getLoad(final T candidate) {
+            Integer pos = positions.get(candidate);
+            return pos!=null ? loads[pos] : -1;
+        }
+
+        /**
+         * Read again the connections of all candidates.
+         */
+        public void refresh() {
+            for (int pos=0; pos<size(); pos++) {
+                move(pos, liveLoad(pos));
+            }
+        }
+
+        /**
+         * Gets a random candidate (position) of the lowest bucket.
+         *
+         * @return the position
+         */
+        private int randomOfMinBucket() {
+            while (bucketSizes[minLoad]==0 && minLoad<bucketSizes.length-1) {
+                minLoad++;
+            }
+            int bucketSize = bucketSizes[minLoad];
+            int slot = bucketSize>1 ? ThreadLocalRandom.current().nextInt(bucketSize) : 0;
+            return buckets[minLoad][slot];
+        }
+
+        /**
+         * Gets the active connections of a candidate, as a bucket.
+         *
+         * @param pos the position
+         * @return the bucket
+         */
+        private int liveLoad(int pos) {
+            T candidate = get(pos);
+            int load = (candidate instanceof IBackend) ? ((IBackend) candidate).getActiveConnections() : 0;
+            return Math.min(Math.max(load, 0), MAX_BUCKET);
+        }
+
+        /**
+         * Move a candidate to another bucket.
+         *
+         * @param pos the position
+         * @param load the bucket
+         */
+        private void move(int pos, int load) {
+            if (loads[pos]==load) {
+                return;
+            }
+            int bucket = loads[pos];
+            int slot = slots[pos];
+            int last = buckets[bucket][--bucketSizes[bucket]];
+            buckets[bucket][slot] = last;
+            slots[last] = slot;
+            place(pos, load);
+        }
+
+        /**
+         * Place a candidate in a bucket.
+         *
+         * @param pos the position
+         * @param load the bucket
+         */
+        private void place(int pos, int load) {
+            if (load>=bucketSizes.length) {
+                int newLength = Math.min(Math.max(load+1, bucketSizes.length*2), MAX_BUCKET+1);
+                int[][] newBuckets = new int[newLength][];
+                System.arraycopy(buckets, 0, newBuckets, 0, buckets.length);
+                int[] newBucketSizes = new int[newLength];
+                System.arraycopy(bucketSizes, 0, newBucketSizes, 0, bucketSizes.length);
+                buckets = newBuckets;
+                bucketSizes = newBucketSizes;
+            }
+            if (buckets[load]==null) {
+                buckets[load] = new int[4];
+            } else if (bucketSizes[load]==buckets[load].length) {
+                int[] newBucket = new int[buckets[load].length*2];
+                System.arraycopy(buckets[load], 0, newBucket, 0, buckets[load].length);
+                buckets[load] = newBucket;
+            }
+            slots[pos] = bucketSizes[load];
+            buckets[load][bucketSizes[load]++] = pos;
+            loads[pos] = load;
+            if (load<minLoad) {
+                minLoad = load;
+            }
+        }
+    }
 
     /** The log. */
     @SuppressWarnings("unused")
     private SafeLogger     log            = null;
 
-    /** The backends. */
-    private List<T>        backends       = new ArrayList<T>();
+    /** The map. */
+    private Map<String, T> map            = null;
 
-    private Map<String, T> map;
+    /** The buckets (compiled by the first choice after given or reset). */
+    private Buckets<T>     buckets        = null;
 
     /* (non-Javadoc)
      * @see com.globo.galeb.criteria.ICriterion#setLog(org.vertx.java.core.logging.Logger)
@@ -58,9 +254,9 @@ public class LeastConnCriterion<T extends Comparable<T>> implements ICriterion<T
      */
     @Override
     public ICriterion<T> given(final Map<String, T> map) {
-        this.map = map;
-        if (map!=null) {
-            this.backends.addAll(map.values());
+        if (map!=this.map) {
+            this.map = map;
+            this.buckets = null;
         }
         return this;
     }
@@ -78,21 +274,13 @@ public class LeastConnCriterion<T extends Comparable<T>> implements ICriterion<T
      */
     @Override
     public T thenGetResult() {
-
-        if (backends.isEmpty()) {
+        if (map==null) {
             return null;
         }
-
-        Comparator<? super T> comparator = new Comparator<T>() {
-            @Override
-            public int compare(T be1, T be2) {
-                if (be1 instanceof IBackend && be2 instanceof IBackend) {
-                    return ((IBackend) be1).getActiveConnections()-((IBackend) be2).getActiveConnections();
-                }
-                return 0;
-            }
-        };
-        return Collections.min(map.values(), comparator);
+        if (buckets==null) {
+            buckets = new Buckets<T>(map.values(), null);
+        }
+        return buckets.choose();
     }
 
 
@@ -101,7 +289,26 @@ public class LeastConnCriterion<T extends Comparable<T>> implements ICriterion<T
      */
     @Override
     public ICriterion<T> action(ICriterion.CriterionAction criterionAction) {
+        if (criterionAction==ICriterion.CriterionAction.RESET_REQUIRED) {
+            buckets = null;
+        }
         return this;
     }
 
+    /* (non-Javadoc)
+     * @see com.globo.galeb.criteria.ISelectionCriterion#prepare(java.util.Map, org.vertx.java.core.json.JsonObject)
+     */
+    @Override
+    public CandidateSet<T> prepare(final Map<String, T> candidates, final JsonObject properties) {
+        return new Buckets<T>(candidates!=null ? candidates.values() : null, properties);
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.criteria.ISelectionCriterion#select(com.globo.galeb.criteria.CandidateSet, com.globo.galeb.request.RequestView)
+     */
+    @Override
+    public T select(final CandidateSet<T> candidates, final RequestView requestView) {
+        return ((Buckets<T>) candidates).choose();
+    }
+
 }
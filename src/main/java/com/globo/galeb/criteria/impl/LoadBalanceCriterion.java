@@ -55,9 +55,6 @@ public class LoadBalanceCriterion<T> implements ICriterion<T> {
     /** The param. */
     private Object                 param                = null;
 
-    /** The reset. */
-    private boolean reset = false;
-
     /* (non-Javadoc)
      * @see com.globo.galeb.criteria.ICriterion#setLog(org.vertx.java.core.logging.Logger)
      */
@@ -102,10 +99,6 @@ public class LoadBalanceCriterion<T> implements ICriterion<T> {
     @Override
     public T thenGetResult() {
         if (loadBalanceCriterion==null) {
-            if (reset) {
-                LoadBalanceCriterionFactory.reset(loadBalanceName);
-                reset = false;
-            }
             loadBalanceCriterion = (ICriterion<T>) LoadBalanceCriterionFactory.create(loadBalanceName);
         }
         return (T) loadBalanceCriterion.given(map).when(param).thenGetResult();
@@ -119,7 +112,6 @@ public class LoadBalanceCriterion<T> implements ICriterion<T> {
         switch (criterionAction) {
             case RESET_REQUIRED:
                 loadBalanceCriterion = null;
-                reset = true;
                 break;
 
             default:
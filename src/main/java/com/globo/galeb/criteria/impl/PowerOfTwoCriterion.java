@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.criteria.impl;
+
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.vertx.java.core.json.JsonObject;
+
+import com.globo.galeb.criteria.CandidateSet;
+import com.globo.galeb.criteria.ICriterion;
+import com.globo.galeb.criteria.ISelectionCriterion;
+import com.globo.galeb.logger.SafeLogger;
+import com.globo.galeb.request.RequestView;
+
+/**
+ * Class PowerOfTwoCriterion.
+ *
+ * Power of two choices: samples two distinct candidates and chooses the
+ * one with the lower score, (inFlight + 1) * (latency EWMA + 1), where
+ * inFlight are the requests sent by this router and not ended yet, and the
+ * latency EWMA is fed by the response times (CandidateSet.requestEnded).
+ * A slow backend loses every comparison without a full scan.
+ *
+ * @author See AUTHORS file.
+ * @version 1.0.0, Oct 18, 2026.
+ * @param <T> the generic type
+ */
+public class PowerOfTwoCriterion<T> implements ICriterion<T>, ISelectionCriterion<T> {
+
+    /** The Constant EWMA_WEIGHT_FIELDNAME. */
+    public static final String EWMA_WEIGHT_FIELDNAME = "ewmaWeight";
+
+    /** The Constant DEFAULT_EWMA_WEIGHT: weight of the last response time. */
+    public static final double DEFAULT_EWMA_WEIGHT   = 0.2;
+
+    /**
+     * Class Scores: the candidates of a pool with their in flight requests
+     * and latency EWMA.
+     *
+     * Not thread safe: one per pool route (one event loop).
+     *
+     * @author See AUTHORS file.
+     * @version 1.0.0, Oct 18, 2026.
+     * @param <T> the generic type
+     */
+    public static class Scores<T> extends CandidateSet<T> {
+
+        /** The candidate positions. */
+        private final Map<T, Integer> positions = new IdentityHashMap<>();
+
+        /** The in flight requests of each candidate. */
+        private final int[] inFlight;
+
+        /** The latency EWMA (ms) of each candidate. */
+        private final double[] latency;
+
+        /** The EWMA weight. */
+        private final double ewmaWeight;
+
+        /**
+         * Instantiates a new scores.
+         *
+         * @param candidates the candidates
+         * @param properties the properties
+         */
+        public Scores(final Collection<T> candidates, final JsonObject properties) {
+            super(candidates, properties);
+            this.inFlight = new int[size()];
+            this.latency = new double[size()];
+            Number weight = getProperties().getNumber(EWMA_WEIGHT_FIELDNAME);
+            double localWeight = weight!=null ? weight.doubleValue() : DEFAULT_EWMA_WEIGHT;
+            this.ewmaWeight = localWeight>0.0 && localWeight<=1.0 ? localWeight : DEFAULT_EWMA_WEIGHT;
+            for (int pos=0; pos<size(); pos++) {
+                positions.put(get(pos), pos);
+            }
+        }
+
+        /**
+         * Choose the best of two random candidates.
+         *
+         * @return the candidate, or null if empty
+         */
+        public T choose() {
+            int size = size();
+            if (size<2) {
+                return size==0 ? null : get(0);
+            }
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int first = random.nextInt(size);
+            int second = random.nextInt(size - 1);
+            if (second>=first) {
+                second++;
+            }
+            return get(score(second)<score(first) ? second : first);
+        }
+
+        /* (non-Javadoc)
+         * @see com.globo.galeb.criteria.CandidateSet#requestStarted(java.lang.Object)
+         */
+        @Override
+        public void requestStarted(final T candidate) {
+            Integer pos = positions.get(candidate);
+            if (pos!=null) {
+                inFlight[pos]++;
+            }
+        }
+
+        /* (non-Javadoc)
+         * @see com.globo.galeb.criteria.CandidateSet#requestEnded(java.lang.Object, long)
+         */
+        @Override
+        public void requestEnded(final T candidate, long responseTime) {
+            Integer pos = positions.get(candidate);
+            if (pos==null) {
+                return;
+            }
+            if (inFlight[pos]>0) {
+                inFlight[pos]--;
+            }
+            if (responseTime>=0L) {
+                latency[pos] += ewmaWeight * (responseTime - latency[pos]);
+            }
+        }
+
+        /**
+         * Gets the in flight requests of a candidate.
+         *
+         * @param candidate the candidate
+         * @return the in flight requests, or -1 if not a candidate
+         */
+        public int getInFlight(final T candidate) {
+            Integer pos = positions.get(candidate);
+            return pos!=null ? inFlight[pos] : -1;
+        }
+
+        /**
+         * Gets the latency EWMA of a candidate.
+         *
+         * @param candidate the candidate
+         * @return the latency EWMA (ms), or -1 if not a candidate
+         */
+        public double getLatency(final T candidate) {
+            Integer pos = positions.get(candidate);
+            return pos!=null ? latency[pos] : -1.0;
+        }
+
+        /**
+         * Gets the score of a candidate (lower is better).
+         *
+         * @param pos the position
+         * @return the score
+         */
+        private double score(int pos) {
+            return (inFlight[pos] + 1) * (latency[pos] + 1.0);
+        }
+    }
+
+    /** The log. */
+    @SuppressWarnings("unused")
+    private SafeLogger     log    = null;
+
+    /** The map. */
+    private Map<String, T> map    = null;
+
+    /** The scores (compiled by the first choice after given or reset). */
+    private Scores<T>      scores = null;
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.criteria.ICriterion#setLog(org.vertx.java.core.logging.Logger)
+     */
+    @Override
+    public ICriterion<T> setLog(final SafeLogger logger) {
+        log = logger;
+        return this;
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.criteria.ICriterion#given(java.util.Map)
+     */
+    @Override
+    public ICriterion<T> given(final Map<String, T> map) {
+        if (map!=this.map) {
+            this.map = map;
+            this.scores = null;
+        }
+        return this;
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.criteria.ICriterion#when(java.lang.Object)
+     */
+    @Override
+    public ICriterion<T> when(final Object param) {
+        return this;
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.criteria.ICriterion#thenGetResult()
+     */
+    @Override
+    public T thenGetResult() {
+        if (map==null) {
+            return null;
+        }
+        if (scores==null) {
+            scores = new Scores<T>(map.values(), null);
+        }
+        return scores.choose();
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.criteria.ICriterion#action(com.globo.galeb.criteria.ICriterion.CriterionAction)
+     */
+    @Override
+    public ICriterion<T> action(ICriterion.CriterionAction criterionAction) {
+        if (criterionAction==ICriterion.CriterionAction.RESET_REQUIRED) {
+            scores = null;
+        }
+        return this;
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.criteria.ISelectionCriterion#prepare(java.util.Map, org.vertx.java.core.json.JsonObject)
+     */
+    @Override
+    public CandidateSet<T> prepare(final Map<String, T> candidates, final JsonObject properties) {
+        return new Scores<T>(candidates!=null ? candidates.values() : null, properties);
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.criteria.ISelectionCriterion#select(com.globo.galeb.criteria.CandidateSet, com.globo.galeb.request.RequestView)
+     */
+    @Override
+    public T select(final CandidateSet<T> candidates, final RequestView requestView) {
+        return ((Scores<T>) candidates).choose();
+    }
+
+}
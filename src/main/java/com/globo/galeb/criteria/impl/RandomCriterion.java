@@ -15,20 +15,129 @@
  */
 package com.globo.galeb.criteria.impl;
 
+import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
-import com.globo.galeb.collection.IndexedMap;
+import org.vertx.java.core.json.JsonObject;
+
+import com.globo.galeb.criteria.CandidateSet;
 import com.globo.galeb.criteria.ICriterion;
+import com.globo.galeb.criteria.ISelectionCriterion;
 import com.globo.galeb.logger.SafeLogger;
+import com.globo.galeb.request.RequestView;
 
 /**
  * Class RandomCriterion.
  *
+ * Weighted random (IBackend.getWeight, 1 if not a backend) with a Walker
+ * alias table built when the pool changes: a choice is one column draw
+ * and one coin flip with ThreadLocalRandom, O(1) and without shared state.
+ *
  * @author See AUTHORS file.
  * @version 1.0.0, Nov 7, 2014.
  * @param <T> the generic type
  */
-public class RandomCriterion<T> implements ICriterion<T> {
+public class RandomCriterion<T> implements ICriterion<T>, ISelectionCriterion<T> {
+
+    /**
+     * Class AliasTable: the candidates of a pool and their alias table
+     * (Vose's method). Read only after built, so thread safe.
+     *
+     * @author See AUTHORS file.
+     * @version 1.0.0, Oct 18, 2026.
+     * @param <T> the generic type
+     */
+    public static class AliasTable<T> extends CandidateSet<T> {
+
+        /** The probability of keeping each column. */
+        private final double[] probability;
+
+        /** The alias of each column. */
+        private final int[] alias;
+
+        /** All the weights are equal (no coin flip). */
+        private final boolean uniform;
+
+        /**
+         * Instantiates a new alias table.
+         *
+         * @param candidates the candidates
+         * @param properties the properties
+         */
+        public AliasTable(final Collection<T> candidates, final JsonObject properties) {
+            super(candidates, properties);
+            int size = size();
+            this.probability = new double[size];
+            this.alias = new int[size];
+
+            int[] weights = new int[size];
+            long totalWeight = 0L;
+            boolean localUniform = true;
+            for (int pos=0; pos<size; pos++) {
+                weights[pos] = getWeight(pos);
+                totalWeight += weights[pos];
+                localUniform = localUniform && weights[pos]==weights[0];
+            }
+            this.uniform = localUniform;
+
+            // scaled weights: the mean is 1.0
+            double[] scaled = new double[size];
+            int[] small = new int[size];
+            int[] large = new int[size];
+            int numSmall = 0;
+            int numLarge = 0;
+            for (int pos=0; pos<size; pos++) {
+                scaled[pos] = (double) weights[pos] * size / totalWeight;
+                if (scaled[pos]<1.0) {
+                    small[numSmall++] = pos;
+                } else {
+                    large[numLarge++] = pos;
+                }
+            }
+            while (numSmall>0 && numLarge>0) {
+                int less = small[--numSmall];
+                int more = large[--numLarge];
+                probability[less] = scaled[less];
+                alias[less] = more;
+                scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+                if (scaled[more]<1.0) {
+                    small[numSmall++] = more;
+                } else {
+                    large[numLarge++] = more;
+                }
+            }
+            // the remaining columns are full (up to rounding errors)
+            while (numLarge>0) {
+                int more = large[--numLarge];
+                probability[more] = 1.0;
+                alias[more] = more;
+            }
+            while (numSmall>0) {
+                int less = small[--numSmall];
+                probability[less] = 1.0;
+                alias[less] = less;
+            }
+        }
+
+        /**
+         * Choose a random candidate, by weight.
+         *
+         * @return the candidate, or null if empty
+         */
+        public T choose() {
+            int size = size();
+            if (size==0) {
+                return null;
+            }
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int column = random.nextInt(size);
+            if (uniform || random.nextDouble()<probability[column]) {
+                return get(column);
+            }
+            return get(alias[column]);
+        }
+    }
 
     /** The log. */
     @SuppressWarnings("unused")
@@ -37,6 +146,9 @@ public class RandomCriterion<T> implements ICriterion<T> {
     /** The collection. */
     private Map<String, T>   map;
 
+    /** The alias table (compiled by the first choice after given or reset). */
+    private AliasTable<T>    aliasTable = null;
+
     /* (non-Javadoc)
      * @see com.globo.galeb.criteria.ICriterion#setLog(org.vertx.java.core.logging.Logger)
      */
@@ -51,10 +163,9 @@ public class RandomCriterion<T> implements ICriterion<T> {
      */
     @Override
     public ICriterion<T> given(final Map<String, T> map) {
-        if (map!=null) {
+        if (map!=this.map) {
             this.map = map;
-        } else {
-            this.map = new IndexedMap<>();
+            this.aliasTable = null;
         }
         return this;
     }
@@ -72,22 +183,13 @@ public class RandomCriterion<T> implements ICriterion<T> {
      */
     @Override
     public T thenGetResult() {
-        if (map.isEmpty() || !(map instanceof IndexedMap)) {
+        if (map==null) {
             return null;
         }
-        return ((IndexedMap<String, T>)map).getValueByIndex(getIntRandom());
-    }
-
-    /**
-     * Gets the int random.
-     *
-     * @return the int random
-     */
-    private int getIntRandom() {
-        if (map.isEmpty()) {
-            return 0;
+        if (aliasTable==null) {
+            aliasTable = new AliasTable<T>(map.values(), null);
         }
-        return (int) (Math.random() * (map.size() - Float.MIN_VALUE));
+        return aliasTable.choose();
     }
 
     /* (non-Javadoc)
@@ -95,6 +197,28 @@ public class RandomCriterion<T> implements ICriterion<T> {
      */
     @Override
     public ICriterion<T> action(ICriterion.CriterionAction criterionAction) {
+        if (criterionAction==ICriterion.CriterionAction.RESET_REQUIRED) {
+            aliasTable = null;
+        }
         return this;
     }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.criteria.ISelectionCriterion#prepare(java.util.Map, org.vertx.java.core.json.JsonObject)
+     */
+    @Override
+    public CandidateSet<T> prepare(final Map<String, T> candidates, final JsonObject properties) {
+        return new AliasTable<T>(candidates!=null ? candidates.values() : null, properties);
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.criteria.ISelectionCriterion#select(com.globo.galeb.criteria.CandidateSet, com.globo.galeb.request.RequestView)
+     */
+    @Override
+    public T select(final CandidateSet<T> candidates, final RequestView requestView) {
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        return ((AliasTable<T>) candidates).choose();
+    }
 }
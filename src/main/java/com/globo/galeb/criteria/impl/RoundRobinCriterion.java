@@ -15,30 +15,137 @@
  */
 package com.globo.galeb.criteria.impl;
 
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.vertx.java.core.json.JsonObject;
+
+import com.globo.galeb.criteria.CandidateSet;
 import com.globo.galeb.criteria.ICriterion;
+import com.globo.galeb.criteria.ISelectionCriterion;
 import com.globo.galeb.logger.SafeLogger;
+import com.globo.galeb.request.RequestView;
 
 /**
  * Class RoundRobinCriterion.
  *
+ * Smooth weighted round robin (IBackend.getWeight, 1 if not a backend):
+ * the sequence of one round is computed when the pool changes, spreading
+ * the heavier candidates between the others (weights 5,1,1 give
+ * a,a,b,a,c,a,a), and the choices walk it with a lock free cursor.
+ *
  * @author See AUTHORS file.
  * @version 1.0.0, Nov 7, 2014.
  * @param <T> the generic type
  */
-public class RoundRobinCriterion<T> implements ICriterion<T> {
+public class RoundRobinCriterion<T> implements ICriterion<T>, ISelectionCriterion<T> {
+
+    /**
+     * Class Cursor: the candidates of a pool, the sequence of a round and
+     * the position in it. Thread safe.
+     *
+     * @author See AUTHORS file.
+     * @version 1.0.0, Oct 18, 2026.
+     * @param <T> the generic type
+     */
+    public static class Cursor<T> extends CandidateSet<T> {
+
+        /** The sequence of a round (candidate positions). */
+        private final int[] sequence;
+
+        /** The next position. */
+        private final AtomicInteger next = new AtomicInteger(0);
+
+        /**
+         * Instantiates a new cursor.
+         *
+         * @param candidates the candidates
+         * @param properties the properties
+         */
+        public Cursor(final Collection<T> candidates, final JsonObject properties) {
+            super(candidates, properties);
+            int[] weights = new int[size()];
+            int divisor = 0;
+            for (int pos=0; pos<size(); pos++) {
+                weights[pos] = getWeight(pos);
+                divisor = gcd(divisor, weights[pos]);
+            }
+            int totalWeight = 0;
+            for (int pos=0; pos<size(); pos++) {
+                weights[pos] /= divisor;
+                totalWeight += weights[pos];
+            }
+            this.sequence = smoothSequence(weights, totalWeight);
+        }
+
+        /**
+         * Gets the next candidate and moves the cursor.
+         *
+         * @return the candidate, or null if empty
+         */
+        public T next() {
+            if (sequence.length==0) {
+                return null;
+            }
+            return get(sequence[(next.getAndIncrement() & Integer.MAX_VALUE) % sequence.length]);
+        }
+
+        /**
+         * Gets the length of a round.
+         *
+         * @return the round length
+         */
+        public int getRoundLength() {
+            return sequence.length;
+        }
+
+        /**
+         * Smooth weighted round robin: at each step every candidate gains
+         * its weight, and the richest is chosen and pays the total weight.
+         *
+         * @param weights the weights
+         * @param totalWeight the total weight
+         * @return the sequence of a round
+         */
+        private static int[] smoothSequence(final int[] weights, int totalWeight) {
+            int[] localSequence = new int[totalWeight];
+            int[] current = new int[weights.length];
+            for (int step=0; step<totalWeight; step++) {
+                int chosen = 0;
+                for (int pos=0; pos<weights.length; pos++) {
+                    current[pos] += weights[pos];
+                    if (current[pos]>current[chosen]) {
+                        chosen = pos;
+                    }
+                }
+                current[chosen] -= totalWeight;
+                localSequence[step] = chosen;
+            }
+            return localSequence;
+        }
+
+
+        /**
+         * Greatest common divisor.
+         *
+         * @param a a
+         * @param b b
+         * @return the gcd
+         */
+        private static int gcd(int a, int b) {
+            return b==0 ? a : gcd(b, a % b);
+        }
+    }
 
     /** The log. */
     private SafeLogger       log            = null;
 
-    /** The collection. */
-    private List<T>          collection     = new LinkedList<T>();
+    /** The map. */
+    private Map<String, T>   map            = null;
 
-    /** The originals. */
-    private List<T>          originals      = new LinkedList<T>();
+    /** The cursor (compiled by the first choice after given or reset). */
+    private Cursor<T>        cursor         = null;
 
     /* (non-Javadoc)
      * @see com.globo.galeb.criteria.ICriterion#setLog(org.vertx.java.core.logging.Logger)
@@ -55,10 +162,10 @@ public class RoundRobinCriterion<T> implements ICriterion<T> {
     @Override
     public ICriterion<T> given(final Map<String, T> map) {
         if (map!=null) {
-            if (collection.isEmpty()) {
-                collection.addAll(new LinkedList<T>(map.values()));
+            if (map!=this.map) {
+                this.map = map;
+                this.cursor = null;
             }
-            originals.addAll(map.values());
         } else {
             if (log==null) {
                 log = new SafeLogger();
@@ -81,21 +188,13 @@ public class RoundRobinCriterion<T> implements ICriterion<T> {
      */
     @Override
     public T thenGetResult() {
-        T result = null;
-
-        if (originals.isEmpty()) {
-            return result;
-        }
-
-        if (!collection.isEmpty()) {
-            result = ((LinkedList<T>) collection).poll();
+        if (map==null) {
+            return null;
         }
-
-        if (collection.isEmpty()) {
-            collection.addAll(new LinkedList<T>(originals));
+        if (cursor==null) {
+            cursor = new Cursor<T>(map.values(), null);
         }
-
-        return result;
+        return cursor.next();
     }
 
     /* (non-Javadoc)
@@ -105,7 +204,7 @@ public class RoundRobinCriterion<T> implements ICriterion<T> {
     public ICriterion<T> action(ICriterion.CriterionAction criterionAction) {
         switch (criterionAction) {
             case RESET_REQUIRED:
-                this.collection.clear();
+                this.cursor = null;
                 break;
 
             default:
@@ -114,4 +213,20 @@ public class RoundRobinCriterion<T> implements ICriterion<T> {
         return this;
     }
 
+    /* (non-Javadoc)
+     * @see com.globo.galeb.criteria.ISelectionCriterion#prepare(java.util.Map, org.vertx.java.core.json.JsonObject)
+     */
+    @Override
+    public CandidateSet<T> prepare(final Map<String, T> candidates, final JsonObject properties) {
+        return new Cursor<T>(candidates!=null ? candidates.values() : null, properties);
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.criteria.ISelectionCriterion#select(com.globo.galeb.criteria.CandidateSet, com.globo.galeb.request.RequestView)
+     */
+    @Override
+    public T select(final CandidateSet<T> candidates, final RequestView requestView) {
+        return ((Cursor<T>) candidates).next();
+    }
+
 }
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.criteria.impl;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.globo.galeb.entity.impl.frontend.Rule;
+import com.globo.galeb.metrics.CounterConsoleOut;
+import com.globo.galeb.metrics.ICounter;
+
+/**
+ * Class RouteCache.
+ *
+ * Bounded cache of route decisions (uri path -&gt; rule) of a virtualhost,
+ * with CLOCK eviction: a hit marks the entry, and the clock hand evicts the
+ * first entry not marked since its last pass. The cache belongs to one rule
+ * table version: a lookup with another version drops all the entries.
+ *
+ * The hits and misses are sent to the counter (ICounter.sendRouteCache)
+ * at most once per report period, by the lookups themselves.
+ *
+ * Not thread safe: one cache per virtualhost (one event loop).
+ *
+ * @author See AUTHORS file.
+ * @version 1.0.0, Oct 18, 2026.
+ */
+public class RouteCache {
+
+    /** The paths longer than this are not cached. */
+    public static final int MAX_PATH_LENGTH = 256;
+
+    /** The default report period (ms). */
+    public static final long DEFAULT_REPORT_PERIOD = 10000L;
+
+    /** The slot of each cached path. */
+    private final Map<String, Integer> slots;
+
+    /** The path of each slot. */
+    private final String[] paths;
+
+    /** The rule of each slot. */
+    private final Rule[] rules;
+
+    /** The CLOCK reference bits. */
+    private final boolean[] referenced;
+
+    /** The clock hand. */
+    private int hand = 0;
+
+    /** The size. */
+    private int size = 0;
+
+    /** The rule table version. */
+    private long version = Long.MIN_VALUE;
+
+    /** The hits (since the last report). */
+    private long hits = 0L;
+
+    /** The misses (since the last report). */
+    private long misses = 0L;
+
+    /** The counter. */
+    private ICounter counter = new CounterConsoleOut();
+
+    /** The metric key. */
+    private String metricKey = "";
+
+    /** The report period (ms). */
+    private long reportPeriod = DEFAULT_REPORT_PERIOD;
+
+    /** The last report time. */
+    private long lastReportTime = System.currentTimeMillis();
+
+    /**
+     * Instantiates a new route cache.
+     *
+     * @param capacity the capacity (entries)
+     */
+    public RouteCache(int capacity) {
+        int localCapacity = Math.max(capacity, 1);
+        this.slots = new HashMap<>(localCapacity * 2);
+        this.paths = new String[localCapacity];
+        this.rules = new Rule[localCapacity];
+        this.referenced = new boolean[localCapacity];
+    }
+
+    /**
+     * Sets the counter.
+     *
+     * @param counter the counter
+     * @return this
+     */
+    public RouteCache setCounter(final ICounter counter) {
+        this.counter = counter;
+        return this;
+    }
+
+    /**
+     * Sets the metric key.
+     *
+     * @param metricKey the metric key
+     * @return this
+     */
+    public RouteCache setMetricKey(String metricKey) {
+        this.metricKey = metricKey;
+        return this;
+    }
+
+    /**
+     * Sets the report period.
+     *
+     * @param reportPeriod the report period (ms)
+     * @return this
+     */
+    public RouteCache setReportPeriod(long reportPeriod) {
+        this.reportPeriod = reportPeriod;
+        return this;
+    }
+
+    /**
+     * Gets the cached rule of a path.
+     *
+     * @param path the uri path
+     * @param tableVersion the current rule table version
+     * @return the rule, or null if not cached
+     */
+    public Rule get(String path, long tableVersion) {
+        if (tableVersion!=version) {
+            clear();
+            version = tableVersion;
+        }
+        Integer slot = slots.get(path);
+        if (slot==null) {
+            misses++;
+            report();
+            return null;
+        }
+        referenced[slot] = true;
+        hits++;
+        report();
+        return rules[slot];
+    }
+
+    /**
+     * Cache the rule of a path.
+     *
+     * @param path the uri path
+     * @param rule the rule
+     * @param tableVersion the rule table version used by the decision
+     * @return this
+     */
+    public RouteCache put(String path, final Rule rule, long tableVersion) {
+        if (tableVersion!=version || rule==null || path.length()>MAX_PATH_LENGTH || slots.containsKey(path)) {
+            return this;
+        }
+        int slot;
+        if (size<paths.length) {
+            slot = size++;
+        } else {
+            while (referenced[hand]) {
+                referenced[hand] = false;
+                hand = (hand + 1) % paths.length;
+            }
+            slot = hand;
+            hand = (hand + 1) % paths.length;
+            slots.remove(paths[slot]);
+        }
+        paths[slot] = path;
+        rules[slot] = rule;
+        referenced[slot] = false;
+        slots.put(path, slot);
+        return this;
+    }
+
+    /**
+     * Drop all the entries.
+     */
+    public void clear() {
+        slots.clear();
+        Arrays.fill(paths, null);
+        Arrays.fill(rules, null);
+        Arrays.fill(referenced, false);
+        hand = 0;
+        size = 0;
+    }
+
+    /**
+     * Gets the size.
+     *
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the capacity.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return paths.length;
+    }
+
+    /**
+     * Gets the hits since the last report.
+     *
+     * @return the hits
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the misses since the last report.
+     *
+     * @return the misses
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Send the hits and misses, if the report period is over.
+     */
+    private void report() {
+        long now = System.currentTimeMillis();
+        if (now-lastReportTime>=reportPeriod) {
+            counter.sendRouteCache(metricKey, hits, misses);
+            hits = 0L;
+            misses = 0L;
+            lastReportTime = now;
+        }
+    }
+
+}
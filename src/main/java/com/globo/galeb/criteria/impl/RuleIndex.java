@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.criteria.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import com.globo.galeb.criteria.IWhenMatch;
+import com.globo.galeb.entity.impl.frontend.Rule;
+import com.globo.galeb.entity.impl.frontend.UriPath;
+import com.globo.galeb.entity.impl.frontend.UriPathRegex;
+
+/**
+ * Class RuleIndex.
+ *
+ * Compiled rule set of a virtualhost. The rules are ranked by priority
+ * (orderNum), the UriPath prefixes are indexed in a radix trie and the
+ * UriPathRegex matches are merged in a single pattern, so a lookup returns
+ * the same rule as a walk of the ordered list, without visiting each rule.
+ * Other rules are still checked in order, but only while their rank is
+ * better than the indexed result.
+ *
+ * Immutable after the build: a new (versioned) index is compiled when the
+ * rule set changes, so it can be shared by concurrent lookups.
+ *
+ * @author See AUTHORS file.
+ * @version 1.0.0, Oct 18, 2026.
+ */
+public class RuleIndex {
+
+    /** The priority comparator. */
+    private static final Comparator<Rule> PRIORITY_COMPARATOR = new Comparator<Rule>() {
+        @Override
+        public int compare(Rule r1, Rule r2) {
+            return r1.getPriorityOrder()-r2.getPriorityOrder();
+        }
+    };
+
+    /** The rules, by rank. */
+    private final Rule[] rules;
+
+    /** The uri path prefixes. */
+    private final UriPathTrie uriPathTrie = new UriPathTrie();
+
+    /** The uri path regexes. */
+    private final UriPathRegexSet uriPathRegexSet;
+
+    /** The ranks of the non indexable rules (ascending). */
+    private final int[] fallbackRanks;
+
+    /** The default rule. */
+    private final Rule ruleDefault;
+
+    /** The version. */
+    private final long version;
+
+    /**
+     * Instantiates a new rule index.
+     *
+     * @param ruleCollection the rules
+     */
+    public RuleIndex(final Collection<Rule> ruleCollection) {
+        this(ruleCollection, 0L);
+    }
+
+    /**
+     * Instantiates a new rule index.
+     *
+     * @param ruleCollection the rules
+     * @param version the version
+     */
+    public RuleIndex(final Collection<Rule> ruleCollection, long version) {
+        this.version = version;
+        List<Rule> ruleList = new ArrayList<>(ruleCollection.size());
+        for (Rule rule: ruleCollection) {
+            if (rule!=null) {
+                ruleList.add(rule);
+            }
+        }
+        Collections.sort(ruleList, PRIORITY_COMPARATOR);
+
+        this.rules = ruleList.toArray(new Rule[ruleList.size()]);
+
+        Rule localRuleDefault = null;
+        int[] localFallbackRanks = new int[rules.length];
+        int fallbackSize = 0;
+        List<Pattern> regexPatterns = new ArrayList<>();
+        int[] regexRanks = new int[rules.length];
+        for (int rank=0; rank<rules.length; rank++) {
+            Rule rule = rules[rank];
+            if (localRuleDefault==null && rule.isRuleDefault()) {
+                localRuleDefault = rule;
+            }
+            if (rule.getClass()==UriPath.class) {
+                String prefix = String.valueOf(rule.getMatch());
+                if (!"".equals(prefix)) {
+                    uriPathTrie.put(prefix, rank);
+                }
+            } else if (rule.getClass()==UriPathRegex.class) {
+                regexRanks[regexPatterns.size()] = rank;
+                regexPatterns.add(((UriPathRegex) rule).getPattern());
+            } else {
+                localFallbackRanks[fallbackSize++] = rank;
+            }
+        }
+        this.uriPathRegexSet = new UriPathRegexSet(regexPatterns, regexRanks);
+        this.fallbackRanks = new int[fallbackSize];
+        System.arraycopy(localFallbackRanks, 0, fallbackRanks, 0, fallbackSize);
+        this.ruleDefault = localRuleDefault;
+    }
+
+    /**
+     * Gets the first rule (by priority) matching the request.
+     *
+     * @param requestMatch the request match
+     * @return the rule, or null if there are no matches
+     */
+    public Rule match(final IWhenMatch requestMatch) {
+        if (requestMatch==null) {
+            return null;
+        }
+        String uriPath = requestMatch.getUriPath();
+        int best = uriPathRegexSet.find(uriPath, uriPathTrie.find(uriPath));
+        for (int pos=0; pos<fallbackRanks.length; pos++) {
+            int rank = fallbackRanks[pos];
+            if (rank>best) {
+                break;
+            }
+            if (rules[rank].isMatchWith(requestMatch)) {
+                return rules[rank];
+            }
+        }
+        return best!=UriPathTrie.NOT_FOUND ? rules[best] : null;
+    }
+
+    /**
+     * Gets the default rule (the first by priority).
+     *
+     * @return the default rule, or null if not defined
+     */
+    public Rule getRuleDefault() {
+        return ruleDefault;
+    }
+
+    /**
+     * Gets the version.
+     *
+     * @return the version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the number of rules.
+     *
+     * @return the size
+     */
+    public int size() {
+        return rules.length;
+    }
+
+    /**
+     * Checks if the result depends only on the uri path (all the rules are
+     * UriPath or UriPathRegex), so it may be cached by path.
+     *
+     * @return true, if is path only
+     */
+    public boolean isPathOnly() {
+        return fallbackRanks.length==0;
+    }
+
+    /**
+     * Gets the number of rules not checked one by one.
+     *
+     * @return the indexed size
+     */
+    public int getIndexedSize() {
+        return rules.length - fallbackRanks.length - uriPathRegexSet.getSinglesSize();
+    }
+
+}
@@ -15,27 +15,81 @@
  */
 package com.globo.galeb.criteria.impl;
 
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
+import com.globo.galeb.criteria.CandidateSet;
 import com.globo.galeb.criteria.ICriterion;
+import com.globo.galeb.criteria.ISelectionCriterion;
+import com.globo.galeb.criteria.IWhenMatch;
 import com.globo.galeb.entity.impl.frontend.NullRule;
 import com.globo.galeb.entity.impl.frontend.Rule;
 import com.globo.galeb.logger.SafeLogger;
+import com.globo.galeb.request.RequestView;
 
 import org.vertx.java.core.http.HttpServerRequest;
+import org.vertx.java.core.json.JsonObject;
 
 /**
  * Class RulesCriterion.
  *
+ * The rules are compiled in an immutable {@link RuleIndex} (the rule
+ * table), published atomically by given() and after each RESET_REQUIRED
+ * action (rule set changed). Lookups always read a complete table and
+ * never rebuild it inline. The request path uses the rule table prepared
+ * in the route snapshot (see {@link #prepare(Map, JsonObject)}).
+ *
  * @author See AUTHORS file.
  * @version 1.0.0, Nov 10, 2014.
  * @param <T> the generic type
  */
-public class RulesCriterion implements ICriterion<Rule> {
+public class RulesCriterion implements ICriterion<Rule>, ISelectionCriterion<Rule> {
+
+    /**
+     * Class RuleSet: the rules and their rule table.
+     *
+     * @author See AUTHORS file.
+     * @version 1.0.0, Oct 18, 2026.
+     */
+    public static class RuleSet extends CandidateSet<Rule> {
+
+        /** The rule table. */
+        private final RuleIndex ruleIndex;
+
+        /**
+         * Instantiates a new rule set.
+         *
+         * @param candidates the rules
+         * @param properties the properties
+         */
+        public RuleSet(final Collection<Rule> candidates, final JsonObject properties) {
+            this(candidates, properties, 0L);
+        }
+
+        /**
+         * Instantiates a new rule set.
+         *
+         * @param candidates the rules
+         * @param properties the properties
+         * @param version the rule table version
+         */
+        public RuleSet(final Collection<Rule> candidates, final JsonObject properties, long version) {
+            super(candidates, properties);
+            this.ruleIndex = new RuleIndex(candidates, version);
+        }
+
+        /**
+         * Gets the rule table.
+         *
+         * @return the rule table
+         */
+        public RuleIndex getRuleIndex() {
+            return ruleIndex;
+        }
+    }
 
     /** The log. */
     private SafeLogger        log = null;
@@ -43,11 +97,18 @@ public class RulesCriterion implements ICriterion<Rule> {
     /** The map. */
     private Map<String, Rule> map = null;
 
-    /** The rule list */
-    private List<Rule> ruleList = new ArrayList<>();
+    /** The last rule table version (published or prepared). */
+    private final AtomicLong tableVersion = new AtomicLong(0L);
+
+    /** The rule table. */
+    private final AtomicReference<RuleIndex> ruleTable =
+            new AtomicReference<>(new RuleIndex(Collections.<Rule>emptyList()));
 
     /** The request match. */
-    private RequestMatch requestMatch;
+    private IWhenMatch requestMatch;
+
+    /** The route cache (null if disabled). */
+    private RouteCache routeCache = null;
 
     /* (non-Javadoc)
      * @see com.globo.galeb.criteria.ICriterion#setLog(org.vertx.java.core.logging.Logger)
@@ -64,8 +125,7 @@ public class RulesCriterion implements ICriterion<Rule> {
     @Override
     public ICriterion<Rule> given(final Map<String, Rule> map) {
         this.map = map;
-        ruleList.addAll(map.values());
-        Collections.sort(ruleList);
+        publishRuleTable();
         return this;
     }
 
@@ -74,8 +134,10 @@ public class RulesCriterion implements ICriterion<Rule> {
      */
     @Override
     public ICriterion<Rule> when(final Object param) {
-        if (param instanceof HttpServerRequest) {
-            requestMatch = new RequestMatch((HttpServerRequest)param);
+        if (param instanceof IWhenMatch) {
+            requestMatch = (IWhenMatch) param;
+        } else if (param instanceof HttpServerRequest) {
+            requestMatch = new RequestView((HttpServerRequest)param);
         } else {
             if (log==null) {
                 log = new SafeLogger();
@@ -91,29 +153,43 @@ public class RulesCriterion implements ICriterion<Rule> {
      */
     @Override
     public Rule thenGetResult() {
-        Rule ruleDefault = null;
-        if (ruleList.isEmpty()) {
-            ruleList.addAll(map.values());
-            Comparator<? super Rule> comparator = new Comparator<Rule>() {
-                @Override
-                public int compare(Rule r1, Rule r2) {
-                    return r1.getPriorityOrder()-r2.getPriorityOrder();
-                }
-            };
-            Collections.sort(ruleList, comparator);
+        return lookup(ruleTable.get(), requestMatch);
+    }
+
+    /**
+     * Lookup the rule in a rule table, through the route cache (if enabled
+     * and all the rules depend only on the path).
+     *
+     * @param ruleIndex the rule table
+     * @param whenMatch the request
+     * @return the rule
+     */
+    private Rule lookup(final RuleIndex ruleIndex, final IWhenMatch whenMatch) {
+        if (routeCache==null || whenMatch==null || !ruleIndex.isPathOnly()) {
+            return choose(ruleIndex, whenMatch);
+        }
+        String uriPath = whenMatch.getUriPath();
+        Rule rule = routeCache.get(uriPath, ruleIndex.getVersion());
+        if (rule==null) {
+            rule = choose(ruleIndex, whenMatch);
+            routeCache.put(uriPath, rule, ruleIndex.getVersion());
         }
+        return rule;
+    }
 
-        for (Rule rule: ruleList) {
-            if (rule==null) {
-                continue;
-            }
-            if (ruleDefault==null && rule.isRuleDefault()) {
-                ruleDefault = rule;
-            }
-            if (rule.isMatchWith(requestMatch)) {
-                return rule;
-            }
+    /**
+     * Choose the rule (or the default rule) in the rule table.
+     *
+     * @param ruleIndex the rule table
+     * @param whenMatch the request
+     * @return the rule
+     */
+    private Rule choose(final RuleIndex ruleIndex, final IWhenMatch whenMatch) {
+        Rule rule = ruleIndex.match(whenMatch);
+        if (rule!=null) {
+            return rule;
         }
+        Rule ruleDefault = ruleIndex.getRuleDefault();
         if (ruleDefault!=null) {
             if (log==null) {
                 log = new SafeLogger();
@@ -131,7 +207,7 @@ public class RulesCriterion implements ICriterion<Rule> {
     public ICriterion<Rule> action(ICriterion.CriterionAction criterionAction) {
         switch (criterionAction) {
             case RESET_REQUIRED:
-                ruleList.clear();
+                publishRuleTable();
                 break;
 
             default:
@@ -139,4 +215,59 @@ public class RulesCriterion implements ICriterion<Rule> {
         }
         return this;
     }
+
+    /**
+     * Gets the current rule table.
+     *
+     * @return the rule table
+     */
+    public RuleIndex getRuleTable() {
+        return ruleTable.get();
+    }
+
+    /**
+     * Sets the route cache. The rule table version invalidates it.
+     *
+     * @param routeCache the route cache (null disables it)
+     * @return this
+     */
+    public RulesCriterion setRouteCache(final RouteCache routeCache) {
+        this.routeCache = routeCache;
+        return this;
+    }
+
+    /**
+     * Gets the route cache.
+     *
+     * @return the route cache, or null if disabled
+     */
+    public RouteCache getRouteCache() {
+        return routeCache;
+    }
+
+    /**
+     * Compile and publish a new rule table.
+     */
+    private void publishRuleTable() {
+        if (map!=null) {
+            ruleTable.set(new RuleIndex(map.values(), tableVersion.incrementAndGet()));
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.criteria.ISelectionCriterion#prepare(java.util.Map, org.vertx.java.core.json.JsonObject)
+     */
+    @Override
+    public CandidateSet<Rule> prepare(final Map<String, Rule> candidates, final JsonObject properties) {
+        return new RuleSet(candidates!=null ? candidates.values() : Collections.<Rule>emptyList(), properties,
+                           tableVersion.incrementAndGet());
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.criteria.ISelectionCriterion#select(com.globo.galeb.criteria.CandidateSet, com.globo.galeb.request.RequestView)
+     */
+    @Override
+    public Rule select(final CandidateSet<Rule> candidates, final RequestView requestView) {
+        return lookup(((RuleSet) candidates).getRuleIndex(), requestView);
+    }
 }
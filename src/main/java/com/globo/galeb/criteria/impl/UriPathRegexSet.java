@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.criteria.impl;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Class UriPathRegexSet.
+ *
+ * The UriPathRegex matches of a rule set, merged in a single pattern: one
+ * capturing group per regex, alternated by rank. java.util.regex tries the
+ * alternatives in order, so a single matches() call returns the best
+ * ranked regex matching the whole path.
+ *
+ * Regexes that can not be merged safely (back references, or not valid
+ * inside a group) are kept as single patterns, checked in rank order.
+ *
+ * Immutable after the build: one set per compiled rule set.
+ *
+ * @author See AUTHORS file.
+ * @version 1.0.0, Oct 18, 2026.
+ */
+public class UriPathRegexSet {
+
+    /** The back reference detector. */
+    private static final Pattern BACK_REFERENCE = Pattern.compile("\\\\([1-9]|k<)");
+
+    /** The merged pattern (null if empty). */
+    private final Pattern combined;
+
+    /** The group of each merged regex. */
+    private final int[] combinedGroups;
+
+    /** The rank of each merged regex. */
+    private final int[] combinedRanks;
+
+    /** The single patterns. */
+    private final Pattern[] singles;
+
+    /** The rank of each single pattern. */
+    private final int[] singleRanks;
+
+    /**
+     * Instantiates a new uri path regex set.
+     *
+     * @param patterns the compiled regexes (null entries never match), by rank
+     * @param ranks the rank of each regex (ascending)
+     */
+    public UriPathRegexSet(final List<Pattern> patterns, final int[] ranks) {
+        int size = patterns.size();
+        int[] localCombinedGroups = new int[size];
+        int[] localCombinedRanks = new int[size];
+        Pattern[] localSingles = new Pattern[size];
+        int[] localSingleRanks = new int[size];
+        int combinedSize = 0;
+        int singleSize = 0;
+        int group = 1;
+        StringBuilder regex = new StringBuilder();
+
+        for (int pos=0; pos<size; pos++) {
+            Pattern pattern = patterns.get(pos);
+            if (pattern==null) {
+                continue;
+            }
+            if (isMergeable(pattern)) {
+                if (combinedSize>0) {
+                    regex.append('|');
+                }
+                regex.append('(').append(pattern.pattern()).append(')');
+                localCombinedGroups[combinedSize] = group;
+                localCombinedRanks[combinedSize] = ranks[pos];
+                combinedSize++;
+                group += pattern.matcher("").groupCount() + 1;
+            } else {
+                localSingles[singleSize] = pattern;
+                localSingleRanks[singleSize] = ranks[pos];
+                singleSize++;
+            }
+        }
+
+        Pattern localCombined = null;
+        if (combinedSize>0) {
+            try {
+                localCombined = Pattern.compile(regex.toString());
+            } catch (PatternSyntaxException e) {
+                // e.g. duplicated group names: check all of them as single patterns
+                for (int pos=0; pos<size; pos++) {
+                    if (patterns.get(pos)!=null && isMergeable(patterns.get(pos))) {
+                        localSingles[singleSize] = patterns.get(pos);
+                        localSingleRanks[singleSize] = ranks[pos];
+                        singleSize++;
+                    }
+                }
+                sort(localSingles, localSingleRanks, singleSize);
+                combinedSize = 0;
+            }
+        }
+
+        this.combined = localCombined;
+        this.combinedGroups = new int[combinedSize];
+        this.combinedRanks = new int[combinedSize];
+        System.arraycopy(localCombinedGroups, 0, combinedGroups, 0, combinedSize);
+        System.arraycopy(localCombinedRanks, 0, combinedRanks, 0, combinedSize);
+        this.singles = new Pattern[singleSize];
+        this.singleRanks = new int[singleSize];
+        System.arraycopy(localSingles, 0, singles, 0, singleSize);
+        System.arraycopy(localSingleRanks, 0, singleRanks, 0, singleSize);
+    }
+
+    /**
+     * Gets the best rank among the regexes matching the whole path.
+     *
+     * @param path the path
+     * @return the rank, or UriPathTrie.NOT_FOUND
+     */
+    public int find(String path) {
+        return find(path, UriPathTrie.NOT_FOUND);
+    }
+
+    /**
+     * Gets the best rank among the regexes matching the whole path, if
+     * better than a rank already found (the regexes ranked after it are
+     * not checked).
+     *
+     * @param path the path
+     * @param limit the rank already found
+     * @return the best rank (limit, if there are no better matches)
+     */
+    public int find(String path, int limit) {
+        int best = limit;
+        if (combined!=null && combinedRanks[0]<limit) {
+            Matcher matcher = combined.matcher(path);
+            if (matcher.matches()) {
+                for (int pos=0; pos<combinedGroups.length; pos++) {
+                    if (matcher.start(combinedGroups[pos])!=-1) {
+                        best = Math.min(best, combinedRanks[pos]);
+                        break;
+                    }
+                }
+            }
+        }
+        for (int pos=0; pos<singles.length; pos++) {
+            if (singleRanks[pos]>best) {
+                break;
+            }
+            if (singles[pos].matcher(path).matches()) {
+                return singleRanks[pos];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Gets the number of regexes merged in the single pattern.
+     *
+     * @return the merged size
+     */
+    public int getMergedSize() {
+        return combinedRanks.length;
+    }
+
+    /**
+     * Gets the number of regexes checked one by one.
+     *
+     * @return the singles size
+     */
+    public int getSinglesSize() {
+        return singleRanks.length;
+    }
+
+    /**
+     * Checks if the regex can be merged: without back references (group
+     * numbers change) and valid inside a group.
+     *
+     * @param pattern the pattern
+     * @return true, if is mergeable
+     */
+    private static boolean isMergeable(final Pattern pattern) {
+        String regex = pattern.pattern();
+        if (pattern.flags()!=0 || BACK_REFERENCE.matcher(regex).find()) {
+            return false;
+        }
+        try {
+            return Pattern.compile("(" + regex + ")").matcher("").groupCount()
+                        == pattern.matcher("").groupCount() + 1;
+        } catch (PatternSyntaxException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Sort the single patterns by rank (insertion sort).
+     *
+     * @param localSingles the patterns
+     * @param localRanks the ranks
+     * @param size the size
+     */
+    private static void sort(final Pattern[] localSingles, final int[] localRanks, int size) {
+        for (int x=1; x<size; x++) {
+            Pattern pattern = localSingles[x];
+            int rank = localRanks[x];
+            int y = x - 1;
+            while (y>=0 && localRanks[y]>rank) {
+                localSingles[y+1] = localSingles[y];
+                localRanks[y+1] = localRanks[y];
+                y--;
+            }
+            localSingles[y+1] = pattern;
+            localRanks[y+1] = rank;
+        }
+    }
+
+}
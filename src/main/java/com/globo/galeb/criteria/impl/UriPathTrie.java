@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.criteria.impl;
+
+import java.util.Arrays;
+
+/**
+ * Class UriPathTrie.
+ *
+ * Compressed radix trie of uri path prefixes. Each prefix keeps a
+ * position (the rule priority rank, lower wins). A lookup walks the path
+ * once and returns the lowest position among all the prefixes of the path,
+ * so the cost is O(path length) whatever the number of prefixes.
+ *
+ * Immutable after the build: one trie per compiled rule set.
+ *
+ * @author See AUTHORS file.
+ * @version 1.0.0, Oct 18, 2026.
+ */
+public class UriPathTrie {
+
+    /** The position returned when there are no matches. */
+    public static final int NOT_FOUND = Integer.MAX_VALUE;
+
+    /**
+     * Class Node.
+     *
+     * @author See AUTHORS file.
+     * @version 1.0.0, Oct 18, 2026.
+     */
+    private static final class Node {
+
+        /** The edge label (from the parent node). */
+        private String label;
+
+        /** The first char of each child label (sorted). */
+        private char[] firstChars = new char[0];
+
+        /** The children (same order as firstChars). */
+        private Node[] children = new Node[0];
+
+        /** The position of the prefix ending here. */
+        private int position = NOT_FOUND;
+
+        /**
+         * Instantiates a new node.
+         *
+         * @param label the label
+         */
+        private Node(String label) {
+            this.label = label;
+        }
+
+        /**
+         * Find the child starting with a char.
+         *
+         * @param c the char
+         * @return the child index, or a negative value (binarySearch) if not found
+         */
+        private int indexOf(char c) {
+            return Arrays.binarySearch(firstChars, c);
+        }
+
+        /**
+         * Insert a child at the sorted position.
+         *
+         * @param child the child
+         */
+        private void addChild(final Node child) {
+            int pos = -(indexOf(child.label.charAt(0)) + 1);
+            int size = children.length;
+            char[] newFirstChars = new char[size+1];
+            Node[] newChildren = new Node[size+1];
+            System.arraycopy(firstChars, 0, newFirstChars, 0, pos);
+            System.arraycopy(children, 0, newChildren, 0, pos);
+            newFirstChars[pos] = child.label.charAt(0);
+            newChildren[pos] = child;
+            System.arraycopy(firstChars, pos, newFirstChars, pos+1, size-pos);
+            System.arraycopy(children, pos, newChildren, pos+1, size-pos);
+            firstChars = newFirstChars;
+            children = newChildren;
+        }
+    }
+
+    /** The root (empty label). */
+    private final Node root = new Node("");
+
+    /** The number of prefixes. */
+    private int size = 0;
+
+    /**
+     * Add a prefix. If the prefix already exists, the lowest position is kept.
+     *
+     * @param prefix the prefix (not empty)
+     * @param position the position
+     * @return this
+     */
+    public UriPathTrie put(String prefix, int position) {
+        Node node = root;
+        int offset = 0;
+        int length = prefix.length();
+
+        while (offset<length) {
+            int pos = node.indexOf(prefix.charAt(offset));
+            if (pos<0) {
+                Node leaf = new Node(prefix.substring(offset));
+                node.addChild(leaf);
+                node = leaf;
+                offset = length;
+                break;
+            }
+            Node child = node.children[pos];
+            String label = child.label;
+            int common = 1;
+            int max = Math.min(label.length(), length-offset);
+            while (common<max && label.charAt(common)==prefix.charAt(offset+common)) {
+                common++;
+            }
+            if (common<label.length()) {
+                Node middle = new Node(label.substring(0, common));
+                child.label = label.substring(common);
+                node.children[pos] = middle;
+                middle.addChild(child);
+                child = middle;
+            }
+            node = child;
+            offset += common;
+        }
+
+        if (node==root) {
+            return this;
+        }
+        if (node.position==NOT_FOUND) {
+            size++;
+        }
+        node.position = Math.min(node.position, position);
+        return this;
+    }
+
+    /**
+     * Gets the lowest position among the prefixes of the path.
+     *
+     * @param path the path
+     * @return the position, or NOT_FOUND
+     */
+    public int find(String path) {
+        int best = NOT_FOUND;
+        Node node = root;
+        int offset = 0;
+        int length = path.length();
+
+        while (offset<length) {
+            int pos = node.indexOf(path.charAt(offset));
+            if (pos<0) {
+                break;
+            }
+            Node child = node.children[pos];
+            int labelLength = child.label.length();
+            if (labelLength>length-offset || !path.regionMatches(offset, child.label, 0, labelLength)) {
+                break;
+            }
+            if (child.position<best) {
+                best = child.position;
+            }
+            node = child;
+            offset += labelLength;
+        }
+        return best;
+    }
+
+    /**
+     * Gets the number of prefixes.
+     *
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+}
@@ -37,7 +37,7 @@ import com.globo.galeb.criteria.impl.NullCriterion;
 public abstract class EntitiesMap<T> extends Entity {
 
     /** The entities. */
-    private Map<String, T> entities        = new IndexedMap<>();
+    private final IndexedMap<String, T> entities = new IndexedMap<>();
 
     /** The criterion. */
     private ICriterion<T>  criterion       = new NullCriterion<T>();
@@ -86,6 +86,7 @@ public abstract class EntitiesMap<T> extends Entity {
               .setPlataform(plataform)
               .setStaticConf(staticConf)
               .setCounter(counter)
+              .setMaintenanceScheduler(getMaintenanceScheduler())
               .setStatus(StatusType.RUNNING_STATUS);
 
         ((Entity) entity).start();
@@ -156,6 +157,15 @@ public abstract class EntitiesMap<T> extends Entity {
         return this.entities;
     }
 
+    /**
+     * Gets the entities version. It changes when an entity is added or removed.
+     *
+     * @return the entities version
+     */
+    public long getEntitiesVersion() {
+        return entities.getVersion();
+    }
+
     /**
      * Gets the entity by id.
      *
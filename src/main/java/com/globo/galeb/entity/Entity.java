@@ -19,6 +19,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import org.vertx.java.core.Vertx;
 import org.vertx.java.core.json.JsonObject;
 
 import com.globo.galeb.bus.IQueueService;
@@ -29,6 +30,7 @@ import com.globo.galeb.entity.impl.Farm;
 import com.globo.galeb.logger.SafeLogger;
 import com.globo.galeb.metrics.CounterConsoleOut;
 import com.globo.galeb.metrics.ICounter;
+import com.globo.galeb.scheduler.impl.MaintenanceScheduler;
 import com.globo.galeb.server.Server;
 
 /**
@@ -81,6 +83,9 @@ public abstract class Entity implements IJsonable, Comparable<Entity> {
     /** The counter. */
     protected ICounter             counter       = new CounterConsoleOut();
 
+    /** The maintenance scheduler (shared by the entities of an event loop). */
+    protected MaintenanceScheduler maintenanceScheduler = null;
+
     /** The entity status */
     protected StatusType           status        = StatusType.CREATED;
 
@@ -256,6 +261,29 @@ public abstract class Entity implements IJsonable, Comparable<Entity> {
         return this;
     }
 
+    /**
+     * Sets the maintenance scheduler.
+     *
+     * @param maintenanceScheduler the maintenance scheduler
+     * @return this
+     */
+    public Entity setMaintenanceScheduler(final MaintenanceScheduler maintenanceScheduler) {
+        this.maintenanceScheduler = maintenanceScheduler;
+        return this;
+    }
+
+    /**
+     * Gets the maintenance scheduler. If not defined, it's created from the plataform.
+     *
+     * @return the maintenance scheduler, or null if the plataform is not a vertx
+     */
+    public MaintenanceScheduler getMaintenanceScheduler() {
+        if (maintenanceScheduler==null && plataform instanceof Vertx) {
+            maintenanceScheduler = new MaintenanceScheduler((Vertx) plataform);
+        }
+        return maintenanceScheduler;
+    }
+
     /**
      * Gets the status.
      *
@@ -376,7 +404,7 @@ public abstract class Entity implements IJsonable, Comparable<Entity> {
      */
     protected void prepareHash(String key) {
         String result = key.replaceAll("[ \n\t]", "");
-        this.hash = new HashAlgorithm(HashType.SIP24).hash(result).asString();
+        this.hash = new HashAlgorithm(HashType.SIP24).hashAsString(result);
         idObj.putString(IJsonable.HASH_FIELDNAME, hash);
     }
 
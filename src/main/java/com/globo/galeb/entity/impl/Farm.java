@@ -29,6 +29,8 @@ import org.vertx.java.platform.Verticle;
 import com.globo.galeb.bus.ICallbackQueueAction;
 import com.globo.galeb.bus.MessageToMap;
 import com.globo.galeb.bus.MessageToMapBuilder;
+import com.globo.galeb.criteria.CandidateSet;
+import com.globo.galeb.criteria.ICriterion.CriterionAction;
 import com.globo.galeb.criteria.impl.HostHeaderCriterion;
 import com.globo.galeb.entity.EntitiesMap;
 import com.globo.galeb.entity.Entity;
@@ -39,6 +41,7 @@ import com.globo.galeb.entity.impl.backend.BackendPools;
 import com.globo.galeb.entity.impl.backend.IBackend;
 import com.globo.galeb.entity.impl.frontend.Rule;
 import com.globo.galeb.entity.impl.frontend.Virtualhost;
+import com.globo.galeb.request.RequestView;
 import com.globo.galeb.verticles.ConfVerticleDictionary;
 
 /**
@@ -76,6 +79,12 @@ public class Farm extends EntitiesMap<Virtualhost> implements ICallbackQueueActi
     /** The messageToMapBuilder instance */
     private MessageToMapBuilder messageToMapBuilder        = new MessageToMapBuilder();
 
+    /** The host selector. */
+    private HostHeaderCriterion<Virtualhost> hostSelector  = new HostHeaderCriterion<Virtualhost>();
+
+    /** The hosts (host index handle). Prepared again after a virtualhost change. */
+    private CandidateSet<Virtualhost> hosts                = null;
+
 
     /**
      * Instantiates a new farm.
@@ -99,7 +108,8 @@ public class Farm extends EntitiesMap<Virtualhost> implements ICallbackQueueActi
                     .setPlataform(plataform)
                     .setQueueService(queueService)
                     .setStaticConf(staticConf)
-                    .setCounter(counter);
+                    .setCounter(counter)
+                    .setMaintenanceScheduler(getMaintenanceScheduler());
         return this;
     }
 
@@ -111,7 +121,22 @@ public class Farm extends EntitiesMap<Virtualhost> implements ICallbackQueueActi
         prepareBackendPools();
         registerQueueAction();
         properties.mergeIn(staticConf.getObject(ConfVerticleDictionary.CONF_STARTER_CONF, new JsonObject()));
-        setCriterion(new HostHeaderCriterion<Virtualhost>().setLog(logger));
+        hostSelector = new HostHeaderCriterion<Virtualhost>();
+        setCriterion(hostSelector.setLog(logger));
+        hosts = null;
+    }
+
+    /**
+     * Gets the virtualhost of the request Host header (or of one of its aliases).
+     *
+     * @param requestView the request view
+     * @return the virtualhost, or null if not found
+     */
+    public Virtualhost getVirtualhost(final RequestView requestView) {
+        if (hosts==null) {
+            hosts = hostSelector.prepare(getEntities(), properties);
+        }
+        return hostSelector.select(hosts, requestView);
     }
 
     /**
@@ -201,6 +226,38 @@ public class Farm extends EntitiesMap<Virtualhost> implements ICallbackQueueActi
         return messageToMapBuilder.setFarm(this).getMessageToMap(message).del();
     }
 
+    /* (non-Javadoc)
+     * @see com.globo.galeb.entity.EntitiesMap#addEntity(java.lang.Object)
+     */
+    @Override
+    public boolean addEntity(Virtualhost entity) {
+        boolean isOk = super.addEntity(entity);
+        getCriterion().action(CriterionAction.RESET_REQUIRED);
+        hosts = null;
+        return isOk;
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.entity.EntitiesMap#removeEntity(java.lang.String)
+     */
+    @Override
+    public boolean removeEntity(String entityId) {
+        boolean isOk = super.removeEntity(entityId);
+        getCriterion().action(CriterionAction.RESET_REQUIRED);
+        hosts = null;
+        return isOk;
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.entity.EntitiesMap#clearEntities()
+     */
+    @Override
+    public void clearEntities() {
+        super.clearEntities();
+        getCriterion().action(CriterionAction.RESET_REQUIRED);
+        hosts = null;
+    }
+
     /**
      * Register queue action.
      */
@@ -15,14 +15,12 @@
  */
 package com.globo.galeb.entity.impl.backend;
 
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.vertx.java.core.Handler;
 import org.vertx.java.core.Vertx;
 import org.vertx.java.core.http.HttpClient;
 import org.vertx.java.core.json.JsonObject;
@@ -31,10 +29,6 @@ import com.globo.galeb.bus.ICallbackConnectionCounter;
 import com.globo.galeb.bus.IQueueService;
 import com.globo.galeb.entity.EntitiesMap;
 import com.globo.galeb.request.RemoteUser;
-import com.globo.galeb.scheduler.IScheduler;
-import com.globo.galeb.scheduler.ISchedulerHandler;
-import com.globo.galeb.scheduler.impl.NullScheduler;
-import com.globo.galeb.scheduler.impl.VertxPeriodicScheduler;
 
 /**
  * Class Backend.
@@ -71,11 +65,8 @@ public class Backend extends EntitiesMap<BackendSession> implements ICallbackCon
     /** The pool avaliable. */
     private final Set<BackendSession> poolAvaliable = new HashSet<>();
 
-    /** The cleanup session scheduler. */
-    private IScheduler cleanupSessionScheduler    = new NullScheduler();
-
-    /** The is locked. */
-    private AtomicBoolean isLocked = new AtomicBoolean(false);
+    /** The sessions, connections and cleanup session task. */
+    private final BackendSessionTracker sessionTracker;
 
     /** The registered. */
     private boolean registered = false;
@@ -89,49 +80,6 @@ public class Backend extends EntitiesMap<BackendSession> implements ICallbackCon
     /** The maxconn. */
     private int maxconn;
 
-    /**
-     * Class CleanUpSessionHandler.
-     *
-     * @author See AUTHORS file.
-     * @version 1.0.0, Nov 4, 2014.
-     */
-    class CleanUpSessionHandler implements ISchedulerHandler {
-
-        /** The backend. */
-        private final Backend backend;
-
-        /**
-         * Instantiates a new clean up session handler.
-         *
-         * @param backend the backend
-         */
-        public CleanUpSessionHandler(Backend backend) {
-            this.backend = backend;
-        }
-
-        /* (non-Javadoc)
-         * @see com.globo.galeb.scheduler.ISchedulerHandler#handle()
-         */
-        @Override
-        public void handle() {
-
-            if (!getEntities().isEmpty() && !backend.isLocked.get()) {
-                backend.isLocked.set(true);
-                Map<String, BackendSession> tmpSessions = new HashMap<>(getEntities());
-                for (BackendSession backendSession : tmpSessions.values()) {
-                    if (backendSession.isClosed()) {
-                        removeEntity(backendSession);
-                    }
-                }
-                backend.isLocked.set(false);
-            }
-
-            publishConnection(getEntities().size());
-            numExternalSessions = 0;
-
-        }
-    }
-
     /**
      * Instantiates a new backend.
      *
@@ -157,6 +105,13 @@ public class Backend extends EntitiesMap<BackendSession> implements ICallbackCon
 
         this.queueActiveConnections = String.format("%s%s", IQueueService.QUEUE_BACKEND_CONNECTIONS_PREFIX, this);
         this.myUUID = UUID.randomUUID().toString();
+        this.sessionTracker = new BackendSessionTracker(this, host, port, new Handler<Void>() {
+            @Override
+            public void handle(Void event) {
+                publishConnection(sessionTracker.getLocalConnections());
+                numExternalSessions = 0;
+            }
+        });
     }
 
     /* (non-Javadoc)
@@ -335,6 +290,24 @@ public class Backend extends EntitiesMap<BackendSession> implements ICallbackCon
         return this;
     }
 
+    /* (non-Javadoc)
+     * @see com.globo.galeb.entity.impl.backend.IBackend#setSharedConnectionPool(boolean)
+     */
+    @Override
+    public IBackend setSharedConnectionPool(boolean sharedConnectionPool) {
+        sessionTracker.setSharedConnectionPool(sharedConnectionPool);
+        return this;
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.entity.impl.backend.IBackend#setKeepAliveIdleTimeOut(java.lang.Long)
+     */
+    @Override
+    public IBackend setKeepAliveIdleTimeOut(Long keepAliveIdleTimeOut) {
+        sessionTracker.setKeepAliveIdleTimeOut(keepAliveIdleTimeOut);
+        return this;
+    }
+
     /* (non-Javadoc)
      * @see com.globo.galeb.core.IBackend#connect(com.globo.galeb.core.RemoteUser)
      */
@@ -352,11 +325,10 @@ public class Backend extends EntitiesMap<BackendSession> implements ICallbackCon
 
         String remoteUserId = remoteUser.toString();
 
-        if (cleanupSessionScheduler instanceof NullScheduler && getPlataform() instanceof Vertx) {
-            cleanupSessionScheduler = new VertxPeriodicScheduler((Vertx) getPlataform())
-                                            .setPeriod(CLEANUP_SESSION_TIME)
-                                            .setHandler(new CleanUpSessionHandler(this))
-                                            .start();
+        sessionTracker.registerCleanUp(getMaintenanceScheduler(), counter);
+
+        if (sessionTracker.isSharedConnectionPool() && getPlataform() instanceof Vertx) {
+            return sessionTracker.acquire(queueService);
         }
 
         BackendSession backendSession = getEntityById(remoteUserId);
@@ -374,6 +346,7 @@ public class Backend extends EntitiesMap<BackendSession> implements ICallbackCon
                 backendSession = new BackendSession(new JsonObject().putString(ID_FIELDNAME, remoteUserId)
                                                     .putString(PARENT_ID_FIELDNAME, id)
                                                     .putObject(PROPERTIES_FIELDNAME, properties));
+                backendSession.setStateChangeHandler(sessionTracker.getSessionStateHandler());
             }
 
             addEntity(backendSession);
@@ -386,7 +359,7 @@ public class Backend extends EntitiesMap<BackendSession> implements ICallbackCon
 
         }
 
-        return backendSession.connect();
+        return sessionTracker.connect(backendSession);
     }
 
     /* (non-Javadoc)
@@ -403,25 +376,43 @@ public class Backend extends EntitiesMap<BackendSession> implements ICallbackCon
         if (backendSession!=null) {
 
             removeEntity(remoteUser);
+            sessionTracker.remove(backendSession);
 
             if (poolAvaliable.size()>=minSessionPoolSize) {
                 if (!backendSession.isClosed()) {
                     backendSession.close();
                 }
             } else {
-                backendSession.setRemoteUser(UUID.randomUUID().toString());
+                backendSession.inFlight = 0;
+                backendSession.setRemoteUser(UUID.randomUUID().toString()).setIdle();
                 poolAvaliable.add(backendSession);
             }
 
         }
     }
 
+    /* (non-Javadoc)
+     * @see com.globo.galeb.entity.impl.backend.IBackend#release(com.globo.galeb.request.RemoteUser, org.vertx.java.core.http.HttpClient, boolean)
+     */
+    @Override
+    public void release(RemoteUser remoteUser, HttpClient client, boolean reusable) {
+        sessionTracker.release(remoteUser, client, reusable);
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.entity.impl.backend.IBackend#getWeight()
+     */
+    @Override
+    public int getWeight() {
+        return sessionTracker.getWeight();
+    }
+
     /* (non-Javadoc)
      * @see com.globo.galeb.core.IBackend#getActiveConnections()
      */
     @Override
     public int getActiveConnections() {
-        return getEntities().size() + numExternalSessions;
+        return sessionTracker.getLocalConnections() + numExternalSessions;
     }
 
     /* (non-Javadoc)
@@ -533,7 +524,9 @@ public class Backend extends EntitiesMap<BackendSession> implements ICallbackCon
                                     .putString(PARENT_ID_FIELDNAME, id)
                                     .putObject(PROPERTIES_FIELDNAME, properties));
 
-            backendSession.setPlataform(plataform)
+            backendSession.setStateChangeHandler(sessionTracker.getSessionStateHandler())
+                          .setPlataform(plataform)
+                          .setMaintenanceScheduler(getMaintenanceScheduler())
                           .setQueueService(queueService)
                           .start();
 
@@ -562,7 +555,7 @@ public class Backend extends EntitiesMap<BackendSession> implements ICallbackCon
         }
         poolAvaliable.clear();
         clearEntities();
-        cleanupSessionScheduler.cancel();
+        sessionTracker.closeAll();
     }
 
     /* (non-Javadoc)
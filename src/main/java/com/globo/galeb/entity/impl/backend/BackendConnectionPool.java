@@ -0,0 +1,358 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.entity.impl.backend;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.http.HttpClient;
+import org.vertx.java.core.json.JsonObject;
+
+/**
+ * Class BackendConnectionPool.
+ *
+ * Bounded keep-alive connection pool of one backend, shared by all clients
+ * of a RouterVerticle (instead of one HttpClient per remote user).
+ *
+ * The connections are owned by a Vert.x HttpClient (maxPoolSize bounded),
+ * called here a generation. A generation is retired when it reaches the
+ * keepAlive limits (max lifetime, max requests per connection, idle time)
+ * or when a request fails: new requests go to a new generation and the
+ * retired one is closed as soon as its requests in flight finish.
+ *
+ * Not thread safe: one pool per backend entity, so per event loop.
+ *
+ * @author See AUTHORS file.
+ * @version 1.0.0, Oct 18, 2026.
+ */
+public class BackendConnectionPool {
+
+    /**
+     * Class Generation.
+     *
+     * @author See AUTHORS file.
+     * @version 1.0.0, Oct 18, 2026.
+     */
+    private static final class Generation {
+
+        /** The http client. */
+        private final HttpClient client;
+
+        /** The creation time. */
+        private final long createdTime;
+
+        /** The last use time. */
+        private long lastUseTime;
+
+        /** The requests served. */
+        private long requests = 0L;
+
+        /** The requests in flight. */
+        private int inFlight = 0;
+
+        /** The retired. */
+        private boolean retired = false;
+
+        /**
+         * Instantiates a new generation.
+         *
+         * @param client the client
+         * @param now the current time
+         */
+        private Generation(final HttpClient client, long now) {
+            this.client = client;
+            this.createdTime = now;
+            this.lastUseTime = now;
+        }
+    }
+
+    /** The vertx. */
+    private final Vertx vertx;
+
+    /** The host. */
+    private final String host;
+
+    /** The port. */
+    private final int port;
+
+    /** The keep alive. */
+    private final boolean keepAlive;
+
+    /** The max connections per generation. */
+    private final int maxPoolSize;
+
+    /** The connection timeout (ms). */
+    private final int connectionTimeout;
+
+    /** The max requests of a generation (keepAliveMaxRequest per connection). */
+    private final long maxRequests;
+
+    /** The max lifetime of a generation (ms). */
+    private final long maxLifetime;
+
+    /** The idle timeout of a generation (ms). */
+    private final long idleTimeout;
+
+    /** The generation receiving new requests. */
+    private Generation current = null;
+
+    /** The retired generations with requests in flight. */
+    private final List<Generation> retired = new ArrayList<>();
+
+    /** The http client exception handler. */
+    private Handler<Throwable> exceptionHandler = null;
+
+    /** The number of generations created. */
+    private long created = 0L;
+
+    /**
+     * Instantiates a new backend connection pool.
+     *
+     * @param vertx the vertx
+     * @param host the backend host
+     * @param port the backend port
+     * @param properties the backend properties (keepAlive*, maxPoolSize, connectionTimeout)
+     */
+    public BackendConnectionPool(final Vertx vertx, String host, int port, final JsonObject properties) {
+        this.vertx = vertx;
+        this.host = host;
+        this.port = port;
+        this.keepAlive = properties.getBoolean(IBackend.KEEPALIVE_FIELDNAME, IBackend.DEFAULT_KEEPALIVE);
+        this.maxPoolSize = Math.max(properties.getInteger(IBackend.MAXPOOL_SIZE_FIELDNAME,
+                                                          IBackend.DEFAULT_MAX_POOL_SIZE), 1);
+        this.connectionTimeout = properties.getInteger(IBackend.CONNECTION_TIMEOUT_FIELDNAME,
+                                                       IBackend.DEFAULT_CONNECTION_TIMEOUT);
+        this.maxLifetime = properties.getLong(IBackend.KEEPALIVE_TIMEOUT_FIELDNAME,
+                                              IBackend.DEFAULT_KEEPALIVE_TIMEOUT);
+        this.idleTimeout = properties.getLong(IBackend.KEEPALIVE_IDLE_TIMEOUT_FIELDNAME,
+                                              IBackend.DEFAULT_KEEPALIVE_IDLE_TIMEOUT);
+        long maxRequestPerConnection = properties.getLong(IBackend.KEEPALIVE_MAXREQUEST_FIELDNAME,
+                                                          IBackend.DEFAULT_KEEPALIVE_MAXREQUEST);
+        this.maxRequests = maxRequestPerConnection<Long.MAX_VALUE/maxPoolSize ?
+                                maxRequestPerConnection*maxPoolSize : Long.MAX_VALUE;
+    }
+
+    /**
+     * Sets the http client exception handler.
+     *
+     * @param exceptionHandler the exception handler
+     * @return this
+     */
+    public BackendConnectionPool setExceptionHandler(final Handler<Throwable> exceptionHandler) {
+        this.exceptionHandler = exceptionHandler;
+        return this;
+    }
+
+    /**
+     * Gets a client for one request. Must be followed by
+     * {@link #release(HttpClient, boolean, long)}.
+     *
+     * @param now the current time
+     * @return the http client
+     */
+    public HttpClient acquire(long now) {
+        if (current!=null && isExpired(current, now)) {
+            retire(current);
+        }
+        if (current==null) {
+            current = new Generation(newHttpClient(), now);
+            created++;
+        }
+        Generation generation = current;
+        generation.requests++;
+        generation.inFlight++;
+        generation.lastUseTime = now;
+        if (generation.requests>=maxRequests) {
+            retire(generation);
+        }
+        return generation.client;
+    }
+
+    /**
+     * Release a client got by acquire.
+     *
+     * @param client the client
+     * @param reusable false if the backend connection failed (the generation is retired)
+     * @param now the current time
+     */
+    public void release(final HttpClient client, boolean reusable, long now) {
+        Generation generation = find(client);
+        if (generation==null) {
+            return;
+        }
+        generation.inFlight--;
+        generation.lastUseTime = now;
+        if (!reusable && !generation.retired) {
+            retire(generation);
+        } else if (generation.retired && generation.inFlight<=0) {
+            close(generation);
+        }
+    }
+
+    /**
+     * Retire the current generation if idle or too old (maintenance).
+     *
+     * @param now the current time
+     * @return the number of generations retired
+     */
+    public int expire(long now) {
+        if (current!=null && isExpired(current, now)) {
+            retire(current);
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Gets the requests in flight.
+     *
+     * @return the requests in flight
+     */
+    public int getInFlight() {
+        int inFlight = current!=null ? current.inFlight : 0;
+        for (int pos=0; pos<retired.size(); pos++) {
+            inFlight += retired.get(pos).inFlight;
+        }
+        return inFlight;
+    }
+
+    /**
+     * Gets the number of open generations (current and retired).
+     *
+     * @return the number of open generations
+     */
+    public int getGenerations() {
+        return retired.size() + (current!=null ? 1 : 0);
+    }
+
+    /**
+     * Gets the number of generations created.
+     *
+     * @return the created
+     */
+    public long getCreated() {
+        return created;
+    }
+
+    /**
+     * Close all generations, with or without requests in flight.
+     */
+    public void closeAll() {
+        if (current!=null) {
+            closeClient(current.client);
+            current = null;
+        }
+        for (int pos=0; pos<retired.size(); pos++) {
+            closeClient(retired.get(pos).client);
+        }
+        retired.clear();
+    }
+
+    /**
+     * Checks if the generation is expired (lifetime or idle).
+     *
+     * @param generation the generation
+     * @param now the current time
+     * @return true, if is expired
+     */
+    private boolean isExpired(final Generation generation, long now) {
+        return (now-generation.createdTime)>maxLifetime ||
+               (generation.inFlight==0 && (now-generation.lastUseTime)>idleTimeout);
+    }
+
+    /**
+     * Retire a generation. Closed now if there are no requests in flight.
+     *
+     * @param generation the generation
+     */
+    private void retire(final Generation generation) {
+        generation.retired = true;
+        if (generation==current) {
+            current = null;
+        }
+        if (generation.inFlight<=0) {
+            closeClient(generation.client);
+        } else {
+            retired.add(generation);
+        }
+    }
+
+    /**
+     * Close a retired generation.
+     *
+     * @param generation the generation
+     */
+    private void close(final Generation generation) {
+        retired.remove(generation);
+        closeClient(generation.client);
+    }
+
+    /**
+     * Find the generation of a client.
+     *
+     * @param client the client
+     * @return the generation, or null if not found
+     */
+    private Generation find(final HttpClient client) {
+        if (current!=null && current.client==client) {
+            return current;
+        }
+        for (int pos=0; pos<retired.size(); pos++) {
+            if (retired.get(pos).client==client) {
+                return retired.get(pos);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * New http client.
+     *
+     * @return the http client
+     */
+    private HttpClient newHttpClient() {
+        HttpClient client = vertx.createHttpClient()
+                                 .setKeepAlive(keepAlive)
+                                 .setTCPKeepAlive(keepAlive)
+                                 .setMaxPoolSize(maxPoolSize)
+                                 .setConnectTimeout(connectionTimeout);
+
+        if (!client.toString().startsWith("Mock")) {
+            client.setHost(host)
+                  .setPort(port);
+        }
+        if (exceptionHandler!=null) {
+            client.exceptionHandler(exceptionHandler);
+        }
+        return client;
+    }
+
+    /**
+     * Close a http client.
+     *
+     * @param client the client
+     */
+    private void closeClient(final HttpClient client) {
+        try {
+            client.close();
+        } catch (IllegalStateException ignore) {
+            // Already closed. Ignore exception.
+        }
+    }
+
+}
@@ -18,7 +18,10 @@ package com.globo.galeb.entity.impl.backend;
 import org.vertx.java.core.json.JsonArray;
 import org.vertx.java.core.json.JsonObject;
 
+import com.globo.galeb.criteria.CandidateSet;
 import com.globo.galeb.criteria.ICriterion;
+import com.globo.galeb.criteria.ISelectionCriterion;
+import com.globo.galeb.criteria.LoadBalanceCriterionFactory;
 import com.globo.galeb.criteria.impl.LoadBalanceCriterion;
 import com.globo.galeb.entity.EntitiesMap;
 import com.globo.galeb.entity.Entity;
@@ -40,6 +43,33 @@ public class BackendPool extends EntitiesMap<IBackend> implements IRuleReturn {
     /** The Constant REQUEST_TIMEOUT_FIELDNAME. */
     public static final String REQUEST_TIMEOUT_FIELDNAME     = "requestTimeOut";
 
+    /** The Constant FIRSTBYTE_TIMEOUT_FIELDNAME. */
+    public static final String FIRSTBYTE_TIMEOUT_FIELDNAME   = "firstByteTimeOut";
+
+    /** The Constant IDLE_TIMEOUT_FIELDNAME. */
+    public static final String IDLE_TIMEOUT_FIELDNAME        = "idleTimeOut";
+
+    /** The Constant TOTAL_TIMEOUT_FIELDNAME. */
+    public static final String TOTAL_TIMEOUT_FIELDNAME       = "totalTimeOut";
+
+    /** The Constant PUMP_COALESCE_SIZE_FIELDNAME. */
+    public static final String PUMP_COALESCE_SIZE_FIELDNAME  = "pumpCoalesceSize";
+
+    /** The Constant PUMP_HIGH_WATERMARK_FIELDNAME. */
+    public static final String PUMP_HIGH_WATERMARK_FIELDNAME = "pumpHighWatermark";
+
+    /** The Constant RESPONSE_BUFFERING_FIELDNAME. */
+    public static final String RESPONSE_BUFFERING_FIELDNAME  = "responseBuffering";
+
+    /** The Constant RESPONSE_BUFFER_MEMORY_FIELDNAME. */
+    public static final String RESPONSE_BUFFER_MEMORY_FIELDNAME = "responseBufferMemory";
+
+    /** The Constant RESPONSE_BUFFER_MAX_FILE_FIELDNAME. */
+    public static final String RESPONSE_BUFFER_MAX_FILE_FIELDNAME = "responseBufferMaxFile";
+
+    /** The Constant DEFAULT_IDLE_TIMEOUT. */
+    public static final long   DEFAULT_IDLE_TIMEOUT          = 60000L;
+
     /** The Constant ENABLE_CHUNCKED_FIELDNAME. */
     public static final String ENABLE_CHUNCKED_FIELDNAME     = "enableChunked";
 
@@ -58,6 +88,15 @@ public class BackendPool extends EntitiesMap<IBackend> implements IRuleReturn {
     /** The load balance policy. */
     private ICriterion<IBackend>        loadBalanceCriterion = new LoadBalanceCriterion<IBackend>();
 
+    /** The load balancer (stateless selection API), shared by the routes to this pool. */
+    private ISelectionCriterion<IBackend> loadBalancer      = null;
+
+    /** The load balance candidates (load balance state), shared by the routes to this pool. */
+    private CandidateSet<IBackend>     candidates          = null;
+
+    /** The entities version of the candidates. */
+    private long                       candidatesVersion   = -1L;
+
     /** The request time out. */
     private Long                       requestTimeOut      = 60000L;
 
@@ -149,6 +188,46 @@ public class BackendPool extends EntitiesMap<IBackend> implements IRuleReturn {
                                    .thenGetResult();
     }
 
+    /**
+     * Gets the load balance policy name.
+     *
+     * @return the load balance policy
+     */
+    public String getLoadBalancePolicy() {
+        return properties.getString(LoadBalanceCriterion.LOADBALANCE_POLICY_FIELDNAME,
+                                    LoadBalanceCriterion.LOADBALANCE_POLICY_DEFAULT);
+    }
+
+    /**
+     * Gets the load balancer (stateless selection API) of the pool policy.
+     * The policy is read once: the pool properties are set at creation only,
+     * and a policy change replaces the pool (del and add), with a new state.
+     *
+     * @return the load balancer
+     */
+    public ISelectionCriterion<IBackend> getLoadBalancer() {
+        if (loadBalancer==null) {
+            loadBalancer = LoadBalanceCriterionFactory.newSelectionInstance(getLoadBalancePolicy());
+        }
+        return loadBalancer;
+    }
+
+    /**
+     * Gets the load balance candidates. They are prepared again only when
+     * the backends change, so every virtualhost routing to this pool shares
+     * one load balance state, and rule or virtualhost changes keep it.
+     *
+     * @return the candidates
+     */
+    public CandidateSet<IBackend> getCandidates() {
+        long version = getEntitiesVersion();
+        if (candidates==null || candidatesVersion!=version) {
+            candidates = getLoadBalancer().prepare(getEntities(), properties.copy());
+            candidatesVersion = version;
+        }
+        return candidates;
+    }
+
     /**
      * Reset load balance.
      *
@@ -164,6 +243,15 @@ public class BackendPool extends EntitiesMap<IBackend> implements IRuleReturn {
      */
     @Override
     public boolean addEntity(IBackend backend) {
+        if (properties.containsField(IBackend.CONNECTION_TIMEOUT_FIELDNAME)) {
+            backend.setConnectionTimeout(properties.getInteger(IBackend.CONNECTION_TIMEOUT_FIELDNAME));
+        }
+        if (properties.containsField(IBackend.SHARED_CONNECTION_POOL_FIELDNAME)) {
+            backend.setSharedConnectionPool(properties.getBoolean(IBackend.SHARED_CONNECTION_POOL_FIELDNAME));
+        }
+        if (properties.containsField(IBackend.KEEPALIVE_IDLE_TIMEOUT_FIELDNAME)) {
+            backend.setKeepAliveIdleTimeOut(properties.getLong(IBackend.KEEPALIVE_IDLE_TIMEOUT_FIELDNAME));
+        }
         ((IBackend) ((Entity) backend.setMaxPoolSize(maxPoolSize)
                                      .setKeepAlive(keepAlive)
                                      .setKeepAliveMaxRequest(keepAliveMaxRequest)
@@ -15,24 +15,24 @@
  */
 package com.globo.galeb.entity.impl.backend;
 
-import static org.apache.commons.lang3.exception.ExceptionUtils.getStackTrace;
-
-import java.util.concurrent.atomic.AtomicBoolean;
-
 import org.vertx.java.core.Handler;
 import org.vertx.java.core.Vertx;
 import org.vertx.java.core.http.HttpClient;
 import org.vertx.java.core.json.JsonObject;
 
 import com.globo.galeb.entity.Entity;
-import com.globo.galeb.scheduler.IScheduler;
 import com.globo.galeb.scheduler.ISchedulerHandler;
-import com.globo.galeb.scheduler.impl.NullScheduler;
-import com.globo.galeb.scheduler.impl.VertxPeriodicScheduler;
+import com.globo.galeb.scheduler.impl.MaintenanceScheduler;
 
 /**
  * Class BackendSession.
  *
+ * The session lifecycle is tracked explicitly (see {@link State}): the
+ * transitions come from connect, close and the HttpClient exception
+ * callback, so liveness checks are a field read. Transitions to CLOSING
+ * or CLOSED are reported to the state change handler (the backend
+ * sweeper), so only changed sessions are visited.
+ *
  * @author: See AUTHORS file.
  * @version: 1.0.0, Oct 23, 2014.
  */
@@ -44,6 +44,23 @@ public class BackendSession extends Entity {
     /** The Constant PORT_DEFAULT. */
     public static final int    PORT_DEFAULT = 80;
 
+    /**
+     * Session states.
+     */
+    public enum State {
+
+        /** Connected and in use. */
+        OPEN,
+
+        /** Connected, waiting in the session pool. */
+        IDLE,
+
+        /** Failed. Must be closed. */
+        CLOSING,
+
+        /** Without http client. */
+        CLOSED
+    }
 
     /** The http client instance. */
     private HttpClient client                  = null;
@@ -54,11 +71,14 @@ public class BackendSession extends Entity {
     /** The max pool size. */
     private int        maxPoolSize             = 1;
 
-    /** The keep alive limit scheduler. */
-    private IScheduler keepAliveLimitScheduler = new NullScheduler();
+    /** The connection timeout (ms). */
+    private int        connectionTimeout       = IBackend.DEFAULT_CONNECTION_TIMEOUT;
 
-    /** The keep alive interval. */
-    private long keepAliveLimitInterval        = 1000L;
+    /** The keep alive limit check task. */
+    private final KeepAliveCheckLimitHandler keepAliveCheckLimitHandler = new KeepAliveCheckLimitHandler(this);
+
+    /** The maintenance scheduler running the keep alive limit check (null if not registered). */
+    private MaintenanceScheduler keepAliveCheckScheduler = null;
 
     /** The request count. */
     private long       requestCount            = 0L;
@@ -72,8 +92,39 @@ public class BackendSession extends Entity {
     /** The keep alive time out. */
     private long       keepAliveTimeOut        = 86400000L; // One day
 
-    /** The is locked. */
-    private AtomicBoolean isLocked             = new AtomicBoolean(false);
+    /** The state. */
+    private State      state                   = State.CLOSED;
+
+    /** The requests in flight (managed by the backend). */
+    int                inFlight                = 0;
+
+    /** The last use time (managed by the SessionIdleList). */
+    long               lastUseTime             = 0L;
+
+    /** The session is in the idle list. */
+    boolean            idleListed              = false;
+
+    /** The previous session of the idle list. */
+    BackendSession     idlePrev                = null;
+
+    /** The next session of the idle list. */
+    BackendSession     idleNext                = null;
+
+    /** The state change handler (CLOSING and CLOSED transitions). */
+    private Handler<BackendSession> stateChangeHandler = null;
+
+    /** The http client exception handler. */
+    private final Handler<Throwable> clientExceptionHandler = new Handler<Throwable>() {
+        @Override
+        public void handle(Throwable e) {
+            if (state==State.OPEN || state==State.IDLE) {
+                changeState(State.CLOSING);
+            }
+            if (queueService!=null) {
+                queueService.publishBackendFail(toJson());
+            }
+        }
+    };
 
     /**
      * Class KeepAliveCheckLimitHandler.
@@ -100,14 +151,9 @@ public class BackendSession extends Entity {
          */
         @Override
         public void handle() {
-            if (isLocked.get()) {
-                return;
-            }
-            isLocked.set(true);
             if (backendSession.isKeepAliveLimit() && !backendSession.isClosed()) {
                 backendSession.close();
             }
-            isLocked.compareAndSet(true, false);
         }
     }
 
@@ -122,6 +168,7 @@ public class BackendSession extends Entity {
         keepAliveMaxRequest = properties.getLong(IBackend.KEEPALIVE_MAXREQUEST_FIELDNAME, IBackend.DEFAULT_KEEPALIVE_MAXREQUEST);
         keepAliveTimeOut = properties.getLong(IBackend.KEEPALIVE_TIMEOUT_FIELDNAME, IBackend.DEFAULT_KEEPALIVE_TIMEOUT);
         maxPoolSize = properties.getInteger(IBackend.MAXPOOL_SIZE_FIELDNAME, IBackend.DEFAULT_MAX_POOL_SIZE);
+        connectionTimeout = properties.getInteger(IBackend.CONNECTION_TIMEOUT_FIELDNAME, IBackend.DEFAULT_CONNECTION_TIMEOUT);
     }
 
     /**
@@ -152,18 +199,19 @@ public class BackendSession extends Entity {
     public HttpClient connect() {
 
         if (client!=null && !isClosed()) {
-            if (isKeepAliveLimit()) {
+            if (state==State.CLOSING || isKeepAliveLimit()) {
                 close();
             } else {
+                state = State.OPEN;
                 return client;
             }
         }
 
-        if (keepAlive && keepAliveLimitScheduler instanceof NullScheduler && plataform instanceof Vertx) {
-            keepAliveLimitScheduler = new VertxPeriodicScheduler((Vertx)plataform)
-                                                .setHandler(new KeepAliveCheckLimitHandler(this))
-                                                .setPeriod(keepAliveLimitInterval)
-                                                .start();
+        if (keepAlive && keepAliveCheckScheduler==null) {
+            keepAliveCheckScheduler = getMaintenanceScheduler();
+            if (keepAliveCheckScheduler!=null) {
+                keepAliveCheckScheduler.register(keepAliveCheckLimitHandler);
+            }
         }
 
         String[] hostWithPortArray = parentId!=null ? parentId.split(":") : null;
@@ -189,20 +237,18 @@ public class BackendSession extends Entity {
             client = vertx.createHttpClient()
                           .setKeepAlive(keepAlive)
                           .setTCPKeepAlive(keepAlive)
-                          .setMaxPoolSize(maxPoolSize);
+                          .setMaxPoolSize(maxPoolSize)
+                          .setConnectTimeout(connectionTimeout);
 
             if (!client.toString().startsWith("Mock")) {
                 client.setHost(host)
                       .setPort(port);
             }
-            client.exceptionHandler(new Handler<Throwable>() {
-                @Override
-                public void handle(Throwable e) {
-                    if (queueService!=null) {
-                        queueService.publishBackendFail(toJson());
-                    }
-                }
-            });
+            client.exceptionHandler(clientExceptionHandler);
+        }
+
+        if (client!=null) {
+            state = State.OPEN;
         }
 
         return client;
@@ -213,8 +259,9 @@ public class BackendSession extends Entity {
      */
     public void close() {
 
-        if (keepAliveLimitScheduler!=null) {
-            keepAliveLimitScheduler.cancel();
+        if (keepAliveCheckScheduler!=null) {
+            keepAliveCheckScheduler.deregister(keepAliveCheckLimitHandler);
+            keepAliveCheckScheduler = null;
         }
 
         if (client!=null) {
@@ -226,6 +273,7 @@ public class BackendSession extends Entity {
                 client=null;
             }
         }
+        changeState(State.CLOSED);
     }
 
     /**
@@ -234,18 +282,63 @@ public class BackendSession extends Entity {
      * @return true, if is closed
      */
     public boolean isClosed() {
-        if (client==null) {
-            return true;
+        return state==State.CLOSED;
+    }
+
+    /**
+     * Gets the state.
+     *
+     * @return the state
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Gets the last use time.
+     *
+     * @return the last use time
+     */
+    public long getLastUseTime() {
+        return lastUseTime;
+    }
+
+    /**
+     * Mark the session as idle (waiting in the session pool).
+     *
+     * @return this
+     */
+    public BackendSession setIdle() {
+        if (state==State.OPEN) {
+            state = State.IDLE;
+        }
+        return this;
+    }
+
+    /**
+     * Sets the state change handler, called on CLOSING and CLOSED transitions.
+     *
+     * @param stateChangeHandler the state change handler
+     * @return this
+     */
+    public BackendSession setStateChangeHandler(final Handler<BackendSession> stateChangeHandler) {
+        this.stateChangeHandler = stateChangeHandler;
+        return this;
+    }
+
+    /**
+     * Change the state, reporting CLOSING and CLOSED transitions.
+     *
+     * @param newState the new state
+     */
+    private void changeState(final State newState) {
+        if (state==newState) {
+            return;
         }
-        boolean httpClientClosed = false;
-        try {
-            client.getReceiveBufferSize();
-        } catch (IllegalStateException e) {
-            httpClientClosed = true;
-        } catch (RuntimeException e) {
-            logger.debug(getStackTrace(e));
+        state = newState;
+        if (stateChangeHandler!=null && (newState==State.CLOSING || newState==State.CLOSED)) {
+            stateChangeHandler.handle(this);
         }
-        return httpClientClosed;
     }
 
     /**
@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.entity.impl.backend;
+
+import java.util.ArrayDeque;
+
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.http.HttpClient;
+import org.vertx.java.core.json.JsonObject;
+
+import com.globo.galeb.bus.IQueueService;
+import com.globo.galeb.entity.EntitiesMap;
+import com.globo.galeb.metrics.ICounter;
+import com.globo.galeb.metrics.MetricKey;
+import com.globo.galeb.request.RemoteUser;
+import com.globo.galeb.scheduler.ISchedulerHandler;
+import com.globo.galeb.scheduler.impl.MaintenanceScheduler;
+
+/**
+ * Class BackendSessionTracker.
+ *
+ * Session and connection bookkeeping shared by Backend and
+ * BackendWithoutSessionPool: the idle sessions list, the sessions changed
+ * to CLOSING or CLOSED, the shared connection pool and the cleanup
+ * session task that expires them.
+ *
+ * Not thread safe: one tracker per backend entity, so per event loop.
+ *
+ * @author See AUTHORS file.
+ * @version 1.0.0, Oct 18, 2026.
+ */
+class BackendSessionTracker implements ISchedulerHandler {
+
+    /** The backend. */
+    private final EntitiesMap<BackendSession> backend;
+
+    /** The host name or IP. */
+    private final String host;
+
+    /** The port. */
+    private final int port;
+
+    /** The metric key. */
+    private final String metricKey;
+
+    /** The handler called at the end of each cleanup. */
+    private final Handler<Void> cleanUpDoneHandler;
+
+    /** The idle sessions, ordered by last use. */
+    private final SessionIdleList idleSessions = new SessionIdleList();
+
+    /** The sessions changed to CLOSING or CLOSED since the last cleanup. */
+    private final ArrayDeque<BackendSession> changedSessions = new ArrayDeque<>();
+
+    /** The session state change handler. */
+    private final Handler<BackendSession> sessionStateHandler = new Handler<BackendSession>() {
+        @Override
+        public void handle(BackendSession backendSession) {
+            changedSessions.addLast(backendSession);
+        }
+    };
+
+    /** The shared connection pool (sharedConnectionPool mode). */
+    private BackendConnectionPool connectionPool = null;
+
+    /** The maintenance scheduler running the cleanup session task (null if not registered). */
+    private MaintenanceScheduler cleanupSessionScheduler = null;
+
+    /** The counter. */
+    private ICounter counter = null;
+
+    /** The shared connection pool mode set by the backend pool (null: backend property). */
+    private Boolean sharedConnectionPool = null;
+
+    /** The keep alive idle time out set by the backend pool (null: backend property). */
+    private Long keepAliveIdleTimeOut = null;
+
+    /**
+     * Instantiates a new backend session tracker.
+     *
+     * @param backend the backend
+     * @param host the host name or IP
+     * @param port the port
+     * @param cleanUpDoneHandler the handler called at the end of each cleanup
+     */
+    BackendSessionTracker(final EntitiesMap<BackendSession> backend, String host, int port,
+            final Handler<Void> cleanUpDoneHandler) {
+        this.backend = backend;
+        this.host = host;
+        this.port = port;
+        this.metricKey = MetricKey.cleanup(backend.getId(), MetricKey.UNDEF);
+        this.cleanUpDoneHandler = cleanUpDoneHandler;
+    }
+
+    /**
+     * Gets the session state change handler.
+     *
+     * @return the session state handler
+     */
+    Handler<BackendSession> getSessionStateHandler() {
+        return sessionStateHandler;
+    }
+
+    /**
+     * Register the cleanup session task (once).
+     *
+     * @param scheduler the maintenance scheduler
+     * @param counter the counter
+     */
+    void registerCleanUp(final MaintenanceScheduler scheduler, final ICounter counter) {
+        this.counter = counter;
+        if (cleanupSessionScheduler==null && scheduler!=null) {
+            cleanupSessionScheduler = scheduler;
+            cleanupSessionScheduler.register(this);
+        }
+    }
+
+    /**
+     * Sets the shared connection pool mode.
+     *
+     * @param sharedConnectionPool true, if the backend uses a shared connection pool
+     */
+    void setSharedConnectionPool(boolean sharedConnectionPool) {
+        this.sharedConnectionPool = sharedConnectionPool;
+    }
+
+    /**
+     * Checks if is shared connection pool mode.
+     *
+     * @return true, if is shared connection pool
+     */
+    boolean isSharedConnectionPool() {
+        if (sharedConnectionPool!=null) {
+            return sharedConnectionPool;
+        }
+        return backend.getProperties().getBoolean(IBackend.SHARED_CONNECTION_POOL_FIELDNAME, IBackend.DEFAULT_SHARED_CONNECTION_POOL);
+    }
+
+    /**
+     * Sets the keep alive idle time out.
+     *
+     * @param keepAliveIdleTimeOut the keep alive idle time out
+     */
+    void setKeepAliveIdleTimeOut(Long keepAliveIdleTimeOut) {
+        this.keepAliveIdleTimeOut = keepAliveIdleTimeOut;
+    }
+
+    /**
+     * Gets the keep alive idle time out.
+     *
+     * @return the keep alive idle time out
+     */
+    long getKeepAliveIdleTimeOut() {
+        if (keepAliveIdleTimeOut!=null) {
+            return keepAliveIdleTimeOut;
+        }
+        return backend.getProperties().getLong(IBackend.KEEPALIVE_IDLE_TIMEOUT_FIELDNAME, IBackend.DEFAULT_KEEPALIVE_IDLE_TIMEOUT);
+    }
+
+    /**
+     * Acquire a client of the shared connection pool (created if necessary).
+     *
+     * @param queueService the queue service notified of connection failures
+     * @return the http client
+     */
+    HttpClient acquire(final IQueueService queueService) {
+        if (connectionPool==null) {
+            connectionPool = newConnectionPool(queueService);
+        }
+        return connectionPool.acquire(System.currentTimeMillis());
+    }
+
+    /**
+     * Connect a session, that is not idle while it has requests in flight.
+     *
+     * @param backendSession the backend session
+     * @return the http client
+     */
+    HttpClient connect(final BackendSession backendSession) {
+        backendSession.inFlight++;
+        idleSessions.remove(backendSession);
+        return backendSession.connect();
+    }
+
+    /**
+     * Release a client of the shared connection pool, or the session of the
+     * remote user (idle when it has no more requests in flight).
+     *
+     * @param remoteUser the remote user
+     * @param client the http client
+     * @param reusable true, if the client can be reused
+     */
+    void release(RemoteUser remoteUser, HttpClient client, boolean reusable) {
+        if (connectionPool!=null && client!=null) {
+            connectionPool.release(client, reusable, System.currentTimeMillis());
+            return;
+        }
+        BackendSession backendSession = remoteUser!=null ? backend.getEntityById(remoteUser.toString()) : null;
+        if (backendSession!=null && backendSession.inFlight>0 && --backendSession.inFlight==0) {
+            idleSessions.addLast(backendSession, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Forget a session removed from the backend.
+     *
+     * @param backendSession the backend session
+     */
+    void remove(final BackendSession backendSession) {
+        idleSessions.remove(backendSession);
+    }
+
+    /**
+     * Gets the weight, clamped to [1, MAX_WEIGHT].
+     *
+     * @return the weight
+     */
+    int getWeight() {
+        int weight = backend.getProperties().getInteger(IBackend.WEIGHT_FIELDNAME, IBackend.DEFAULT_WEIGHT);
+        return Math.min(Math.max(weight, 1), IBackend.MAX_WEIGHT);
+    }
+
+    /**
+     * Gets the connections of this instance (sessions or requests in flight
+     * of the shared connection pool).
+     *
+     * @return the local connections
+     */
+    int getLocalConnections() {
+        return backend.getEntities().size() + (connectionPool!=null ? connectionPool.getInFlight() : 0);
+    }
+
+    /**
+     * Close the shared connection pool and deregister the cleanup session task.
+     */
+    void closeAll() {
+        idleSessions.clear();
+        if (connectionPool!=null) {
+            connectionPool.closeAll();
+            connectionPool = null;
+        }
+        if (cleanupSessionScheduler!=null) {
+            cleanupSessionScheduler.deregister(this);
+            cleanupSessionScheduler = null;
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.scheduler.ISchedulerHandler#handle()
+     */
+    @Override
+    public void handle() {
+
+        long now = System.currentTimeMillis();
+        long visited = 0L;
+        long evicted = 0L;
+        BackendSession backendSession;
+
+        while ((backendSession = changedSessions.pollFirst())!=null) {
+            visited++;
+            if (backendSession.getState()==BackendSession.State.CLOSING) {
+                backendSession.close();
+            }
+            if (backendSession.isClosed() && backend.getEntityById(backendSession.getId())==backendSession) {
+                idleSessions.remove(backendSession);
+                backend.removeEntity(backendSession);
+            }
+        }
+
+        long idleTimeout = getKeepAliveIdleTimeOut();
+        while ((backendSession = idleSessions.pollExpired(now, idleTimeout))!=null) {
+            visited++;
+            evicted++;
+            if (backend.getEntityById(backendSession.getId())==backendSession) {
+                backend.removeEntity(backendSession);
+            }
+            if (!backendSession.isClosed()) {
+                backendSession.close();
+            }
+        }
+
+        if (visited>0L && counter!=null) {
+            counter.sendSessionCleanup(metricKey, visited, evicted);
+        }
+
+        if (connectionPool!=null) {
+            connectionPool.expire(System.currentTimeMillis());
+        }
+
+        cleanUpDoneHandler.handle(null);
+
+    }
+
+    /**
+     * New shared connection pool.
+     *
+     * @param queueService the queue service notified of connection failures
+     * @return the backend connection pool
+     */
+    private BackendConnectionPool newConnectionPool(final IQueueService queueService) {
+        JsonObject poolProperties = backend.getProperties();
+        if (keepAliveIdleTimeOut!=null) {
+            poolProperties = poolProperties.copy().putNumber(IBackend.KEEPALIVE_IDLE_TIMEOUT_FIELDNAME, keepAliveIdleTimeOut);
+        }
+        return new BackendConnectionPool((Vertx) backend.getPlataform(), host, port, poolProperties)
+                    .setExceptionHandler(new Handler<Throwable>() {
+                        @Override
+                        public void handle(Throwable e) {
+                            if (queueService!=null) {
+                                queueService.publishBackendFail(backend.toJson());
+                            }
+                        }
+                    });
+    }
+
+}
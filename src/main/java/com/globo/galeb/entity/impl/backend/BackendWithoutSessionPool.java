@@ -15,11 +15,9 @@
  */
 package com.globo.galeb.entity.impl.backend;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.vertx.java.core.Handler;
 import org.vertx.java.core.Vertx;
 import org.vertx.java.core.http.HttpClient;
 import org.vertx.java.core.json.JsonObject;
@@ -28,10 +26,6 @@ import com.globo.galeb.bus.ICallbackConnectionCounter;
 import com.globo.galeb.bus.IQueueService;
 import com.globo.galeb.entity.EntitiesMap;
 import com.globo.galeb.request.RemoteUser;
-import com.globo.galeb.scheduler.IScheduler;
-import com.globo.galeb.scheduler.ISchedulerHandler;
-import com.globo.galeb.scheduler.impl.NullScheduler;
-import com.globo.galeb.scheduler.impl.VertxPeriodicScheduler;
 
 /**
  * Class Backend without pool.
@@ -62,11 +56,8 @@ public class BackendWithoutSessionPool extends EntitiesMap<BackendSession> imple
     /** The queue active connections. */
     private final String queueActiveConnections;
 
-    /** The cleanup session scheduler. */
-    private IScheduler cleanupSessionScheduler    = new NullScheduler();
-
-    /** The is locked. */
-    private AtomicBoolean isLocked = new AtomicBoolean(false);
+    /** The sessions, connections and cleanup session task. */
+    private final BackendSessionTracker sessionTracker;
 
     /** The registered. */
     private boolean registered = false;
@@ -80,49 +71,6 @@ public class BackendWithoutSessionPool extends EntitiesMap<BackendSession> imple
     /** The maxconn. */
     private int maxconn = 0;
 
-    /**
-     * Class CleanUpSessionHandler.
-     *
-     * @author See AUTHORS file.
-     * @version 1.0.0, Nov 4, 2014.
-     */
-    class CleanUpSessionHandler implements ISchedulerHandler {
-
-        /** The backend. */
-        private final BackendWithoutSessionPool backend;
-
-        /**
-         * Instantiates a new clean up session handler.
-         *
-         * @param backend the backend
-         */
-        public CleanUpSessionHandler(BackendWithoutSessionPool backend) {
-            this.backend = backend;
-        }
-
-        /* (non-Javadoc)
-         * @see com.globo.galeb.scheduler.ISchedulerHandler#handle()
-         */
-        @Override
-        public void handle() {
-
-            if (!getEntities().isEmpty() && !backend.isLocked.get()) {
-                backend.isLocked.set(true);
-                Map<String, BackendSession> tmpSessions = new HashMap<>(getEntities());
-                for (BackendSession backendSession : tmpSessions.values()) {
-                    if (backendSession.isClosed()) {
-                        removeEntity(backendSession);
-                    }
-                }
-                backend.isLocked.set(false);
-            }
-
-            publishConnection(getEntities().size());
-            setNumExternalSessions(0);
-
-        }
-    }
-
     /**
      * Instantiates a new backend.
      *
@@ -148,6 +96,13 @@ public class BackendWithoutSessionPool extends EntitiesMap<BackendSession> imple
 
         this.queueActiveConnections = String.format("%s%s", IQueueService.QUEUE_BACKEND_CONNECTIONS_PREFIX, this);
         this.myUUID = UUID.randomUUID().toString();
+        this.sessionTracker = new BackendSessionTracker(this, host, port, new Handler<Void>() {
+            @Override
+            public void handle(Void event) {
+                publishConnection(sessionTracker.getLocalConnections());
+                setNumExternalSessions(0);
+            }
+        });
     }
 
     /* (non-Javadoc)
@@ -324,6 +279,24 @@ public class BackendWithoutSessionPool extends EntitiesMap<BackendSession> imple
         return this;
     }
 
+    /* (non-Javadoc)
+     * @see com.globo.galeb.entity.impl.backend.IBackend#setSharedConnectionPool(boolean)
+     */
+    @Override
+    public IBackend setSharedConnectionPool(boolean sharedConnectionPool) {
+        sessionTracker.setSharedConnectionPool(sharedConnectionPool);
+        return this;
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.entity.impl.backend.IBackend#setKeepAliveIdleTimeOut(java.lang.Long)
+     */
+    @Override
+    public IBackend setKeepAliveIdleTimeOut(Long keepAliveIdleTimeOut) {
+        sessionTracker.setKeepAliveIdleTimeOut(keepAliveIdleTimeOut);
+        return this;
+    }
+
     /* (non-Javadoc)
      * @see com.globo.galeb.core.IBackend#connect(com.globo.galeb.core.RemoteUser)
      */
@@ -341,11 +314,10 @@ public class BackendWithoutSessionPool extends EntitiesMap<BackendSession> imple
 
         String remoteUserId = remoteUser.toString();
 
-        if (cleanupSessionScheduler instanceof NullScheduler && getPlataform() instanceof Vertx) {
-            cleanupSessionScheduler = new VertxPeriodicScheduler((Vertx) getPlataform())
-                                            .setPeriod(CLEANUP_SESSION_TIME)
-                                            .setHandler(new CleanUpSessionHandler(this))
-                                            .start();
+        sessionTracker.registerCleanUp(getMaintenanceScheduler(), counter);
+
+        if (sessionTracker.isSharedConnectionPool() && getPlataform() instanceof Vertx) {
+            return sessionTracker.acquire(queueService);
         }
 
         BackendSession backendSession = getEntityById(remoteUserId);
@@ -355,6 +327,7 @@ public class BackendWithoutSessionPool extends EntitiesMap<BackendSession> imple
             backendSession = new BackendSession(new JsonObject().putString(ID_FIELDNAME, remoteUserId)
                                                 .putString(PARENT_ID_FIELDNAME, id)
                                                 .putObject(PROPERTIES_FIELDNAME, properties));
+            backendSession.setStateChangeHandler(sessionTracker.getSessionStateHandler());
 
             addEntity(backendSession);
 
@@ -366,7 +339,7 @@ public class BackendWithoutSessionPool extends EntitiesMap<BackendSession> imple
 
         }
 
-        return backendSession.connect();
+        return sessionTracker.connect(backendSession);
     }
 
     /* (non-Javadoc)
@@ -382,6 +355,7 @@ public class BackendWithoutSessionPool extends EntitiesMap<BackendSession> imple
 
         if (backendSession!=null) {
             removeEntity(remoteUser);
+            sessionTracker.remove(backendSession);
             if (!backendSession.isClosed()) {
                 backendSession.close();
             }
@@ -389,12 +363,28 @@ public class BackendWithoutSessionPool extends EntitiesMap<BackendSession> imple
         }
     }
 
+    /* (non-Javadoc)
+     * @see com.globo.galeb.entity.impl.backend.IBackend#release(com.globo.galeb.request.RemoteUser, org.vertx.java.core.http.HttpClient, boolean)
+     */
+    @Override
+    public void release(RemoteUser remoteUser, HttpClient client, boolean reusable) {
+        sessionTracker.release(remoteUser, client, reusable);
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.entity.impl.backend.IBackend#getWeight()
+     */
+    @Override
+    public int getWeight() {
+        return sessionTracker.getWeight();
+    }
+
     /* (non-Javadoc)
      * @see com.globo.galeb.core.IBackend#getActiveConnections()
      */
     @Override
     public int getActiveConnections() {
-        return getEntities().size() + numExternalSessions;
+        return sessionTracker.getLocalConnections() + numExternalSessions;
     }
 
     /* (non-Javadoc)
@@ -510,7 +500,7 @@ public class BackendWithoutSessionPool extends EntitiesMap<BackendSession> imple
             backendSession.close();
         }
         clearEntities();
-        cleanupSessionScheduler.cancel();
+        sessionTracker.closeAll();
     }
 
     /* (non-Javadoc)
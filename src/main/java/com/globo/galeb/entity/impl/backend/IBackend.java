@@ -64,6 +64,15 @@ public interface IBackend extends IJsonable {
     /** The Constant MAXCONN_FIELDNAME. */
     public static final String MAXCONN_FIELDNAME               = "maxConn";
 
+    /** The Constant SHARED_CONNECTION_POOL_FIELDNAME. */
+    public static final String SHARED_CONNECTION_POOL_FIELDNAME = "sharedConnectionPool";
+
+    /** The Constant KEEPALIVE_IDLE_TIMEOUT_FIELDNAME. */
+    public static final String KEEPALIVE_IDLE_TIMEOUT_FIELDNAME = "keepAliveIdleTimeOut";
+
+    /** The Constant WEIGHT_FIELDNAME (weighted load balance). */
+    public static final String WEIGHT_FIELDNAME                = "weight";
+
     /** The Constant TCP_NODELAY - Vert.x defaults (org.vertx.java.core.net.impl.SocketDefaults). */
     public static final boolean TCP_NODELAY                    = true;
 
@@ -103,6 +112,18 @@ public interface IBackend extends IJsonable {
     /** The Constant DEFAULT_PIPELINING. */
     public static final int     DEFAULT_MIN_SESSION_POOL_SIZE  = 1;
 
+    /** The Constant DEFAULT_SHARED_CONNECTION_POOL. */
+    public static final boolean DEFAULT_SHARED_CONNECTION_POOL = false;
+
+    /** The Constant DEFAULT_KEEPALIVE_IDLE_TIMEOUT. */
+    public static final long    DEFAULT_KEEPALIVE_IDLE_TIMEOUT = 60000L;
+
+    /** The Constant DEFAULT_WEIGHT. */
+    public static final int     DEFAULT_WEIGHT                 = 1;
+
+    /** The Constant MAX_WEIGHT. */
+    public static final int     MAX_WEIGHT                     = 100;
+
 
     /**
      * Gets the host.
@@ -247,6 +268,15 @@ public interface IBackend extends IJsonable {
      */
     public void close(String remoteUser) throws RuntimeException;
 
+    /**
+     * Release the HttpClient got by connect, at the end of the request.
+     *
+     * @param remoteUser the remote user
+     * @param client the http client
+     * @param reusable false if the backend connection failed
+     */
+    public void release(RemoteUser remoteUser, HttpClient client, boolean reusable);
+
     /**
      * Gets the active connections.
      *
@@ -254,6 +284,13 @@ public interface IBackend extends IJsonable {
      */
     public int getActiveConnections();
 
+    /**
+     * Gets the weight (weighted load balance).
+     *
+     * @return the weight, between 1 and MAX_WEIGHT
+     */
+    public int getWeight();
+
     /**
      * Checks if is closed.
      *
@@ -294,5 +331,21 @@ public interface IBackend extends IJsonable {
      */
     public IBackend setMaxConn(int maxConn);
 
+    /**
+     * Sets the shared connection pool mode (instead of the backend property).
+     *
+     * @param sharedConnectionPool true, if the backend uses a shared connection pool
+     * @return this
+     */
+    public IBackend setSharedConnectionPool(boolean sharedConnectionPool);
+
+    /**
+     * Sets the keep alive idle time out (instead of the backend property).
+     *
+     * @param keepAliveIdleTimeOut the keep alive idle time out
+     * @return this
+     */
+    public IBackend setKeepAliveIdleTimeOut(Long keepAliveIdleTimeOut);
+
 
 }
@@ -195,6 +195,22 @@ public class NullBackend implements IBackend {
         return this;
     }
 
+    /* (non-Javadoc)
+     * @see com.globo.galeb.entity.impl.backend.IBackend#setSharedConnectionPool(boolean)
+     */
+    @Override
+    public IBackend setSharedConnectionPool(boolean sharedConnectionPool) {
+        return this;
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.entity.impl.backend.IBackend#setKeepAliveIdleTimeOut(java.lang.Long)
+     */
+    @Override
+    public IBackend setKeepAliveIdleTimeOut(Long keepAliveIdleTimeOut) {
+        return this;
+    }
+
     /* (non-Javadoc)
      * @see com.globo.galeb.core.IBackend#connect(com.globo.galeb.core.RemoteUser)
      */
@@ -211,6 +227,22 @@ public class NullBackend implements IBackend {
         //
     }
 
+    /* (non-Javadoc)
+     * @see com.globo.galeb.entity.impl.backend.IBackend#release(com.globo.galeb.request.RemoteUser, org.vertx.java.core.http.HttpClient, boolean)
+     */
+    @Override
+    public void release(RemoteUser remoteUser, HttpClient client, boolean reusable) {
+        //
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.entity.impl.backend.IBackend#getWeight()
+     */
+    @Override
+    public int getWeight() {
+        return DEFAULT_WEIGHT;
+    }
+
     /* (non-Javadoc)
      * @see com.globo.galeb.core.IBackend#getActiveConnections()
      */
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.entity.impl.backend;
+
+/**
+ * Class SessionIdleList.
+ *
+ * Intrusive doubly linked list of the idle sessions (without requests
+ * in flight) of a backend, ordered by last use: the first session is the
+ * idle one for the longest time. Add, remove and expire are O(1) per
+ * session, without allocation.
+ *
+ * Not thread safe: one list per backend entity, so per event loop.
+ *
+ * @author See AUTHORS file.
+ * @version 1.0.0, Oct 18, 2026.
+ */
+public class SessionIdleList {
+
+    /** The first (oldest) session. */
+    private BackendSession head = null;
+
+    /** The last (newest) session. */
+    private BackendSession tail = null;
+
+    /** The size. */
+    private int size = 0;
+
+    /**
+     * Add a session as the newest one (removed first if already listed).
+     *
+     * @param backendSession the backend session
+     * @param now the current time
+     */
+    public void addLast(final BackendSession backendSession, long now) {
+        remove(backendSession);
+        backendSession.lastUseTime = now;
+        backendSession.idleListed = true;
+        backendSession.idlePrev = tail;
+        backendSession.idleNext = null;
+        if (tail!=null) {
+            tail.idleNext = backendSession;
+        } else {
+            head = backendSession;
+        }
+        tail = backendSession;
+        size++;
+    }
+
+    /**
+     * Remove a session (if listed).
+     *
+     * @param backendSession the backend session
+     */
+    public void remove(final BackendSession backendSession) {
+        if (!backendSession.idleListed) {
+            return;
+        }
+        if (backendSession.idlePrev!=null) {
+            backendSession.idlePrev.idleNext = backendSession.idleNext;
+        } else {
+            head = backendSession.idleNext;
+        }
+        if (backendSession.idleNext!=null) {
+            backendSession.idleNext.idlePrev = backendSession.idlePrev;
+        } else {
+            tail = backendSession.idlePrev;
+        }
+        backendSession.idlePrev = null;
+        backendSession.idleNext = null;
+        backendSession.idleListed = false;
+        size--;
+    }
+
+    /**
+     * Remove and return the oldest session, if it is idle for more than idleTimeout.
+     *
+     * @param now the current time
+     * @param idleTimeout the idle timeout (ms)
+     * @return the expired session, or null if there are no more expired sessions
+     */
+    public BackendSession pollExpired(long now, long idleTimeout) {
+        BackendSession oldest = head;
+        if (oldest==null || (now-oldest.lastUseTime)<=idleTimeout) {
+            return null;
+        }
+        remove(oldest);
+        return oldest;
+    }
+
+    /**
+     * Remove all sessions.
+     */
+    public void clear() {
+        while (head!=null) {
+            remove(head);
+        }
+    }
+
+    /**
+     * Gets the size.
+     *
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+}
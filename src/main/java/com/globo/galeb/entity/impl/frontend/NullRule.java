@@ -19,7 +19,7 @@ import java.util.UUID;
 
 import org.vertx.java.core.json.JsonObject;
 
-import com.globo.galeb.criteria.impl.RequestMatch;
+import com.globo.galeb.criteria.IWhenMatch;
 
 /**
  * Class NullRule.
@@ -46,10 +46,10 @@ public class NullRule extends Rule {
     }
 
     /* (non-Javadoc)
-     * @see com.globo.galeb.rules.Rule#isMatchWith(com.globo.galeb.criteria.impl.RequestMatch)
+     * @see com.globo.galeb.rules.Rule#isMatchWith(com.globo.galeb.criteria.IWhenMatch)
      */
     @Override
-    public boolean isMatchWith(RequestMatch requestMatch) {
+    public boolean isMatchWith(IWhenMatch requestMatch) {
         return false;
     }
 
@@ -0,0 +1,459 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.entity.impl.frontend;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.vertx.java.core.json.JsonObject;
+
+import com.globo.galeb.criteria.CandidateSet;
+import com.globo.galeb.criteria.ICriterion;
+import com.globo.galeb.criteria.ISelectionCriterion;
+import com.globo.galeb.criteria.impl.RulesCriterion;
+import com.globo.galeb.entity.impl.backend.BackendPool;
+import com.globo.galeb.entity.impl.backend.IBackend;
+import com.globo.galeb.logger.SafeLogger;
+import com.globo.galeb.metrics.MetricKey;
+import com.globo.galeb.request.HeaderPolicy;
+import com.globo.galeb.request.RequestView;
+import com.globo.galeb.rulereturn.IRuleReturn;
+import com.globo.galeb.streams.ResponseBuffer;
+
+/**
+ * Class RouteSnapshot.
+ *
+ * Immutable view of a virtualhost compiled when the virtualhost or its rules
+ * change. The request path only dereferences fields: no json reads, no
+ * properties merge, no load balance policy lookup. The rules are resolved
+ * in the rule table prepared with the snapshot. The load balance state
+ * belongs to the backend pool and follows its backends, so adding or
+ * removing a backend does not compile the snapshots routing to the pool.
+ *
+ * @author See AUTHORS file.
+ * @version 1.0.0, Oct 18, 2026.
+ */
+public final class RouteSnapshot {
+
+    /** The virtualhost. */
+    private final Virtualhost virtualhost;
+
+    /** The virtualhost id. */
+    private final String virtualhostId;
+
+    /** The enable chunked. */
+    private final boolean enableChunked;
+
+    /** The enable access log. */
+    private final boolean enableAccessLog;
+
+    /** The rule selector. */
+    private final ISelectionCriterion<Rule> ruleSelector;
+
+    /** The rules (rule table handle prepared by the rule selector). */
+    private final CandidateSet<Rule> rules;
+
+    /** The backend request header policy. */
+    private final HeaderPolicy requestHeaderPolicy;
+
+    /** The client response header policy. */
+    private final HeaderPolicy responseHeaderPolicy;
+
+    /** The pool routes by rule. */
+    private final Map<Rule, PoolRoute> poolRoutes;
+
+    /**
+     * Class PoolRoute: a backend pool resolved by a rule, with precomputed
+     * properties and metric keys. The candidate set (load balance state) is
+     * the one of the backend pool, shared by all virtualhosts routing to it.
+     *
+     * @author See AUTHORS file.
+     * @version 1.0.0, Oct 18, 2026.
+     */
+    public static final class PoolRoute {
+
+        /** The backend pool. */
+        private final BackendPool backendPool;
+
+        /** The load balance policy name. */
+        private final String loadBalancePolicy;
+
+        /** The pool properties (read only copy). */
+        private final JsonObject properties;
+
+        /** The metric keys by backend. Refreshed when the pool backends change. */
+        private Map<IBackend, String> metricKeys = Collections.emptyMap();
+
+        /** The pool entities version of the metric keys. */
+        private long metricKeysVersion = -1L;
+
+        /** The virtualhost id. */
+        private final String virtualhostId;
+
+        /** The connect timeout (ms). */
+        private final long connectTimeout;
+
+        /** The first byte timeout (ms). -1 means the farm request timeout. */
+        private final long firstByteTimeout;
+
+        /** The idle timeout between backend chunks (ms). 0 means disabled. */
+        private final long idleTimeout;
+
+        /** The total exchange timeout (ms). 0 means disabled. */
+        private final long totalTimeout;
+
+        /** The pump coalesce size (bytes). 0 means disabled. */
+        private final int pumpCoalesceSize;
+
+        /** The pump high watermark (bytes). 0 means the platform default. */
+        private final int pumpHighWatermark;
+
+        /** The response buffering (backend released before the client is served). */
+        private final boolean responseBuffering;
+
+        /** The response buffer memory limit (bytes). Spilled to file beyond it. */
+        private final long responseBufferMemory;
+
+        /** The response buffer max file size (bytes). The backend waits the client beyond it. */
+        private final long responseBufferMaxFile;
+
+        /**
+         * Instantiates a new pool route.
+         *
+         * @param backendPool the backend pool
+         * @param virtualhostId the virtualhost id
+         */
+        private PoolRoute(final BackendPool backendPool, String virtualhostId) {
+            this.backendPool = backendPool;
+            this.virtualhostId = virtualhostId;
+            this.properties = backendPool.getProperties().copy();
+            this.loadBalancePolicy = backendPool.getLoadBalancePolicy();
+            this.connectTimeout = properties.getLong(IBackend.CONNECTION_TIMEOUT_FIELDNAME,
+                                                     (long) IBackend.DEFAULT_CONNECTION_TIMEOUT);
+            this.firstByteTimeout = properties.getLong(BackendPool.FIRSTBYTE_TIMEOUT_FIELDNAME, -1L);
+            this.idleTimeout = properties.getLong(BackendPool.IDLE_TIMEOUT_FIELDNAME, BackendPool.DEFAULT_IDLE_TIMEOUT);
+            this.totalTimeout = properties.getLong(BackendPool.TOTAL_TIMEOUT_FIELDNAME, 0L);
+            this.pumpCoalesceSize = properties.getInteger(BackendPool.PUMP_COALESCE_SIZE_FIELDNAME, 0);
+            this.pumpHighWatermark = properties.getInteger(BackendPool.PUMP_HIGH_WATERMARK_FIELDNAME, 0);
+            this.responseBuffering = properties.getBoolean(BackendPool.RESPONSE_BUFFERING_FIELDNAME, false);
+            this.responseBufferMemory = properties.getLong(BackendPool.RESPONSE_BUFFER_MEMORY_FIELDNAME,
+                                                           ResponseBuffer.DEFAULT_MEMORY_LIMIT);
+            this.responseBufferMaxFile = properties.getLong(BackendPool.RESPONSE_BUFFER_MAX_FILE_FIELDNAME,
+                                                            ResponseBuffer.DEFAULT_MAX_FILE_SIZE);
+        }
+
+        /**
+         * Gets the backend pool.
+         *
+         * @return the backend pool
+         */
+        public BackendPool getBackendPool() {
+            return backendPool;
+        }
+
+        /**
+         * Gets the load balance policy name.
+         *
+         * @return the load balance policy
+         */
+        public String getLoadBalancePolicy() {
+            return loadBalancePolicy;
+        }
+
+        /**
+         * Gets the load balancer.
+         *
+         * @return the load balancer
+         */
+        public ISelectionCriterion<IBackend> getLoadBalancer() {
+            return backendPool.getLoadBalancer();
+        }
+
+        /**
+         * Gets the load balance candidates.
+         *
+         * @return the candidates
+         */
+        public CandidateSet<IBackend> getCandidates() {
+            return backendPool.getCandidates();
+        }
+
+        /**
+         * Gets the pool properties (read only).
+         *
+         * @return the properties
+         */
+        public JsonObject getProperties() {
+            return properties;
+        }
+
+        /**
+         * Gets the connect timeout.
+         *
+         * @return the connect timeout (ms)
+         */
+        public long getConnectTimeout() {
+            return connectTimeout;
+        }
+
+        /**
+         * Gets the first byte timeout.
+         *
+         * @return the first byte timeout (ms), or -1 if not defined
+         */
+        public long getFirstByteTimeout() {
+            return firstByteTimeout;
+        }
+
+        /**
+         * Gets the idle timeout.
+         *
+         * @return the idle timeout (ms)
+         */
+        public long getIdleTimeout() {
+            return idleTimeout;
+        }
+
+        /**
+         * Gets the total timeout.
+         *
+         * @return the total timeout (ms)
+         */
+        public long getTotalTimeout() {
+            return totalTimeout;
+        }
+
+        /**
+         * Gets the pump coalesce size.
+         *
+         * @return the pump coalesce size (bytes)
+         */
+        public int getPumpCoalesceSize() {
+            return pumpCoalesceSize;
+        }
+
+        /**
+         * Gets the pump high watermark.
+         *
+         * @return the pump high watermark (bytes)
+         */
+        public int getPumpHighWatermark() {
+            return pumpHighWatermark;
+        }
+
+        /**
+         * Checks if is response buffering.
+         *
+         * @return true, if is response buffering
+         */
+        public boolean isResponseBuffering() {
+            return responseBuffering;
+        }
+
+        /**
+         * Gets the response buffer memory limit.
+         *
+         * @return the response buffer memory limit (bytes)
+         */
+        public long getResponseBufferMemory() {
+            return responseBufferMemory;
+        }
+
+        /**
+         * Gets the response buffer max file size.
+         *
+         * @return the response buffer max file size (bytes)
+         */
+        public long getResponseBufferMaxFile() {
+            return responseBufferMaxFile;
+        }
+
+        /**
+         * Checks if the pool has no backends.
+         *
+         * @return true, if is empty
+         */
+        public boolean isEmpty() {
+            return backendPool.getCandidates().isEmpty();
+        }
+
+        /**
+         * Gets the backend choice.
+         *
+         * @param requestView the request view
+         * @return the backend
+         */
+        public IBackend getChoice(final RequestView requestView) {
+            return backendPool.getLoadBalancer().select(backendPool.getCandidates(), requestView);
+        }
+
+        /**
+         * Gets the precomputed metric key (virtualhost.backend).
+         *
+         * @param backend the backend
+         * @return the metric key
+         */
+        public String getMetricKey(final IBackend backend) {
+            long version = backendPool.getEntitiesVersion();
+            if (metricKeysVersion!=version) {
+                Map<IBackend, String> keys = new IdentityHashMap<>();
+                for (IBackend poolBackend: backendPool.getEntities().values()) {
+                    keys.put(poolBackend, MetricKey.merge(virtualhostId, poolBackend.toString()));
+                }
+                metricKeys = keys;
+                metricKeysVersion = version;
+            }
+            String key = metricKeys.get(backend);
+            return key!=null ? key : MetricKey.merge(virtualhostId, backend.toString());
+        }
+    }
+
+    /**
+     * Instantiates a new route snapshot.
+     *
+     * @param virtualhost the virtualhost
+     * @param log the logger
+     */
+    public RouteSnapshot(final Virtualhost virtualhost, final SafeLogger log) {
+        JsonObject vhProperties = virtualhost.getProperties();
+
+        this.virtualhost = virtualhost;
+        this.virtualhostId = virtualhost.getId();
+        this.enableChunked = vhProperties.getBoolean(Virtualhost.ENABLE_CHUNKED_FIELDNAME, true);
+        this.enableAccessLog = vhProperties.getBoolean(Virtualhost.ENABLE_ACCESSLOG_FIELDNAME, false);
+        ICriterion<Rule> rulesCriterion = virtualhost.getCriterion();
+        this.ruleSelector = rulesCriterion instanceof RulesCriterion ? (RulesCriterion) rulesCriterion : new RulesCriterion();
+        this.rules = ruleSelector.prepare(virtualhost.getEntities(), vhProperties);
+        this.requestHeaderPolicy = HeaderPolicy.forRequest(vhProperties.getArray(Virtualhost.REQUEST_HEADERS_FIELDNAME), log);
+        this.responseHeaderPolicy = HeaderPolicy.forResponse(vhProperties.getArray(Virtualhost.RESPONSE_HEADERS_FIELDNAME), log);
+
+        Map<Rule, PoolRoute> routes = new IdentityHashMap<>();
+        Map<BackendPool, PoolRoute> routesByPool = new IdentityHashMap<>();
+        for (Rule rule: virtualhost.getEntities().values()) {
+            IRuleReturn ruleReturn = rule.getRuleReturn();
+            if (ruleReturn instanceof BackendPool) {
+                BackendPool backendPool = (BackendPool) ruleReturn;
+                PoolRoute poolRoute = routesByPool.get(backendPool);
+                if (poolRoute==null) {
+                    poolRoute = new PoolRoute(backendPool, virtualhostId);
+                    routesByPool.put(backendPool, poolRoute);
+                }
+                routes.put(rule, poolRoute);
+            }
+        }
+        this.poolRoutes = Collections.unmodifiableMap(routes);
+    }
+
+    /**
+     * Gets the virtualhost.
+     *
+     * @return the virtualhost
+     */
+    public Virtualhost getVirtualhost() {
+        return virtualhost;
+    }
+
+    /**
+     * Gets the virtualhost id.
+     *
+     * @return the virtualhost id
+     */
+    public String getVirtualhostId() {
+        return virtualhostId;
+    }
+
+    /**
+     * Checks if chunked is enabled.
+     *
+     * @return true, if is chunked
+     */
+    public boolean isChunked() {
+        return enableChunked;
+    }
+
+    /**
+     * Checks if access log is enabled.
+     *
+     * @return true, if access log is enabled
+     */
+    public boolean hasAccessLog() {
+        return enableAccessLog;
+    }
+
+    /**
+     * Gets the rules (rule table handle).
+     *
+     * @return the rules
+     */
+    public CandidateSet<Rule> getRules() {
+        return rules;
+    }
+
+    /**
+     * Gets the rule matched by the request (or the default rule).
+     *
+     * @param requestView the request view
+     * @return the rule
+     */
+    public Rule getRule(final RequestView requestView) {
+        return ruleSelector.select(rules, requestView);
+    }
+
+    /**
+     * Gets the backend request header policy.
+     *
+     * @return the request header policy
+     */
+    public HeaderPolicy getRequestHeaderPolicy() {
+        return requestHeaderPolicy;
+    }
+
+    /**
+     * Gets the client response header policy.
+     *
+     * @return the response header policy
+     */
+    public HeaderPolicy getResponseHeaderPolicy() {
+        return responseHeaderPolicy;
+    }
+
+    /**
+     * Gets the pool route resolved by the rule.
+     *
+     * @param rule the rule
+     * @return the pool route or null, if rule not returns a backend pool
+     */
+    public PoolRoute getPoolRoute(final Rule rule) {
+        return poolRoutes.get(rule);
+    }
+
+    /**
+     * Checks if this snapshot uses the backend pool.
+     *
+     * @param backendPool the backend pool
+     * @return true, if uses the backend pool
+     */
+    public boolean uses(final BackendPool backendPool) {
+        for (PoolRoute poolRoute: poolRoutes.values()) {
+            if (poolRoute.getBackendPool()==backendPool) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -17,7 +17,7 @@ package com.globo.galeb.entity.impl.frontend;
 
 import org.vertx.java.core.json.JsonObject;
 
-import com.globo.galeb.criteria.impl.RequestMatch;
+import com.globo.galeb.criteria.IWhenMatch;
 import com.globo.galeb.entity.Entity;
 import com.globo.galeb.rulereturn.IRuleReturn;
 import com.globo.galeb.rulereturn.RuleReturnFactory;
@@ -185,6 +185,6 @@ public abstract class Rule extends Entity {
      * @param requestMatch the request match
      * @return true, if is match with
      */
-    public abstract boolean isMatchWith(RequestMatch requestMatch);
+    public abstract boolean isMatchWith(IWhenMatch requestMatch);
 
 }
@@ -16,19 +16,26 @@
 package com.globo.galeb.entity.impl.frontend;
 
 import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import org.vertx.java.core.json.JsonObject;
 
-import com.globo.galeb.criteria.impl.RequestMatch;
+import com.globo.galeb.criteria.IWhenMatch;
 
 /**
  * Class UriPathRegex.
  *
+ * The match is compiled once, when the rule is created or the match
+ * changes. An invalid regex never matches.
+ *
  * @author See AUTHORS file.
  * @version 1.0.0, Nov 10, 2014.
  */
 public class UriPathRegex extends Rule {
 
+    /** The compiled match (null if invalid). */
+    private Pattern pattern = null;
 
     /**
      * Instantiates a new uri path regex.
@@ -44,15 +51,49 @@ public class UriPathRegex extends Rule {
      */
     public UriPathRegex(JsonObject json) {
         super(json);
+        pattern = compile(match);
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.entity.impl.frontend.Rule#setMatch(java.lang.Object)
+     */
+    @Override
+    public Rule setMatch(Object match) {
+        super.setMatch(match);
+        pattern = compile(match);
+        return this;
+    }
+
+    /**
+     * Gets the compiled match.
+     *
+     * @return the pattern, or null if the match is not a valid regex
+     */
+    public Pattern getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Compile the match.
+     *
+     * @param match the match
+     * @return the pattern, or null if the match is not a valid regex
+     */
+    private static Pattern compile(Object match) {
+        try {
+            return Pattern.compile(String.valueOf(match));
+        } catch (PatternSyntaxException e) {
+            return null;
+        }
     }
 
     /* (non-Javadoc)
-     * @see com.globo.galeb.rules.Rule#isMatchWith(com.globo.galeb.criteria.impl.RequestMatch)
+     * @see com.globo.galeb.rules.Rule#isMatchWith(com.globo.galeb.criteria.IWhenMatch)
      */
     @Override
-    public boolean isMatchWith(RequestMatch requestMatch) {
+    public boolean isMatchWith(IWhenMatch requestMatch) {
         String uriPath = requestMatch.getUriPath();
-        boolean isMatch = uriPath.matches(match.toString());
+        boolean isMatch = pattern!=null && pattern.matcher(uriPath).matches();
         getLogger().debug(String.format("[%s] %s %smatch with %s", this, match.toString(), isMatch ? "": "NOT ", uriPath));
         return isMatch;
     }
@@ -15,16 +15,31 @@
  */
 package com.globo.galeb.entity.impl.frontend;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import org.vertx.java.core.json.JsonArray;
 import org.vertx.java.core.json.JsonObject;
 
 import com.globo.galeb.criteria.ICriterion.CriterionAction;
+import com.globo.galeb.criteria.impl.RouteCache;
 import com.globo.galeb.criteria.impl.RulesCriterion;
 import com.globo.galeb.entity.EntitiesMap;
+import com.globo.galeb.metrics.MetricKey;
 
 /**
  * Class Virtualhost.
  *
+ * Each rule change publishes a new rule table (see RulesCriterion) and a
+ * new route snapshot, so requests never see a partial rule set.
+ *
+ * The aliases (property "aliases") are other hosts resolved to this same
+ * instance, so many domains share one rule set and one route snapshot.
+ *
+ * With "routeCacheSize" &gt; 0, the rule decisions are cached by uri path
+ * (see RouteCache), while all the rules depend only on the path.
+ *
  * @author See AUTHORS file.
  * @version 1.0.0, Nov 10, 2014.
  */
@@ -39,6 +54,20 @@ public class Virtualhost extends EntitiesMap<Rule> {
     /** The Constant RULES_FIELDNAME. */
     public static final String RULES_FIELDNAME            = "rules";
 
+    /** The Constant REQUEST_HEADERS_FIELDNAME. */
+    public static final String REQUEST_HEADERS_FIELDNAME  = "requestHeaders";
+
+    /** The Constant RESPONSE_HEADERS_FIELDNAME. */
+    public static final String RESPONSE_HEADERS_FIELDNAME = "responseHeaders";
+
+    /** The Constant ALIASES_FIELDNAME. */
+    public static final String ALIASES_FIELDNAME          = "aliases";
+
+    /** The Constant ROUTE_CACHE_SIZE_FIELDNAME. */
+    public static final String ROUTE_CACHE_SIZE_FIELDNAME = "routeCacheSize";
+
+    /** The compiled route snapshot. */
+    private RouteSnapshot routeSnapshot = null;
 
     /**
      * Instantiates a new virtual server.
@@ -70,7 +99,57 @@ public class Virtualhost extends EntitiesMap<Rule> {
      */
     @Override
     public void start() {
-        setCriterion(new RulesCriterion().given(getEntities()).setLog(logger));
+        RulesCriterion rulesCriterion = new RulesCriterion();
+        int routeCacheSize = properties.getInteger(ROUTE_CACHE_SIZE_FIELDNAME, 0);
+        if (routeCacheSize>0) {
+            rulesCriterion.setRouteCache(new RouteCache(routeCacheSize)
+                                                .setCounter(counter)
+                                                .setMetricKey(MetricKey.cleanup(id, MetricKey.UNDEF)));
+        }
+        setCriterion(rulesCriterion.given(getEntities()).setLog(logger));
+        compileRouteSnapshot();
+    }
+
+    /**
+     * Compile (rebuild) the route snapshot. Called when the virtualhost
+     * or its rules change.
+     *
+     * @return the route snapshot
+     */
+    public RouteSnapshot compileRouteSnapshot() {
+        routeSnapshot = new RouteSnapshot(this, logger);
+        return routeSnapshot;
+    }
+
+    /**
+     * Gets the route snapshot (compiled if necessary).
+     *
+     * @return the route snapshot
+     */
+    public RouteSnapshot getRouteSnapshot() {
+        if (routeSnapshot==null) {
+            return compileRouteSnapshot();
+        }
+        return routeSnapshot;
+    }
+
+    /**
+     * Gets the aliases (other hosts of this virtualhost).
+     *
+     * @return the aliases
+     */
+    public List<String> getAliases() {
+        Object aliasesField = properties.getField(ALIASES_FIELDNAME);
+        if (!(aliasesField instanceof JsonArray)) {
+            return Collections.emptyList();
+        }
+        List<String> aliases = new ArrayList<>();
+        for (Object alias: (JsonArray) aliasesField) {
+            if (alias instanceof String && !"".equals(alias)) {
+                aliases.add((String) alias);
+            }
+        }
+        return aliases;
     }
 
     /* (non-Javadoc)
@@ -94,8 +173,10 @@ public class Virtualhost extends EntitiesMap<Rule> {
      */
     @Override
     public boolean addEntity(Rule entity) {
+        boolean isOk = super.addEntity(entity);
         getCriterion().action(CriterionAction.RESET_REQUIRED);
-        return super.addEntity(entity);
+        compileRouteSnapshot();
+        return isOk;
     }
 
     /* (non-Javadoc)
@@ -103,8 +184,10 @@ public class Virtualhost extends EntitiesMap<Rule> {
      */
     @Override
     public boolean removeEntity(Rule entity) {
+        boolean isOk = super.removeEntity(entity);
         getCriterion().action(CriterionAction.RESET_REQUIRED);
-        return super.removeEntity(entity);
+        compileRouteSnapshot();
+        return isOk;
     }
 
     /* (non-Javadoc)
@@ -112,8 +195,20 @@ public class Virtualhost extends EntitiesMap<Rule> {
      */
     @Override
     public boolean removeEntity(String entityId) {
+        boolean isOk = super.removeEntity(entityId);
+        getCriterion().action(CriterionAction.RESET_REQUIRED);
+        compileRouteSnapshot();
+        return isOk;
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.entity.EntitiesMap#clearEntities()
+     */
+    @Override
+    public void clearEntities() {
+        super.clearEntities();
         getCriterion().action(CriterionAction.RESET_REQUIRED);
-        return super.removeEntity(entityId);
+        compileRouteSnapshot();
     }
 
 }
@@ -17,15 +17,15 @@ package com.globo.galeb.handlers;
 
 import org.vertx.java.core.Handler;
 import org.vertx.java.core.Vertx;
-import org.vertx.java.core.http.HttpHeaders;
 import org.vertx.java.core.http.HttpServerRequest;
-import org.vertx.java.core.json.JsonObject;
 
 import com.globo.galeb.bus.IQueueService;
 import com.globo.galeb.entity.impl.Farm;
 import com.globo.galeb.logger.SafeLogger;
 import com.globo.galeb.metrics.ICounter;
-import com.globo.galeb.request.RouterRequest;
+import com.globo.galeb.request.ProxyExchange;
+import com.globo.galeb.request.ProxyExchangePool;
+import com.globo.galeb.scheduler.impl.HashedTimingWheel;
 
 /**
  * Class RouterRequestHandler.
@@ -35,40 +35,26 @@ import com.globo.galeb.request.RouterRequest;
  */
 public class RouterRequestHandler implements Handler<HttpServerRequest> {
 
-    /** The vertx. */
-    private final Vertx vertx;
-
-    /** The farm. */
-    private final Farm farm;
-
-    /** The counter. */
-    private final ICounter counter;
-
-    /** The log. */
-    private final SafeLogger log;
-
-    /** The queueService instance. */
-    private final IQueueService queueService;
+    /** The proxy exchange pool (one per event loop). */
+    private final ProxyExchangePool exchangePool;
 
     /* (non-Javadoc)
      * @see org.vertx.java.core.Handler#handle(java.lang.Object)
      */
     @Override
     public void handle(final HttpServerRequest sRequest) throws RuntimeException {
-        Long requestTimeout = farm.getProperties().getLong(Farm.REQUEST_TIMEOUT_FIELDNAME, 5000L);
-
-        sRequest.headers().remove(HttpHeaders.IF_MODIFIED_SINCE.toString());
-
-        JsonObject conf = new JsonObject();
-        conf.putNumber(Farm.REQUEST_TIMEOUT_FIELDNAME, requestTimeout);
+        exchangePool.acquire().start(sRequest);
+    }
 
-        new RouterRequest(sRequest).setFarm(farm)
-                                   .setQueueService(queueService)
-                                   .setLog(log)
-                                   .setCounter(counter)
-                                   .setConf(conf)
-                                   .setPlataform(vertx)
-                                   .start();
+    /**
+     * Sets the timing wheel used by the gateway timeouts.
+     *
+     * @param timingWheel the timing wheel
+     * @return this
+     */
+    public RouterRequestHandler setTimingWheel(final HashedTimingWheel timingWheel) {
+        exchangePool.setTimingWheel(timingWheel);
+        return this;
     }
 
     /**
@@ -86,11 +72,14 @@ public class RouterRequestHandler implements Handler<HttpServerRequest> {
             final ICounter counter,
             final IQueueService queueService,
             final SafeLogger log) {
-        this.vertx = vertx;
-        this.farm = farm;
-        this.counter = counter;
-        this.queueService = queueService;
-        this.log = log;
+        this.exchangePool = new ProxyExchangePool().setFarm(farm)
+                                                   .setCounter(counter)
+                                                   .setQueueService(queueService)
+                                                   .setLog(log)
+                                                   .setPlataform(vertx)
+                                                   .setRequestTimeout(farm.getProperties()
+                                                           .getLong(Farm.REQUEST_TIMEOUT_FIELDNAME,
+                                                                    ProxyExchange.DEFAULT_REQUEST_TIMEOUT));
     }
 
 }
@@ -274,6 +274,15 @@ public class SafeLogger {
         log.trace(message, t);
     }
 
+    /**
+     * Checks if debug level is enabled. Without a logger everything is printed.
+     *
+     * @return true, if debug is enabled
+     */
+    public boolean isDebugEnabled() {
+        return log==null || log.isDebugEnabled();
+    }
+
     /**
      * Gets the last log level.
      *
@@ -73,6 +73,42 @@ public class CounterConsoleOut implements ICounter {
         System.out.println(String.format("%s.httpCode%d:%d%s", key, code, -1, srtSample));
     }
 
+    /* (non-Javadoc)
+     * @see com.globo.galeb.metrics.ICounter#incrTimeout(java.lang.String, java.lang.String)
+     */
+    @Override
+    public void incrTimeout(String key, String deadline) {
+        System.out.println(String.format("%s.%sTimeout:%d", key, deadline, 1));
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.metrics.ICounter#sendBytes(java.lang.String, long, long)
+     */
+    @Override
+    public void sendBytes(String key, long bytesIn, long bytesOut) {
+        System.out.println(String.format("%s.bytesIn:%d", key, bytesIn));
+        System.out.println(String.format("%s.bytesOut:%d", key, bytesOut));
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.metrics.ICounter#sendSessionCleanup(java.lang.String, long, long)
+     */
+    @Override
+    public void sendSessionCleanup(String key, long visited, long evicted) {
+        System.out.println(String.format("%s.sessionCleanupVisited:%d", key, visited));
+        System.out.println(String.format("%s.sessionCleanupEvicted:%d", key, evicted));
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.metrics.ICounter#sendRouteCache(java.lang.String, long, long)
+     */
+    @Override
+    public void sendRouteCache(String key, long hits, long misses) {
+        System.out.println(String.format("%s.routeCacheHits:%d", key, hits));
+        System.out.println(String.format("%s.routeCacheMisses:%d", key, misses));
+        System.out.println(String.format("%s.routeCacheHitRatio:%d", key, (hits+misses)>0 ? hits*100/(hits+misses) : 0L));
+    }
+
     /* (non-Javadoc)
      * @see com.globo.galeb.metrics.ICounter#requestTime(java.lang.String, java.lang.Long)
      */
@@ -16,6 +16,7 @@
 package com.globo.galeb.metrics;
 
 import static com.globo.galeb.verticles.StatsdVerticle.QUEUE_COUNTER;
+import static com.globo.galeb.verticles.StatsdVerticle.QUEUE_GAUGE;
 import static com.globo.galeb.verticles.StatsdVerticle.QUEUE_TIMER;
 
 import org.vertx.java.core.eventbus.EventBus;
@@ -31,17 +32,6 @@ public class CounterWithEventBus implements ICounter {
     /** The EventBus. */
     private EventBus eb;
 
-    /**
-     * Cleanup the key.
-     *
-     * @param aString the a string
-     * @param strDefault the str default
-     * @return the string
-     */
-    private String cleanupString(String aString, String strDefault) {
-        return !"".equals(aString)?aString.replaceAll("[^\\w]", "_"):strDefault;
-    }
-
     /**
      * Merge virtualhost id with backend id.
      *
@@ -50,7 +40,7 @@ public class CounterWithEventBus implements ICounter {
      * @return the string merged
      */
     private String mergeVirtualhostIdWithBackendId(String virtualhostId, String backendId) {
-        return String.format("%s.%s",cleanupString(virtualhostId,"UNDEF"), cleanupString(backendId, "UNDEF"));
+        return MetricKey.merge(virtualhostId, backendId);
     }
 
     /**
@@ -118,6 +108,50 @@ public class CounterWithEventBus implements ICounter {
         }
     }
 
+    /* (non-Javadoc)
+     * @see com.globo.galeb.metrics.ICounter#incrTimeout(java.lang.String, java.lang.String)
+     */
+    @Override
+    public void incrTimeout(String key, String deadline) {
+        if (key!=null && !("".equals(key))) {
+            eb.send(QUEUE_COUNTER, String.format("%s.%sTimeout:%d", key, deadline, 1));
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.metrics.ICounter#sendBytes(java.lang.String, long, long)
+     */
+    @Override
+    public void sendBytes(String key, long bytesIn, long bytesOut) {
+        if (key!=null && !("".equals(key))) {
+            eb.send(QUEUE_COUNTER, String.format("%s.bytesIn:%d", key, bytesIn));
+            eb.send(QUEUE_COUNTER, String.format("%s.bytesOut:%d", key, bytesOut));
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.metrics.ICounter#sendSessionCleanup(java.lang.String, long, long)
+     */
+    @Override
+    public void sendSessionCleanup(String key, long visited, long evicted) {
+        if (key!=null && !("".equals(key))) {
+            eb.send(QUEUE_COUNTER, String.format("%s.sessionCleanupVisited:%d", key, visited));
+            eb.send(QUEUE_COUNTER, String.format("%s.sessionCleanupEvicted:%d", key, evicted));
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.metrics.ICounter#sendRouteCache(java.lang.String, long, long)
+     */
+    @Override
+    public void sendRouteCache(String key, long hits, long misses) {
+        if (key!=null && !("".equals(key))) {
+            eb.send(QUEUE_COUNTER, String.format("%s.routeCacheHits:%d", key, hits));
+            eb.send(QUEUE_COUNTER, String.format("%s.routeCacheMisses:%d", key, misses));
+            eb.send(QUEUE_GAUGE, String.format("%s.routeCacheHitRatio:%d", key, (hits+misses)>0 ? hits*100/(hits+misses) : 0L));
+        }
+    }
+
     /* (non-Javadoc)
      * @see com.globo.galeb.metrics.ICounter#requestTime(java.lang.String, java.lang.Long)
      */
@@ -39,17 +39,6 @@ public class CounterWithStatsd implements ICounter {
     /** The statsd client. */
     private final StatsdClient statsdClient;
 
-    /**
-     * Cleanup the key.
-     *
-     * @param aString the a string
-     * @param strDefault the str default
-     * @return the string
-     */
-    private String cleanupString(String aString, String strDefault) {
-        return !"".equals(aString)?aString.replaceAll("[^\\w]", "_"):strDefault;
-    }
-
     /**
      * Merge virtualhost id with backend id.
      *
@@ -58,7 +47,7 @@ public class CounterWithStatsd implements ICounter {
      * @return the string merged
      */
     private String mergeVirtualhostIdWithBackendId(String virtualhostId, String backendId) {
-        return String.format("%s.%s",cleanupString(virtualhostId,"UNDEF"), cleanupString(backendId, "UNDEF"));
+        return MetricKey.merge(virtualhostId, backendId);
     }
 
     /**
@@ -139,6 +128,51 @@ public class CounterWithStatsd implements ICounter {
         }
     }
 
+    /* (non-Javadoc)
+     * @see com.globo.galeb.metrics.ICounter#incrTimeout(java.lang.String, java.lang.String)
+     */
+    @Override
+    public void incrTimeout(String key, String deadline) {
+        if (statsdClient!=null && key!=null && !("".equals(key))) {
+            statsdClient.send(TypeStatsdMessage.COUNT,
+                    String.format("%s.%sTimeout:%d", key, deadline, 1));
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.metrics.ICounter#sendBytes(java.lang.String, long, long)
+     */
+    @Override
+    public void sendBytes(String key, long bytesIn, long bytesOut) {
+        if (statsdClient!=null && key!=null && !("".equals(key))) {
+            statsdClient.send(TypeStatsdMessage.COUNT, String.format("%s.bytesIn:%d", key, bytesIn));
+            statsdClient.send(TypeStatsdMessage.COUNT, String.format("%s.bytesOut:%d", key, bytesOut));
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.metrics.ICounter#sendSessionCleanup(java.lang.String, long, long)
+     */
+    @Override
+    public void sendSessionCleanup(String key, long visited, long evicted) {
+        if (statsdClient!=null && key!=null && !("".equals(key))) {
+            statsdClient.send(TypeStatsdMessage.COUNT, String.format("%s.sessionCleanupVisited:%d", key, visited));
+            statsdClient.send(TypeStatsdMessage.COUNT, String.format("%s.sessionCleanupEvicted:%d", key, evicted));
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.metrics.ICounter#sendRouteCache(java.lang.String, long, long)
+     */
+    @Override
+    public void sendRouteCache(String key, long hits, long misses) {
+        if (statsdClient!=null && key!=null && !("".equals(key))) {
+            statsdClient.send(TypeStatsdMessage.COUNT, String.format("%s.routeCacheHits:%d", key, hits));
+            statsdClient.send(TypeStatsdMessage.COUNT, String.format("%s.routeCacheMisses:%d", key, misses));
+            statsdClient.send(TypeStatsdMessage.GAUGE, String.format("%s.routeCacheHitRatio:%d", key, (hits+misses)>0 ? hits*100/(hits+misses) : 0L));
+        }
+    }
+
     /* (non-Javadoc)
      * @see com.globo.galeb.metrics.ICounter#requestTime(java.lang.String, java.lang.Long)
      */
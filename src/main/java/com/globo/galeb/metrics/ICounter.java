@@ -74,6 +74,41 @@ public interface ICounter {
      */
     public abstract void decrHttpCode(String key, Integer code, double sample);
 
+    /**
+     * Increment timeout count.
+     *
+     * @param key the key
+     * @param deadline the deadline expired (connect, firstByte, idle, total)
+     */
+    public abstract void incrTimeout(String key, String deadline);
+
+    /**
+     * Send bytes transferred by a request.
+     *
+     * @param key the key
+     * @param bytesIn the bytes received from the client
+     * @param bytesOut the bytes sent to the client
+     */
+    public abstract void sendBytes(String key, long bytesIn, long bytesOut);
+
+    /**
+     * Send session cleanup work.
+     *
+     * @param key the key
+     * @param visited the sessions visited
+     * @param evicted the idle sessions evicted
+     */
+    public abstract void sendSessionCleanup(String key, long visited, long evicted);
+
+    /**
+     * Send route cache hits and misses (and the hit ratio).
+     *
+     * @param key the key
+     * @param hits the hits
+     * @param misses the misses
+     */
+    public abstract void sendRouteCache(String key, long hits, long misses);
+
     /**
      * Request time count.
      *
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.metrics;
+
+/**
+ * Class MetricKey: builds the metric keys used by the counters.
+ * Keys can be precomputed (see RouteSnapshot) and sent with the
+ * single key methods of ICounter.
+ *
+ * @author See AUTHORS file.
+ * @version 1.0.0, Oct 18, 2026.
+ */
+public class MetricKey {
+
+    /** The Constant UNDEF. */
+    public static final String UNDEF = "UNDEF";
+
+    /**
+     * Instantiates a new metric key.
+     */
+    private MetricKey() {
+    }
+
+    /**
+     * Cleanup the key.
+     *
+     * @param aString the a string
+     * @param strDefault the str default
+     * @return the string
+     */
+    public static String cleanup(String aString, String strDefault) {
+        return aString!=null && !"".equals(aString) ? aString.replaceAll("[^\\w]", "_") : strDefault;
+    }
+
+    /**
+     * Merge virtualhost id with backend id.
+     *
+     * @param virtualhostId the virtualhost id
+     * @param backendId the backend id
+     * @return the string merged
+     */
+    public static String merge(String virtualhostId, String backendId) {
+        return String.format("%s.%s", cleanup(virtualhostId, UNDEF), cleanup(backendId, UNDEF));
+    }
+
+}
@@ -0,0 +1,431 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.request;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.vertx.java.core.MultiMap;
+import org.vertx.java.core.json.JsonArray;
+import org.vertx.java.core.json.JsonObject;
+
+import com.globo.galeb.logger.SafeLogger;
+
+/**
+ * Class HeaderPolicy.
+ *
+ * Ordered program of header operations (one per header name), compiled
+ * once and executed in a single pass while copying the headers from a
+ * source to a target MultiMap. The source is never modified.
+ *
+ * Operations:
+ * <ul>
+ * <li>ADD: keep the source values, or add the value if the header is absent;</li>
+ * <li>SET: replace the source values;</li>
+ * <li>APPEND: append the value to the last source value (", " separated);</li>
+ * <li>REMOVE: drop the header.</li>
+ * </ul>
+ * The value may be a literal or a variable: {@link #VAR_REMOTE_IP} or
+ * {@link #VAR_HOST} (the Host header without port).
+ *
+ * Immutable once compiled: the execution state of a request (headers
+ * seen, values pending) lives in a {@link Scratch} owned by the caller,
+ * so a policy is shared by all the requests of a route snapshot.
+ *
+ * @author See AUTHORS file.
+ * @version 1.0.0, Oct 18, 2026.
+ */
+public class HeaderPolicy {
+
+    /** The Constant NAME_FIELDNAME. */
+    public static final String NAME_FIELDNAME      = "name";
+
+    /** The Constant OPERATION_FIELDNAME. */
+    public static final String OPERATION_FIELDNAME = "op";
+
+    /** The Constant VALUE_FIELDNAME. */
+    public static final String VALUE_FIELDNAME     = "value";
+
+    /** The remote ip variable. */
+    public static final String VAR_REMOTE_IP       = "$remote_ip";
+
+    /** The host variable. */
+    public static final String VAR_HOST            = "$host";
+
+    /**
+     * Header operations.
+     */
+    public enum Operation {
+
+        /** Add if absent. */
+        ADD,
+
+        /** Set (replace). */
+        SET,
+
+        /** Append to the last value. */
+        APPEND,
+
+        /** Remove. */
+        REMOVE
+    }
+
+    /** The value is a literal. */
+    private static final int SOURCE_LITERAL   = 0;
+
+    /** The value is the remote ip. */
+    private static final int SOURCE_REMOTE_IP = 1;
+
+    /** The value is the host (without port). */
+    private static final int SOURCE_HOST      = 2;
+
+    /**
+     * Class HeaderOperation.
+     *
+     * @author See AUTHORS file.
+     * @version 1.0.0, Oct 18, 2026.
+     */
+    private static final class HeaderOperation {
+
+        /** The operation. */
+        private Operation operation;
+
+        /** The position in the program (and in the scratch). */
+        private final int index;
+
+        /** The header name. */
+        private final String name;
+
+        /** The literal value. */
+        private String value;
+
+        /** The value source. */
+        private int source;
+
+        /**
+         * Instantiates a new header operation.
+         *
+         * @param index the position in the program
+         * @param operation the operation
+         * @param name the name
+         * @param value the value
+         */
+        private HeaderOperation(int index, final Operation operation, final String name, final String value) {
+            this.index = index;
+            this.name = name;
+            define(operation, value);
+        }
+
+        /**
+         * Define the operation and value.
+         *
+         * @param operation the operation
+         * @param value the value
+         */
+        private void define(final Operation operation, final String value) {
+            this.operation = operation;
+            this.value = value!=null ? value : "";
+            if (VAR_REMOTE_IP.equals(value)) {
+                this.source = SOURCE_REMOTE_IP;
+            } else if (VAR_HOST.equals(value)) {
+                this.source = SOURCE_HOST;
+            } else {
+                this.source = SOURCE_LITERAL;
+            }
+        }
+
+        /**
+         * Gets the value.
+         *
+         * @param remoteIp the remote ip
+         * @param hostHeader the host header
+         * @return the value
+         */
+        private String getValue(final String remoteIp, final String hostHeader) {
+            switch (source) {
+                case SOURCE_REMOTE_IP:
+                    return remoteIp;
+                case SOURCE_HOST:
+                    return stripPort(hostHeader);
+                default:
+                    return value;
+            }
+        }
+    }
+
+    /**
+     * Class Scratch: the execution state of one request. Reusable by
+     * any policy (it grows to the largest program).
+     *
+     * @author See AUTHORS file.
+     * @version 1.0.0, Oct 18, 2026.
+     */
+    public static final class Scratch {
+
+        /** The source has the header of each operation. */
+        private boolean[] seen = new boolean[0];
+
+        /** The last source value not copied yet of each operation. */
+        private String[] pending = new String[0];
+
+        /**
+         * Ensure the capacity for a program.
+         *
+         * @param size the program size
+         * @return this
+         */
+        private Scratch prepare(int size) {
+            if (seen.length<size) {
+                seen = new boolean[size];
+                pending = new String[size];
+            }
+            return this;
+        }
+
+        /**
+         * Clear the state of a program.
+         *
+         * @param size the program size
+         */
+        private void clear(int size) {
+            Arrays.fill(seen, 0, size, false);
+            Arrays.fill(pending, 0, size, null);
+        }
+    }
+
+    /** The program (in definition order). */
+    private final List<HeaderOperation> program = new ArrayList<>();
+
+    /** The operations by header name (case insensitive). */
+    private final Map<String, HeaderOperation> operations = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    /** The log. */
+    private SafeLogger log = null;
+
+    /**
+     * Builds the default request policy (X-Real-IP, XFF family, keepalive
+     * to backend) followed by the user defined operations.
+     *
+     * @param userOperations the user operations (may be null)
+     * @param log the logger
+     * @return the header policy
+     */
+    public static HeaderPolicy forRequest(final JsonArray userOperations, final SafeLogger log) {
+        return new HeaderPolicy().setLog(log)
+                    .addOperation(Operation.REMOVE, "If-Modified-Since", null)
+                    .addOperation(Operation.ADD,    "X-Real-IP", VAR_REMOTE_IP)
+                    .addOperation(Operation.APPEND, "X-Forwarded-For", VAR_REMOTE_IP)
+                    .addOperation(Operation.APPEND, "Forwarded-For", VAR_REMOTE_IP)
+                    .addOperation(Operation.ADD,    "X-Forwarded-Host", VAR_HOST)
+                    .addOperation(Operation.ADD,    "X-Forwarded-Proto", "http")
+                    .addOperation(Operation.SET,    ProxyExchange.HTTP_HEADER_CONNECTION, "keep-alive")
+                    .addOperations(userOperations);
+    }
+
+    /**
+     * Builds the response policy (user defined operations only).
+     *
+     * @param userOperations the user operations (may be null)
+     * @param log the logger
+     * @return the header policy
+     */
+    public static HeaderPolicy forResponse(final JsonArray userOperations, final SafeLogger log) {
+        return new HeaderPolicy().setLog(log).addOperations(userOperations);
+    }
+
+    /**
+     * Strip the port of a host header, without allocation if there is no port.
+     *
+     * @param hostHeader the host header
+     * @return the host
+     */
+    public static String stripPort(final String hostHeader) {
+        if (hostHeader==null) {
+            return "";
+        }
+        int portSeparator = hostHeader.lastIndexOf(':');
+        if (portSeparator<0 || hostHeader.indexOf(']', portSeparator)>=0) {
+            return hostHeader;
+        }
+        return hostHeader.substring(0, portSeparator);
+    }
+
+    /**
+     * Sets the log.
+     *
+     * @param log the log
+     * @return this
+     */
+    public HeaderPolicy setLog(final SafeLogger log) {
+        this.log = log;
+        return this;
+    }
+
+    /**
+     * Adds (or redefine) the operation of a header. A redefined header
+     * keeps its original position in the program.
+     *
+     * @param operation the operation
+     * @param name the header name
+     * @param value the value (literal or variable)
+     * @return this
+     */
+    public HeaderPolicy addOperation(final Operation operation, final String name, final String value) {
+        HeaderOperation headerOperation = operations.get(name);
+        if (headerOperation!=null) {
+            headerOperation.define(operation, value);
+        } else {
+            headerOperation = new HeaderOperation(program.size(), operation, name, value);
+            operations.put(name, headerOperation);
+            program.add(headerOperation);
+        }
+        return this;
+    }
+
+    /**
+     * Adds the operations defined as json ({"op": "set", "name": "X-Header", "value": "x"}).
+     * Invalid operations are ignored.
+     *
+     * @param jsonOperations the json operations (may be null)
+     * @return this
+     */
+    public HeaderPolicy addOperations(final JsonArray jsonOperations) {
+        if (jsonOperations==null) {
+            return this;
+        }
+        for (Object element: jsonOperations) {
+            if (!(element instanceof JsonObject)) {
+                continue;
+            }
+            JsonObject json = (JsonObject) element;
+            String name = json.getString(NAME_FIELDNAME);
+            String operation = json.getString(OPERATION_FIELDNAME, Operation.SET.toString());
+            if (name==null || "".equals(name)) {
+                continue;
+            }
+            try {
+                addOperation(Operation.valueOf(operation.toUpperCase()), name, json.getString(VALUE_FIELDNAME));
+            } catch (IllegalArgumentException e) {
+                if (log!=null) {
+                    log.warn(String.format("Header operation '%s' (%s) is invalid. Ignored.", operation, name));
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Checks if is empty.
+     *
+     * @return true, if is empty
+     */
+    public boolean isEmpty() {
+        return program.isEmpty();
+    }
+
+    /**
+     * Gets the number of operations.
+     *
+     * @return the size
+     */
+    public int size() {
+        return program.size();
+    }
+
+    /**
+     * Copy the headers from source to target, applying the program,
+     * with a new scratch.
+     *
+     * @param source the source headers (not modified)
+     * @param target the target headers
+     * @param remoteIp the remote ip
+     * @param hostHeader the host header
+     */
+    public void apply(final MultiMap source, final MultiMap target, final String remoteIp, final String hostHeader) {
+        apply(source, target, remoteIp, hostHeader, new Scratch());
+    }
+
+    /**
+     * Copy the headers from source to target, applying the program.
+     * The scratch is left clear, even if the target fails.
+     *
+     * @param source the source headers (not modified)
+     * @param target the target headers
+     * @param remoteIp the remote ip
+     * @param hostHeader the host header
+     * @param scratch the scratch (execution state) of the caller
+     */
+    public void apply(final MultiMap source, final MultiMap target, final String remoteIp, final String hostHeader,
+            final Scratch scratch) {
+        if (program.isEmpty()) {
+            target.set(source);
+            return;
+        }
+
+        final int size = program.size();
+        final boolean[] seen = scratch.prepare(size).seen;
+        final String[] pending = scratch.pending;
+        try {
+            for (Map.Entry<String, String> header: source) {
+                HeaderOperation headerOperation = operations.get(header.getKey());
+                if (headerOperation==null) {
+                    target.add(header.getKey(), header.getValue());
+                    continue;
+                }
+                switch (headerOperation.operation) {
+                    case ADD:
+                        seen[headerOperation.index] = true;
+                        target.add(header.getKey(), header.getValue());
+                        break;
+                    case APPEND:
+                        if (pending[headerOperation.index]!=null) {
+                            target.add(headerOperation.name, pending[headerOperation.index]);
+                        }
+                        pending[headerOperation.index] = header.getValue();
+                        break;
+                    default:
+                        break;
+                }
+            }
+
+            for (int pos=0; pos<size; pos++) {
+                HeaderOperation headerOperation = program.get(pos);
+                switch (headerOperation.operation) {
+                    case ADD:
+                        if (!seen[pos]) {
+                            target.add(headerOperation.name, headerOperation.getValue(remoteIp, hostHeader));
+                        }
+                        break;
+                    case SET:
+                        target.set(headerOperation.name, headerOperation.getValue(remoteIp, hostHeader));
+                        break;
+                    case APPEND:
+                        String value = headerOperation.getValue(remoteIp, hostHeader);
+                        target.add(headerOperation.name, pending[pos]!=null ? pending[pos] + ", " + value : value);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } finally {
+            scratch.clear(size);
+        }
+    }
+
+}
@@ -0,0 +1,1127 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.request;
+
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.MultiMap;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.http.HttpClient;
+import org.vertx.java.core.http.HttpClientRequest;
+import org.vertx.java.core.http.HttpClientResponse;
+import org.vertx.java.core.http.HttpHeaders;
+import org.vertx.java.core.http.HttpServerRequest;
+import org.vertx.java.core.http.HttpServerResponse;
+
+import com.globo.galeb.bus.IQueueService;
+import com.globo.galeb.bus.NullQueueService;
+import com.globo.galeb.criteria.CandidateSet;
+import com.globo.galeb.entity.EntitiesMap;
+import com.globo.galeb.entity.impl.Farm;
+import com.globo.galeb.entity.impl.backend.BackendSession;
+import com.globo.galeb.entity.impl.backend.IBackend;
+import com.globo.galeb.entity.impl.backend.NullBackend;
+import com.globo.galeb.entity.impl.frontend.RouteSnapshot;
+import com.globo.galeb.entity.impl.frontend.Rule;
+import com.globo.galeb.entity.impl.frontend.Virtualhost;
+import com.globo.galeb.exceptions.BadRequestException;
+import com.globo.galeb.exceptions.GatewayTimeoutException;
+import com.globo.galeb.exceptions.NotFoundException;
+import com.globo.galeb.exceptions.ServiceUnavailableException;
+import com.globo.galeb.logger.SafeLogger;
+import com.globo.galeb.metrics.CounterConsoleOut;
+import com.globo.galeb.metrics.ICounter;
+import com.globo.galeb.rulereturn.HttpCode;
+import com.globo.galeb.rulereturn.IRuleReturn;
+import com.globo.galeb.scheduler.IScheduler;
+import com.globo.galeb.scheduler.ISchedulerHandler;
+import com.globo.galeb.scheduler.impl.HashedTimingWheel;
+import com.globo.galeb.scheduler.impl.NullScheduler;
+import com.globo.galeb.scheduler.impl.TimingWheelScheduler;
+import com.globo.galeb.scheduler.impl.VertxDelayScheduler;
+import com.globo.galeb.server.ServerResponse;
+import com.globo.galeb.streams.Pump;
+import com.globo.galeb.streams.ResponseBuffer;
+
+/**
+ * Class ProxyExchange.
+ *
+ * Single object state machine that drives a proxied request: server request,
+ * backend request, backend response, pumps, deadlines and exceptions.
+ * All callbacks, pumps and the server response are created once per instance
+ * and reused, so an exchange recycled by {@link ProxyExchangePool} costs
+ * no object graph per request. The request is read through a reusable
+ * {@link RequestView}, shared by the virtualhost, rule and backend choices.
+ *
+ * With response buffering (per BackendPool), the backend response is read
+ * at the backend pace into a {@link ResponseBuffer} (spilled to file beyond
+ * its memory limit, through the Vert.x file system), so the backend
+ * connection is released as soon as the backend finishes, and drained to
+ * the client at the client pace. The backend response is paused while the
+ * spill file lags behind the backend or reaches its max size.
+ *
+ * Not thread safe: an exchange (and its pool) belongs to one event loop.
+ *
+ * @author See AUTHORS file.
+ * @version 1.0.0, Oct 18, 2026.
+ */
+public class ProxyExchange {
+
+    /**
+     * Exchange states.
+     */
+    public enum State {
+
+        /** Free, waiting a request. */
+        IDLE,
+
+        /** Resolving virtualhost, rule and backend. */
+        ROUTING,
+
+        /** Streaming the client request to backend. */
+        REQUEST_STREAMING,
+
+        /** Streaming the backend response to client. */
+        RESPONSE_STREAMING,
+
+        /** Finished. Released to the pool (if possible). */
+        DONE
+    }
+
+    /**
+     * Exchange deadlines. Each one is armed and reported separately.
+     */
+    public enum Deadline {
+
+        /** Until the backend accepts the first request chunk (or answers). */
+        CONNECT("connect"),
+
+        /** Until the backend response headers arrive. */
+        FIRST_BYTE("firstByte"),
+
+        /** Between two backend response chunks. */
+        IDLE("idle"),
+
+        /** Whole exchange, from routing to the last response chunk. */
+        TOTAL("total");
+
+        /** The metric name. */
+        private final String metricName;
+
+        /**
+         * Instantiates a new deadline.
+         *
+         * @param metricName the metric name
+         */
+        private Deadline(String metricName) {
+            this.metricName = metricName;
+        }
+
+        /**
+         * Gets the metric name.
+         *
+         * @return the metric name
+         */
+        public String getMetricName() {
+            return metricName;
+        }
+    }
+
+    /**
+     * Class DeadlineHandler.
+     *
+     * @author See AUTHORS file.
+     * @version 1.0.0, Oct 18, 2026.
+     */
+    private class DeadlineHandler implements ISchedulerHandler {
+
+        /** The deadline. */
+        private final Deadline deadline;
+
+        /**
+         * Instantiates a new deadline handler.
+         *
+         * @param deadline the deadline
+         */
+        public DeadlineHandler(final Deadline deadline) {
+            this.deadline = deadline;
+        }
+
+        /* (non-Javadoc)
+         * @see com.globo.galeb.scheduler.ISchedulerHandler#handle()
+         */
+        @Override
+        public void handle() {
+            onDeadline(deadline);
+        }
+    }
+
+    /** The http header connection. */
+    public static final String HTTP_HEADER_CONNECTION = HttpHeaders.CONNECTION.toString();
+
+    /** The http header host. */
+    public static final String HTTP_HEADER_HOST = HttpHeaders.HOST.toString();
+
+    /** The default request timeout (ms). */
+    public static final long DEFAULT_REQUEST_TIMEOUT = 5000L;
+
+    /** The pool owner (null if not pooled). */
+    private final ProxyExchangePool pool;
+
+    /** The farm. */
+    private Farm farm = null;
+
+    /** The queue service. */
+    private IQueueService queueService = new NullQueueService();
+
+    /** The counter. */
+    private ICounter counter = new CounterConsoleOut();
+
+    /** The log. */
+    private SafeLogger log = null;
+
+    /** The vertx (used by pumps in coalescing mode). */
+    private Vertx vertx = null;
+
+    /** The deadline handlers (indexed by Deadline ordinal). */
+    private final DeadlineHandler[] deadlineHandlers = new DeadlineHandler[Deadline.values().length];
+
+    /** The deadline schedulers (indexed by Deadline ordinal). Reused by all requests. */
+    private final IScheduler[] deadlines = new IScheduler[Deadline.values().length];
+
+    /** The server response. Reused by all requests. */
+    private final ServerResponse serverResponse = new ServerResponse();
+
+    /** The pump client request to backend request. */
+    private final Pump requestPump = new Pump();
+
+    /** The pump backend response to client response. */
+    private final Pump responsePump = new Pump();
+
+    /** The response buffer (created on the first buffered response). */
+    private ResponseBuffer responseBuffer = null;
+
+    /** The state. */
+    private State state = State.IDLE;
+
+    /** The http server request. */
+    private HttpServerRequest httpServerRequest = null;
+
+    /** The backend http client (released at the end of the exchange). */
+    private HttpClient backendClient = null;
+
+    /** The http client request. */
+    private HttpClientRequest httpClientRequest = null;
+
+    /** The http client response. */
+    private HttpClientResponse httpClientResponse = null;
+
+    /** The request timeout (ms). Default of first byte deadline. */
+    private long requestTimeout = DEFAULT_REQUEST_TIMEOUT;
+
+    /** The idle timeout of this request (ms). */
+    private long idleTimeout = 0L;
+
+    /** The last backend read time. */
+    private long lastReadTime = 0L;
+
+    /** The last backend read time seen by the idle deadline. */
+    private long idleMarkTime = 0L;
+
+    /** The pump coalesce size of this request (bytes). */
+    private int pumpCoalesceSize = 0;
+
+    /** The pump high watermark of this request (bytes). */
+    private int pumpHighWatermark = 0;
+
+    /** The response buffering of this request. */
+    private boolean bufferResponse = false;
+
+    /** The response buffer memory limit of this request (bytes). */
+    private long responseBufferMemory = ResponseBuffer.DEFAULT_MEMORY_LIMIT;
+
+    /** The response buffer max file size of this request (bytes). */
+    private long responseBufferMaxFile = ResponseBuffer.DEFAULT_MAX_FILE_SIZE;
+
+    /** The backend response is paused by the response buffer (buffering mode). */
+    private boolean backendPaused = false;
+
+    /** The backend response is complete (buffering mode). */
+    private boolean backendDone = false;
+
+    /** The bytes written to client (buffering mode). */
+    private long bufferedBytesOut = 0L;
+
+    /** The response buffer is being drained (buffering mode). */
+    private boolean drainingBuffer = false;
+
+    /** The route snapshot of the virtualhost. */
+    private RouteSnapshot route = null;
+
+    /** The metric key (virtualhost.backend). */
+    private String metricKey = null;
+
+    /** The backend. */
+    private IBackend backend = null;
+
+    /** The load balance candidates of the backend pool. */
+    private CandidateSet<IBackend> candidates = null;
+
+    /** The header policy scratch (execution state of the header policies). */
+    private final HeaderPolicy.Scratch headerScratch = new HeaderPolicy.Scratch();
+
+    /** The request view (reset per request). */
+    private final RequestView requestView = new RequestView();
+
+    /** The remote user. */
+    private RemoteUser remoteUser = null;
+
+    /** The header host. */
+    private String headerHost = null;
+
+    /** The connection keepalive. */
+    private boolean connectionKeepalive = true;
+
+    /** The initial request time. */
+    private long initialRequestTime = 0L;
+
+    /** The backend response time (ms). -1 until the backend response ends. */
+    private long responseTime = -1L;
+
+    /** The backend failed or timed out (the load balance sample is penalized). */
+    private boolean backendFailed = false;
+
+    /** The load balance sample of a backend failure (ms): the first byte timeout. */
+    private long failureSample = DEFAULT_REQUEST_TIMEOUT;
+
+    /** The server request exception handler. */
+    private final Handler<Throwable> serverRequestExceptionHandler = new Handler<Throwable>() {
+        @Override
+        public void handle(Throwable event) {
+            log.error("HttpServerRequest fail");
+            fail(event);
+        }
+    };
+
+    /** The server response exception handler. */
+    private final Handler<Throwable> serverResponseExceptionHandler = new Handler<Throwable>() {
+        @Override
+        public void handle(Throwable event) {
+            log.error(String.format("HttpServerResponse fail: %s", event.getMessage()));
+            fail(event);
+        }
+    };
+
+    /** The server response close handler. The client connection closed before the response end. */
+    private final Handler<Void> serverResponseCloseHandler = new Handler<Void>() {
+        @Override
+        public void handle(Void event) {
+            if (log.isDebugEnabled()) {
+                log.debug(String.format("Client connection closed (host: %s, backend: %s)", headerHost, backend));
+            }
+            fail(new BadRequestException());
+        }
+    };
+
+    /** The server request end handler. */
+    private final Handler<Void> serverRequestEndHandler = new Handler<Void>() {
+        @Override
+        public void handle(Void event) {
+            if (httpClientRequest!=null && (state==State.REQUEST_STREAMING || state==State.RESPONSE_STREAMING)) {
+                try {
+                    requestPump.flush();
+                } catch (RuntimeException e) {
+                    fail(e);
+                    return;
+                }
+                httpClientRequest.end();
+            }
+        }
+    };
+
+    /** The first write handler. The first chunk written cancels the connect deadline. */
+    private final Handler<Void> firstWriteHandler = new Handler<Void>() {
+        @Override
+        public void handle(Void event) {
+            cancelDeadline(Deadline.CONNECT);
+            requestPump.writeHandler(null);
+        }
+    };
+
+    /** The backend read handler. Each chunk postpones the idle deadline. */
+    private final Handler<Void> backendReadHandler = new Handler<Void>() {
+        @Override
+        public void handle(Void event) {
+            lastReadTime = System.currentTimeMillis();
+        }
+    };
+
+    /** The buffering data handler. Reads the backend response without backpressure. */
+    private final Handler<Buffer> bufferingDataHandler = new Handler<Buffer>() {
+        @Override
+        public void handle(Buffer buffer) {
+            if (state!=State.RESPONSE_STREAMING) {
+                return;
+            }
+            lastReadTime = System.currentTimeMillis();
+            responseBuffer.append(buffer);
+            drainResponseBuffer();
+            if (state==State.RESPONSE_STREAMING && !backendPaused && responseBuffer.writeQueueFull()) {
+                backendPaused = true;
+                httpClientResponse.pause();
+            }
+        }
+    };
+
+    /** The response buffer drain handler. Resumes the backend response. */
+    private final Handler<Void> responseBufferDrainHandler = new Handler<Void>() {
+        @Override
+        public void handle(Void event) {
+            if (state==State.RESPONSE_STREAMING && backendPaused) {
+                backendPaused = false;
+                lastReadTime = System.currentTimeMillis();
+                httpClientResponse.resume();
+            }
+        }
+    };
+
+    /** The response buffer read handler. Writes the bytes read to client. */
+    private final Handler<Buffer> bufferReadHandler = new Handler<Buffer>() {
+        @Override
+        public void handle(Buffer buffer) {
+            if (state!=State.RESPONSE_STREAMING) {
+                return;
+            }
+            bufferedBytesOut += buffer.length();
+            httpServerRequest.response().write(buffer);
+            if (!drainingBuffer) {
+                // spill file read completed
+                drainResponseBuffer();
+            }
+        }
+    };
+
+    /** The response buffer exception handler (spill file). */
+    private final Handler<Throwable> responseBufferExceptionHandler = new Handler<Throwable>() {
+        @Override
+        public void handle(Throwable event) {
+            log.error(String.format("FAIL: ProxyExchange.responseBuffer with %s", event.getMessage()));
+            fail(new ServiceUnavailableException());
+        }
+    };
+
+    /** The client drain handler (buffering mode). */
+    private final Handler<Void> clientDrainHandler = new Handler<Void>() {
+        @Override
+        public void handle(Void event) {
+            drainResponseBuffer();
+        }
+    };
+
+    /** The request pump exception handler. */
+    private final Handler<Throwable> requestPumpExceptionHandler = new Handler<Throwable>() {
+        @Override
+        public void handle(Throwable event) {
+            log.error(String.format("FAIL: ProxyExchange.requestPump with %s", event.getMessage()));
+            fail(new ServiceUnavailableException());
+        }
+    };
+
+    /** The client request exception handler. */
+    private final Handler<Throwable> clientRequestExceptionHandler = new Handler<Throwable>() {
+        @Override
+        public void handle(Throwable event) {
+            log.error(String.format("ClientRequestExceptionHandler: %s", event.getMessage()));
+            queueService.publishBackendFail(backend.toJson());
+            failBackend(event);
+        }
+    };
+
+    /** The client response handler. */
+    private final Handler<HttpClientResponse> clientResponseHandler = new Handler<HttpClientResponse>() {
+        @Override
+        public void handle(HttpClientResponse cResponse) {
+            onResponse(cResponse);
+        }
+    };
+
+    /** The response pump exception handler. */
+    private final Handler<Throwable> responsePumpExceptionHandler = new Handler<Throwable>() {
+        @Override
+        public void handle(Throwable event) {
+            log.error(String.format("FAIL: ProxyExchange.responsePump with %s", event.getMessage()));
+            fail(new ServiceUnavailableException());
+        }
+    };
+
+    /** The client response end handler. */
+    private final Handler<Void> clientResponseEndHandler = new Handler<Void>() {
+        @Override
+        public void handle(Void event) {
+            onResponseEnd();
+        }
+    };
+
+    /** The client response exception handler. */
+    private final Handler<Throwable> clientResponseExceptionHandler = new Handler<Throwable>() {
+        @SuppressWarnings("unchecked")
+        @Override
+        public void handle(Throwable event) {
+            String backendId = backend.toString();
+            log.error(String.format("host: %s , backend: %s , message: %s", headerHost, backendId, event.getMessage()));
+            queueService.publishBackendFail(backend.toJson());
+            if (backend instanceof EntitiesMap) {
+                ((EntitiesMap<BackendSession>) backend).removeEntity(remoteUser.toString());
+            }
+            failBackend(event);
+        }
+    };
+
+    /**
+     * Instantiates a new proxy exchange (not pooled).
+     */
+    public ProxyExchange() {
+        this(null);
+    }
+
+    /**
+     * Instantiates a new proxy exchange.
+     *
+     * @param pool the pool owner
+     */
+    public ProxyExchange(final ProxyExchangePool pool) {
+        this.pool = pool;
+        for (Deadline deadline: Deadline.values()) {
+            deadlineHandlers[deadline.ordinal()] = new DeadlineHandler(deadline);
+            deadlines[deadline.ordinal()] = new NullScheduler();
+        }
+    }
+
+    /**
+     * Sets the farm.
+     *
+     * @param farm the farm
+     * @return this
+     */
+    public ProxyExchange setFarm(final Farm farm) {
+        this.farm = farm;
+        return this;
+    }
+
+    /**
+     * Sets the queue service.
+     *
+     * @param queueService the queue service
+     * @return this
+     */
+    public ProxyExchange setQueueService(final IQueueService queueService) {
+        this.queueService = queueService;
+        return this;
+    }
+
+    /**
+     * Sets the counter.
+     *
+     * @param counter the counter
+     * @return this
+     */
+    public ProxyExchange setCounter(final ICounter counter) {
+        this.counter = counter;
+        return this;
+    }
+
+    /**
+     * Sets the log.
+     *
+     * @param log the log
+     * @return this
+     */
+    public ProxyExchange setLog(final SafeLogger log) {
+        this.log = log;
+        return this;
+    }
+
+    /**
+     * Sets the plataform. If it is a Vertx instance, the deadline
+     * schedulers are created (once) and reused by all requests.
+     *
+     * @param plataform the plataform
+     * @return this
+     */
+    public ProxyExchange setPlataform(final Object plataform) {
+        if (plataform instanceof Vertx) {
+            vertx = (Vertx) plataform;
+            for (Deadline deadline: Deadline.values()) {
+                setScheduler(deadline, new VertxDelayScheduler((Vertx) plataform));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Sets the timing wheel. The deadline schedulers become entries of
+     * the wheel, reused by all requests.
+     *
+     * @param timingWheel the timing wheel
+     * @return this
+     */
+    public ProxyExchange setTimingWheel(final HashedTimingWheel timingWheel) {
+        for (Deadline deadline: Deadline.values()) {
+            setScheduler(deadline, new TimingWheelScheduler(timingWheel));
+        }
+        return this;
+    }
+
+    /**
+     * Sets the scheduler used to enforce a deadline.
+     *
+     * @param deadline the deadline
+     * @param scheduler the scheduler
+     * @return this
+     */
+    public ProxyExchange setScheduler(final Deadline deadline, final IScheduler scheduler) {
+        deadlines[deadline.ordinal()].cancel();
+        deadlines[deadline.ordinal()] = scheduler.setHandler(deadlineHandlers[deadline.ordinal()]);
+        return this;
+    }
+
+    /**
+     * Sets the request timeout.
+     *
+     * @param requestTimeout the request timeout (ms)
+     * @return this
+     */
+    public ProxyExchange setRequestTimeout(long requestTimeout) {
+        this.requestTimeout = requestTimeout;
+        return this;
+    }
+
+    /**
+     * Gets the state.
+     *
+     * @return the state
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Start the exchange.
+     *
+     * @param sRequest the http server request
+     */
+    public void start(final HttpServerRequest sRequest) {
+
+        defineLoggerIfNecessary();
+
+        state = State.ROUTING;
+        httpServerRequest = sRequest;
+        requestView.reset(sRequest);
+
+        final MultiMap headers = sRequest.headers();
+        headerHost = headers.get(HTTP_HEADER_HOST);
+        connectionKeepalive = requestView.isKeepAlive();
+        remoteUser = requestView.getRemoteUser();
+
+        serverResponse.reset(sRequest).setCounter(counter).setLog(log);
+        sRequest.exceptionHandler(serverRequestExceptionHandler);
+        sRequest.response().exceptionHandler(serverResponseExceptionHandler);
+        sRequest.response().closeHandler(serverResponseCloseHandler);
+
+        if (log.isDebugEnabled()) {
+            log.debug(String.format("Received request for host %s '%s %s'", headerHost,
+                                                                            sRequest.method(),
+                                                                            sRequest.uri()));
+        }
+
+        Virtualhost virtualhost = farm.getVirtualhost(requestView);
+
+        if (virtualhost==null) {
+            fail(new NotFoundException());
+            return;
+        }
+
+        route = virtualhost.getRouteSnapshot();
+        boolean enableChunked = route.isChunked();
+        serverResponse.setEnableAccessLog(route.hasAccessLog())
+                      .setChunked(enableChunked);
+
+        RouteSnapshot.PoolRoute poolRoute = choiceBackend();
+        if (poolRoute==null) {
+            return;
+        }
+
+        final HttpClient httpClient = backend.connect(remoteUser);
+        backendClient = httpClient;
+        candidates.update(backend);
+
+        if (httpClient==null) {
+            log.error("HttpClient is null");
+            fail(new ServiceUnavailableException());
+            return;
+        }
+
+        long firstByteTimeout = poolRoute.getFirstByteTimeout();
+        idleTimeout = poolRoute.getIdleTimeout();
+        pumpCoalesceSize = poolRoute.getPumpCoalesceSize();
+        pumpHighWatermark = poolRoute.getPumpHighWatermark();
+        bufferResponse = poolRoute.isResponseBuffering();
+        responseBufferMemory = poolRoute.getResponseBufferMemory();
+        responseBufferMaxFile = poolRoute.getResponseBufferMaxFile();
+        startDeadline(Deadline.CONNECT, poolRoute.getConnectTimeout());
+        startDeadline(Deadline.FIRST_BYTE, firstByteTimeout>=0L ? firstByteTimeout : requestTimeout);
+        failureSample = firstByteTimeout>0L ? firstByteTimeout : requestTimeout;
+        startDeadline(Deadline.TOTAL, poolRoute.getTotalTimeout());
+        initialRequestTime = System.currentTimeMillis();
+
+        httpClientRequest = httpClient.request(sRequest.method(), sRequest.uri(), clientResponseHandler);
+
+        if (httpClientRequest==null) {
+            log.error("FAIL: HttpClientRequest is null");
+            fail(new ServiceUnavailableException());
+            return;
+        }
+
+        state = State.REQUEST_STREAMING;
+
+        httpClientRequest.setChunked(enableChunked);
+        route.getRequestHeaderPolicy().apply(headers, httpClientRequest.headers(), remoteUser.getRemoteIP(), headerHost,
+                                           headerScratch);
+
+        requestPump.setStreams(sRequest, httpClientRequest)
+                   .setCoalescing(vertx, pumpCoalesceSize)
+                   .setWriteQueueMaxSize(pumpHighWatermark)
+                   .exceptionHandler(requestPumpExceptionHandler)
+                   .writeHandler(firstWriteHandler)
+                   .start();
+
+        httpClientRequest.exceptionHandler(clientRequestExceptionHandler);
+        sRequest.endHandler(serverRequestEndHandler);
+    }
+
+    /**
+     * Deadline expired.
+     *
+     * @param deadline the deadline
+     */
+    private void onDeadline(final Deadline deadline) {
+        if (state!=State.REQUEST_STREAMING && state!=State.RESPONSE_STREAMING) {
+            return;
+        }
+        switch (deadline) {
+            case CONNECT:
+            case FIRST_BYTE:
+                if (state!=State.REQUEST_STREAMING) {
+                    return;
+                }
+                break;
+            case IDLE:
+                if (backendPaused) {
+                    // paused by the response buffer: the backend is not idle
+                    startDeadline(Deadline.IDLE, idleTimeout);
+                    return;
+                }
+                if (lastReadTime>idleMarkTime) {
+                    idleMarkTime = lastReadTime;
+                    long remaining = idleTimeout - (System.currentTimeMillis() - lastReadTime);
+                    startDeadline(Deadline.IDLE, Math.max(remaining, 1L));
+                    return;
+                }
+                break;
+            default:
+                break;
+        }
+
+        counter.incrTimeout(metricKey, deadline.getMetricName());
+        log.warn(String.format("%s deadline expired (host: %s, backend: %s)", deadline, headerHost, backend));
+
+        try {
+            backend.close(remoteUser.toString());
+        } catch (RuntimeException e) {
+            log.debug(e.getMessage());
+        }
+        backendFailed = true;
+        fail(new GatewayTimeoutException());
+    }
+
+    /**
+     * Start a deadline.
+     *
+     * @param deadline the deadline
+     * @param timeout the timeout (ms). Disabled if not positive
+     */
+    private void startDeadline(final Deadline deadline, long timeout) {
+        if (timeout>0L) {
+            deadlines[deadline.ordinal()].setPeriod(timeout).start();
+        }
+    }
+
+    /**
+     * Cancel a deadline.
+     *
+     * @param deadline the deadline
+     */
+    private void cancelDeadline(final Deadline deadline) {
+        deadlines[deadline.ordinal()].cancel();
+    }
+
+    /**
+     * Cancel all deadlines.
+     */
+    private void cancelDeadlines() {
+        for (IScheduler scheduler: deadlines) {
+            scheduler.cancel();
+        }
+    }
+
+    /**
+     * Choice backend.
+     *
+     * @return the pool route, or null if the exchange must not be proxied to the backend
+     */
+    private RouteSnapshot.PoolRoute choiceBackend() {
+
+        Rule ruleChosen = route.getRule(requestView);
+        IRuleReturn ruleReturn = ruleChosen!=null ? ruleChosen.getRuleReturn() : null;
+
+        if (ruleReturn instanceof HttpCode) {
+            serverResponse.setStatusCode(Integer.parseInt(ruleReturn.getReturnId()));
+            serverResponse.setMessage(((HttpCode)ruleReturn).getMessage());
+            serverResponse.endResponse();
+            finish();
+            return null;
+        }
+
+        RouteSnapshot.PoolRoute poolRoute = route.getPoolRoute(ruleChosen);
+
+        if (poolRoute==null) {
+            fail(new ServiceUnavailableException());
+            return null;
+        }
+
+        if (poolRoute.isEmpty()) {
+            log.warn(String.format("Pool '%s' without backends", poolRoute.getBackendPool()));
+            fail(new ServiceUnavailableException());
+            return null;
+        }
+
+        backend = poolRoute.getChoice(requestView);
+
+        if (backend==null || backend instanceof NullBackend) {
+            log.error("Backend is null");
+            fail(new ServiceUnavailableException());
+            return null;
+        }
+        candidates = poolRoute.getCandidates();
+        candidates.requestStarted(backend);
+
+        backend.setMetricPrefix(route.getVirtualhostId());
+        metricKey = poolRoute.getMetricKey(backend);
+        serverResponse.setBackendId(backend.toString());
+        return poolRoute;
+    }
+
+    /**
+     * Backend response received.
+     *
+     * @param cResponse the backend response
+     */
+    private void onResponse(final HttpClientResponse cResponse) {
+        if (state!=State.REQUEST_STREAMING) {
+            return;
+        }
+        cancelDeadline(Deadline.CONNECT);
+        cancelDeadline(Deadline.FIRST_BYTE);
+        state = State.RESPONSE_STREAMING;
+        httpClientResponse = cResponse;
+        lastReadTime = System.currentTimeMillis();
+        idleMarkTime = lastReadTime;
+        startDeadline(Deadline.IDLE, idleTimeout);
+
+        serverResponse.setStatusCode(cResponse.statusCode());
+        route.getResponseHeaderPolicy().apply(cResponse.headers(), httpServerRequest.response().headers(),
+                                              remoteUser.getRemoteIP(), headerHost, headerScratch);
+        if (!connectionKeepalive) {
+            httpServerRequest.response().headers().set(HTTP_HEADER_CONNECTION, "close");
+        }
+
+        if (bufferResponse) {
+            if (responseBuffer==null) {
+                responseBuffer = new ResponseBuffer().setFileSystem(vertx!=null ? vertx.fileSystem() : null)
+                                                     .exceptionHandler(responseBufferExceptionHandler)
+                                                     .drainHandler(responseBufferDrainHandler);
+            }
+            responseBuffer.setMemoryLimit(responseBufferMemory)
+                          .setMaxFileSize(responseBufferMaxFile);
+            if (pumpHighWatermark>0) {
+                httpServerRequest.response().setWriteQueueMaxSize(pumpHighWatermark);
+            }
+            cResponse.dataHandler(bufferingDataHandler);
+        } else {
+            responsePump.setStreams(cResponse, httpServerRequest.response())
+                        .setCoalescing(vertx, pumpCoalesceSize)
+                        .setWriteQueueMaxSize(pumpHighWatermark)
+                        .exceptionHandler(responsePumpExceptionHandler)
+                        .writeHandler(idleTimeout>0L ? backendReadHandler : null)
+                        .start();
+        }
+
+        cResponse.endHandler(clientResponseEndHandler);
+        cResponse.exceptionHandler(clientResponseExceptionHandler);
+    }
+
+    /**
+     * Backend response ended.
+     */
+    private void onResponseEnd() {
+        if (state!=State.RESPONSE_STREAMING) {
+            return;
+        }
+        counter.requestTime(metricKey, initialRequestTime);
+        responseTime = System.currentTimeMillis() - initialRequestTime;
+
+        if (bufferResponse) {
+            backendDone = true;
+            cancelDeadline(Deadline.IDLE);
+            httpClientResponse.dataHandler(null);
+            releaseBackend(true);
+            drainResponseBuffer();
+            return;
+        }
+
+        try {
+            responsePump.flush();
+        } catch (RuntimeException e) {
+            fail(e);
+            return;
+        }
+        completeResponse();
+    }
+
+    /**
+     * Write the buffered response to client while its write queue
+     * accepts, and complete the response when the buffer is empty
+     * and the backend has finished. A spill file read in progress
+     * drains again when it completes.
+     */
+    private void drainResponseBuffer() {
+        if (state!=State.RESPONSE_STREAMING) {
+            return;
+        }
+        final HttpServerResponse response = httpServerRequest.response();
+        drainingBuffer = true;
+        try {
+            while (!response.writeQueueFull() && responseBuffer.read(bufferReadHandler)) {
+                // written to client by bufferReadHandler
+                if (state!=State.RESPONSE_STREAMING) {
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error(String.format("FAIL: ProxyExchange.responseBuffer with %s", e.getMessage()));
+            fail(new ServiceUnavailableException());
+            return;
+        } finally {
+            drainingBuffer = false;
+        }
+        if (responseBuffer.isEmpty()) {
+            if (backendDone) {
+                completeResponse();
+            }
+        } else if (response.writeQueueFull()) {
+            response.drainHandler(clientDrainHandler);
+        }
+    }
+
+    /**
+     * End the client response and finish the exchange.
+     */
+    private void completeResponse() {
+        serverResponse.endResponse();
+
+        if (!connectionKeepalive) {
+            serverResponse.closeResponse();
+            try {
+                backend.close(remoteUser.toString());
+            } catch (RuntimeException e) {
+                log.debug(e.getMessage());
+            }
+        }
+        if (log.isDebugEnabled()) {
+            log.debug(String.format("Completed backend response. %d bytes", responseBytes()));
+        }
+        finish();
+    }
+
+    /**
+     * Backend connection failed: release the backend http client as not
+     * reusable (retiring its shared connection pool generation) and fail
+     * the exchange.
+     *
+     * @param event the event/exception
+     */
+    private void failBackend(final Throwable event) {
+        if (state==State.DONE || state==State.IDLE) {
+            return;
+        }
+        backendFailed = true;
+        releaseBackend(false);
+        fail(event);
+    }
+
+    /**
+     * Show error, close the client connection and finish the exchange.
+     * The backend http client is released as reusable: only backend
+     * connection errors (see {@link #failBackend(Throwable)}) retire it.
+     *
+     * @param event the event/exception
+     */
+    private void fail(final Throwable event) {
+        if (state==State.DONE || state==State.IDLE) {
+            return;
+        }
+        cancelDeadlines();
+        serverResponse.showErrorAndClose(event);
+        finish();
+    }
+
+    /**
+     * Finish the exchange: detach callbacks from streams and return to pool.
+     * An exchange with a backend request still waiting a response is
+     * not recycled, because late callbacks would reach the next request.
+     */
+    private void finish() {
+        boolean recyclable = httpClientRequest==null || httpClientResponse!=null;
+        state = State.DONE;
+        cancelDeadlines();
+        releaseBackend(true);
+        if (candidates!=null) {
+            long sample = responseTime;
+            if (sample<0L && backendFailed && initialRequestTime>0L) {
+                // a backend failing fast must not look faster than the healthy ones
+                sample = Math.max(System.currentTimeMillis() - initialRequestTime, failureSample);
+            }
+            // no sample (-1) if the client aborted before the backend response end
+            candidates.requestEnded(backend, sample);
+            candidates.update(backend);
+            candidates = null;
+        }
+        if (metricKey!=null && httpClientRequest!=null) {
+            counter.sendBytes(metricKey, requestPump.bytesPumped(),
+                              httpClientResponse!=null ? responseBytes() : 0L);
+        }
+        try {
+            httpServerRequest.exceptionHandler(null);
+            httpServerRequest.endHandler(null);
+            httpServerRequest.response().exceptionHandler(null);
+            httpServerRequest.response().closeHandler(null);
+            if (httpClientRequest!=null) {
+                requestPump.stop();
+                httpClientRequest.exceptionHandler(null);
+            }
+            if (httpClientResponse!=null && bufferResponse) {
+                httpClientResponse.dataHandler(null);
+                httpServerRequest.response().drainHandler(null);
+            } else if (httpClientResponse!=null) {
+                responsePump.stop();
+            }
+            if (httpClientResponse!=null) {
+                httpClientResponse.endHandler(null);
+                httpClientResponse.exceptionHandler(null);
+            }
+        } catch (RuntimeException e) {
+            log.debug(e.getMessage());
+            recyclable = false;
+        }
+        if (responseBuffer!=null) {
+            responseBuffer.release();
+        }
+        if (recyclable && pool!=null) {
+            reset();
+            pool.release(this);
+        }
+    }
+
+    /**
+     * Release the backend http client (shared connection pool mode).
+     *
+     * @param reusable false if the backend connection failed
+     */
+    private void releaseBackend(boolean reusable) {
+        if (backendClient!=null) {
+            try {
+                backend.release(remoteUser, backendClient, reusable);
+            } catch (RuntimeException e) {
+                log.debug(e.getMessage());
+            }
+            backendClient = null;
+        }
+    }
+
+    /**
+     * Clear per request state.
+     */
+    private void reset() {
+        httpServerRequest = null;
+        requestView.reset(null);
+        backendClient = null;
+        httpClientRequest = null;
+        httpClientResponse = null;
+        route = null;
+        metricKey = null;
+        backend = null;
+        candidates = null;
+        remoteUser = null;
+        headerHost = null;
+        connectionKeepalive = true;
+        initialRequestTime = 0L;
+        responseTime = -1L;
+        backendFailed = false;
+        failureSample = DEFAULT_REQUEST_TIMEOUT;
+        idleTimeout = 0L;
+        lastReadTime = 0L;
+        idleMarkTime = 0L;
+        pumpCoalesceSize = 0;
+        pumpHighWatermark = 0;
+        bufferResponse = false;
+        responseBufferMemory = ResponseBuffer.DEFAULT_MEMORY_LIMIT;
+        responseBufferMaxFile = ResponseBuffer.DEFAULT_MAX_FILE_SIZE;
+        backendPaused = false;
+        backendDone = false;
+        bufferedBytesOut = 0L;
+        drainingBuffer = false;
+        state = State.IDLE;
+    }
+
+    /**
+     * Gets the bytes written to client.
+     *
+     * @return the response bytes
+     */
+    private long responseBytes() {
+        return bufferResponse ? bufferedBytesOut : responsePump.bytesPumped();
+    }
+
+    /**
+     * Define logger if necessary.
+     */
+    private void defineLoggerIfNecessary() {
+        if (log==null) {
+            log = new SafeLogger();
+        }
+    }
+
+}
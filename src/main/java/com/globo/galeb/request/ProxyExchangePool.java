@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.request;
+
+import java.util.ArrayDeque;
+
+import com.globo.galeb.bus.IQueueService;
+import com.globo.galeb.entity.impl.Farm;
+import com.globo.galeb.logger.SafeLogger;
+import com.globo.galeb.metrics.ICounter;
+import com.globo.galeb.scheduler.impl.HashedTimingWheel;
+
+/**
+ * Class ProxyExchangePool.
+ *
+ * Bounded free list of {@link ProxyExchange}. One pool per event loop
+ * (RouterRequestHandler instance), so it is not thread safe.
+ *
+ * @author See AUTHORS file.
+ * @version 1.0.0, Oct 18, 2026.
+ */
+public class ProxyExchangePool {
+
+    /** The default max idle exchanges. */
+    public static final int DEFAULT_MAX_IDLE = 1024;
+
+    /** The idle exchanges. */
+    private final ArrayDeque<ProxyExchange> idle;
+
+    /** The max idle exchanges. */
+    private final int maxIdle;
+
+    /** The farm. */
+    private Farm farm = null;
+
+    /** The counter. */
+    private ICounter counter = null;
+
+    /** The queue service. */
+    private IQueueService queueService = null;
+
+    /** The log. */
+    private SafeLogger log = null;
+
+    /** The plataform. */
+    private Object plataform = null;
+
+    /** The timing wheel (null means one Vert.x timer per request). */
+    private HashedTimingWheel timingWheel = null;
+
+    /** The request timeout (ms). */
+    private long requestTimeout = ProxyExchange.DEFAULT_REQUEST_TIMEOUT;
+
+    /** The number of exchanges created. */
+    private long created = 0L;
+
+    /**
+     * Instantiates a new proxy exchange pool.
+     */
+    public ProxyExchangePool() {
+        this(DEFAULT_MAX_IDLE);
+    }
+
+    /**
+     * Instantiates a new proxy exchange pool.
+     *
+     * @param maxIdle the max idle exchanges kept
+     */
+    public ProxyExchangePool(int maxIdle) {
+        this.maxIdle = maxIdle;
+        this.idle = new ArrayDeque<>(Math.min(maxIdle, 64));
+    }
+
+    /**
+     * Sets the farm.
+     *
+     * @param farm the farm
+     * @return this
+     */
+    public ProxyExchangePool setFarm(final Farm farm) {
+        this.farm = farm;
+        return this;
+    }
+
+    /**
+     * Sets the counter.
+     *
+     * @param counter the counter
+     * @return this
+     */
+    public ProxyExchangePool setCounter(final ICounter counter) {
+        this.counter = counter;
+        return this;
+    }
+
+    /**
+     * Sets the queue service.
+     *
+     * @param queueService the queue service
+     * @return this
+     */
+    public ProxyExchangePool setQueueService(final IQueueService queueService) {
+        this.queueService = queueService;
+        return this;
+    }
+
+    /**
+     * Sets the log.
+     *
+     * @param log the log
+     * @return this
+     */
+    public ProxyExchangePool setLog(final SafeLogger log) {
+        this.log = log;
+        return this;
+    }
+
+    /**
+     * Sets the plataform.
+     *
+     * @param plataform the plataform
+     * @return this
+     */
+    public ProxyExchangePool setPlataform(final Object plataform) {
+        this.plataform = plataform;
+        return this;
+    }
+
+    /**
+     * Sets the timing wheel used by the gateway timeouts.
+     *
+     * @param timingWheel the timing wheel
+     * @return this
+     */
+    public ProxyExchangePool setTimingWheel(final HashedTimingWheel timingWheel) {
+        this.timingWheel = timingWheel;
+        return this;
+    }
+
+    /**
+     * Sets the request timeout of the exchanges.
+     *
+     * @param requestTimeout the request timeout (ms)
+     * @return this
+     */
+    public ProxyExchangePool setRequestTimeout(long requestTimeout) {
+        this.requestTimeout = requestTimeout;
+        return this;
+    }
+
+    /**
+     * Gets an idle exchange, or a new one if the pool is empty.
+     *
+     * @return the proxy exchange
+     */
+    public ProxyExchange acquire() {
+        ProxyExchange exchange = idle.pollFirst();
+        if (exchange==null) {
+            exchange = newExchange();
+        }
+        return exchange;
+    }
+
+    /**
+     * Return an exchange to the pool. Discarded if the pool is full.
+     *
+     * @param exchange the exchange
+     */
+    public void release(final ProxyExchange exchange) {
+        if (exchange.getState()==ProxyExchange.State.IDLE && idle.size()<maxIdle) {
+            idle.offerFirst(exchange);
+        }
+    }
+
+    /**
+     * Gets the number of idle exchanges.
+     *
+     * @return the idle size
+     */
+    public int getIdleSize() {
+        return idle.size();
+    }
+
+    /**
+     * Gets the number of exchanges created by this pool.
+     *
+     * @return the created
+     */
+    public long getCreated() {
+        return created;
+    }
+
+    /**
+     * New exchange.
+     *
+     * @return the proxy exchange
+     */
+    private ProxyExchange newExchange() {
+        created++;
+        ProxyExchange exchange = new ProxyExchange(this).setFarm(farm)
+                                                        .setLog(log)
+                                                        .setPlataform(plataform)
+                                                        .setRequestTimeout(requestTimeout);
+        if (counter!=null) {
+            exchange.setCounter(counter);
+        }
+        if (queueService!=null) {
+            exchange.setQueueService(queueService);
+        }
+        if (timingWheel!=null) {
+            exchange.setTimingWheel(timingWheel);
+        }
+        return exchange;
+    }
+
+}
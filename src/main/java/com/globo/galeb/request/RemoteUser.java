@@ -32,8 +32,8 @@ public class RemoteUser {
     /** The remote port. */
     private Integer remotePort = 0;
 
-    /** The remote user id. */
-    private String remoteUserId;
+    /** The remote user id (built on first use). */
+    private String remoteUserId = null;
 
     /**
      * Instantiates a new remote user.
@@ -60,7 +60,6 @@ public class RemoteUser {
     public RemoteUser(InetSocketAddress remoteAddress) {
         this.remoteIP = remoteAddress.getAddress();
         this.remotePort = remoteAddress.getPort();
-        this.remoteUserId = String.format("%s:%d", remoteIP, remotePort);
     }
 
     /**
@@ -108,6 +107,9 @@ public class RemoteUser {
      */
     @Override
     public String toString() {
+        if (remoteUserId==null) {
+            remoteUserId = remoteIP + ":" + remotePort;
+        }
         return remoteUserId;
     }
 
@@ -120,11 +122,7 @@ public class RemoteUser {
         if (obj == null) return false;
         if (getClass() != obj.getClass()) return false;
         RemoteUser other = (RemoteUser) obj;
-        if (remoteUserId == null) {
-            if (other.remoteUserId != null) return false;
-        } else {
-            if (!remoteUserId.equalsIgnoreCase(other.remoteUserId)) return false;
-        }
+        if (!toString().equalsIgnoreCase(other.toString())) return false;
         return true;
     }
 }
@@ -47,7 +47,7 @@ public class RequestData {
     private String version = HTTP_VERSION_DEFAULT;
 
     /** The keep alive. */
-    private boolean keepAlive = true;
+    private Boolean keepAlive = true;
 
     /** The uri. */
     private URI uri = null;
@@ -59,7 +59,10 @@ public class RequestData {
     private String remotePort = "0";
 
     /** The properties. */
-    private final JsonObject properties = new JsonObject();
+    private JsonObject properties = new JsonObject();
+
+    /** The request view (values not read yet are null). */
+    private RequestView requestView = null;
 
     /** The http header host. */
     private final String httpHeaderHost = HttpHeaders.HOST.toString();
@@ -94,6 +97,38 @@ public class RequestData {
         }
     }
 
+    /**
+     * Instantiates a new request data sharing (not merging) the properties.
+     * The properties must be treated as read only.
+     *
+     * @param request the httpServerRequest
+     * @param properties the properties (read only)
+     */
+    public RequestData(final HttpServerRequest request, final JsonObject properties) {
+        this(request);
+        this.properties = properties;
+    }
+
+    /**
+     * Instantiates a new request data backed by a request view: the values
+     * are read from the view on first access.
+     *
+     * @param requestView the request view
+     * @param properties the properties (read only)
+     */
+    public RequestData(final RequestView requestView, final JsonObject properties) {
+        this.requestView = requestView;
+        this.properties = properties;
+        if (requestView.getRequest()!=null) {
+            this.headers = requestView.getRequest().headers();
+            this.params = null;
+            this.version = null;
+            this.keepAlive = null;
+            this.remoteAddress = null;
+            this.remotePort = null;
+        }
+    }
+
     /**
      * Instantiates a new request data.
      *
@@ -153,6 +188,9 @@ public class RequestData {
      * @return the params
      */
     public MultiMap getParams() {
+        if (params==null && requestView!=null) {
+            params = requestView.getRequest().params();
+        }
         return params;
     }
 
@@ -173,6 +211,9 @@ public class RequestData {
      * @return the version
      */
     public String getVersion() {
+        if (version==null && requestView!=null) {
+            version = requestView.getRequest().version().toString();
+        }
         return version;
     }
 
@@ -193,6 +234,9 @@ public class RequestData {
      * @return the keep alive
      */
     public boolean getKeepAlive() {
+        if (keepAlive==null && requestView!=null) {
+            keepAlive = requestView.isKeepAlive();
+        }
         return this.keepAlive;
     }
 
@@ -213,6 +257,9 @@ public class RequestData {
      * @return the uri
      */
     public URI getUri() {
+        if (uri==null && requestView!=null && requestView.getRequest()!=null) {
+            uri = requestView.getRequest().absoluteURI();
+        }
         return uri;
     }
 
@@ -233,6 +280,9 @@ public class RequestData {
      * @return the remote address
      */
     public String getRemoteAddress() {
+        if (remoteAddress==null && requestView!=null) {
+            remoteAddress = requestView.getRemoteAddress();
+        }
         return remoteAddress;
     }
 
@@ -253,6 +303,9 @@ public class RequestData {
      * @return the remote port
      */
     public String getRemotePort() {
+        if (remotePort==null && requestView!=null) {
+            remotePort = requestView.getRemotePort();
+        }
         return remotePort;
     }
 
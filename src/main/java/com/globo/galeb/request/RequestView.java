@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.request;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+
+import org.vertx.java.core.MultiMap;
+import org.vertx.java.core.http.HttpHeaders;
+import org.vertx.java.core.http.HttpServerRequest;
+import org.vertx.java.core.http.HttpVersion;
+
+import com.globo.galeb.criteria.IWhenMatch;
+
+/**
+ * Class RequestView.
+ *
+ * Read only view of a request, shared by all the routing stages of an
+ * exchange (virtualhost, rule and backend choices). Each value (path,
+ * query params, host, client address) is computed on first access, so
+ * a request never parses what no stage reads.
+ *
+ * Reusable: reset(request) starts the view of a new request.
+ *
+ * @author See AUTHORS file.
+ * @version 1.0.0, Oct 18, 2026.
+ */
+public class RequestView implements IWhenMatch {
+
+    /** The request. */
+    private HttpServerRequest request = null;
+
+    /** The uri path. */
+    private String uriPath = null;
+
+    /** The query params. */
+    private MultiMap params = null;
+
+    /** The host header. */
+    private String host = null;
+
+    /** The remote socket address. */
+    private InetSocketAddress remoteSocketAddress = null;
+
+    /** The remote address. */
+    private String remoteAddress = null;
+
+    /** The remote port. */
+    private String remotePort = null;
+
+    /** The remote user. */
+    private RemoteUser remoteUser = null;
+
+    /**
+     * Instantiates a new empty request view.
+     */
+    public RequestView() {
+        this(null);
+    }
+
+    /**
+     * Instantiates a new request view.
+     *
+     * @param request the request
+     */
+    public RequestView(final HttpServerRequest request) {
+        reset(request);
+    }
+
+    /**
+     * Reset the view to a new request.
+     *
+     * @param request the request (null releases the last one)
+     * @return this
+     */
+    public RequestView reset(final HttpServerRequest request) {
+        this.request = request;
+        this.uriPath = null;
+        this.params = null;
+        this.host = null;
+        this.remoteSocketAddress = null;
+        this.remoteAddress = null;
+        this.remotePort = null;
+        this.remoteUser = null;
+        return this;
+    }
+
+    /**
+     * Gets the request.
+     *
+     * @return the request
+     */
+    public HttpServerRequest getRequest() {
+        return request;
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.criteria.IWhenMatch#getUriPath()
+     */
+    @Override
+    public String getUriPath() {
+        if (uriPath==null) {
+            String path = request!=null ? request.path() : "";
+            if (path==null || path.indexOf('%')>=0) {
+                // decoded as URI.getPath()
+                URI uri = request.absoluteURI();
+                path = uri!=null ? uri.getPath() : path;
+            }
+            uriPath = path!=null ? path : "";
+        }
+        return uriPath;
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.criteria.IWhenMatch#getHeader(java.lang.String)
+     */
+    @Override
+    public String getHeader(String header) {
+        return request!=null ? request.headers().get(header) : null;
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.criteria.IWhenMatch#getParam(java.lang.String)
+     */
+    @Override
+    public String getParam(String param) {
+        if (params==null) {
+            if (request==null) {
+                return null;
+            }
+            params = request.params();
+        }
+        return params.get(param);
+    }
+
+    /**
+     * Gets the host header.
+     *
+     * @return the host header, or "" if not defined
+     */
+    public String getHost() {
+        if (host==null) {
+            String hostHeader = request!=null ? request.headers().get(HttpHeaders.HOST) : null;
+            host = hostHeader!=null ? hostHeader : "";
+        }
+        return host;
+    }
+
+    /**
+     * Gets the remote socket address.
+     *
+     * @return the remote socket address
+     */
+    public InetSocketAddress getRemoteSocketAddress() {
+        if (remoteSocketAddress==null) {
+            remoteSocketAddress = request!=null ? request.remoteAddress() : new InetSocketAddress("0.0.0.0", 0);
+        }
+        return remoteSocketAddress;
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.criteria.IWhenMatch#getRemoteAddress()
+     */
+    @Override
+    public String getRemoteAddress() {
+        if (remoteAddress==null) {
+            remoteAddress = getRemoteSocketAddress().getHostString();
+        }
+        return remoteAddress;
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.criteria.IWhenMatch#getRemotePort()
+     */
+    @Override
+    public String getRemotePort() {
+        if (remotePort==null) {
+            remotePort = Integer.toString(getRemoteSocketAddress().getPort());
+        }
+        return remotePort;
+    }
+
+    /**
+     * Gets the remote user.
+     *
+     * @return the remote user
+     */
+    public RemoteUser getRemoteUser() {
+        if (remoteUser==null) {
+            remoteUser = new RemoteUser(getRemoteSocketAddress());
+        }
+        return remoteUser;
+    }
+
+    /**
+     * Checks if the client connection is keepalive.
+     *
+     * @return true, if is keepalive
+     */
+    public boolean isKeepAlive() {
+        if (request==null) {
+            return true;
+        }
+        String connection = request.headers().get(HttpHeaders.CONNECTION);
+        return connection!=null ? !"close".equalsIgnoreCase(connection) : HttpVersion.HTTP_1_1.equals(request.version());
+    }
+
+}
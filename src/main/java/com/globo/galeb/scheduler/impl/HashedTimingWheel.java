@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.scheduler.impl;
+
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+
+/**
+ * Class HashedTimingWheel.
+ *
+ * Hashed timing wheel driven by one periodic Vert.x timer. Timeouts are
+ * {@link TimingWheelScheduler} instances linked in the wheel buckets
+ * (intrusive lists), so insert and cancel are O(1) and allocation free.
+ *
+ * Not thread safe: one wheel per event loop (RouterVerticle instance).
+ *
+ * @author See AUTHORS file.
+ * @version 1.0.0, Oct 18, 2026.
+ */
+public class HashedTimingWheel {
+
+    /** The default tick duration (ms). */
+    public static final long DEFAULT_TICK_DURATION   = 10L;
+
+    /** The default ticks per wheel. */
+    public static final int  DEFAULT_TICKS_PER_WHEEL = 1024;
+
+    /** The vertx (null means ticks are driven by the caller). */
+    private final Vertx vertx;
+
+    /** The tick duration (ms). */
+    private final long tickDuration;
+
+    /** The wheel mask (ticksPerWheel - 1). */
+    private final int mask;
+
+    /** The buckets. */
+    private final TimingWheelScheduler[] buckets;
+
+    /** The start time (ms). */
+    private long startTime = System.currentTimeMillis();
+
+    /** The next tick to process. */
+    private long currentTick = 0L;
+
+    /** The number of scheduled timeouts. */
+    private int size = 0;
+
+    /** The periodic timer id. */
+    private long timerId = 0L;
+
+    /** The tick handler. */
+    private final Handler<Long> tickHandler = new Handler<Long>() {
+        @Override
+        public void handle(Long event) {
+            tick(System.currentTimeMillis());
+        }
+    };
+
+    /**
+     * Instantiates a new hashed timing wheel with default tick duration
+     * and wheel size.
+     *
+     * @param vertx the vertx
+     */
+    public HashedTimingWheel(final Vertx vertx) {
+        this(vertx, DEFAULT_TICK_DURATION, DEFAULT_TICKS_PER_WHEEL);
+    }
+
+    /**
+     * Instantiates a new hashed timing wheel.
+     *
+     * @param vertx the vertx
+     * @param tickDuration the tick duration (ms)
+     * @param ticksPerWheel the ticks per wheel (rounded up to power of 2)
+     */
+    public HashedTimingWheel(final Vertx vertx, long tickDuration, int ticksPerWheel) {
+        int wheelSize = 1;
+        while (wheelSize < ticksPerWheel) {
+            wheelSize <<= 1;
+        }
+        this.vertx = vertx;
+        this.tickDuration = tickDuration > 0L ? tickDuration : DEFAULT_TICK_DURATION;
+        this.mask = wheelSize - 1;
+        this.buckets = new TimingWheelScheduler[wheelSize];
+    }
+
+    /**
+     * Start the periodic tick.
+     *
+     * @return this
+     */
+    public HashedTimingWheel start() {
+        startTime = System.currentTimeMillis();
+        currentTick = 0L;
+        if (vertx!=null && timerId==0L) {
+            timerId = vertx.setPeriodic(tickDuration, tickHandler);
+        }
+        return this;
+    }
+
+    /**
+     * Stop the periodic tick. Scheduled timeouts are kept.
+     */
+    public void stop() {
+        if (vertx!=null && timerId!=0L) {
+            vertx.cancelTimer(timerId);
+            timerId = 0L;
+        }
+    }
+
+    /**
+     * Gets the number of scheduled timeouts.
+     *
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the tick duration.
+     *
+     * @return the tick duration (ms)
+     */
+    public long getTickDuration() {
+        return tickDuration;
+    }
+
+    /**
+     * Process all ticks until now, firing the expired timeouts.
+     *
+     * @param now the current time (ms)
+     * @return the number of expired timeouts
+     */
+    public int tick(long now) {
+        long targetTick = (now - startTime) / tickDuration;
+        int expiredCount = 0;
+
+        while (currentTick <= targetTick) {
+            if (size==0) {
+                currentTick = targetTick + 1;
+                break;
+            }
+
+            TimingWheelScheduler expired = null;
+            TimingWheelScheduler node = buckets[(int) (currentTick & mask)];
+            while (node!=null) {
+                TimingWheelScheduler next = node.next;
+                if (node.rounds<=0L) {
+                    unlink(node);
+                    node.state = TimingWheelScheduler.EXPIRING;
+                    node.expiredNext = expired;
+                    expired = node;
+                } else {
+                    node.rounds--;
+                }
+                node = next;
+            }
+            currentTick++;
+
+            while (expired!=null) {
+                TimingWheelScheduler timeout = expired;
+                expired = timeout.expiredNext;
+                timeout.expiredNext = null;
+                if (timeout.state==TimingWheelScheduler.EXPIRING) {
+                    timeout.state = TimingWheelScheduler.IDLE;
+                    expiredCount++;
+                    timeout.expire();
+                }
+            }
+        }
+        return expiredCount;
+    }
+
+    /**
+     * Schedule a timeout.
+     *
+     * @param timeout the timeout
+     * @param delay the delay (ms)
+     */
+    void schedule(final TimingWheelScheduler timeout, long delay) {
+        if (timeout.state==TimingWheelScheduler.SCHEDULED) {
+            unlink(timeout);
+        }
+        long deadline = System.currentTimeMillis() - startTime + Math.max(delay, 0L);
+        long deadlineTick = Math.max((deadline + tickDuration - 1L) / tickDuration, currentTick);
+
+        timeout.rounds = (deadlineTick - currentTick) / buckets.length;
+        timeout.bucket = (int) (deadlineTick & mask);
+        timeout.state = TimingWheelScheduler.SCHEDULED;
+
+        TimingWheelScheduler head = buckets[timeout.bucket];
+        timeout.prev = null;
+        timeout.next = head;
+        if (head!=null) {
+            head.prev = timeout;
+        }
+        buckets[timeout.bucket] = timeout;
+        size++;
+    }
+
+    /**
+     * Cancel a timeout.
+     *
+     * @param timeout the timeout
+     * @return true, if the timeout was pending
+     */
+    boolean cancel(final TimingWheelScheduler timeout) {
+        switch (timeout.state) {
+            case TimingWheelScheduler.SCHEDULED:
+                unlink(timeout);
+                timeout.state = TimingWheelScheduler.IDLE;
+                return true;
+            case TimingWheelScheduler.EXPIRING:
+                timeout.state = TimingWheelScheduler.IDLE;
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Unlink a scheduled timeout from its bucket.
+     *
+     * @param timeout the timeout
+     */
+    private void unlink(final TimingWheelScheduler timeout) {
+        if (timeout.prev!=null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            buckets[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next!=null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        size--;
+    }
+
+}
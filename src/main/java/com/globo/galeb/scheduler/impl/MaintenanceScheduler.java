@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.scheduler.impl;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+
+import com.globo.galeb.scheduler.ISchedulerHandler;
+
+/**
+ * Class MaintenanceScheduler.
+ *
+ * Runs the periodic maintenance tasks of one event loop (keepalive limits,
+ * session cleanup, connections publishing) in a single timer tick, instead
+ * of one timer per entity. Tasks are registered and deregistered
+ * explicitly; the timer only exists while there are registered tasks.
+ *
+ * Not thread safe: one instance per RouterVerticle, so per event loop.
+ *
+ * @author See AUTHORS file.
+ * @version 1.0.0, Oct 18, 2026.
+ */
+public class MaintenanceScheduler {
+
+    /** The default period (ms). */
+    public static final long DEFAULT_PERIOD = 1000L;
+
+    /** The vertx (null means ticks are driven by the caller). */
+    private final Vertx vertx;
+
+    /** The period (ms). */
+    private final long period;
+
+    /** The tasks. */
+    private ISchedulerHandler[] tasks = new ISchedulerHandler[16];
+
+    /** The number of task slots used. */
+    private int size = 0;
+
+    /** The task positions. */
+    private final IdentityHashMap<ISchedulerHandler, Integer> positions = new IdentityHashMap<>();
+
+    /** The ticking flag: deregistered slots are compacted after the tick. */
+    private boolean ticking = false;
+
+    /** The holes flag. */
+    private boolean hasHoles = false;
+
+    /** The periodic timer id. */
+    private long timerId = 0L;
+
+    /** The timer started flag. */
+    private boolean timerStarted = false;
+
+    /** The task exception handler. */
+    private Handler<Throwable> exceptionHandler = null;
+
+    /** The tick handler. */
+    private final Handler<Long> tickHandler = new Handler<Long>() {
+        @Override
+        public void handle(Long event) {
+            tick();
+        }
+    };
+
+    /**
+     * Instantiates a new maintenance scheduler with the default period.
+     *
+     * @param vertx the vertx
+     */
+    public MaintenanceScheduler(final Vertx vertx) {
+        this(vertx, DEFAULT_PERIOD);
+    }
+
+    /**
+     * Instantiates a new maintenance scheduler.
+     *
+     * @param vertx the vertx
+     * @param period the period (ms)
+     */
+    public MaintenanceScheduler(final Vertx vertx, long period) {
+        this.vertx = vertx;
+        this.period = period > 0L ? period : DEFAULT_PERIOD;
+    }
+
+    /**
+     * Sets the task exception handler. A failed task does not stop the tick.
+     *
+     * @param exceptionHandler the exception handler
+     * @return this
+     */
+    public MaintenanceScheduler setExceptionHandler(final Handler<Throwable> exceptionHandler) {
+        this.exceptionHandler = exceptionHandler;
+        return this;
+    }
+
+    /**
+     * Register a task (ignored if already registered).
+     *
+     * @param task the task
+     * @return this
+     */
+    public MaintenanceScheduler register(final ISchedulerHandler task) {
+        if (task==null || positions.containsKey(task)) {
+            return this;
+        }
+        if (size==tasks.length) {
+            tasks = Arrays.copyOf(tasks, size << 1);
+        }
+        tasks[size] = task;
+        positions.put(task, size);
+        size++;
+        startTimer();
+        return this;
+    }
+
+    /**
+     * Deregister a task (ignored if not registered).
+     *
+     * @param task the task
+     * @return this
+     */
+    public MaintenanceScheduler deregister(final ISchedulerHandler task) {
+        Integer pos = task!=null ? positions.remove(task) : null;
+        if (pos==null) {
+            return this;
+        }
+        if (ticking) {
+            tasks[pos] = null;
+            hasHoles = true;
+        } else {
+            int last = --size;
+            ISchedulerHandler moved = tasks[last];
+            tasks[last] = null;
+            if (pos!=last) {
+                tasks[pos] = moved;
+                positions.put(moved, pos);
+            }
+        }
+        if (positions.isEmpty()) {
+            stopTimer();
+        }
+        return this;
+    }
+
+    /**
+     * Checks if a task is registered.
+     *
+     * @param task the task
+     * @return true, if is registered
+     */
+    public boolean isRegistered(final ISchedulerHandler task) {
+        return positions.containsKey(task);
+    }
+
+    /**
+     * Gets the number of registered tasks.
+     *
+     * @return the size
+     */
+    public int size() {
+        return positions.size();
+    }
+
+    /**
+     * Run all registered tasks once. Tasks registered during the tick run
+     * in the next one.
+     *
+     * @return the number of tasks run
+     */
+    public int tick() {
+        int count = 0;
+        int limit = size;
+        ticking = true;
+        try {
+            for (int pos=0; pos<limit; pos++) {
+                ISchedulerHandler task = tasks[pos];
+                if (task==null) {
+                    continue;
+                }
+                count++;
+                try {
+                    task.handle();
+                } catch (RuntimeException e) {
+                    if (exceptionHandler!=null) {
+                        exceptionHandler.handle(e);
+                    }
+                }
+            }
+        } finally {
+            ticking = false;
+            if (hasHoles) {
+                compact();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Stop the periodic timer. Registered tasks are kept, and the timer
+     * restarts with the next registration.
+     */
+    public void stop() {
+        stopTimer();
+    }
+
+    /**
+     * Remove the slots of the tasks deregistered during a tick.
+     */
+    private void compact() {
+        int used = 0;
+        for (int pos=0; pos<size; pos++) {
+            ISchedulerHandler task = tasks[pos];
+            if (task!=null) {
+                if (pos!=used) {
+                    tasks[used] = task;
+                    positions.put(task, used);
+                }
+                used++;
+            }
+        }
+        Arrays.fill(tasks, used, size, null);
+        size = used;
+        hasHoles = false;
+    }
+
+    /**
+     * Start the periodic timer, if not started.
+     */
+    private void startTimer() {
+        if (vertx!=null && !timerStarted) {
+            timerId = vertx.setPeriodic(period, tickHandler);
+            timerStarted = true;
+        }
+    }
+
+    /**
+     * Stop the periodic timer, if started.
+     */
+    private void stopTimer() {
+        if (timerStarted) {
+            vertx.cancelTimer(timerId);
+            timerStarted = false;
+        }
+    }
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.scheduler.impl;
+
+import org.vertx.java.core.Handler;
+
+import com.globo.galeb.scheduler.IScheduler;
+import com.globo.galeb.scheduler.ISchedulerHandler;
+
+/**
+ * Class TimingWheelScheduler.
+ *
+ * One shot scheduler backed by a {@link HashedTimingWheel}. The instance
+ * is the wheel entry itself, so it can be started and canceled many
+ * times (e.g. by a pooled exchange) without allocating.
+ *
+ * @author See AUTHORS file.
+ * @version 1.0.0, Oct 18, 2026.
+ */
+public class TimingWheelScheduler implements IScheduler {
+
+    /** The idle state. */
+    static final int IDLE      = 0;
+
+    /** The scheduled state. */
+    static final int SCHEDULED = 1;
+
+    /** The expiring state (removed from the wheel, waiting to fire). */
+    static final int EXPIRING  = 2;
+
+    /** The wheel. */
+    private final HashedTimingWheel wheel;
+
+    /** The scheduler handler. */
+    private ISchedulerHandler schedulerHandler = null;
+
+    /** The period (ms). */
+    private long period = -1L;
+
+    /** The cancel handler. */
+    private Handler<Void> cancelHandler;
+
+    /** The cancel failed handler. */
+    private Handler<Void> cancelFailedHandler;
+
+    /** The state. */
+    int state = IDLE;
+
+    /** The remaining rounds. */
+    long rounds = 0L;
+
+    /** The bucket index. */
+    int bucket = 0;
+
+    /** The previous entry in the bucket. */
+    TimingWheelScheduler prev = null;
+
+    /** The next entry in the bucket. */
+    TimingWheelScheduler next = null;
+
+    /** The next entry in the expired list. */
+    TimingWheelScheduler expiredNext = null;
+
+    /**
+     * Instantiates a new timing wheel scheduler.
+     *
+     * @param wheel the wheel
+     */
+    public TimingWheelScheduler(final HashedTimingWheel wheel) {
+        this.wheel = wheel;
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.scheduler.IScheduler#start()
+     */
+    @Override
+    public IScheduler start() {
+        if (schedulerHandler!=null && period != -1L) {
+            wheel.schedule(this, period);
+        }
+        return this;
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.scheduler.IScheduler#setHandler(com.globo.galeb.scheduler.ISchedulerHandler)
+     */
+    @Override
+    public IScheduler setHandler(ISchedulerHandler schedulerHandler) {
+        this.schedulerHandler = schedulerHandler;
+        return this;
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.scheduler.IScheduler#setPeriod(java.lang.Long)
+     */
+    @Override
+    public IScheduler setPeriod(Long period) {
+        this.period = period!=null ? period : -1L;
+        return this;
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.scheduler.IScheduler#cancel()
+     */
+    @Override
+    public IScheduler cancel() {
+        if (state!=IDLE) {
+            if (wheel.cancel(this)) {
+                handleCancel();
+            } else {
+                handleCancelFailed();
+            }
+        }
+        return this;
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.scheduler.IScheduler#cancelHandler(org.vertx.java.core.Handler)
+     */
+    @Override
+    public IScheduler cancelHandler(Handler<Void> cancelHandler) {
+        this.cancelHandler = cancelHandler;
+        return this;
+    }
+
+    /* (non-Javadoc)
+     * @see com.globo.galeb.scheduler.IScheduler#cancelFailedHandler(org.vertx.java.core.Handler)
+     */
+    @Override
+    public IScheduler cancelFailedHandler(Handler<Void> cancelFailedHandler) {
+        this.cancelFailedHandler = cancelFailedHandler;
+        return this;
+    }
+
+    /**
+     * Checks if is scheduled.
+     *
+     * @return true, if is scheduled
+     */
+    public boolean isScheduled() {
+        return state==SCHEDULED;
+    }
+
+    /**
+     * Called by the wheel when the timeout expires.
+     */
+    void expire() {
+        if (schedulerHandler!=null) {
+            schedulerHandler.handle();
+        }
+    }
+
+    /**
+     * Handle cancel.
+     */
+    private void handleCancel() {
+        if (cancelHandler!=null) {
+            cancelHandler.handle(null);
+        }
+    }
+
+    /**
+     * Handle cancel failed.
+     */
+    private void handleCancelFailed() {
+        if (cancelFailedHandler!=null) {
+            cancelFailedHandler.handle(null);
+        }
+    }
+
+}
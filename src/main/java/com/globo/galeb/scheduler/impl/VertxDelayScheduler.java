@@ -47,6 +47,17 @@ public class VertxDelayScheduler implements IScheduler {
     /** The cancel failed handler. */
     private Handler<Void> cancelFailedHandler;
 
+    /** The timer handler. Reused on each start. */
+    private final Handler<Long> timerHandler = new Handler<Long>() {
+        @Override
+        public void handle(Long event) {
+            id = 0L;
+            if (schedulerHandler!=null) {
+                schedulerHandler.handle();
+            }
+        }
+    };
+
     /**
      * Instantiates a new vertx delay scheduler.
      *
@@ -56,29 +67,13 @@ public class VertxDelayScheduler implements IScheduler {
         this.vertx = vertx;
     }
 
-    /* (non-Javadoc)
-     * @see java.lang.Object#finalize()
-     */
-    @Override
-    protected void finalize() throws Throwable {
-        if (id!=0L) {
-            vertx.cancelTimer(id);
-        }
-        super.finalize();
-    }
-
     /* (non-Javadoc)
      * @see com.globo.galeb.scheduler.IScheduler#start()
      */
     @Override
     public IScheduler start() {
         if (schedulerHandler!=null && period != -1L) {
-            id = vertx.setTimer(period, new Handler<Long>() {
-                @Override
-                public void handle(Long event) {
-                    schedulerHandler.handle();
-                }
-            });
+            id = vertx.setTimer(period, timerHandler);
         }
         return this;
     }
@@ -56,17 +56,6 @@ public class VertxPeriodicScheduler implements IScheduler {
         this.vertx = vertx;
     }
 
-    /* (non-Javadoc)
-     * @see java.lang.Object#finalize()
-     */
-    @Override
-    protected void finalize() throws Throwable {
-        if (id!=0L) {
-            vertx.cancelTimer(id);
-        }
-        super.finalize();
-    }
-
     /* (non-Javadoc)
      * @see com.globo.galeb.scheduler.IScheduler#start()
      */
@@ -19,8 +19,12 @@ import java.io.UnsupportedEncodingException;
 import java.util.EnumSet;
 
 import org.vertx.java.core.http.HttpServerRequest;
+import org.vertx.java.core.json.JsonArray;
 import org.vertx.java.core.json.JsonObject;
+import com.globo.galeb.bus.MessageBus;
 import com.globo.galeb.entity.IJsonable;
+import com.globo.galeb.entity.impl.backend.IBackend;
+import com.globo.galeb.entity.impl.frontend.Virtualhost;
 import com.globo.galeb.logger.SafeLogger;
 import com.globo.galeb.rulereturn.HttpCode;
 
@@ -250,6 +254,19 @@ public class ManagerService {
             if (registerLog) log.error(String.format("ID is mandatory: %s", message));
             return HttpCode.BAD_REQUEST;
         }
+
+        String uriBase = new MessageBus().setUri(uri).getUriBase();
+
+        if (isUriBase(uriBase, UriSupported.VIRTUALHOST) && !isAliasesValid(json)) {
+            if (registerLog) log.error(String.format("Aliases must be a list of hosts: %s", message));
+            return HttpCode.BAD_REQUEST;
+        }
+
+        if (isUriBase(uriBase, UriSupported.BACKEND) && !isWeightValid(json)) {
+            if (registerLog) log.error(String.format("Weight must be an integer between 1 and %d: %s",
+                                                     IBackend.MAX_WEIGHT, message));
+            return HttpCode.BAD_REQUEST;
+        }
         return HttpCode.OK;
     }
 
@@ -264,4 +281,59 @@ public class ManagerService {
         return statusFromMessageSchema(message, uri, true);
     }
 
+    /**
+     * Checks if the uri base is of a supported uri.
+     *
+     * @param uriBase the uri base
+     * @param uriSupported the supported uri
+     * @return true, if is the supported uri
+     */
+    private boolean isUriBase(String uriBase, UriSupported uriSupported) {
+        return uriSupported.toString().toLowerCase().equals(uriBase);
+    }
+
+    /**
+     * Checks if the aliases property (if present) is a list of hosts.
+     *
+     * @param json the json
+     * @return true, if is valid
+     */
+    private boolean isAliasesValid(final JsonObject json) {
+        Object properties = json.getField(IJsonable.PROPERTIES_FIELDNAME);
+        if (!(properties instanceof JsonObject) ||
+                !((JsonObject) properties).containsField(Virtualhost.ALIASES_FIELDNAME)) {
+            return true;
+        }
+        Object aliases = ((JsonObject) properties).getField(Virtualhost.ALIASES_FIELDNAME);
+        if (!(aliases instanceof JsonArray)) {
+            return false;
+        }
+        for (Object alias: (JsonArray) aliases) {
+            if (!(alias instanceof String) || "".equals(alias)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the weight property (if present) is an integer between 1
+     * and IBackend.MAX_WEIGHT.
+     *
+     * @param json the json
+     * @return true, if is valid
+     */
+    private boolean isWeightValid(final JsonObject json) {
+        Object properties = json.getField(IJsonable.PROPERTIES_FIELDNAME);
+        if (!(properties instanceof JsonObject) ||
+                !((JsonObject) properties).containsField(IBackend.WEIGHT_FIELDNAME)) {
+            return true;
+        }
+        Object weight = ((JsonObject) properties).getField(IBackend.WEIGHT_FIELDNAME);
+        if (!(weight instanceof Integer)) {
+            return false;
+        }
+        return (Integer) weight>=1 && (Integer) weight<=IBackend.MAX_WEIGHT;
+    }
+
 }
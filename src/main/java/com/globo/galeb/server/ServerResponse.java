@@ -22,7 +22,7 @@ import com.globo.galeb.exceptions.AbstractHttpException;
 import com.globo.galeb.logger.SafeLogger;
 import com.globo.galeb.logger.impl.NcsaLogExtendedFormatter;
 import com.globo.galeb.metrics.ICounter;
-import com.globo.galeb.request.RouterRequest;
+import com.globo.galeb.request.ProxyExchange;
 import com.globo.galeb.rulereturn.HttpCode;
 
 import org.vertx.java.core.Handler;
@@ -39,7 +39,7 @@ import org.vertx.java.core.http.HttpServerResponse;
 public class ServerResponse {
 
     /** The httpServerRequest. */
-    private final HttpServerRequest req;
+    private HttpServerRequest req = null;
 
     /** The logger. */
     private SafeLogger log = null;
@@ -51,7 +51,15 @@ public class ServerResponse {
     private boolean enableAccessLog = false;
 
     /** The httpServerResponse. */
-    private final HttpServerResponse resp;
+    private HttpServerResponse resp = null;
+
+    /** The httpServerResponse exception handler. */
+    private final Handler<Throwable> respExceptionHandler = new Handler<Throwable>() {
+        @Override
+        public void handle(Throwable event) {
+            showErrorAndClose(event);
+        }
+    };
 
     /** The message. */
     private String message = "";
@@ -91,14 +99,32 @@ public class ServerResponse {
      * @param req the req
      */
     public ServerResponse(final HttpServerRequest req) {
+        reset(req);
+    }
+
+    /**
+     * Instantiates a new unbound server response. It must be bound with reset
+     * before use.
+     */
+    public ServerResponse() {
+    }
+
+    /**
+     * Rebind the server response to a new request, clearing per request state.
+     * Used to recycle a server response instance between requests.
+     *
+     * @param req the req
+     * @return this
+     */
+    public ServerResponse reset(final HttpServerRequest req) {
         this.req = req;
         this.resp = req.response();
-        resp.exceptionHandler(new Handler<Throwable>() {
-            @Override
-            public void handle(Throwable event) {
-                showErrorAndClose(event);
-            }
-        });
+        this.message = "";
+        this.id = "";
+        this.backendId = "";
+        this.enableAccessLog = false;
+        resp.exceptionHandler(respExceptionHandler);
+        return this;
     }
 
     /**
@@ -258,7 +284,7 @@ public class ServerResponse {
     private String getHeaderHost() {
         if (req!=null) {
             MultiMap headers = req.headers();
-            return headers.contains(RouterRequest.HTTP_HEADER_HOST) ? headers.get(RouterRequest.HTTP_HEADER_HOST): "";
+            return headers.contains(ProxyExchange.HTTP_HEADER_HOST) ? headers.get(ProxyExchange.HTTP_HEADER_HOST): "";
         }
         return "";
     }
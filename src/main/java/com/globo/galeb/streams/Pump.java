@@ -16,6 +16,7 @@
 package com.globo.galeb.streams;
 
 import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
 import org.vertx.java.core.buffer.Buffer;
 import org.vertx.java.core.streams.ReadStream;
 import org.vertx.java.core.streams.WriteStream;
@@ -23,24 +24,42 @@ import org.vertx.java.core.streams.WriteStream;
 /**
  * Class Pump.
  *
+ * Pumps a ReadStream to a WriteStream with backpressure. In coalescing mode
+ * (see {@link #setCoalescing(Vertx, int)}) the small buffers read in the same
+ * event loop tick are merged and written once, at the end of the tick or
+ * when the coalesce size is reached. The handlers run on the event loop of
+ * the streams, so the pump does not synchronize.
+ *
  * @author: See AUTHORS file.
  * @version: 1.0.0, Oct 22, 2014.
  */
 public class Pump {
 
     /** The ReadStream. */
-    private final ReadStream<?> rs;
+    private ReadStream<?> rs;
 
     /** The WriteStream. */
-    private final WriteStream<?> ws;
+    private WriteStream<?> ws;
 
     /** The number of bytes pumped by this pump. */
-    private int pumped = 0;
+    private long pumped = 0L;
+
+    /** The vertx (coalescing mode only). */
+    private Vertx vertx = null;
+
+    /** The coalesce size (bytes). 0 means coalescing disabled. */
+    private int coalesceSize = 0;
+
+    /** The buffers read but not written yet (coalescing mode only). */
+    private Buffer pending = null;
+
+    /** The flush is scheduled to the end of the tick. */
+    private boolean flushScheduled = false;
 
     /** The drain handler. */
     private final Handler<Void> drainHandler = new Handler<Void>() {
         @Override
-        public synchronized void handle(Void v) {
+        public void handle(Void v) {
             try{
                 rs.resume();
             } catch (RuntimeException e) {
@@ -53,14 +72,12 @@ public class Pump {
     /** The data handler. */
     private final Handler<Buffer> dataHandler = new Handler<Buffer>() {
         @Override
-        public synchronized void handle(Buffer buffer) {
+        public void handle(Buffer buffer) {
             try {
-                ws.write(buffer);
-                handleWrite();
-                pumped += buffer.length();
-                if (ws.writeQueueFull()) {
-                    rs.pause();
-                    ws.drainHandler(drainHandler);
+                if (coalesceSize>0) {
+                    coalesce(buffer);
+                } else {
+                    write(buffer);
                 }
             } catch (RuntimeException e) {
                 stop();
@@ -69,12 +86,34 @@ public class Pump {
         }
     };
 
+    /** The flush handler: runs at the end of the tick. */
+    private final Handler<Void> flushHandler = new Handler<Void>() {
+        @Override
+        public void handle(Void v) {
+            flushScheduled = false;
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                stop();
+                handleException(e);
+            }
+        }
+    };
+
     /** The exception handler. */
     private Handler<Throwable> exceptionHandler;
 
     /** The write handler. */
     private Handler<Void> writeHandler;
 
+    /**
+     * Instantiates a new pump without streams. Streams must be defined with
+     * setStreams before start.
+     */
+    public Pump() {
+        this(null, null);
+    }
+
     /**
      * Instantiates a new pump.
      *
@@ -98,6 +137,63 @@ public class Pump {
         this.ws.setWriteQueueMaxSize(maxWriteQueueSize);
     }
 
+    /**
+     * Rebind the pump to new streams, reseting counter and handlers.
+     * Used to recycle a pump instance between requests.
+     *
+     * @param rs ReadStream
+     * @param ws WriteStream
+     * @return this
+     */
+    public Pump setStreams(ReadStream<?> rs, WriteStream<?> ws) {
+        this.rs = rs;
+        this.ws = ws;
+        this.pumped = 0L;
+        this.pending = null;
+        this.exceptionHandler = null;
+        this.writeHandler = null;
+        return this;
+    }
+
+    /**
+     * Enable (or disable, with coalesceSize 0) the coalescing mode.
+     *
+     * @param vertx the vertx used to flush at the end of the tick
+     * @param coalesceSize the max coalesced write (bytes)
+     * @return this
+     */
+    public Pump setCoalescing(final Vertx vertx, int coalesceSize) {
+        this.vertx = vertx;
+        this.coalesceSize = vertx!=null ? Math.max(coalesceSize, 0) : 0;
+        return this;
+    }
+
+    /**
+     * Sets the write queue max size of the WriteStream (high watermark).
+     * Ignored if not positive.
+     *
+     * @param maxSize the max size (bytes)
+     * @return this
+     */
+    public Pump setWriteQueueMaxSize(int maxSize) {
+        if (maxSize>0) {
+            ws.setWriteQueueMaxSize(maxSize);
+        }
+        return this;
+    }
+
+    /**
+     * Write the coalesced buffers now. Must be called before ending the
+     * WriteStream.
+     */
+    public void flush() {
+        if (pending!=null) {
+            Buffer buffer = pending;
+            pending = null;
+            write(buffer);
+        }
+    }
+
     /**
      * Start the Pump. The Pump can be started and stopped multiple times.
      */
@@ -107,8 +203,10 @@ public class Pump {
 
     /**
      * Stop the Pump. The Pump can be started and stopped multiple times.
+     * Coalesced buffers not flushed are discarded.
      */
     public void stop() {
+        pending = null;
         try {
             ws.drainHandler(null);
         } catch (RuntimeException e) {
@@ -123,10 +221,47 @@ public class Pump {
      *
      * @return bytes pumped
      */
-    public int bytesPumped() {
+    public long bytesPumped() {
       return this.pumped;
     }
 
+    /**
+     * Write to WriteStream, pausing the ReadStream if its queue is full.
+     *
+     * @param buffer the buffer
+     */
+    private void write(final Buffer buffer) {
+        ws.write(buffer);
+        handleWrite();
+        pumped += buffer.length();
+        if (ws.writeQueueFull()) {
+            rs.pause();
+            ws.drainHandler(drainHandler);
+        }
+    }
+
+    /**
+     * Coalesce the buffer with the pending ones.
+     *
+     * @param buffer the buffer
+     */
+    private void coalesce(final Buffer buffer) {
+        if (pending==null) {
+            if (buffer.length()>=coalesceSize) {
+                write(buffer);
+                return;
+            }
+            pending = new Buffer(coalesceSize);
+        }
+        pending.appendBuffer(buffer);
+        if (pending.length()>=coalesceSize) {
+            flush();
+        } else if (!flushScheduled) {
+            flushScheduled = true;
+            vertx.runOnContext(flushHandler);
+        }
+    }
+
     /**
      * Exception handler.
      *
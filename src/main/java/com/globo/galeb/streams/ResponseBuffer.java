@@ -0,0 +1,578 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.streams;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.file.AsyncFile;
+import org.vertx.java.core.file.FileSystem;
+
+/**
+ * Class ResponseBuffer.
+ *
+ * FIFO of bytes held in memory up to a memory limit, and spilled to a
+ * temporary file beyond it. All memory bytes precede the file bytes: once
+ * the file has pending bytes, new data goes to the file until it is drained.
+ *
+ * The appended buffers are kept as they are and handed back by
+ * {@link #read(Handler)}, so memory bytes are never copied. The spill file is
+ * opened, written and read through the Vert.x {@link FileSystem}, so no file
+ * I/O blocks the event loop: the writes are queued (one in flight), and a read
+ * of file bytes completes later. Without a file system, nothing is spilled.
+ *
+ * The writer (the backend response) must stop while {@link #writeQueueFull()}:
+ * either the bytes waiting to be written to file reach the write queue max
+ * size (disk slower than the backend), or the spill file reaches its max
+ * size (like nginx proxy_max_temp_file_size). The drain handler is called
+ * when it accepts bytes again. Once the max file size is reached, the writer
+ * waits the whole file be read, and then the bytes flow through memory at
+ * the reader pace (direct streaming).
+ *
+ * Reusable (see {@link #release()}) and not thread safe: it belongs to the
+ * event loop of its file system callbacks.
+ *
+ * @author See AUTHORS file.
+ * @version 1.0.0, Oct 18, 2026.
+ */
+public class ResponseBuffer {
+
+    /** The default memory limit (bytes). */
+    public static final long DEFAULT_MEMORY_LIMIT = 1048576L;
+
+    /** The max bytes of a spill file read. */
+    public static final int FILE_READ_SIZE = 16384;
+
+    /** The default max size of the spill file (bytes). */
+    public static final long DEFAULT_MAX_FILE_SIZE = 1073741824L;
+
+    /** The default max bytes waiting to be written to the spill file. */
+    public static final long DEFAULT_WRITE_QUEUE_MAX_SIZE = 262144L;
+
+    /** The temporary file prefix. */
+    private static final String TEMPFILE_PREFIX = "galeb-";
+
+    /** The temporary file suffix. */
+    private static final String TEMPFILE_SUFFIX = ".buf";
+
+    /** The temporary file sequence. */
+    private static final AtomicLong TEMPFILE_SEQUENCE = new AtomicLong(0L);
+
+    /** The buffers in memory. */
+    private final ArrayDeque<Buffer> memory = new ArrayDeque<>();
+
+    /** The buffers waiting to be written to the spill file (head in flight). */
+    private final ArrayDeque<Buffer> fileQueue = new ArrayDeque<>();
+
+    /** The file system (null disables spilling). */
+    private FileSystem fileSystem = null;
+
+    /** The spill file exception handler. */
+    private Handler<Throwable> exceptionHandler = null;
+
+    /** The drain handler (called when the write queue accepts bytes again). */
+    private Handler<Void> drainHandler = null;
+
+    /** The max size of the spill file (bytes). */
+    private long maxFileSize = DEFAULT_MAX_FILE_SIZE;
+
+    /** The max bytes waiting to be written to the spill file. */
+    private long writeQueueMaxSize = DEFAULT_WRITE_QUEUE_MAX_SIZE;
+
+    /** The memory limit (bytes). */
+    private long memoryLimit = DEFAULT_MEMORY_LIMIT;
+
+    /** The temporary directory (null means java.io.tmpdir). */
+    private File tempDir = null;
+
+    /** The bytes in memory. */
+    private long memoryBytes = 0L;
+
+    /** The bytes waiting to be written to the spill file. */
+    private long fileQueueBytes = 0L;
+
+    /** The spill file path. */
+    private String spillPath = null;
+
+    /** The spill file. */
+    private AsyncFile spillFile = null;
+
+    /** The spill file is being opened. */
+    private boolean opening = false;
+
+    /** A spill file write is in flight. */
+    private boolean writing = false;
+
+    /** A read is in progress (spill file read in flight or waiting a write). */
+    private boolean reading = false;
+
+    /** The read waiting the bytes of the file queue. */
+    private Handler<Buffer> waitingRead = null;
+
+    /** The spill file read position. */
+    private long fileReadPos = 0L;
+
+    /** The spill file write position (end of the written bytes). */
+    private long fileWritePos = 0L;
+
+    /** The total bytes spilled to file. */
+    private long spilledBytes = 0L;
+
+    /** The generation. Incremented by release, so late callbacks are ignored. */
+    private long generation = 0L;
+
+    /**
+     * Sets the file system used to spill beyond the memory limit.
+     *
+     * @param fileSystem the file system (null keeps everything in memory)
+     * @return this
+     */
+    public ResponseBuffer setFileSystem(final FileSystem fileSystem) {
+        this.fileSystem = fileSystem;
+        return this;
+    }
+
+    /**
+     * Sets the spill file exception handler.
+     *
+     * @param exceptionHandler the exception handler
+     * @return this
+     */
+    public ResponseBuffer exceptionHandler(final Handler<Throwable> exceptionHandler) {
+        this.exceptionHandler = exceptionHandler;
+        return this;
+    }
+
+    /**
+     * Sets the drain handler, called when the write queue accepts bytes
+     * again (see {@link #writeQueueFull()}).
+     *
+     * @param drainHandler the drain handler
+     * @return this
+     */
+    public ResponseBuffer drainHandler(final Handler<Void> drainHandler) {
+        this.drainHandler = drainHandler;
+        return this;
+    }
+
+    /**
+     * Sets the max size of the spill file.
+     *
+     * @param maxFileSize the max file size (bytes). Not positive means the default
+     * @return this
+     */
+    public ResponseBuffer setMaxFileSize(long maxFileSize) {
+        this.maxFileSize = maxFileSize>0L ? maxFileSize : DEFAULT_MAX_FILE_SIZE;
+        return this;
+    }
+
+    /**
+     * Sets the max bytes waiting to be written to the spill file.
+     *
+     * @param writeQueueMaxSize the write queue max size (bytes)
+     * @return this
+     */
+    public ResponseBuffer setWriteQueueMaxSize(long writeQueueMaxSize) {
+        this.writeQueueMaxSize = writeQueueMaxSize;
+        return this;
+    }
+
+    /**
+     * Sets the memory limit.
+     *
+     * @param memoryLimit the memory limit (bytes)
+     * @return this
+     */
+    public ResponseBuffer setMemoryLimit(long memoryLimit) {
+        this.memoryLimit = memoryLimit;
+        return this;
+    }
+
+    /**
+     * Sets the temporary directory.
+     *
+     * @param tempDir the temporary directory
+     * @return this
+     */
+    public ResponseBuffer setTempDir(final File tempDir) {
+        this.tempDir = tempDir;
+        return this;
+    }
+
+    /**
+     * Append a buffer. The buffer is kept (not copied) and must not be
+     * changed afterwards.
+     *
+     * @param buffer the buffer
+     */
+    public void append(final Buffer buffer) {
+        int length = buffer.length();
+        if (length==0) {
+            return;
+        }
+        if (fileSystem!=null && (hasFileBytes() || memoryBytes+length>memoryLimit)) {
+            fileQueue.addLast(buffer);
+            fileQueueBytes += length;
+            spilledBytes += length;
+            writeNext();
+            return;
+        }
+        memory.addLast(buffer);
+        memoryBytes += length;
+    }
+
+    /**
+     * Read the next bytes: the next memory buffer, handled at once, or at most
+     * {@link #FILE_READ_SIZE} file bytes, handled when the file read completes.
+     *
+     * @param handler the handler of the bytes read
+     * @return false if is empty or a read is already in progress
+     */
+    public boolean read(final Handler<Buffer> handler) {
+        if (reading) {
+            return false;
+        }
+        if (memoryBytes>0L) {
+            Buffer buffer = memory.pollFirst();
+            memoryBytes -= buffer.length();
+            handler.handle(buffer);
+            return true;
+        }
+        if (fileReadPos<fileWritePos) {
+            readFile(handler);
+            return true;
+        }
+        if (fileQueueBytes>0L) {
+            reading = true;
+            waitingRead = handler;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the writer must stop: too many bytes waiting to be written
+     * to the spill file, or the spill file reached its max size.
+     *
+     * @return true, if the write queue is full
+     */
+    public boolean writeQueueFull() {
+        return fileSystem!=null && (fileQueueBytes>=writeQueueMaxSize || fileWritePos+fileQueueBytes>=maxFileSize);
+    }
+
+    /**
+     * Checks if is empty.
+     *
+     * @return true, if is empty
+     */
+    public boolean isEmpty() {
+        return memoryBytes==0L && !hasFileBytes();
+    }
+
+    /**
+     * Gets the pending bytes (memory and file).
+     *
+     * @return the pending bytes
+     */
+    public long size() {
+        return memoryBytes + fileQueueBytes + fileWritePos - fileReadPos;
+    }
+
+    /**
+     * Gets the bytes in memory.
+     *
+     * @return the memory bytes
+     */
+    public long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    /**
+     * Gets the total bytes spilled to file since the last release.
+     *
+     * @return the spilled bytes
+     */
+    public long getSpilledBytes() {
+        return spilledBytes;
+    }
+
+    /**
+     * Drop the pending bytes, and close and remove the spill file
+     * (asynchronously). The buffer can be reused after release.
+     */
+    public void release() {
+        generation++;
+        memory.clear();
+        fileQueue.clear();
+        memoryBytes = 0L;
+        fileQueueBytes = 0L;
+        fileReadPos = 0L;
+        fileWritePos = 0L;
+        spilledBytes = 0L;
+        opening = false;
+        writing = false;
+        reading = false;
+        waitingRead = null;
+
+        if (spillFile!=null) {
+            closeAndDelete(spillFile, spillPath);
+        }
+        spillFile = null;
+        spillPath = null;
+    }
+
+    /**
+     * Checks if there are file bytes (written or waiting to be written).
+     *
+     * @return true, if has file bytes
+     */
+    private boolean hasFileBytes() {
+        return fileQueueBytes>0L || fileReadPos<fileWritePos;
+    }
+
+    /**
+     * Open the spill file, or write the head of the file queue.
+     */
+    private void writeNext() {
+        if (spillFile==null) {
+            if (!opening) {
+                opening = true;
+                spillPath = newSpillPath();
+                fileSystem.open(spillPath, null, true, true, true, new OpenHandler(generation, spillPath));
+            }
+            return;
+        }
+        if (writing || fileQueue.isEmpty()) {
+            return;
+        }
+        writing = true;
+        spillFile.write(fileQueue.peekFirst(), fileWritePos, new WriteHandler(generation));
+    }
+
+    /**
+     * Read file bytes.
+     *
+     * @param handler the handler of the bytes read
+     */
+    private void readFile(final Handler<Buffer> handler) {
+        int length = (int) Math.min(FILE_READ_SIZE, fileWritePos - fileReadPos);
+        reading = true;
+        spillFile.read(new Buffer(length), 0, fileReadPos, length, new ReadHandler(generation, length, handler));
+    }
+
+    /**
+     * Call the drain handler, if the write queue accepts bytes again.
+     *
+     * @param callbackGeneration the generation of the callback
+     */
+    private void callDrainHandler(long callbackGeneration) {
+        if (callbackGeneration==generation && drainHandler!=null && !writeQueueFull()) {
+            drainHandler.handle(null);
+        }
+    }
+
+    /**
+     * Spill file failed.
+     *
+     * @param cause the cause
+     */
+    private void fail(final Throwable cause) {
+        release();
+        if (exceptionHandler!=null) {
+            exceptionHandler.handle(cause);
+        }
+    }
+
+    /**
+     * Gets a new spill file path.
+     *
+     * @return the spill file path
+     */
+    private String newSpillPath() {
+        File dir = tempDir!=null ? tempDir : new File(System.getProperty("java.io.tmpdir"));
+        String name = String.format("%s%d-%d%s", TEMPFILE_PREFIX, System.nanoTime(),
+                                     TEMPFILE_SEQUENCE.incrementAndGet(), TEMPFILE_SUFFIX);
+        return new File(dir, name).getPath();
+    }
+
+    /**
+     * Close and remove a spill file.
+     *
+     * @param file the file
+     * @param path the path
+     */
+    private void closeAndDelete(final AsyncFile file, final String path) {
+        final FileSystem deleteFileSystem = fileSystem;
+        file.close(new Handler<AsyncResult<Void>>() {
+            @Override
+            public void handle(AsyncResult<Void> event) {
+                deleteFileSystem.delete(path, new Handler<AsyncResult<Void>>() {
+                    @Override
+                    public void handle(AsyncResult<Void> event) {
+                        if (event.failed()) {
+                            new File(path).deleteOnExit();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Class OpenHandler: spill file opened.
+     */
+    private class OpenHandler implements Handler<AsyncResult<AsyncFile>> {
+
+        /** The generation of the open. */
+        private final long openGeneration;
+
+        /** The path. */
+        private final String path;
+
+        /**
+         * Instantiates a new open handler.
+         *
+         * @param openGeneration the generation of the open
+         * @param path the path
+         */
+        public OpenHandler(long openGeneration, final String path) {
+            this.openGeneration = openGeneration;
+            this.path = path;
+        }
+
+        /* (non-Javadoc)
+         * @see org.vertx.java.core.Handler#handle(java.lang.Object)
+         */
+        @Override
+        public void handle(AsyncResult<AsyncFile> event) {
+            if (openGeneration!=generation) {
+                if (event.succeeded()) {
+                    closeAndDelete(event.result(), path);
+                }
+                return;
+            }
+            opening = false;
+            if (event.failed()) {
+                fail(event.cause());
+                return;
+            }
+            spillFile = event.result();
+            writeNext();
+        }
+    }
+
+    /**
+     * Class WriteHandler: head of the file queue written.
+     */
+    private class WriteHandler implements Handler<AsyncResult<Void>> {
+
+        /** The generation of the write. */
+        private final long writeGeneration;
+
+        /**
+         * Instantiates a new write handler.
+         *
+         * @param writeGeneration the generation of the write
+         */
+        public WriteHandler(long writeGeneration) {
+            this.writeGeneration = writeGeneration;
+        }
+
+        /* (non-Javadoc)
+         * @see org.vertx.java.core.Handler#handle(java.lang.Object)
+         */
+        @Override
+        public void handle(AsyncResult<Void> event) {
+            if (writeGeneration!=generation) {
+                return;
+            }
+            writing = false;
+            if (event.failed()) {
+                fail(event.cause());
+                return;
+            }
+            int length = fileQueue.pollFirst().length();
+            fileQueueBytes -= length;
+            fileWritePos += length;
+            writeNext();
+
+            if (waitingRead!=null) {
+                Handler<Buffer> handler = waitingRead;
+                waitingRead = null;
+                readFile(handler);
+            }
+            callDrainHandler(writeGeneration);
+        }
+    }
+
+    /**
+     * Class ReadHandler: spill file bytes read.
+     */
+    private class ReadHandler implements Handler<AsyncResult<Buffer>> {
+
+        /** The generation of the read. */
+        private final long readGeneration;
+
+        /** The length. */
+        private final int length;
+
+        /** The handler of the bytes read. */
+        private final Handler<Buffer> handler;
+
+        /**
+         * Instantiates a new read handler.
+         *
+         * @param readGeneration the generation of the read
+         * @param length the length
+         * @param handler the handler of the bytes read
+         */
+        public ReadHandler(long readGeneration, int length, final Handler<Buffer> handler) {
+            this.readGeneration = readGeneration;
+            this.length = length;
+            this.handler = handler;
+        }
+
+        /* (non-Javadoc)
+         * @see org.vertx.java.core.Handler#handle(java.lang.Object)
+         */
+        @Override
+        public void handle(AsyncResult<Buffer> event) {
+            if (readGeneration!=generation) {
+                return;
+            }
+            reading = false;
+            if (event.failed()) {
+                fail(event.cause());
+                return;
+            }
+            fileReadPos += length;
+            boolean fileDrained = fileReadPos==fileWritePos && fileQueue.isEmpty();
+            if (fileDrained) {
+                fileReadPos = 0L;
+                fileWritePos = 0L;
+            }
+            handler.handle(event.result());
+            if (fileDrained) {
+                callDrainHandler(readGeneration);
+            }
+        }
+    }
+
+}
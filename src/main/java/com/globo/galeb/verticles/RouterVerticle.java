@@ -22,6 +22,8 @@ import com.globo.galeb.handlers.RouterRequestHandler;
 import com.globo.galeb.logger.SafeLogger;
 import com.globo.galeb.metrics.CounterWithEventBus;
 import com.globo.galeb.metrics.ICounter;
+import com.globo.galeb.scheduler.impl.HashedTimingWheel;
+import com.globo.galeb.scheduler.impl.MaintenanceScheduler;
 import com.globo.galeb.server.Server;
 
 import org.vertx.java.core.Handler;
@@ -37,6 +39,12 @@ import org.vertx.java.platform.Verticle;
  */
 public class RouterVerticle extends Verticle {
 
+  /** The timing wheel: owns the request deadlines of this instance. */
+  private HashedTimingWheel timingWheel = null;
+
+  /** The maintenance scheduler: runs the periodic tasks of the entities of this instance. */
+  private MaintenanceScheduler maintenanceScheduler = null;
+
   /* (non-Javadoc)
    * @see org.vertx.java.platform.Verticle#start()
    */
@@ -49,18 +57,23 @@ public class RouterVerticle extends Verticle {
       final IQueueService queueService = new VertxQueueService(vertx.eventBus(), log);
       final JsonObject starterConf = conf.getObject(ConfVerticleDictionary.CONF_STARTER_CONF, new JsonObject());
       final Farm farm = new Farm(this);
+      maintenanceScheduler = new MaintenanceScheduler(vertx);
       farm.setLogger(new SafeLogger().setLogger(log))
           .setPlataform(vertx)
           .setQueueService(queueService)
           .setStaticConf(starterConf.getObject(ConfVerticleDictionary.CONF_ROOT_ROUTER, new JsonObject()))
           .setCounter(counter)
+          .setMaintenanceScheduler(maintenanceScheduler)
           .start();
 
       final Server server = new Server(vertx, container, counter);
 
+      timingWheel = new HashedTimingWheel(vertx).start();
+
       try {
           final Handler<HttpServerRequest> handlerHttpServerRequest =
-                  new RouterRequestHandler(vertx, farm, counter, queueService, log);
+                  new RouterRequestHandler(vertx, farm, counter, queueService, log)
+                        .setTimingWheel(timingWheel);
 
           server.setDefaultPort(8000)
               .setHttpServerRequestHandler(handlerHttpServerRequest).start(this);
@@ -73,4 +86,17 @@ public class RouterVerticle extends Verticle {
 
    }
 
+  /* (non-Javadoc)
+   * @see org.vertx.java.platform.Verticle#stop()
+   */
+  @Override
+  public void stop() {
+      if (timingWheel!=null) {
+          timingWheel.stop();
+      }
+      if (maintenanceScheduler!=null) {
+          maintenanceScheduler.stop();
+      }
+  }
+
 }
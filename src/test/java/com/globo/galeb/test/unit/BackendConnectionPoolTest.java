@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.test.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.vertx.java.core.http.HttpClient;
+import org.vertx.java.core.impl.DefaultVertx;
+import org.vertx.java.core.json.JsonObject;
+
+import com.globo.galeb.entity.IJsonable;
+import com.globo.galeb.entity.impl.backend.BackendConnectionPool;
+import com.globo.galeb.entity.impl.backend.BackendWithoutSessionPool;
+import com.globo.galeb.entity.impl.backend.IBackend;
+import com.globo.galeb.request.RemoteUser;
+import com.globo.galeb.test.unit.util.MockVertx;
+
+public class BackendConnectionPoolTest {
+
+    private DefaultVertx vertx;
+
+    @Before
+    public void setUp() {
+        vertx = MockVertx.newVertx();
+    }
+
+    private BackendConnectionPool newPool(JsonObject properties) {
+        return new BackendConnectionPool(vertx, "127.0.0.1", 8080, properties);
+    }
+
+    @Test
+    public void clientIsSharedByRequests() {
+        BackendConnectionPool pool = newPool(new JsonObject().putNumber(IBackend.MAXPOOL_SIZE_FIELDNAME, 10));
+
+        HttpClient client1 = pool.acquire(0L);
+        HttpClient client2 = pool.acquire(0L);
+
+        assertThat(client1).isSameAs(client2);
+        assertThat(pool.getInFlight()).isEqualTo(2);
+        verify(client1).setMaxPoolSize(10);
+
+        pool.release(client1, true, 1L);
+        pool.release(client2, true, 1L);
+
+        assertThat(pool.getInFlight()).isEqualTo(0);
+        assertThat(pool.getCreated()).isEqualTo(1L);
+        verify(client1, never()).close();
+    }
+
+    @Test
+    public void maxRequestsRetiresAfterRequestsInFlight() {
+        BackendConnectionPool pool = newPool(new JsonObject().putNumber(IBackend.MAXPOOL_SIZE_FIELDNAME, 1)
+                                                             .putNumber(IBackend.KEEPALIVE_MAXREQUEST_FIELDNAME, 2L));
+
+        HttpClient client1 = pool.acquire(0L);
+        pool.acquire(0L);
+        HttpClient client2 = pool.acquire(0L);
+
+        assertThat(client2).isNotSameAs(client1);
+        assertThat(pool.getGenerations()).isEqualTo(2);
+
+        pool.release(client1, true, 1L);
+        verify(client1, never()).close();
+        pool.release(client1, true, 1L);
+        verify(client1).close();
+        assertThat(pool.getGenerations()).isEqualTo(1);
+    }
+
+    @Test
+    public void lifetimeAndIdleEviction() {
+        BackendConnectionPool pool = newPool(new JsonObject().putNumber(IBackend.KEEPALIVE_TIMEOUT_FIELDNAME, 1000L)
+                                                             .putNumber(IBackend.KEEPALIVE_IDLE_TIMEOUT_FIELDNAME, 100L));
+
+        HttpClient client1 = pool.acquire(0L);
+        pool.release(client1, true, 50L);
+        assertThat(pool.expire(100L)).isEqualTo(0);
+        assertThat(pool.expire(200L)).isEqualTo(1);
+        verify(client1).close();
+
+        HttpClient client2 = pool.acquire(300L);
+        assertThat(pool.expire(1200L)).isEqualTo(0);
+        assertThat(pool.expire(1400L)).isEqualTo(1);
+        verify(client2, never()).close();
+        pool.release(client2, true, 1500L);
+        verify(client2).close();
+        assertThat(pool.getGenerations()).isEqualTo(0);
+    }
+
+    @Test
+    public void failedRequestRetiresGeneration() {
+        BackendConnectionPool pool = newPool(new JsonObject());
+
+        HttpClient client1 = pool.acquire(0L);
+        pool.release(client1, false, 1L);
+
+        verify(client1).close();
+        assertThat(pool.acquire(2L)).isNotSameAs(client1);
+    }
+
+    @Test
+    public void backendSharedModeIgnoresRemoteUser() {
+        BackendWithoutSessionPool backend = new BackendWithoutSessionPool(new JsonObject()
+                .putString(IJsonable.ID_FIELDNAME, "127.0.0.1:8080")
+                .putObject(IJsonable.PROPERTIES_FIELDNAME, new JsonObject()
+                        .putBoolean(IBackend.SHARED_CONNECTION_POOL_FIELDNAME, true)));
+        backend.setPlataform(vertx);
+
+        HttpClient client1 = backend.connect(new RemoteUser("10.0.0.1", 1000));
+        HttpClient client2 = backend.connect(new RemoteUser("10.0.0.2", 2000));
+
+        assertThat(client1).isSameAs(client2);
+        assertThat(backend.getEntities()).isEmpty();
+        assertThat(backend.getActiveConnections()).isEqualTo(2);
+
+        backend.release(new RemoteUser("10.0.0.1", 1000), client1, true);
+        backend.release(new RemoteUser("10.0.0.2", 2000), client2, true);
+        assertThat(backend.getActiveConnections()).isEqualTo(0);
+    }
+
+}
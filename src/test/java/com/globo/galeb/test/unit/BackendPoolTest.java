@@ -187,4 +187,20 @@ public class BackendPoolTest {
         assertThat(backendPool.getNumEntities()).isEqualTo(0);
         assertThat(backendPool.getEntityById(backendId)).isNull();
     }
+
+    @Test
+    public void poolOverridesDoNotLeakIntoBackendProperties() {
+        BackendPool backendPool = new BackendPool(new JsonObject()
+                .putString(IJsonable.ID_FIELDNAME, "pool")
+                .putObject(IJsonable.PROPERTIES_FIELDNAME, new JsonObject()
+                        .putBoolean(IBackend.SHARED_CONNECTION_POOL_FIELDNAME, true)
+                        .putNumber(IBackend.KEEPALIVE_IDLE_TIMEOUT_FIELDNAME, 100L)));
+        Backend backend = new Backend(new JsonObject().putString(IJsonable.ID_FIELDNAME, "127.0.0.1:8080"));
+
+        backendPool.addEntity(backend);
+
+        JsonObject backendProperties = backend.toJson().getObject(IJsonable.PROPERTIES_FIELDNAME);
+        assertThat(backendProperties.containsField(IBackend.SHARED_CONNECTION_POOL_FIELDNAME)).isFalse();
+        assertThat(backendProperties.containsField(IBackend.KEEPALIVE_IDLE_TIMEOUT_FIELDNAME)).isFalse();
+    }
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.test.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.http.HttpClient;
+import org.vertx.java.core.impl.DefaultVertx;
+import org.vertx.java.core.json.JsonObject;
+
+import com.globo.galeb.entity.IJsonable;
+import com.globo.galeb.entity.impl.backend.BackendSession;
+import com.globo.galeb.entity.impl.backend.BackendWithoutSessionPool;
+import com.globo.galeb.request.RemoteUser;
+import com.globo.galeb.test.unit.util.MockVertx;
+
+public class BackendSessionTest {
+
+    private DefaultVertx vertx;
+    private List<HttpClient> clients;
+    private List<BackendSession> changed;
+
+    @Before
+    public void setUp() {
+        clients = new ArrayList<>();
+        changed = new ArrayList<>();
+        vertx = MockVertx.newVertx(clients);
+    }
+
+    private BackendSession newSession() {
+        BackendSession backendSession = new BackendSession(new JsonObject()
+                .putString(IJsonable.ID_FIELDNAME, "10.0.0.1:1000")
+                .putString(IJsonable.PARENT_ID_FIELDNAME, "127.0.0.1:8080"));
+        backendSession.setStateChangeHandler(new Handler<BackendSession>() {
+            @Override
+            public void handle(BackendSession event) {
+                changed.add(event);
+            }
+        }).setPlataform(vertx);
+        return backendSession;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void fireClientException(HttpClient httpClient) {
+        ArgumentCaptor<Handler> exceptionHandler = ArgumentCaptor.forClass(Handler.class);
+        verify(httpClient).exceptionHandler(exceptionHandler.capture());
+        exceptionHandler.getValue().handle(new RuntimeException("connection refused"));
+    }
+
+    @Test
+    public void lifecycleIsTrackedWithoutProbing() {
+        BackendSession backendSession = newSession();
+        assertThat(backendSession.getState()).isEqualTo(BackendSession.State.CLOSED);
+
+        backendSession.connect();
+        assertThat(backendSession.getState()).isEqualTo(BackendSession.State.OPEN);
+        assertThat(backendSession.isClosed()).isFalse();
+
+        backendSession.setIdle();
+        assertThat(backendSession.getState()).isEqualTo(BackendSession.State.IDLE);
+
+        backendSession.close();
+        assertThat(backendSession.isClosed()).isTrue();
+        assertThat(changed).containsExactly(backendSession);
+        verify(clients.get(0)).close();
+        verify(clients.get(0), never()).getReceiveBufferSize();
+    }
+
+    @Test
+    public void clientExceptionMarksClosingAndReconnects() {
+        BackendSession backendSession = newSession();
+        HttpClient httpClient = backendSession.connect();
+
+        fireClientException(httpClient);
+
+        assertThat(backendSession.getState()).isEqualTo(BackendSession.State.CLOSING);
+        assertThat(changed).containsExactly(backendSession);
+
+        HttpClient newHttpClient = backendSession.connect();
+        assertThat(newHttpClient).isNotSameAs(httpClient);
+        assertThat(backendSession.getState()).isEqualTo(BackendSession.State.OPEN);
+        verify(httpClient).close();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void sweeperVisitsOnlyChangedSessions() {
+        BackendWithoutSessionPool backend = new BackendWithoutSessionPool(new JsonObject()
+                .putString(IJsonable.ID_FIELDNAME, "127.0.0.1:8080"));
+        backend.setPlataform(vertx);
+
+        RemoteUser remoteUser1 = new RemoteUser("10.0.0.1", 1000);
+        RemoteUser remoteUser2 = new RemoteUser("10.0.0.2", 2000);
+        HttpClient httpClient1 = backend.connect(remoteUser1);
+        backend.connect(remoteUser2);
+        fireClientException(httpClient1);
+
+        ArgumentCaptor<Handler> periodicHandlers = ArgumentCaptor.forClass(Handler.class);
+        verify(vertx, atLeastOnce()).setPeriodic(anyLong(), periodicHandlers.capture());
+        for (Handler<Long> periodicHandler: periodicHandlers.getAllValues()) {
+            periodicHandler.handle(0L);
+        }
+
+        verify(httpClient1).close();
+        assertThat(backend.isClosed(remoteUser1.toString())).isTrue();
+        assertThat(backend.isClosed(remoteUser2.toString())).isFalse();
+        assertThat(backend.getEntities()).hasSize(1);
+    }
+
+}
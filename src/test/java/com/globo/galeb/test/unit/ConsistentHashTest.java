@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.test.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import com.globo.galeb.consistenthash.ConsistentHash;
+import com.globo.galeb.consistenthash.HashAlgorithm;
+import com.globo.galeb.consistenthash.HashAlgorithm.HashType;
+
+public class ConsistentHashTest {
+
+    private List<String> nodes(int numNodes) {
+        List<String> nodes = new ArrayList<>();
+        for (int x=0; x<numNodes; x++) {
+            nodes.add(String.format("10.0.0.%d:80", x));
+        }
+        return nodes;
+    }
+
+    private String ip(int counter) {
+        return String.format("%d.%d.%d.%d", 10+(counter>>>24 & 0x7f), counter>>>16 & 0xff, counter>>>8 & 0xff, counter & 0xff);
+    }
+
+    private double imbalance(int numberOfReplicas, int numNodes, int samples) {
+        List<String> nodes = nodes(numNodes);
+        ConsistentHash<String> consistentHash = new ConsistentHash<>(new HashAlgorithm(HashType.SIP24), numberOfReplicas, nodes);
+        int[] load = new int[numNodes];
+        for (int counter=0; counter<samples; counter++) {
+            load[nodes.indexOf(consistentHash.get(ip(counter*7919)))]++;
+        }
+        Arrays.sort(load);
+        return (double) load[numNodes-1] / Math.max(load[0], 1);
+    }
+
+    @Test
+    public void lookupIsTheFirstPointAtOrAfterTheHash() {
+        HashAlgorithm hashAlgorithm = new HashAlgorithm(HashType.MURMUR3_32);
+        List<String> nodes = nodes(10);
+        ConsistentHash<String> consistentHash = new ConsistentHash<>(hashAlgorithm, 64, nodes);
+
+        TreeMap<Integer, String> circle = new TreeMap<>();
+        for (String node: nodes) {
+            for (int i=0; i<64; i++) {
+                int point = hashAlgorithm.hashInt(node+i);
+                if (!circle.containsKey(point)) {
+                    circle.put(point, node);
+                }
+            }
+        }
+        assertThat(consistentHash.size()).isEqualTo(circle.size());
+
+        for (int counter=0; counter<10000; counter++) {
+            int hash = hashAlgorithm.hashInt(ip(counter));
+            Integer point = circle.ceilingKey(hash);
+            String expected = circle.get(point!=null ? point : circle.firstKey());
+            assertThat(consistentHash.get(ip(counter))).isEqualTo(expected);
+        }
+        assertThat(consistentHash.getByHash(circle.lastKey()+1)).isEqualTo(circle.firstEntry().getValue());
+    }
+
+    @Test
+    public void virtualNodesEvenTheLoad() {
+        double withoutVirtualNodes = imbalance(1, 10, 100000);
+        double withVirtualNodes = imbalance(128, 10, 100000);
+
+        System.out.println(String.format("ConsistentHashTest.virtualNodesEvenTheLoad: max/min load 1 point: %.2f, 128 points: %.2f",
+                withoutVirtualNodes, withVirtualNodes));
+
+        assertThat(withVirtualNodes).isLessThan(1.5);
+        assertThat(withVirtualNodes).isLessThan(withoutVirtualNodes);
+    }
+
+    @Test
+    public void emptyCircleReturnsNull() {
+        ConsistentHash<String> consistentHash = new ConsistentHash<>(new HashAlgorithm(HashType.SIP24), 16, new ArrayList<String>());
+
+        assertThat(consistentHash.get("10.0.0.1")).isNull();
+
+        consistentHash.rebuild(null, null, Arrays.asList("node"));
+        assertThat(consistentHash.get("10.0.0.1")).isEqualTo("node");
+
+        consistentHash.rebuild(null, null, new ArrayList<String>());
+        assertThat(consistentHash.size()).isEqualTo(0);
+        assertThat(consistentHash.get("10.0.0.1")).isNull();
+    }
+
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.test.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.globo.galeb.consistenthash.HashAlgorithm;
+import com.globo.galeb.consistenthash.HashAlgorithm.HashType;
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+
+public class HashAlgorithmTest {
+
+    private String ip(int counter) {
+        return String.format("%d.%d.%d.%d", 10+(counter>>>24 & 0x7f), counter>>>16 & 0xff, counter>>>8 & 0xff, counter & 0xff);
+    }
+
+    private byte[] bytes(int length) {
+        byte[] bytes = new byte[length];
+        for (int pos=0; pos<length; pos++) {
+            bytes[pos] = (byte) (pos*31+7);
+        }
+        return bytes;
+    }
+
+    @Test
+    public void xxHash64MatchesTheReferenceVectors() {
+        HashAlgorithm xxHash = new HashAlgorithm(HashType.XXHASH64);
+
+        assertThat(xxHash.hashLong("")).isEqualTo(0xEF46DB3751D8E999L);
+        assertThat(xxHash.hashLong("a")).isEqualTo(0xD24EC4F1A98C6E5BL);
+        assertThat(xxHash.hashLong("abc")).isEqualTo(0x44BC2CF5AD770999L);
+        assertThat(xxHash.hashLong("Nobody inspects the spammish repetition")).isEqualTo(0xFBCEA83C8A378BF1L);
+    }
+
+    @Test
+    public void murmur3x128MatchesGuava() {
+        HashAlgorithm murmur3 = new HashAlgorithm(HashType.MURMUR3_128);
+
+        for (int length=0; length<70; length++) {
+            byte[] bytes = bytes(length);
+            assertThat(murmur3.hashLong(bytes)).isEqualTo(Hashing.murmur3_128().hashBytes(bytes).asLong());
+        }
+        for (int counter=0; counter<1000; counter++) {
+            assertThat(murmur3.hashLong(ip(counter*7919))).isEqualTo(Hashing.murmur3_128().hashString(ip(counter*7919), Charsets.UTF_8).asLong());
+            assertThat(murmur3.hashLong(counter*7919L)).isEqualTo(Hashing.murmur3_128().hashLong(counter*7919L).asLong());
+        }
+    }
+
+    @Test
+    public void guavaTypesKeepTheirHashes() {
+        for (int counter=0; counter<1000; counter++) {
+            String key = ip(counter);
+            assertThat(new HashAlgorithm(HashType.SIP24).hashInt(key)).isEqualTo(Hashing.sipHash24().hashString(key, Charsets.UTF_8).asInt());
+            assertThat(new HashAlgorithm(HashType.MURMUR3_32).hashInt(key)).isEqualTo(Hashing.murmur3_32().hashString(key, Charsets.UTF_8).asInt());
+            assertThat(new HashAlgorithm(HashType.MD5).hashInt(key)).isEqualTo(Hashing.md5().hashString(key, Charsets.UTF_8).asInt());
+        }
+        assertThat(new HashAlgorithm(HashType.SIP24).hashAsString("key")).isEqualTo(Hashing.sipHash24().hashString("key", Charsets.UTF_8).toString());
+        assertThat(new HashAlgorithm("UNKNOWN").getHashType()).isEqualTo(HashType.SIP24);
+    }
+
+    @Test
+    public void keysAreHashedAsUtf8Bytes() {
+        StringBuilder longKey = new StringBuilder();
+        for (int x=0; x<100; x++) {
+            longKey.append(ip(x));
+        }
+        for (HashType hashType: EnumSet.allOf(HashType.class)) {
+            HashAlgorithm hashAlgorithm = new HashAlgorithm(hashType);
+            for (String key: new String[] { "", "10.0.0.1", "ação", longKey.toString() }) {
+                assertThat(hashAlgorithm.hashLong(key)).as(hashType+" "+key).isEqualTo(hashAlgorithm.hashLong(key.getBytes(Charsets.UTF_8)));
+            }
+        }
+    }
+
+    @Test
+    public void addressesAreHashedFromTheirBytes() throws Exception {
+        for (HashType hashType: EnumSet.allOf(HashType.class)) {
+            HashAlgorithm hashAlgorithm = new HashAlgorithm(hashType);
+            InetAddress ipv4 = InetAddress.getByName("10.1.2.3");
+            InetAddress ipv6 = InetAddress.getByName("2001:db8::1");
+
+            assertThat(hashAlgorithm.hashInt(ipv4)).isEqualTo(hashAlgorithm.hashInt(0x0A010203L));
+            assertThat(hashAlgorithm.hashInt(ipv6)).isEqualTo((int) hashAlgorithm.hashLong(ipv6.getAddress()));
+        }
+    }
+
+    @Test
+    public void sharedInstanceIsThreadSafe() throws Exception {
+        final int numKeys = 10000;
+        for (HashType hashType: EnumSet.allOf(HashType.class)) {
+            final HashAlgorithm hashAlgorithm = new HashAlgorithm(hashType);
+            final long[] expected = new long[numKeys];
+            for (int counter=0; counter<numKeys; counter++) {
+                expected[counter] = hashAlgorithm.hashLong(ip(counter));
+            }
+
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int thread=0; thread<4; thread++) {
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        for (int counter=0; counter<numKeys; counter++) {
+                            if (hashAlgorithm.hashLong(ip(counter))!=expected[counter]) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    }
+                }));
+            }
+            for (Future<Boolean> result: results) {
+                assertThat(result.get()).as(hashType.toString()).isTrue();
+            }
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void compareHashTypes() throws Exception {
+        int samples = 1000000;
+        String[] keys = new String[1024];
+        for (int counter=0; counter<keys.length; counter++) {
+            keys[counter] = ip(counter*7919);
+        }
+        InetAddress address = InetAddress.getByName("10.1.2.3");
+
+        for (HashType hashType: EnumSet.allOf(HashType.class)) {
+            HashAlgorithm hashAlgorithm = new HashAlgorithm(hashType);
+            long sum = 0L;
+            for (int counter=0; counter<samples; counter++) {
+                sum += hashAlgorithm.hashInt(keys[counter & 1023]);
+            }
+
+            long initialTime = System.nanoTime();
+            for (int counter=0; counter<samples; counter++) {
+                sum += hashAlgorithm.hashInt(keys[counter & 1023]);
+            }
+            long stringTime = System.nanoTime()-initialTime;
+
+            initialTime = System.nanoTime();
+            for (int counter=0; counter<samples; counter++) {
+                sum += hashAlgorithm.hashInt((long) counter);
+            }
+            long longTime = System.nanoTime()-initialTime;
+
+            initialTime = System.nanoTime();
+            for (int counter=0; counter<samples; counter++) {
+                sum += hashAlgorithm.hashInt(address);
+            }
+            long addressTime = System.nanoTime()-initialTime;
+
+            System.out.println(String.format("HashAlgorithmTest.compareHashTypes (%s): string %d ns/op, long %d ns/op, address %d ns/op (%d)",
+                    hashType, stringTime/samples, longTime/samples, addressTime/samples, sum & 1));
+        }
+    }
+
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.test.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.vertx.java.core.MultiMap;
+import org.vertx.java.core.http.CaseInsensitiveMultiMap;
+import org.vertx.java.core.json.JsonArray;
+import org.vertx.java.core.json.JsonObject;
+
+import com.globo.galeb.entity.IJsonable;
+import com.globo.galeb.entity.impl.frontend.Virtualhost;
+import com.globo.galeb.logger.SafeLogger;
+import com.globo.galeb.request.HeaderPolicy;
+
+public class HeaderPolicyTest {
+
+    private static final String REMOTE_IP = "10.0.0.1";
+    private static final String HOST = "test.localdomain:8080";
+
+    private MultiMap source;
+    private MultiMap target;
+
+    @Before
+    public void setUp() {
+        source = new CaseInsensitiveMultiMap();
+        source.set("Host", HOST);
+        source.set("Accept", "*/*");
+        target = new CaseInsensitiveMultiMap();
+    }
+
+    private JsonObject operation(String op, String name, String value) {
+        return new JsonObject().putString(HeaderPolicy.OPERATION_FIELDNAME, op)
+                               .putString(HeaderPolicy.NAME_FIELDNAME, name)
+                               .putString(HeaderPolicy.VALUE_FIELDNAME, value);
+    }
+
+    @Test
+    public void defaultRequestPolicyAddsXffFamily() {
+        HeaderPolicy.forRequest(null, new SafeLogger()).apply(source, target, REMOTE_IP, HOST);
+
+        assertThat(target.get("Host")).isEqualTo(HOST);
+        assertThat(target.get("Accept")).isEqualTo("*/*");
+        assertThat(target.get("X-Real-IP")).isEqualTo(REMOTE_IP);
+        assertThat(target.get("X-Forwarded-For")).isEqualTo(REMOTE_IP);
+        assertThat(target.get("Forwarded-For")).isEqualTo(REMOTE_IP);
+        assertThat(target.get("X-Forwarded-Host")).isEqualTo("test.localdomain");
+        assertThat(target.get("X-Forwarded-Proto")).isEqualTo("http");
+        assertThat(target.get("Connection")).isEqualTo("keep-alive");
+    }
+
+    @Test
+    public void defaultRequestPolicyKeepsAndAppendsClientValues() {
+        source.set("x-real-ip", "192.168.0.1");
+        source.set("X-Forwarded-For", "192.168.0.1");
+        source.set("X-Forwarded-Proto", "https");
+        source.set("Connection", "close");
+        source.set("If-Modified-Since", "Sat, 29 Oct 1994 19:43:31 GMT");
+
+        HeaderPolicy.forRequest(null, new SafeLogger()).apply(source, target, REMOTE_IP, HOST);
+
+        assertThat(target.get("X-Real-IP")).isEqualTo("192.168.0.1");
+        assertThat(target.getAll("X-Forwarded-For")).containsExactly("192.168.0.1, " + REMOTE_IP);
+        assertThat(target.get("X-Forwarded-Proto")).isEqualTo("https");
+        assertThat(target.getAll("Connection")).containsExactly("keep-alive");
+        assertThat(target.contains("If-Modified-Since")).isFalse();
+    }
+
+    @Test
+    public void appendUsesTheLastValue() {
+        source.add("X-Forwarded-For", "192.168.0.1");
+        source.add("X-Forwarded-For", "192.168.0.2");
+
+        HeaderPolicy.forRequest(null, new SafeLogger()).apply(source, target, REMOTE_IP, HOST);
+
+        assertThat(target.getAll("X-Forwarded-For")).containsExactly("192.168.0.1", "192.168.0.2, " + REMOTE_IP);
+    }
+
+    @Test
+    public void sourceIsNotModified() {
+        HeaderPolicy.forRequest(null, new SafeLogger()).apply(source, target, REMOTE_IP, HOST);
+
+        assertThat(source.size()).isEqualTo(2);
+        assertThat(source.contains("X-Forwarded-For")).isFalse();
+    }
+
+    @Test
+    public void userOperationsOverrideDefaults() {
+        JsonArray userOperations = new JsonArray()
+                .addObject(operation("remove", "X-Forwarded-For", null))
+                .addObject(operation("set", "X-Env", "production"))
+                .addObject(operation("remove", "Accept", null))
+                .addObject(operation("add", "X-Client", HeaderPolicy.VAR_REMOTE_IP))
+                .addObject(operation("invalid", "X-Invalid", "x"));
+
+        HeaderPolicy.forRequest(userOperations, new SafeLogger()).apply(source, target, REMOTE_IP, HOST);
+
+        assertThat(target.contains("X-Forwarded-For")).isFalse();
+        assertThat(target.contains("Accept")).isFalse();
+        assertThat(target.contains("X-Invalid")).isFalse();
+        assertThat(target.get("X-Env")).isEqualTo("production");
+        assertThat(target.get("X-Client")).isEqualTo(REMOTE_IP);
+        assertThat(target.get("Forwarded-For")).isEqualTo(REMOTE_IP);
+    }
+
+    @Test
+    public void emptyResponsePolicyCopiesAll() {
+        HeaderPolicy policy = HeaderPolicy.forResponse(null, new SafeLogger());
+        policy.apply(source, target, REMOTE_IP, HOST);
+
+        assertThat(policy.isEmpty()).isTrue();
+        assertThat(target.size()).isEqualTo(source.size());
+    }
+
+    @Test
+    public void policyIsReusable() {
+        HeaderPolicy policy = HeaderPolicy.forRequest(null, new SafeLogger());
+        MultiMap sourceWithXff = new CaseInsensitiveMultiMap().set("X-Forwarded-For", "192.168.0.1")
+                                                               .set("X-Real-IP", "192.168.0.1");
+        policy.apply(sourceWithXff, new CaseInsensitiveMultiMap(), REMOTE_IP, HOST);
+
+        policy.apply(source, target, REMOTE_IP, HOST);
+
+        assertThat(target.get("X-Forwarded-For")).isEqualTo(REMOTE_IP);
+        assertThat(target.get("X-Real-IP")).isEqualTo(REMOTE_IP);
+    }
+
+    @Test
+    public void failedApplyDoesNotLeakIntoTheNextRequest() {
+        HeaderPolicy policy = HeaderPolicy.forRequest(null, new SafeLogger());
+        HeaderPolicy.Scratch scratch = new HeaderPolicy.Scratch();
+        MultiMap sourceWithXff = new CaseInsensitiveMultiMap().set("X-Forwarded-For", "192.168.0.1")
+                                                               .set("X-Real-IP", "192.168.0.1");
+        MultiMap failingTarget = mock(MultiMap.class);
+        when(failingTarget.add(eq("X-Real-IP"), anyString())).thenThrow(new IllegalStateException("closed"));
+
+        try {
+            policy.apply(sourceWithXff, failingTarget, REMOTE_IP, HOST, scratch);
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        policy.apply(source, target, REMOTE_IP, HOST, scratch);
+
+        assertThat(target.getAll("X-Forwarded-For")).containsExactly(REMOTE_IP);
+        assertThat(target.get("X-Real-IP")).isEqualTo(REMOTE_IP);
+    }
+
+    @Test
+    public void stripPort() {
+        assertThat(HeaderPolicy.stripPort("test.localdomain")).isEqualTo("test.localdomain");
+        assertThat(HeaderPolicy.stripPort("test.localdomain:8080")).isEqualTo("test.localdomain");
+        assertThat(HeaderPolicy.stripPort("[::1]")).isEqualTo("[::1]");
+        assertThat(HeaderPolicy.stripPort("[::1]:8080")).isEqualTo("[::1]");
+        assertThat(HeaderPolicy.stripPort(null)).isEqualTo("");
+    }
+
+    @Test
+    public void virtualhostSnapshotCompilesPolicies() {
+        JsonObject properties = new JsonObject()
+                .putArray(Virtualhost.REQUEST_HEADERS_FIELDNAME, new JsonArray().addObject(operation("set", "X-Env", "qa")))
+                .putArray(Virtualhost.RESPONSE_HEADERS_FIELDNAME, new JsonArray().addObject(operation("remove", "Server", null)));
+        Virtualhost virtualhost = new Virtualhost(new JsonObject().putString(IJsonable.ID_FIELDNAME, "test.localdomain")
+                                                                  .putObject(IJsonable.PROPERTIES_FIELDNAME, properties));
+        virtualhost.setLogger(new SafeLogger());
+        virtualhost.start();
+
+        source.set("Server", "backend");
+        virtualhost.getRouteSnapshot().getResponseHeaderPolicy().apply(source, target, REMOTE_IP, HOST);
+
+        assertThat(target.contains("Server")).isFalse();
+        assertThat(virtualhost.getRouteSnapshot().getRequestHeaderPolicy().size()).isEqualTo(8);
+    }
+
+    @Test
+    public void applyThroughput() {
+        int samples = 200000;
+        HeaderPolicy policy = HeaderPolicy.forRequest(null, new SafeLogger());
+        source.set("User-Agent", "curl/7.35.0");
+        source.set("Cookie", "session=0123456789abcdef");
+        source.set("X-Forwarded-For", "192.168.0.1");
+
+        for (int round=0; round<3; round++) {
+            long initialTime = System.currentTimeMillis();
+            for (int x=0; x<samples; x++) {
+                policy.apply(source, new CaseInsensitiveMultiMap(), REMOTE_IP, HOST);
+            }
+            long finishTime = System.currentTimeMillis();
+            System.out.println(String.format("HeaderPolicyTest.applyThroughput - round %d: %d samples. Total time (ms): %d",
+                    round+1, samples, finishTime-initialTime));
+        }
+    }
+
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.test.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.vertx.java.core.MultiMap;
+import org.vertx.java.core.http.CaseInsensitiveMultiMap;
+import org.vertx.java.core.http.HttpServerRequest;
+import org.vertx.java.core.json.JsonArray;
+import org.vertx.java.core.json.JsonObject;
+import org.vertx.java.core.logging.impl.LogDelegate;
+
+import com.globo.galeb.criteria.ICriterion.CriterionAction;
+import com.globo.galeb.criteria.impl.HostHeaderCriterion;
+import com.globo.galeb.criteria.impl.HostIndex;
+import com.globo.galeb.entity.IJsonable;
+import com.globo.galeb.entity.impl.Farm;
+import com.globo.galeb.entity.impl.frontend.Virtualhost;
+import com.globo.galeb.logger.SafeLogger;
+import com.globo.galeb.request.RequestView;
+import com.globo.galeb.test.unit.util.FakeLogger;
+
+public class HostIndexTest {
+
+    private SafeLogger newLogger() {
+        FakeLogger logger = new FakeLogger(mock(LogDelegate.class));
+        logger.setQuiet(true);
+        return new SafeLogger().setLogger(logger);
+    }
+
+    private HttpServerRequest request(String host) {
+        HttpServerRequest httpServerRequest = mock(HttpServerRequest.class);
+        MultiMap headers = new CaseInsensitiveMultiMap();
+        if (host!=null) {
+            headers.add("Host", host);
+        }
+        when(httpServerRequest.headers()).thenReturn(headers);
+        return httpServerRequest;
+    }
+
+    @Test
+    public void exactHostIgnoresCaseAndPort() {
+        HostIndex<String> hostIndex = new HostIndex<String>()
+                .put("Test.LocalDomain", "vhost1")
+                .put("[::1]", "vhost2");
+
+        assertThat(hostIndex.find("test.localdomain")).isEqualTo("vhost1");
+        assertThat(hostIndex.find("TEST.localdomain:8080")).isEqualTo("vhost1");
+        assertThat(hostIndex.find("test.localdomain.")).isEqualTo("vhost1");
+        assertThat(hostIndex.find("[::1]:8080")).isEqualTo("vhost2");
+        assertThat(hostIndex.find("test.localdomain2")).isNull();
+        assertThat(hostIndex.find(":8080")).isNull();
+        assertThat(hostIndex.find("")).isNull();
+        assertThat(hostIndex.find(null)).isNull();
+    }
+
+    @Test
+    public void exactHostWinsOverWildcards() {
+        HostIndex<String> hostIndex = new HostIndex<String>()
+                .put("*.example.com", "wildcard")
+                .put("*.api.example.com", "apiWildcard")
+                .put("www.example.com", "exact");
+
+        assertThat(hostIndex.getWildcardSize()).isEqualTo(2);
+        assertThat(hostIndex.size()).isEqualTo(3);
+        assertThat(hostIndex.find("www.example.com")).isEqualTo("exact");
+        assertThat(hostIndex.find("img.example.com:80")).isEqualTo("wildcard");
+        assertThat(hostIndex.find("a.b.example.com")).isEqualTo("wildcard");
+        assertThat(hostIndex.find("v1.API.example.com")).isEqualTo("apiWildcard");
+        assertThat(hostIndex.find("api.example.com")).isEqualTo("wildcard");
+        assertThat(hostIndex.find("example.com")).isNull();
+        assertThat(hostIndex.find("otherexample.com")).isNull();
+    }
+
+    @Test
+    public void criterionReadsHostHeader() {
+        Map<String, String> virtualhosts = new HashMap<>();
+        virtualhosts.put("test.localdomain", "vhost1");
+        HostHeaderCriterion<String> criterion = new HostHeaderCriterion<>();
+        criterion.setLog(newLogger()).given(virtualhosts);
+
+        assertThat(criterion.when(request("test.localdomain:8000")).thenGetResult()).isEqualTo("vhost1");
+        assertThat(criterion.when(request(null)).thenGetResult()).isNull();
+    }
+
+    @Test
+    public void criterionIsCompiledOnceAfterReset() {
+        Map<String, String> virtualhosts = new HashMap<>();
+        HostHeaderCriterion<String> criterion = new HostHeaderCriterion<>();
+        criterion.setLog(newLogger()).given(virtualhosts);
+
+        assertThat(criterion.when(request("x.example.com")).thenGetResult()).isNull();
+
+        for (int x=0; x<100; x++) {
+            virtualhosts.put(x+".example.com", "vhost"+x);
+            criterion.action(CriterionAction.RESET_REQUIRED);
+        }
+        virtualhosts.put("*.example.com", "wildcard");
+        criterion.action(CriterionAction.RESET_REQUIRED);
+
+        HostIndex<String> hostIndex = criterion.getHostIndex();
+        assertThat(hostIndex.size()).isEqualTo(101);
+        assertThat(criterion.getHostIndex()).isSameAs(hostIndex);
+        assertThat(criterion.when(request("42.example.com")).thenGetResult()).isEqualTo("vhost42");
+        assertThat(criterion.when(request("x.example.com")).thenGetResult()).isEqualTo("wildcard");
+    }
+
+    @Test
+    public void aliasesResolveToSameVirtualhost() {
+        Virtualhost virtualhost = new Virtualhost(new JsonObject()
+                .putString(IJsonable.ID_FIELDNAME, "app.example.com")
+                .putObject(IJsonable.PROPERTIES_FIELDNAME, new JsonObject()
+                        .putArray(Virtualhost.ALIASES_FIELDNAME, new JsonArray()
+                                .addString("www.example.net")
+                                .addString("*.example.org")
+                                .addString("other.example.com"))));
+        Virtualhost other = new Virtualhost("other.example.com");
+        Map<String, Virtualhost> virtualhosts = new HashMap<>();
+        virtualhosts.put(virtualhost.getId(), virtualhost);
+        virtualhosts.put(other.getId(), other);
+        HostHeaderCriterion<Virtualhost> criterion = new HostHeaderCriterion<>();
+        criterion.setLog(newLogger()).given(virtualhosts);
+
+        assertThat(criterion.when(request("app.example.com")).thenGetResult()).isSameAs(virtualhost);
+        assertThat(criterion.when(request("WWW.example.net:80")).thenGetResult()).isSameAs(virtualhost);
+        assertThat(criterion.when(request("shop.example.org")).thenGetResult()).isSameAs(virtualhost);
+        assertThat(criterion.when(request("other.example.com")).thenGetResult()).isSameAs(other);
+        assertThat(criterion.getHostIndex().size()).isEqualTo(4);
+    }
+
+    @Test
+    public void aliasConflictsAreLogged() {
+        Virtualhost first = new Virtualhost(new JsonObject()
+                .putString(IJsonable.ID_FIELDNAME, "a.example.com")
+                .putObject(IJsonable.PROPERTIES_FIELDNAME, new JsonObject()
+                        .putArray(Virtualhost.ALIASES_FIELDNAME, new JsonArray()
+                                .addString("shared.example.com")
+                                .addString("B.example.com"))));
+        Virtualhost second = new Virtualhost(new JsonObject()
+                .putString(IJsonable.ID_FIELDNAME, "b.example.com")
+                .putObject(IJsonable.PROPERTIES_FIELDNAME, new JsonObject()
+                        .putArray(Virtualhost.ALIASES_FIELDNAME, new JsonArray()
+                                .addString("shared.example.com"))));
+        Map<String, Virtualhost> virtualhosts = new LinkedHashMap<>();
+        virtualhosts.put(first.getId(), first);
+        virtualhosts.put(second.getId(), second);
+        SafeLogger log = mock(SafeLogger.class);
+        HostHeaderCriterion<Virtualhost> criterion = new HostHeaderCriterion<>();
+        criterion.setLog(log).given(virtualhosts);
+
+        assertThat(criterion.when(request("b.example.com")).thenGetResult()).isSameAs(second);
+        assertThat(criterion.when(request("shared.example.com")).thenGetResult()).isSameAs(first);
+        verify(log).warn("Alias B.example.com of Virtualhost a.example.com ignored. Already resolved to Virtualhost b.example.com");
+        verify(log).warn("Alias shared.example.com of Virtualhost b.example.com ignored. Already resolved to Virtualhost a.example.com");
+
+        HostIndex<String> hostIndex = new HostIndex<>();
+        assertThat(hostIndex.putIfAbsent("*.example.com", "vhost1")).isEqualTo("vhost1");
+        assertThat(hostIndex.putIfAbsent("*.Example.com", "vhost2")).isEqualTo("vhost1");
+        assertThat(hostIndex.putIfAbsent("", "vhost2")).isNull();
+    }
+
+    @Test
+    public void farmSelectsInPreparedHostIndex() {
+        Farm farm = new Farm(null);
+        farm.setLogger(newLogger()).start();
+        Virtualhost virtualhost = new Virtualhost(new JsonObject()
+                .putString(IJsonable.ID_FIELDNAME, "app.example.com")
+                .putObject(IJsonable.PROPERTIES_FIELDNAME, new JsonObject()
+                        .putArray(Virtualhost.ALIASES_FIELDNAME, new JsonArray().addString("www.example.net"))));
+
+        assertThat(farm.getVirtualhost(new RequestView(request("app.example.com")))).isNull();
+
+        farm.addEntity(virtualhost);
+        assertThat(farm.getVirtualhost(new RequestView(request("APP.example.com:8080")))).isSameAs(virtualhost);
+        assertThat(farm.getVirtualhost(new RequestView(request("www.example.net")))).isSameAs(virtualhost);
+
+        farm.removeEntity(virtualhost.getId());
+        assertThat(farm.getVirtualhost(new RequestView(request("app.example.com")))).isNull();
+    }
+
+    @Test
+    public void lookupBenchmark() {
+        int numHosts = 50000;
+        int numLookups = 1000000;
+        Map<String, String> virtualhosts = new HashMap<>();
+        for (int x=0; x<numHosts; x++) {
+            virtualhosts.put("vhost"+x+".example.com", "vhost"+x);
+            if (x%10==0) {
+                virtualhosts.put("*.tenant"+x+".example.org", "tenant"+x);
+            }
+        }
+        HostIndex<String> hostIndex = new HostIndex<>(virtualhosts, 1L);
+        String[] hosts = new String[1024];
+        for (int x=0; x<hosts.length; x++) {
+            hosts[x] = (x%2==0) ? "VHost"+(x*37)+".example.com:8080" : "www.tenant"+(x*10)+".example.org";
+        }
+
+        int found = 0;
+        long start = System.nanoTime();
+        for (int x=0; x<numLookups; x++) {
+            if (hostIndex.find(hosts[x & (hosts.length-1)])!=null) {
+                found++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println(String.format("HostIndex: %d hosts, %d lookups in %d ms (%d ns/lookup)",
+                hostIndex.size(), numLookups, elapsed/1000000, elapsed/numLookups));
+        assertThat(found).isEqualTo(numLookups);
+    }
+
+}
@@ -19,10 +19,13 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static com.globo.galeb.consistenthash.HashAlgorithm.HashType;
 import static org.mockito.Mockito.*;
 
+import java.net.InetSocketAddress;
 import java.util.EnumSet;
 import java.util.Set;
 
+import com.globo.galeb.collection.IndexedMap;
 import com.globo.galeb.consistenthash.HashAlgorithm;
+import com.globo.galeb.criteria.CandidateSet;
 import com.globo.galeb.criteria.LoadBalanceCriterionFactory;
 import com.globo.galeb.criteria.impl.IPHashCriterion;
 import com.globo.galeb.criteria.impl.LoadBalanceCriterion;
@@ -31,11 +34,13 @@ import com.globo.galeb.entity.impl.backend.Backend;
 import com.globo.galeb.entity.impl.backend.BackendPool;
 import com.globo.galeb.entity.impl.backend.IBackend;
 import com.globo.galeb.request.RequestData;
+import com.globo.galeb.request.RequestView;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.vertx.java.core.Vertx;
 import org.vertx.java.core.http.HttpClient;
+import org.vertx.java.core.http.HttpServerRequest;
 import org.vertx.java.core.impl.DefaultVertx;
 import org.vertx.java.core.json.JsonObject;
 
@@ -126,4 +131,62 @@ public class IPHashCriterionTest {
             }
         }
     }
+
+    @Test
+    public void swappedBackendRebuildsTheRing() {
+        IndexedMap<String, String> backends = new IndexedMap<>();
+        for (int x=0; x<numBackends; x++) {
+            backends.put(String.format("0:%s", x), String.format("0:%s", x));
+        }
+        IPHashCriterion<String> criterion = new IPHashCriterion<>();
+        JsonObject properties = new JsonObject().putNumber(IPHashCriterion.VIRTUAL_NODES_FIELDNAME, 64);
+
+        boolean removedWasChosen = false;
+        for (Integer counter=0; counter<1000; counter++) {
+            RequestData requestData = new RequestData().setRemoteAddress(counter.toString()).setProperties(properties);
+            removedWasChosen |= "0:0".equals(criterion.given(backends).when(requestData).thenGetResult());
+        }
+        assertThat(removedWasChosen).isTrue();
+
+        backends.remove("0:0");
+        backends.put("0:new", "0:new");
+
+        boolean addedWasChosen = false;
+        for (Integer counter=0; counter<1000; counter++) {
+            RequestData requestData = new RequestData().setRemoteAddress(counter.toString()).setProperties(properties);
+            String backend = criterion.given(backends).when(requestData).thenGetResult();
+            assertThat(backend).isNotEqualTo("0:0");
+            addedWasChosen |= "0:new".equals(backend);
+        }
+        assertThat(addedWasChosen).isTrue();
+    }
+
+    @Test
+    public void virtualNodesAreClamped() {
+        assertThat(IPHashCriterion.getVirtualNodes(new JsonObject())).isEqualTo(IPHashCriterion.DEFAULT_VIRTUAL_NODES);
+        assertThat(IPHashCriterion.getVirtualNodes(new JsonObject().putNumber(IPHashCriterion.VIRTUAL_NODES_FIELDNAME, 0))).isEqualTo(1);
+        assertThat(IPHashCriterion.getVirtualNodes(new JsonObject().putNumber(IPHashCriterion.VIRTUAL_NODES_FIELDNAME, 1000000)))
+            .isEqualTo(IPHashCriterion.MAX_VIRTUAL_NODES);
+    }
+    @Test
+    public void selectAndThenGetResultUseTheSameKey() {
+        IndexedMap<String, String> backends = new IndexedMap<>();
+        for (int x=0; x<numBackends; x++) {
+            backends.put(String.format("0:%s", x), String.format("0:%s", x));
+        }
+        IPHashCriterion<String> criterion = new IPHashCriterion<>();
+        CandidateSet<String> ring = criterion.prepare(backends, new JsonObject());
+
+        for (int counter=0; counter<1024; counter++) {
+            InetSocketAddress remoteAddress = new InetSocketAddress(String.format("10.0.%d.%d", counter/256, counter%256), 1000);
+            HttpServerRequest request = mock(HttpServerRequest.class);
+            when(request.remoteAddress()).thenReturn(remoteAddress);
+            RequestView requestView = new RequestView(request);
+
+            String selected = criterion.select(ring, requestView);
+            String legacy = criterion.given(backends).when(new RequestData(requestView, new JsonObject())).thenGetResult();
+
+            assertThat(selected).as(remoteAddress.toString()).isEqualTo(legacy);
+        }
+    }
 }
@@ -19,7 +19,8 @@ public class LoadBalanceCriterionFactoryTest {
         Random,
         IPHash,
         LeastConn,
-        RoundRobin
+        RoundRobin,
+        PowerOfTwo
     }
 
     private ICriterion<IBackend> loadbalanceCriterionDefault = LoadBalanceCriterionFactory.create(DEFAULT_LOADBALANCE);
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.test.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.impl.DefaultVertx;
+import org.vertx.java.core.json.JsonObject;
+
+import com.globo.galeb.entity.IJsonable;
+import com.globo.galeb.entity.impl.backend.BackendWithoutSessionPool;
+import com.globo.galeb.request.RemoteUser;
+import com.globo.galeb.scheduler.ISchedulerHandler;
+import com.globo.galeb.scheduler.impl.MaintenanceScheduler;
+import com.globo.galeb.test.unit.util.MockVertx;
+
+public class MaintenanceSchedulerTest {
+
+    private DefaultVertx vertx;
+    private List<String> calls;
+
+    @Before
+    public void setUp() {
+        calls = new ArrayList<>();
+        vertx = MockVertx.newVertx();
+        when(vertx.setPeriodic(anyLong(), any(Handler.class))).thenReturn(7L);
+    }
+
+    private ISchedulerHandler newTask(final String name) {
+        return new ISchedulerHandler() {
+            @Override
+            public void handle() {
+                calls.add(name);
+            }
+        };
+    }
+
+    @Test
+    public void oneTimerWhileThereAreTasks() {
+        MaintenanceScheduler scheduler = new MaintenanceScheduler(vertx);
+        ISchedulerHandler task1 = newTask("task1");
+        ISchedulerHandler task2 = newTask("task2");
+
+        scheduler.register(task1).register(task2).register(task1);
+        verify(vertx, times(1)).setPeriodic(anyLong(), any(Handler.class));
+        assertThat(scheduler.size()).isEqualTo(2);
+
+        scheduler.deregister(task1).deregister(task2);
+        verify(vertx).cancelTimer(7L);
+
+        scheduler.register(task1);
+        verify(vertx, times(2)).setPeriodic(anyLong(), any(Handler.class));
+    }
+
+    @Test
+    public void deregisterDuringTick() {
+        final MaintenanceScheduler scheduler = new MaintenanceScheduler(null);
+        final ISchedulerHandler task3 = newTask("task3");
+        final ISchedulerHandler task4 = newTask("task4");
+        ISchedulerHandler task1 = new ISchedulerHandler() {
+            @Override
+            public void handle() {
+                calls.add("task1");
+                scheduler.deregister(this);
+                scheduler.deregister(task3);
+                scheduler.register(task4);
+            }
+        };
+        scheduler.register(task1).register(newTask("task2")).register(task3);
+
+        assertThat(scheduler.tick()).isEqualTo(2);
+        assertThat(calls).containsExactly("task1", "task2");
+
+        calls.clear();
+        assertThat(scheduler.tick()).isEqualTo(2);
+        assertThat(calls).containsExactly("task2", "task4");
+    }
+
+    @Test
+    public void failedTaskDoesNotStopTick() {
+        final List<Throwable> errors = new ArrayList<>();
+        MaintenanceScheduler scheduler = new MaintenanceScheduler(null).setExceptionHandler(new Handler<Throwable>() {
+            @Override
+            public void handle(Throwable event) {
+                errors.add(event);
+            }
+        });
+        scheduler.register(new ISchedulerHandler() {
+            @Override
+            public void handle() {
+                throw new IllegalStateException();
+            }
+        }).register(newTask("task2"));
+
+        scheduler.tick();
+
+        assertThat(errors).hasSize(1);
+        assertThat(calls).containsExactly("task2");
+    }
+
+    @Test
+    public void sessionsAndBackendShareOneTimer() {
+        BackendWithoutSessionPool backend = new BackendWithoutSessionPool(new JsonObject()
+                .putString(IJsonable.ID_FIELDNAME, "127.0.0.1:8080"));
+        backend.setPlataform(vertx);
+
+        for (int x=0; x<100; x++) {
+            backend.connect(new RemoteUser("10.0.0.1", 1000+x));
+        }
+
+        verify(vertx, times(1)).setPeriodic(anyLong(), any(Handler.class));
+        assertThat(backend.getMaintenanceScheduler().size()).isEqualTo(101);
+
+        backend.closeAllForced();
+        assertThat(backend.getMaintenanceScheduler().size()).isEqualTo(0);
+        verify(vertx).cancelTimer(7L);
+    }
+
+}
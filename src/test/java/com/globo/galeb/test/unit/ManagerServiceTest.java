@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * THIS CODE AND INFORMATION ARE PROVIDED "AS IS" WITHOUT WARRANTY OF ANY
+ * KIND, EITHER EXPRESSED OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND/OR FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ */
+package com.globo.galeb.test.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+import org.vertx.java.core.json.JsonObject;
+
+import com.globo.galeb.entity.IJsonable;
+import com.globo.galeb.entity.impl.backend.IBackend;
+import com.globo.galeb.entity.impl.frontend.Virtualhost;
+import com.globo.galeb.logger.SafeLogger;
+import com.globo.galeb.rulereturn.HttpCode;
+import com.globo.galeb.server.ManagerService;
+
+public class ManagerServiceTest {
+
+    private final ManagerService managerService = new ManagerService("test", new SafeLogger());
+
+    private String message(JsonObject properties) {
+        return new JsonObject().putNumber("version", 1L)
+                               .putString(IJsonable.ID_FIELDNAME, "test.localdomain")
+                               .putObject(IJsonable.PROPERTIES_FIELDNAME, properties)
+                               .encode();
+    }
+
+    @Test
+    public void aliasesAreValidatedOnlyForVirtualhosts() {
+        String message = message(new JsonObject().putString(Virtualhost.ALIASES_FIELDNAME, "not a list"));
+
+        assertThat(managerService.statusFromMessageSchema(message, "/virtualhost", false)).isEqualTo(HttpCode.BAD_REQUEST);
+        assertThat(managerService.statusFromMessageSchema(message, "/backend", false)).isEqualTo(HttpCode.OK);
+    }
+
+    @Test
+    public void weightIsValidatedOnlyForBackends() {
+        String message = message(new JsonObject().putNumber(IBackend.WEIGHT_FIELDNAME, IBackend.MAX_WEIGHT+1));
+
+        assertThat(managerService.statusFromMessageSchema(message, "/backend", false)).isEqualTo(HttpCode.BAD_REQUEST);
+        assertThat(managerService.statusFromMessageSchema(message, "/virtualhost", false)).isEqualTo(HttpCode.OK);
+    }
+
+}
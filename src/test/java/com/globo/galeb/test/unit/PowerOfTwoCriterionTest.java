@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.test.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.vertx.java.core.json.JsonObject;
+
+import com.globo.galeb.criteria.CandidateSet;
+import com.globo.galeb.criteria.ISelectionCriterion;
+import com.globo.galeb.criteria.impl.LeastConnCriterion;
+import com.globo.galeb.criteria.impl.PowerOfTwoCriterion;
+import com.globo.galeb.criteria.impl.RandomCriterion;
+import com.globo.galeb.entity.impl.backend.IBackend;
+
+public class PowerOfTwoCriterionTest {
+
+    private static final int NUM_BACKENDS = 10;
+    private static final int NUM_REQUESTS = 20000;
+    private static final int REQUESTS_PER_MS = 4;
+    private static final long HEALTHY_TIME = 5L;
+    private static final long DEGRADED_TIME = 100L;
+    private static final long FAILURE_TIME = 1L;
+    private static final long FAILURE_SAMPLE = 1000L;
+
+    /** Simulation result: sorted response times and failed requests. */
+    private static class Result {
+        private final long[] responseTimes;
+        private final int failed;
+
+        Result(long[] responseTimes, int failed) {
+            Arrays.sort(responseTimes);
+            this.responseTimes = responseTimes;
+            this.failed = failed;
+        }
+
+        long percentile(double percentile) {
+            return responseTimes[(int) (responseTimes.length * percentile)];
+        }
+
+        int degraded() {
+            int degraded = 0;
+            for (long responseTime: responseTimes) {
+                if (responseTime>=DEGRADED_TIME) {
+                    degraded++;
+                }
+            }
+            return degraded;
+        }
+
+        int failed() {
+            return failed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("p50 %d ms, p99 %d ms, p99.9 %d ms, %d requests to degraded backend, %d failed",
+                    percentile(0.5), percentile(0.99), percentile(0.999), degraded(), failed);
+        }
+    }
+
+    private IBackend backend(final int[] inFlight, final int pos) {
+        IBackend backend = mock(IBackend.class);
+        when(backend.getActiveConnections()).thenAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocation) throws Throwable {
+                return inFlight[pos];
+            }
+        });
+        return backend;
+    }
+
+    /**
+     * Simulate a pool with one degraded backend (backend 0): a fixed
+     * arrival rate, and a fixed response time per backend.
+     * A fast failing backend 0 fails in FAILURE_TIME, and its sample is
+     * the penalty fed by ProxyExchange (the first byte timeout).
+     */
+    private Result simulate(ISelectionCriterion<IBackend> criterion, boolean fastFailing) {
+        final int[] inFlight = new int[NUM_BACKENDS];
+        Map<String, IBackend> backends = new LinkedHashMap<>();
+        Map<IBackend, Integer> positions = new IdentityHashMap<>();
+        IBackend[] backendArray = new IBackend[NUM_BACKENDS];
+        for (int pos=0; pos<NUM_BACKENDS; pos++) {
+            backendArray[pos] = backend(inFlight, pos);
+            backends.put(String.valueOf(pos), backendArray[pos]);
+            positions.put(backendArray[pos], pos);
+        }
+        CandidateSet<IBackend> candidates = criterion.prepare(backends, new JsonObject());
+
+        // completions: {end time, backend position, sample}
+        PriorityQueue<long[]> completions = new PriorityQueue<>(64, new Comparator<long[]>() {
+            @Override
+            public int compare(long[] event1, long[] event2) {
+                return Long.compare(event1[0], event2[0]);
+            }
+        });
+        long[] responseTimes = new long[NUM_REQUESTS];
+        int failed = 0;
+
+        for (int request=0; request<NUM_REQUESTS; request++) {
+            long now = request / REQUESTS_PER_MS;
+            while (!completions.isEmpty() && completions.peek()[0]<=now) {
+                long[] completion = completions.poll();
+                IBackend backend = backendArray[(int) completion[1]];
+                inFlight[(int) completion[1]]--;
+                candidates.requestEnded(backend, completion[2]);
+                candidates.update(backend);
+            }
+            IBackend backend = criterion.select(candidates, null);
+            int pos = positions.get(backend);
+            inFlight[pos]++;
+            candidates.requestStarted(backend);
+            candidates.update(backend);
+
+            long responseTime = HEALTHY_TIME;
+            long sample = HEALTHY_TIME;
+            if (pos==0 && fastFailing) {
+                responseTime = FAILURE_TIME;
+                sample = FAILURE_SAMPLE;
+                failed++;
+            } else if (pos==0) {
+                responseTime = DEGRADED_TIME;
+                sample = DEGRADED_TIME;
+            }
+            responseTimes[request] = responseTime;
+            completions.add(new long[] { now + responseTime, pos, sample });
+        }
+        return new Result(responseTimes, failed);
+    }
+
+    @Test
+    public void avoidsDegradedBackend() {
+        Result random = simulate(new RandomCriterion<IBackend>(), false);
+        Result leastConn = simulate(new LeastConnCriterion<IBackend>(), false);
+        Result powerOfTwo = simulate(new PowerOfTwoCriterion<IBackend>(), false);
+        Result randomFailing = simulate(new RandomCriterion<IBackend>(), true);
+        Result leastConnFailing = simulate(new LeastConnCriterion<IBackend>(), true);
+        Result powerOfTwoFailing = simulate(new PowerOfTwoCriterion<IBackend>(), true);
+
+        System.out.println(String.format("PowerOfTwoCriterionTest.avoidsDegradedBackend: Random (%s); LeastConn (%s); PowerOfTwo (%s); fast failing: Random (%s); LeastConn (%s); PowerOfTwo (%s)",
+                random, leastConn, powerOfTwo, randomFailing, leastConnFailing, powerOfTwoFailing));
+
+        assertThat(powerOfTwo.percentile(0.99)).isLessThan(random.percentile(0.99));
+        assertThat(powerOfTwo.percentile(0.99)).isEqualTo(HEALTHY_TIME);
+        assertThat(powerOfTwo.degraded()).isLessThan(leastConn.degraded() / 2);
+        assertThat(powerOfTwo.degraded()).isLessThan(random.degraded() / 10);
+        assertThat(powerOfTwoFailing.failed()).isLessThan(leastConnFailing.failed() / 10);
+        assertThat(powerOfTwoFailing.failed()).isLessThan(randomFailing.failed() / 10);
+    }
+
+    @Test
+    public void tracksInFlightAndLatency() {
+        IBackend backend1 = mock(IBackend.class);
+        IBackend backend2 = mock(IBackend.class);
+        Map<String, IBackend> backends = new HashMap<>();
+        backends.put("1", backend1);
+        backends.put("2", backend2);
+        PowerOfTwoCriterion.Scores<IBackend> scores = (PowerOfTwoCriterion.Scores<IBackend>) new PowerOfTwoCriterion<IBackend>()
+                .prepare(backends, new JsonObject().putNumber(PowerOfTwoCriterion.EWMA_WEIGHT_FIELDNAME, 0.5));
+
+        scores.requestStarted(backend1);
+        scores.requestStarted(backend1);
+        assertThat(scores.getInFlight(backend1)).isEqualTo(2);
+        assertThat(scores.choose()).isSameAs(backend2);
+
+        scores.requestEnded(backend1, 10L);
+        scores.requestEnded(backend1, -1L);
+        assertThat(scores.getInFlight(backend1)).isEqualTo(0);
+        assertThat(scores.getLatency(backend1)).isEqualTo(5.0);
+        assertThat(scores.choose()).isSameAs(backend2);
+
+        scores.requestEnded(backend1, 10L);
+        assertThat(scores.getInFlight(backend1)).isEqualTo(0);
+        assertThat(scores.getInFlight(mock(IBackend.class))).isEqualTo(-1);
+    }
+
+    @Test
+    public void emptyAndSinglePools() {
+        ISelectionCriterion<IBackend> powerOfTwo = new PowerOfTwoCriterion<>();
+        IBackend backend = mock(IBackend.class);
+        Map<String, IBackend> backends = new HashMap<>();
+
+        assertThat(powerOfTwo.select(powerOfTwo.prepare(backends, null), null)).isNull();
+
+        backends.put("1", backend);
+        assertThat(powerOfTwo.select(powerOfTwo.prepare(backends, null), null)).isSameAs(backend);
+    }
+
+}
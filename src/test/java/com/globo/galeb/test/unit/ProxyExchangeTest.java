@@ -0,0 +1,572 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.test.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Matchers;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.http.CaseInsensitiveMultiMap;
+import org.vertx.java.core.http.HttpClient;
+import org.vertx.java.core.http.HttpClientRequest;
+import org.vertx.java.core.http.HttpClientResponse;
+import org.vertx.java.core.http.HttpServerRequest;
+import org.vertx.java.core.http.HttpServerResponse;
+import org.vertx.java.core.http.HttpVersion;
+import org.vertx.java.core.impl.DefaultVertx;
+import org.vertx.java.core.json.JsonObject;
+
+import com.globo.galeb.criteria.impl.LoadBalanceCriterion;
+import com.globo.galeb.criteria.impl.PowerOfTwoCriterion;
+import com.globo.galeb.entity.IJsonable;
+import com.globo.galeb.entity.impl.Farm;
+import com.globo.galeb.entity.impl.backend.Backend;
+import com.globo.galeb.entity.impl.backend.BackendPool;
+import com.globo.galeb.entity.impl.backend.IBackend;
+import com.globo.galeb.entity.impl.frontend.Rule;
+import com.globo.galeb.entity.impl.frontend.UriPath;
+import com.globo.galeb.entity.impl.frontend.Virtualhost;
+import com.globo.galeb.logger.SafeLogger;
+import com.globo.galeb.metrics.ICounter;
+import com.globo.galeb.request.ProxyExchange;
+import com.globo.galeb.request.ProxyExchangePool;
+import com.globo.galeb.scheduler.impl.HashedTimingWheel;
+import com.globo.galeb.test.unit.util.MockVertx;
+
+public class ProxyExchangeTest {
+
+    /**
+     * Per request allocation budget (bytes) of a full start/finish cycle of a
+     * recycled exchange, header copies and stub call arguments included:
+     * measured 4.8 KB alone and 5.6 KB within the whole suite, plus a margin.
+     */
+    private static final long ALLOCATION_BUDGET_PER_REQUEST = 6144L;
+
+    private Farm farm;
+    private ProxyExchangePool pool;
+
+    @Before
+    public void setUp() {
+        farm = new Farm(null);
+        farm.setLogger(new SafeLogger()).start();
+        pool = new ProxyExchangePool().setFarm(farm).setLog(new SafeLogger());
+    }
+
+    private HttpServerRequest getHttpServerRequest(String host) throws URISyntaxException {
+        HttpServerRequest httpServerRequest = mock(HttpServerRequest.class);
+        HttpServerResponse httpServerResponse = mock(HttpServerResponse.class);
+        CaseInsensitiveMultiMap headers = new CaseInsensitiveMultiMap();
+        headers.set("Host", host);
+
+        when(httpServerRequest.version()).thenReturn(HttpVersion.HTTP_1_1);
+        when(httpServerRequest.headers()).thenReturn(headers);
+        when(httpServerRequest.params()).thenReturn(new CaseInsensitiveMultiMap());
+        when(httpServerRequest.method()).thenReturn("GET");
+        when(httpServerRequest.uri()).thenReturn("/");
+        when(httpServerRequest.absoluteURI()).thenReturn(new URI(String.format("http://%s/", host)));
+        when(httpServerRequest.remoteAddress()).thenReturn(new InetSocketAddress("127.0.0.1", 0));
+        when(httpServerRequest.response()).thenReturn(httpServerResponse);
+        when(httpServerResponse.headers()).thenReturn(new CaseInsensitiveMultiMap());
+
+        return httpServerRequest;
+    }
+
+    private static final String METRIC_KEY = "test_localdomain.127_0_0_1_8080";
+
+    private HashedTimingWheel wheel;
+    private ICounter counter;
+    private HttpClient httpClient;
+    private HttpClientRequest httpClientRequest;
+    private BackendPool backendPool;
+    private ArgumentCaptor<Handler<HttpClientResponse>> responseHandler;
+
+    @SuppressWarnings("unchecked")
+    private ProxyExchangePool prepareProxiedFarm(JsonObject poolProperties) {
+        HttpClient httpClient = MockVertx.newHttpClient();
+        HttpClientRequest httpClientRequest = mock(HttpClientRequest.class);
+        when(httpClient.request(anyString(), anyString(), Matchers.<Handler<HttpClientResponse>>any())).thenReturn(httpClientRequest);
+        when(httpClientRequest.headers()).thenReturn(new CaseInsensitiveMultiMap());
+        responseHandler = (ArgumentCaptor<Handler<HttpClientResponse>>) (Object) ArgumentCaptor.forClass(Handler.class);
+        this.httpClient = httpClient;
+        this.httpClientRequest = httpClientRequest;
+
+        return prepareProxiedFarm(poolProperties, httpClient, mock(ICounter.class));
+    }
+
+    private ProxyExchangePool prepareProxiedFarm(JsonObject poolProperties, HttpClient httpClient, ICounter counter) {
+        DefaultVertx vertx = mock(DefaultVertx.class);
+        when(vertx.createHttpClient()).thenReturn(httpClient);
+
+        Farm proxiedFarm = new Farm(null);
+        proxiedFarm.setPlataform(vertx);
+        proxiedFarm.setLogger(new SafeLogger()).start();
+
+        proxiedFarm.addBackendPool(new JsonObject().putString(IJsonable.ID_FIELDNAME, "pool0")
+                                                   .putObject(IJsonable.PROPERTIES_FIELDNAME, poolProperties));
+        backendPool = proxiedFarm.getBackendPoolById("pool0");
+        backendPool.addEntity(new Backend(new JsonObject().putString(IJsonable.ID_FIELDNAME, "127.0.0.1:8080")));
+
+        Virtualhost virtualhost = new Virtualhost(new JsonObject().putString(IJsonable.ID_FIELDNAME, "test.localdomain"));
+        proxiedFarm.addEntity(virtualhost);
+        virtualhost.addEntity(new UriPath(new JsonObject().putString(IJsonable.ID_FIELDNAME, "rule0")
+                .putObject(IJsonable.PROPERTIES_FIELDNAME, new JsonObject()
+                        .putString(Rule.MATCH_FIELDNAME, "/")
+                        .putString(Rule.RETURNTYPE_FIELDNAME, BackendPool.class.getSimpleName())
+                        .putString(Rule.RETURNID_FIELDNAME, "pool0"))));
+
+        wheel = new HashedTimingWheel(null, 10L, 64).start();
+        this.counter = counter;
+
+        return new ProxyExchangePool().setFarm(proxiedFarm)
+                                      .setLog(new SafeLogger())
+                                      .setCounter(counter)
+                                      .setTimingWheel(wheel);
+    }
+
+    private HttpClientResponse backendResponds(int statusCode) {
+        verify(httpClient).request(anyString(), anyString(), responseHandler.capture());
+        HttpClientResponse httpClientResponse = mock(HttpClientResponse.class);
+        when(httpClientResponse.statusCode()).thenReturn(statusCode);
+        when(httpClientResponse.headers()).thenReturn(new CaseInsensitiveMultiMap());
+        responseHandler.getValue().handle(httpClientResponse);
+        return httpClientResponse;
+    }
+
+    @Test
+    public void newExchangeIsIdle() {
+        assertThat(pool.acquire().getState()).isEqualTo(ProxyExchange.State.IDLE);
+    }
+
+    @Test
+    public void virtualhostNotFoundReturns404AndRecyclesExchange() throws URISyntaxException {
+        HttpServerRequest httpServerRequest = getHttpServerRequest("unknown.localdomain");
+        ProxyExchange exchange = pool.acquire();
+
+        exchange.start(httpServerRequest);
+
+        verify(httpServerRequest.response(), atLeastOnce()).setStatusCode(404);
+        assertThat(exchange.getState()).isEqualTo(ProxyExchange.State.IDLE);
+        assertThat(pool.getIdleSize()).isEqualTo(1);
+        assertThat(pool.acquire()).isSameAs(exchange);
+    }
+
+    @Test
+    public void finishDetachesClientResponseExceptionHandler() throws URISyntaxException {
+        HttpServerRequest httpServerRequest = getHttpServerRequest("unknown.localdomain");
+
+        pool.acquire().start(httpServerRequest);
+
+        InOrder inOrder = inOrder(httpServerRequest.response());
+        inOrder.verify(httpServerRequest.response(), atLeastOnce()).exceptionHandler(isA(Handler.class));
+        inOrder.verify(httpServerRequest.response()).exceptionHandler(null);
+    }
+
+    @Test
+    public void exchangeGraphIsCreatedOnlyOnce() throws URISyntaxException {
+        HttpServerRequest httpServerRequest = getHttpServerRequest("unknown.localdomain");
+
+        for (int x=0; x<1000; x++) {
+            pool.acquire().start(httpServerRequest);
+        }
+
+        assertThat(pool.getCreated()).isEqualTo(1L);
+    }
+
+    @Test
+    public void firstByteDeadlineReturns504() throws URISyntaxException {
+        ProxyExchangePool proxiedPool = prepareProxiedFarm(new JsonObject()
+                .putNumber(BackendPool.FIRSTBYTE_TIMEOUT_FIELDNAME, 100L));
+        HttpServerRequest httpServerRequest = getHttpServerRequest("test.localdomain");
+        ProxyExchange exchange = proxiedPool.acquire();
+
+        exchange.start(httpServerRequest);
+        assertThat(exchange.getState()).isEqualTo(ProxyExchange.State.REQUEST_STREAMING);
+
+        wheel.tick(System.currentTimeMillis() + 50L);
+        verify(counter, never()).incrTimeout(METRIC_KEY, ProxyExchange.Deadline.FIRST_BYTE.getMetricName());
+
+        wheel.tick(System.currentTimeMillis() + 200L);
+        verify(counter).incrTimeout(METRIC_KEY, ProxyExchange.Deadline.FIRST_BYTE.getMetricName());
+        verify(httpServerRequest.response(), atLeastOnce()).setStatusCode(504);
+        assertThat(exchange.getState()).isEqualTo(ProxyExchange.State.DONE);
+        assertThat(proxiedPool.getIdleSize()).isEqualTo(0);
+        assertThat(wheel.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void poolRequestTimeoutIsTheFirstByteDeadline() throws URISyntaxException {
+        ProxyExchangePool proxiedPool = prepareProxiedFarm(new JsonObject()).setRequestTimeout(100L);
+        ProxyExchange exchange = proxiedPool.acquire();
+
+        exchange.start(getHttpServerRequest("test.localdomain"));
+        wheel.tick(System.currentTimeMillis() + 50L);
+        assertThat(exchange.getState()).isEqualTo(ProxyExchange.State.REQUEST_STREAMING);
+
+        wheel.tick(System.currentTimeMillis() + 200L);
+        verify(counter).incrTimeout(METRIC_KEY, ProxyExchange.Deadline.FIRST_BYTE.getMetricName());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void sharedPoolKeepsGenerationOnClientAbortAndDeadline() throws URISyntaxException {
+        ProxyExchangePool proxiedPool = prepareProxiedFarm(new JsonObject()
+                .putBoolean(IBackend.SHARED_CONNECTION_POOL_FIELDNAME, true)
+                .putNumber(BackendPool.FIRSTBYTE_TIMEOUT_FIELDNAME, 100L));
+
+        HttpServerRequest abortedRequest = getHttpServerRequest("test.localdomain");
+        proxiedPool.acquire().start(abortedRequest);
+        ArgumentCaptor<Handler> closeHandler = ArgumentCaptor.forClass(Handler.class);
+        verify(abortedRequest.response()).closeHandler(closeHandler.capture());
+        closeHandler.getValue().handle(null);
+
+        proxiedPool.acquire().start(getHttpServerRequest("test.localdomain"));
+        wheel.tick(System.currentTimeMillis() + 200L);
+        verify(counter).incrTimeout(METRIC_KEY, ProxyExchange.Deadline.FIRST_BYTE.getMetricName());
+
+        verify(httpClient, never()).close();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void sharedPoolRetiresGenerationOnBackendError() throws URISyntaxException {
+        ProxyExchangePool proxiedPool = prepareProxiedFarm(new JsonObject()
+                .putBoolean(IBackend.SHARED_CONNECTION_POOL_FIELDNAME, true));
+        ProxyExchange exchange = proxiedPool.acquire();
+
+        exchange.start(getHttpServerRequest("test.localdomain"));
+        ArgumentCaptor<Handler> exceptionHandler = ArgumentCaptor.forClass(Handler.class);
+        verify(httpClientRequest).exceptionHandler(exceptionHandler.capture());
+        exceptionHandler.getValue().handle(new RuntimeException("connection refused"));
+
+        verify(httpClient).close();
+        assertThat(exchange.getState()).isEqualTo(ProxyExchange.State.DONE);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void backendFailureIsPenalizedAndClientAbortIsNotSampled() throws URISyntaxException {
+        ProxyExchangePool proxiedPool = prepareProxiedFarm(new JsonObject()
+                .putString(LoadBalanceCriterion.LOADBALANCE_POLICY_FIELDNAME, "PowerOfTwo")
+                .putNumber(BackendPool.FIRSTBYTE_TIMEOUT_FIELDNAME, 1000L));
+        PowerOfTwoCriterion.Scores<IBackend> scores = (PowerOfTwoCriterion.Scores<IBackend>) backendPool.getCandidates();
+        IBackend backend = backendPool.getEntityById("127.0.0.1:8080");
+
+        proxiedPool.acquire().start(getHttpServerRequest("test.localdomain"));
+        ArgumentCaptor<Handler> exceptionHandler = ArgumentCaptor.forClass(Handler.class);
+        verify(httpClientRequest).exceptionHandler(exceptionHandler.capture());
+        exceptionHandler.getValue().handle(new RuntimeException("connection refused"));
+
+        double penalty = PowerOfTwoCriterion.DEFAULT_EWMA_WEIGHT * 1000L;
+        assertThat(scores.getInFlight(backend)).isEqualTo(0);
+        assertThat(scores.getLatency(backend)).isGreaterThanOrEqualTo(penalty);
+
+        double latency = scores.getLatency(backend);
+        HttpServerRequest abortedRequest = getHttpServerRequest("test.localdomain");
+        proxiedPool.acquire().start(abortedRequest);
+        assertThat(scores.getInFlight(backend)).isEqualTo(1);
+        ArgumentCaptor<Handler> closeHandler = ArgumentCaptor.forClass(Handler.class);
+        verify(abortedRequest.response()).closeHandler(closeHandler.capture());
+        closeHandler.getValue().handle(null);
+
+        assertThat(scores.getInFlight(backend)).isEqualTo(0);
+        assertThat(scores.getLatency(backend)).isEqualTo(latency);
+    }
+
+    @Test
+    public void responseCancelsConnectAndFirstByteDeadlines() throws URISyntaxException {
+        ProxyExchangePool proxiedPool = prepareProxiedFarm(new JsonObject()
+                .putNumber(IBackend.CONNECTION_TIMEOUT_FIELDNAME, 100)
+                .putNumber(BackendPool.FIRSTBYTE_TIMEOUT_FIELDNAME, 100L)
+                .putNumber(BackendPool.IDLE_TIMEOUT_FIELDNAME, 0L));
+        HttpServerRequest httpServerRequest = getHttpServerRequest("test.localdomain");
+        ProxyExchange exchange = proxiedPool.acquire();
+
+        exchange.start(httpServerRequest);
+        backendResponds(200);
+        wheel.tick(System.currentTimeMillis() + 1000L);
+
+        verify(counter, never()).incrTimeout(anyString(), anyString());
+        verify(httpClient).setConnectTimeout(100);
+        assertThat(exchange.getState()).isEqualTo(ProxyExchange.State.RESPONSE_STREAMING);
+        assertThat(wheel.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void idleDeadlineAfterResponseHeaders() throws URISyntaxException {
+        ProxyExchangePool proxiedPool = prepareProxiedFarm(new JsonObject()
+                .putNumber(BackendPool.IDLE_TIMEOUT_FIELDNAME, 100L));
+        HttpServerRequest httpServerRequest = getHttpServerRequest("test.localdomain");
+        ProxyExchange exchange = proxiedPool.acquire();
+
+        exchange.start(httpServerRequest);
+        backendResponds(200);
+        assertThat(exchange.getState()).isEqualTo(ProxyExchange.State.RESPONSE_STREAMING);
+
+        wheel.tick(System.currentTimeMillis() + 200L);
+        verify(counter).incrTimeout(METRIC_KEY, ProxyExchange.Deadline.IDLE.getMetricName());
+        assertThat(exchange.getState()).isEqualTo(ProxyExchange.State.IDLE);
+        assertThat(proxiedPool.getIdleSize()).isEqualTo(1);
+    }
+
+    @Test
+    public void totalDeadlineWhileStreamingResponse() throws URISyntaxException {
+        ProxyExchangePool proxiedPool = prepareProxiedFarm(new JsonObject()
+                .putNumber(BackendPool.IDLE_TIMEOUT_FIELDNAME, 0L)
+                .putNumber(BackendPool.TOTAL_TIMEOUT_FIELDNAME, 300L));
+        HttpServerRequest httpServerRequest = getHttpServerRequest("test.localdomain");
+        ProxyExchange exchange = proxiedPool.acquire();
+
+        exchange.start(httpServerRequest);
+        backendResponds(200);
+
+        wheel.tick(System.currentTimeMillis() + 100L);
+        verify(counter, never()).incrTimeout(anyString(), anyString());
+
+        wheel.tick(System.currentTimeMillis() + 400L);
+        verify(counter).incrTimeout(METRIC_KEY, ProxyExchange.Deadline.TOTAL.getMetricName());
+        assertThat(exchange.getState()).isEqualTo(ProxyExchange.State.IDLE);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void bufferedResponseReleasesBackendBeforeSlowClient() throws URISyntaxException {
+        ProxyExchangePool proxiedPool = prepareProxiedFarm(new JsonObject()
+                .putNumber(BackendPool.IDLE_TIMEOUT_FIELDNAME, 100L)
+                .putBoolean(BackendPool.RESPONSE_BUFFERING_FIELDNAME, true)
+                .putNumber(BackendPool.RESPONSE_BUFFER_MEMORY_FIELDNAME, 4L));
+        HttpServerRequest httpServerRequest = getHttpServerRequest("test.localdomain");
+        HttpServerResponse httpServerResponse = httpServerRequest.response();
+        when(httpServerResponse.writeQueueFull()).thenReturn(true);
+        ProxyExchange exchange = proxiedPool.acquire();
+
+        exchange.start(httpServerRequest);
+        HttpClientResponse httpClientResponse = backendResponds(200);
+
+        ArgumentCaptor<Handler> dataHandler = ArgumentCaptor.forClass(Handler.class);
+        ArgumentCaptor<Handler> endHandler = ArgumentCaptor.forClass(Handler.class);
+        verify(httpClientResponse).dataHandler(dataHandler.capture());
+        verify(httpClientResponse).endHandler(endHandler.capture());
+
+        dataHandler.getValue().handle(new Buffer("abc"));
+        dataHandler.getValue().handle(new Buffer("defgh"));
+        endHandler.getValue().handle(null);
+
+        verify(httpClientResponse, never()).pause();
+        verify(httpServerResponse, never()).write(any(Buffer.class));
+        assertThat(exchange.getState()).isEqualTo(ProxyExchange.State.RESPONSE_STREAMING);
+
+        wheel.tick(System.currentTimeMillis() + 200L);
+        verify(counter, never()).incrTimeout(anyString(), anyString());
+
+        ArgumentCaptor<Handler> drainHandler = ArgumentCaptor.forClass(Handler.class);
+        verify(httpServerResponse, atLeastOnce()).drainHandler(drainHandler.capture());
+        when(httpServerResponse.writeQueueFull()).thenReturn(false);
+        drainHandler.getAllValues().get(0).handle(null);
+
+        ArgumentCaptor<Buffer> written = ArgumentCaptor.forClass(Buffer.class);
+        verify(httpServerResponse, times(2)).write(written.capture());
+        assertThat(written.getAllValues().get(0).toString()).isEqualTo("abc");
+        assertThat(written.getAllValues().get(1).toString()).isEqualTo("defgh");
+        verify(httpServerResponse).end();
+        verify(counter).sendBytes(METRIC_KEY, 0L, 8L);
+        assertThat(exchange.getState()).isEqualTo(ProxyExchange.State.IDLE);
+        assertThat(proxiedPool.getIdleSize()).isEqualTo(1);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void clientCloseWhileDrainingBufferFinishesExchange() throws URISyntaxException {
+        ProxyExchangePool proxiedPool = prepareProxiedFarm(new JsonObject()
+                .putBoolean(BackendPool.RESPONSE_BUFFERING_FIELDNAME, true));
+        HttpServerRequest httpServerRequest = getHttpServerRequest("test.localdomain");
+        HttpServerResponse httpServerResponse = httpServerRequest.response();
+        when(httpServerResponse.writeQueueFull()).thenReturn(true);
+        ProxyExchange exchange = proxiedPool.acquire();
+
+        exchange.start(httpServerRequest);
+        HttpClientResponse httpClientResponse = backendResponds(200);
+
+        ArgumentCaptor<Handler> dataHandler = ArgumentCaptor.forClass(Handler.class);
+        ArgumentCaptor<Handler> endHandler = ArgumentCaptor.forClass(Handler.class);
+        verify(httpClientResponse).dataHandler(dataHandler.capture());
+        verify(httpClientResponse).endHandler(endHandler.capture());
+        dataHandler.getValue().handle(new Buffer("abc"));
+        endHandler.getValue().handle(null);
+        assertThat(exchange.getState()).isEqualTo(ProxyExchange.State.RESPONSE_STREAMING);
+
+        ArgumentCaptor<Handler> closeHandler = ArgumentCaptor.forClass(Handler.class);
+        verify(httpServerResponse).closeHandler(closeHandler.capture());
+        closeHandler.getValue().handle(null);
+
+        verify(httpServerResponse, never()).write(any(Buffer.class));
+        verify(httpServerResponse).drainHandler(null);
+        verify(httpServerResponse).closeHandler(null);
+        assertThat(exchange.getState()).isEqualTo(ProxyExchange.State.IDLE);
+        assertThat(proxiedPool.getIdleSize()).isEqualTo(1);
+    }
+
+    /**
+     * Stub without invocation recording (unlike mockito mocks): fluent methods
+     * return the stub, the other methods return the canned answer of the method
+     * name (or null/false/0), and the arguments of the last call are kept.
+     */
+    private static class Stub implements InvocationHandler {
+
+        private final Map<String, Object> answers = new HashMap<>();
+        private final Map<String, Object[]> lastArgs = new HashMap<>();
+
+        @SuppressWarnings("unchecked")
+        public static <T> T create(Class<T> type, Stub stub) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, stub);
+        }
+
+        public Stub answer(String methodName, Object answer) {
+            answers.put(methodName, answer);
+            return this;
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> T lastArg(String methodName, int pos) {
+            return (T) lastArgs.get(methodName)[pos];
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String methodName = method.getName();
+            if (args!=null) {
+                lastArgs.put(methodName, args);
+            }
+            if (answers.containsKey(methodName)) {
+                return answers.get(methodName);
+            }
+            Class<?> returnType = method.getReturnType();
+            if (returnType.isInstance(proxy)) {
+                return proxy;
+            }
+            if ("hashCode".equals(methodName)) {
+                return System.identityHashCode(proxy);
+            }
+            if ("equals".equals(methodName)) {
+                return proxy==args[0];
+            }
+            if ("toString".equals(methodName)) {
+                return Stub.class.getSimpleName();
+            }
+            if (returnType==boolean.class) {
+                return Boolean.FALSE;
+            }
+            if (returnType==int.class) {
+                return 0;
+            }
+            if (returnType==long.class) {
+                return 0L;
+            }
+            return null;
+        }
+    }
+
+    @Test
+    public void recycleAllocationBudget() throws URISyntaxException {
+        java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        if (!sunThreadMXBean.isThreadAllocatedMemorySupported()) {
+            return;
+        }
+        sunThreadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+        String host = "test.localdomain";
+        CaseInsensitiveMultiMap serverRequestHeaders = new CaseInsensitiveMultiMap();
+        serverRequestHeaders.set("Host", host);
+        CaseInsensitiveMultiMap serverResponseHeaders = new CaseInsensitiveMultiMap();
+        CaseInsensitiveMultiMap clientRequestHeaders = new CaseInsensitiveMultiMap();
+        CaseInsensitiveMultiMap clientResponseHeaders = new CaseInsensitiveMultiMap();
+
+        Stub serverResponseStub = new Stub().answer("headers", serverResponseHeaders)
+                                            .answer("getStatusCode", 200);
+        Stub serverRequestStub = new Stub().answer("version", HttpVersion.HTTP_1_1)
+                                           .answer("headers", serverRequestHeaders)
+                                           .answer("params", new CaseInsensitiveMultiMap())
+                                           .answer("method", "GET")
+                                           .answer("uri", "/")
+                                           .answer("absoluteURI", new URI(String.format("http://%s/", host)))
+                                           .answer("remoteAddress", new InetSocketAddress("127.0.0.1", 0))
+                                           .answer("response", Stub.create(HttpServerResponse.class, serverResponseStub));
+        Stub clientRequestStub = new Stub().answer("headers", clientRequestHeaders);
+        Stub httpClientStub = new Stub().answer("request", Stub.create(HttpClientRequest.class, clientRequestStub));
+        Stub clientResponseStub = new Stub().answer("statusCode", 200)
+                                            .answer("headers", clientResponseHeaders);
+
+        HttpServerRequest httpServerRequest = Stub.create(HttpServerRequest.class, serverRequestStub);
+        HttpClientResponse httpClientResponse = Stub.create(HttpClientResponse.class, clientResponseStub);
+        ProxyExchangePool proxiedPool = prepareProxiedFarm(new JsonObject(),
+                                                           Stub.create(HttpClient.class, httpClientStub),
+                                                           Stub.create(ICounter.class, new Stub()));
+
+        int numRequests = 100000;
+        long threadId = Thread.currentThread().getId();
+        long before = 0L;
+
+        for (int x=0; x<2*numRequests; x++) {
+            if (x==numRequests) {
+                // first half is warm up (JIT, pools and backend session)
+                before = sunThreadMXBean.getThreadAllocatedBytes(threadId);
+            }
+            serverResponseHeaders.clear();
+            clientRequestHeaders.clear();
+
+            proxiedPool.acquire().start(httpServerRequest);
+            serverRequestStub.<Handler<Void>>lastArg("endHandler", 0).handle(null);
+            httpClientStub.<Handler<HttpClientResponse>>lastArg("request", 2).handle(httpClientResponse);
+            clientResponseStub.<Handler<Void>>lastArg("endHandler", 0).handle(null);
+        }
+        long allocated = sunThreadMXBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertThat(proxiedPool.getCreated()).isEqualTo(1L);
+        assertThat(proxiedPool.getIdleSize()).isEqualTo(1);
+
+        System.out.println(String.format("ProxyExchange start/finish cycle: %d bytes/request", allocated/numRequests));
+        assertThat(allocated/numRequests).isLessThanOrEqualTo(ALLOCATION_BUDGET_PER_REQUEST);
+    }
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.test.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.streams.ReadStream;
+import org.vertx.java.core.streams.WriteStream;
+
+import com.globo.galeb.streams.Pump;
+
+public class PumpTest {
+
+    private ReadStream<?> rs;
+    private WriteStream<?> ws;
+    private Vertx vertx;
+    private Handler<Buffer> dataHandler;
+
+    @SuppressWarnings("unchecked")
+    private Handler<Buffer> startPump(Pump pump) {
+        pump.start();
+        ArgumentCaptor<Handler> captor = ArgumentCaptor.forClass(Handler.class);
+        verify(rs).dataHandler(captor.capture());
+        return captor.getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void runEndOfTick() {
+        ArgumentCaptor<Handler> captor = ArgumentCaptor.forClass(Handler.class);
+        verify(vertx).runOnContext(captor.capture());
+        captor.getValue().handle(null);
+    }
+
+    @Before
+    public void setUp() {
+        rs = mock(ReadStream.class);
+        ws = mock(WriteStream.class);
+        vertx = mock(Vertx.class);
+    }
+
+    @Test
+    public void plainModeWritesEachBuffer() {
+        dataHandler = startPump(new Pump(rs, ws));
+
+        dataHandler.handle(new Buffer("abc"));
+        dataHandler.handle(new Buffer("de"));
+
+        verify(ws, times(2)).write(any(Buffer.class));
+        verify(vertx, never()).runOnContext(any(Handler.class));
+    }
+
+    @Test
+    public void coalescingMergesBuffersOfTheSameTick() {
+        Pump pump = new Pump().setStreams(rs, ws).setCoalescing(vertx, 1024);
+        dataHandler = startPump(pump);
+
+        dataHandler.handle(new Buffer("abc"));
+        dataHandler.handle(new Buffer("de"));
+        dataHandler.handle(new Buffer("f"));
+        verify(ws, never()).write(any(Buffer.class));
+
+        runEndOfTick();
+
+        ArgumentCaptor<Buffer> written = ArgumentCaptor.forClass(Buffer.class);
+        verify(ws, times(1)).write(written.capture());
+        assertThat(written.getValue().toString()).isEqualTo("abcdef");
+        assertThat(pump.bytesPumped()).isEqualTo(6L);
+    }
+
+    @Test
+    public void coalescingFlushesWhenSizeIsReached() {
+        Pump pump = new Pump().setStreams(rs, ws).setCoalescing(vertx, 4);
+        dataHandler = startPump(pump);
+
+        dataHandler.handle(new Buffer("abc"));
+        dataHandler.handle(new Buffer("de"));
+        verify(ws, times(1)).write(any(Buffer.class));
+
+        dataHandler.handle(new Buffer("large"));
+        verify(ws, times(2)).write(any(Buffer.class));
+        assertThat(pump.bytesPumped()).isEqualTo(10L);
+    }
+
+    @Test
+    public void flushWritesPendingBuffers() {
+        Pump pump = new Pump().setStreams(rs, ws).setCoalescing(vertx, 1024);
+        dataHandler = startPump(pump);
+
+        dataHandler.handle(new Buffer("abc"));
+        pump.flush();
+        pump.flush();
+
+        verify(ws, times(1)).write(any(Buffer.class));
+        assertThat(pump.bytesPumped()).isEqualTo(3L);
+    }
+
+    @Test
+    public void stopDiscardsPendingBuffers() {
+        Pump pump = new Pump().setStreams(rs, ws).setCoalescing(vertx, 1024);
+        dataHandler = startPump(pump);
+
+        dataHandler.handle(new Buffer("abc"));
+        pump.stop();
+        pump.flush();
+
+        verify(ws, never()).write(any(Buffer.class));
+    }
+
+    @Test
+    public void writeQueueFullPausesReadStream() {
+        when(ws.writeQueueFull()).thenReturn(true);
+        dataHandler = startPump(new Pump().setStreams(rs, ws).setWriteQueueMaxSize(8192));
+
+        dataHandler.handle(new Buffer("abc"));
+
+        verify(ws).setWriteQueueMaxSize(8192);
+        verify(rs).pause();
+        verify(ws).drainHandler(any(Handler.class));
+    }
+
+    @Test
+    public void bytesPumpedDoesNotOverflow() {
+        Pump pump = new Pump(rs, ws);
+        dataHandler = startPump(pump);
+        Buffer buffer = new Buffer(new byte[1024*1024]);
+
+        for (int x=0; x<2100; x++) {
+            dataHandler.handle(buffer);
+        }
+
+        assertThat(pump.bytesPumped()).isEqualTo(2100L*1024L*1024L)
+                                       .isGreaterThan(Integer.MAX_VALUE);
+    }
+
+}
@@ -18,12 +18,18 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.globo.galeb.criteria.CandidateSet;
 import com.globo.galeb.criteria.LoadBalanceCriterionFactory;
 import com.globo.galeb.criteria.impl.LoadBalanceCriterion;
 import com.globo.galeb.criteria.impl.RandomCriterion;
 import com.globo.galeb.entity.IJsonable;
 import com.globo.galeb.entity.impl.backend.Backend;
 import com.globo.galeb.entity.impl.backend.BackendPool;
+import com.globo.galeb.entity.impl.backend.IBackend;
 import com.globo.galeb.request.RequestData;
 
 import org.junit.Before;
@@ -83,4 +89,39 @@ public class RandomCriterionTest {
                           .isLessThanOrEqualTo(topLimit);
     }
 
+    @Test
+    public void checkWeightedDistribution() {
+        int[] weights = {1, 2, 3, 4, 10, 100};
+        int totalWeight = 120;
+        int samples = 1000000;
+        double percentMarginOfError = 0.05;
+        Map<String, IBackend> backends = new LinkedHashMap<>();
+        for (int x=0; x<weights.length; x++) {
+            backends.put(String.format("0:%s", x), new Backend(new JsonObject()
+                    .putString(IJsonable.ID_FIELDNAME, String.format("0:%s", x))
+                    .putObject(IJsonable.PROPERTIES_FIELDNAME, new JsonObject().putNumber(IBackend.WEIGHT_FIELDNAME, weights[x]))));
+        }
+        RandomCriterion<IBackend> random = new RandomCriterion<>();
+        CandidateSet<IBackend> aliasTable = random.prepare(backends, new JsonObject());
+
+        Map<IBackend, Integer> choices = new IdentityHashMap<>();
+        long initialTime = System.nanoTime();
+        for (int x=0; x<samples; x++) {
+            IBackend backend = random.select(aliasTable, null);
+            Integer count = choices.get(backend);
+            choices.put(backend, count!=null ? count+1 : 1);
+        }
+        long elapsed = System.nanoTime() - initialTime;
+
+        System.out.println(String.format("TestRandomPolicy.checkWeightedDistribution: %d samples. Total time (ms): %d (%d ns/choice)",
+                samples, elapsed/1000000, elapsed/samples));
+
+        for (int x=0; x<weights.length; x++) {
+            double expected = 1.0 * samples * weights[x] / totalWeight;
+            assertThat((double) choices.get(backends.get(String.format("0:%s", x))))
+                .isGreaterThanOrEqualTo(expected*(1.0-percentMarginOfError))
+                .isLessThanOrEqualTo(expected*(1.0+percentMarginOfError));
+        }
+    }
+
 }
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.test.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.vertx.java.core.MultiMap;
+import org.vertx.java.core.http.CaseInsensitiveMultiMap;
+import org.vertx.java.core.http.HttpServerRequest;
+import org.vertx.java.core.http.HttpVersion;
+import org.vertx.java.core.json.JsonObject;
+
+import com.globo.galeb.criteria.impl.HostHeaderCriterion;
+import com.globo.galeb.request.RequestData;
+import com.globo.galeb.request.RequestView;
+
+public class RequestViewTest {
+
+    private HttpServerRequest request(String path, String query) throws Exception {
+        HttpServerRequest httpServerRequest = mock(HttpServerRequest.class);
+        MultiMap headers = new CaseInsensitiveMultiMap().add("Host", "test.localdomain:8000");
+        MultiMap params = new CaseInsensitiveMultiMap().add("q", query);
+        when(httpServerRequest.headers()).thenReturn(headers);
+        when(httpServerRequest.params()).thenReturn(params);
+        when(httpServerRequest.path()).thenReturn(path);
+        when(httpServerRequest.absoluteURI()).thenReturn(new URI("http://test.localdomain:8000"+path+"?q="+query));
+        when(httpServerRequest.remoteAddress()).thenReturn(new InetSocketAddress("10.0.0.1", 1234));
+        when(httpServerRequest.version()).thenReturn(HttpVersion.HTTP_1_1);
+        return httpServerRequest;
+    }
+
+    @Test
+    public void parsesOnlyWhatIsRead() throws Exception {
+        HttpServerRequest httpServerRequest = request("/api/users", "x");
+        RequestView requestView = new RequestView(httpServerRequest);
+
+        assertThat(requestView.getUriPath()).isEqualTo("/api/users");
+        assertThat(requestView.getUriPath()).isEqualTo("/api/users");
+        assertThat(requestView.getHost()).isEqualTo("test.localdomain:8000");
+
+        verify(httpServerRequest, times(1)).path();
+        verify(httpServerRequest, never()).absoluteURI();
+        verify(httpServerRequest, never()).params();
+        verify(httpServerRequest, never()).remoteAddress();
+
+        assertThat(requestView.getParam("q")).isEqualTo("x");
+        assertThat(requestView.getRemoteAddress()).isEqualTo("10.0.0.1");
+        assertThat(requestView.getRemotePort()).isEqualTo("1234");
+        assertThat(requestView.getRemoteUser().getRemoteIP()).isEqualTo("10.0.0.1");
+        verify(httpServerRequest, times(1)).remoteAddress();
+    }
+
+    @Test
+    public void encodedPathIsDecoded() throws Exception {
+        RequestView requestView = new RequestView(request("/a%20b", "x"));
+
+        assertThat(requestView.getUriPath()).isEqualTo("/a b");
+    }
+
+    @Test
+    public void resetStartsANewRequest() throws Exception {
+        RequestView requestView = new RequestView(request("/first", "x"));
+        assertThat(requestView.getUriPath()).isEqualTo("/first");
+
+        requestView.reset(request("/second", "y"));
+        assertThat(requestView.getUriPath()).isEqualTo("/second");
+        assertThat(requestView.getParam("q")).isEqualTo("y");
+
+        requestView.reset(null);
+        assertThat(requestView.getUriPath()).isEmpty();
+        assertThat(requestView.getHost()).isEmpty();
+        assertThat(requestView.getParam("q")).isNull();
+    }
+
+    @Test
+    public void sharedByAllStages() throws Exception {
+        HttpServerRequest httpServerRequest = request("/", "x");
+        RequestView requestView = new RequestView(httpServerRequest);
+        Map<String, String> virtualhosts = new HashMap<>();
+        virtualhosts.put("test.localdomain", "vhost1");
+
+        assertThat(new HostHeaderCriterion<String>().given(virtualhosts).when(requestView).thenGetResult())
+            .isEqualTo("vhost1");
+
+        RequestData requestData = new RequestData(requestView, new JsonObject());
+        assertThat(requestData.getRemoteAddress()).isEqualTo("10.0.0.1");
+        assertThat(requestData.getKeepAlive()).isTrue();
+        assertThat(requestView.getRemoteAddress()).isEqualTo("10.0.0.1");
+
+        verify(httpServerRequest, times(1)).remoteAddress();
+        verify(httpServerRequest, never()).params();
+        verify(httpServerRequest, never()).absoluteURI();
+    }
+
+    private boolean isKeepAlive(HttpVersion version, String connection) throws Exception {
+        HttpServerRequest httpServerRequest = request("/", "x");
+        when(httpServerRequest.version()).thenReturn(version);
+        if (connection!=null) {
+            httpServerRequest.headers().set("Connection", connection);
+        }
+        return new RequestView(httpServerRequest).isKeepAlive();
+    }
+
+    @Test
+    public void headersWithHttpVersion10WithConnectionKeepAlive() throws Exception {
+        assertThat(isKeepAlive(HttpVersion.HTTP_1_0, "keep-alive")).isTrue();
+    }
+
+    @Test
+    public void headersWithHttpVersion10WithConnectionClose() throws Exception {
+        assertThat(isKeepAlive(HttpVersion.HTTP_1_0, "close")).isFalse();
+    }
+
+    @Test
+    public void headersWithHttpVersion10WithoutConnectionHeader() throws Exception {
+        assertThat(isKeepAlive(HttpVersion.HTTP_1_0, null)).isFalse();
+    }
+
+    @Test
+    public void headersWithHttpVersion11WithConnectionKeepAlive() throws Exception {
+        assertThat(isKeepAlive(HttpVersion.HTTP_1_1, "keep-alive")).isTrue();
+    }
+
+    @Test
+    public void headersWithHttpVersion11WithConnectionClose() throws Exception {
+        assertThat(isKeepAlive(HttpVersion.HTTP_1_1, "close")).isFalse();
+    }
+
+    @Test
+    public void headersWithHttpVersion11WithoutConnectionHeader() throws Exception {
+        assertThat(isKeepAlive(HttpVersion.HTTP_1_1, null)).isTrue();
+    }
+
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.test.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.vertx.java.core.Context;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.VertxFactory;
+import org.vertx.java.core.buffer.Buffer;
+
+import com.globo.galeb.streams.ResponseBuffer;
+
+public class ResponseBufferTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private ClassLoader contextClassLoader;
+    private Vertx vertx;
+    private Context context;
+    private ResponseBuffer responseBuffer;
+    private File tempDir;
+
+    @Before
+    public void setUp() throws IOException, InterruptedException {
+        contextClassLoader = Thread.currentThread().getContextClassLoader();
+        vertx = VertxFactory.newVertx();
+        final CountDownLatch latch = new CountDownLatch(1);
+        vertx.runOnContext(new Handler<Void>() {
+            @Override
+            public void handle(Void event) {
+                context = vertx.currentContext();
+                latch.countDown();
+            }
+        });
+        assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        tempDir = tempFolder.newFolder();
+        responseBuffer = new ResponseBuffer().setFileSystem(vertx.fileSystem()).setTempDir(tempDir);
+    }
+
+    @After
+    public void tearDown() {
+        vertx.stop();
+        Thread.currentThread().setContextClassLoader(contextClassLoader);
+    }
+
+    /**
+     * Runs the step on the Vert.x context (where the spill file callbacks arrive)
+     * and waits the string it gives to done.
+     */
+    private String onContext(final Handler<Handler<String>> step) throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<String> result = new AtomicReference<>();
+        final Handler<String> done = new Handler<String>() {
+            @Override
+            public void handle(String event) {
+                result.set(event);
+                latch.countDown();
+            }
+        };
+        context.runOnContext(new Handler<Void>() {
+            @Override
+            public void handle(Void event) {
+                step.handle(done);
+            }
+        });
+        assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        return result.get();
+    }
+
+    private void readAll(final Buffer all, final Handler<String> done) {
+        boolean reading = responseBuffer.read(new Handler<Buffer>() {
+            @Override
+            public void handle(Buffer buffer) {
+                all.appendBuffer(buffer);
+                readAll(all, done);
+            }
+        });
+        if (!reading) {
+            done.handle(all.toString());
+        }
+    }
+
+    private String appendAndReadAll(final String... chunks) throws InterruptedException {
+        return onContext(new Handler<Handler<String>>() {
+            @Override
+            public void handle(Handler<String> done) {
+                for (String chunk: chunks) {
+                    responseBuffer.append(new Buffer(chunk));
+                }
+                readAll(new Buffer(), done);
+            }
+        });
+    }
+
+    @Test
+    public void keepsOrderInMemoryWithoutCopies() {
+        final Buffer first = new Buffer("abc");
+        final Buffer second = new Buffer("defghij");
+        final Buffer[] read = new Buffer[2];
+
+        responseBuffer.append(first);
+        responseBuffer.append(second);
+        assertThat(responseBuffer.size()).isEqualTo(10L);
+        assertThat(responseBuffer.getMemoryBytes()).isEqualTo(10L);
+
+        for (int x=0; x<read.length; x++) {
+            final int pos = x;
+            assertThat(responseBuffer.read(new Handler<Buffer>() {
+                @Override
+                public void handle(Buffer buffer) {
+                    read[pos] = buffer;
+                }
+            })).isTrue();
+        }
+
+        assertThat(read[0]).isSameAs(first);
+        assertThat(read[1]).isSameAs(second);
+        assertThat(responseBuffer.isEmpty()).isTrue();
+        assertThat(tempDir.list()).isEmpty();
+    }
+
+    @Test
+    public void spillsBeyondMemoryLimitKeepingOrder() throws InterruptedException {
+        responseBuffer.setMemoryLimit(6L);
+
+        String all = appendAndReadAll("abcd", "efgh", "i");
+
+        assertThat(all).isEqualTo("abcdefghi");
+        assertThat(responseBuffer.getSpilledBytes()).isEqualTo(5L);
+        assertThat(responseBuffer.isEmpty()).isTrue();
+        assertThat(tempDir.list()).hasSize(1);
+    }
+
+    @Test
+    public void spilledFileIsReadInSteps() throws InterruptedException {
+        responseBuffer.setMemoryLimit(0L);
+        StringBuilder expected = new StringBuilder();
+        String[] chunks = new String[10];
+        for (int x=0; x<chunks.length; x++) {
+            char[] chunk = new char[ResponseBuffer.FILE_READ_SIZE / 3];
+            java.util.Arrays.fill(chunk, (char) ('a' + x));
+            chunks[x] = new String(chunk);
+            expected.append(chunks[x]);
+        }
+
+        assertThat(appendAndReadAll(chunks)).isEqualTo(expected.toString());
+    }
+
+    @Test
+    public void interleavedReadsAndWrites() throws InterruptedException {
+        responseBuffer.setMemoryLimit(4L);
+
+        String all = onContext(new Handler<Handler<String>>() {
+            @Override
+            public void handle(final Handler<String> done) {
+                final Buffer readBytes = new Buffer();
+                responseBuffer.append(new Buffer("abc"));
+                responseBuffer.append(new Buffer("de"));
+                responseBuffer.read(new Handler<Buffer>() {
+                    @Override
+                    public void handle(Buffer buffer) {
+                        readBytes.appendBuffer(buffer).appendString("|");
+                        responseBuffer.append(new Buffer("f"));
+                        responseBuffer.read(new Handler<Buffer>() {
+                            @Override
+                            public void handle(Buffer buffer) {
+                                readBytes.appendBuffer(buffer).appendString("|");
+                                responseBuffer.append(new Buffer("gh"));
+                                readAll(readBytes, done);
+                            }
+                        });
+                    }
+                });
+            }
+        });
+
+        assertThat(all).isEqualTo("abc|de|fgh");
+    }
+
+    @Test
+    public void writeQueueFullUntilSpillFileWritten() throws InterruptedException {
+        responseBuffer.setMemoryLimit(0L).setWriteQueueMaxSize(4L);
+
+        String events = onContext(new Handler<Handler<String>>() {
+            @Override
+            public void handle(final Handler<String> done) {
+                responseBuffer.drainHandler(new Handler<Void>() {
+                    @Override
+                    public void handle(Void event) {
+                        done.handle("drained, full: " + responseBuffer.writeQueueFull());
+                    }
+                });
+                responseBuffer.append(new Buffer("abcdef"));
+                assertThat(responseBuffer.writeQueueFull()).isTrue();
+            }
+        });
+
+        assertThat(events).isEqualTo("drained, full: false");
+        assertThat(appendAndReadAll()).isEqualTo("abcdef");
+    }
+
+    @Test
+    public void maxFileSizeWaitsTheWholeFileRead() throws InterruptedException {
+        responseBuffer.setMemoryLimit(0L).setMaxFileSize(6L);
+
+        String events = onContext(new Handler<Handler<String>>() {
+            @Override
+            public void handle(final Handler<String> done) {
+                final StringBuilder read = new StringBuilder();
+                responseBuffer.drainHandler(new Handler<Void>() {
+                    @Override
+                    public void handle(Void event) {
+                        done.handle(read + "|drained, full: " + responseBuffer.writeQueueFull());
+                    }
+                });
+                responseBuffer.append(new Buffer("abc"));
+                assertThat(responseBuffer.writeQueueFull()).isFalse();
+                responseBuffer.append(new Buffer("def"));
+                assertThat(responseBuffer.writeQueueFull()).isTrue();
+                readAll(new Buffer(), new Handler<String>() {
+                    @Override
+                    public void handle(String all) {
+                        read.append(all);
+                    }
+                });
+            }
+        });
+
+        assertThat(events).isEqualTo("abcdef|drained, full: false");
+    }
+
+    @Test
+    public void releaseRemovesSpillFileAndIsReusable() throws InterruptedException {
+        responseBuffer.setMemoryLimit(0L);
+        assertThat(appendAndReadAll("abcdef")).isEqualTo("abcdef");
+        assertThat(tempDir.list()).hasSize(1);
+
+        onContext(new Handler<Handler<String>>() {
+            @Override
+            public void handle(Handler<String> done) {
+                responseBuffer.release();
+                done.handle(null);
+            }
+        });
+        for (int x=0; x<100 && tempDir.list().length>0; x++) {
+            Thread.sleep(50L);
+        }
+
+        assertThat(tempDir.list()).isEmpty();
+        assertThat(responseBuffer.isEmpty()).isTrue();
+
+        responseBuffer.setMemoryLimit(ResponseBuffer.DEFAULT_MEMORY_LIMIT);
+        assertThat(appendAndReadAll("xyz")).isEqualTo("xyz");
+    }
+
+    @Test
+    public void withoutFileSystemKeepsAllInMemory() throws InterruptedException {
+        responseBuffer = new ResponseBuffer().setMemoryLimit(0L).setTempDir(tempDir);
+
+        assertThat(appendAndReadAll("abc", "def")).isEqualTo("abcdef");
+        assertThat(responseBuffer.getSpilledBytes()).isEqualTo(0L);
+        assertThat(tempDir.list()).isEmpty();
+    }
+
+}
@@ -17,8 +17,11 @@ package com.globo.galeb.test.unit;
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.Map;
 
+import com.globo.galeb.criteria.CandidateSet;
 import com.globo.galeb.criteria.LoadBalanceCriterionFactory;
 import com.globo.galeb.criteria.impl.LoadBalanceCriterion;
 import com.globo.galeb.criteria.impl.RoundRobinCriterion;
@@ -93,4 +96,24 @@ public class RoundRobinCriterionTest {
         }
     }
 
+    @Test
+    public void weightedBackendsAreInterleaved() {
+        Map<String, IBackend> backends = new LinkedHashMap<>();
+        for (String id: new String[] {"0:a", "0:b", "0:c"}) {
+            int weight = "0:a".equals(id) ? 5 : 1;
+            backends.put(id, new Backend(new JsonObject().putString(IJsonable.ID_FIELDNAME, id)
+                    .putObject(IJsonable.PROPERTIES_FIELDNAME, new JsonObject().putNumber(IBackend.WEIGHT_FIELDNAME, weight))));
+        }
+        RoundRobinCriterion<IBackend> roundRobin = new RoundRobinCriterion<>();
+        CandidateSet<IBackend> cursor = roundRobin.prepare(backends, new JsonObject());
+
+        StringBuilder sequence = new StringBuilder();
+        for (int counter=0; counter<14; counter++) {
+            sequence.append(roundRobin.select(cursor, null).toString().replace("0:", ""));
+        }
+
+        assertThat(((RoundRobinCriterion.Cursor<IBackend>) cursor).getRoundLength()).isEqualTo(7);
+        assertThat(sequence.toString()).isEqualTo("aabacaaaabacaa");
+    }
+
 }
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.test.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Test;
+import org.vertx.java.core.http.CaseInsensitiveMultiMap;
+import org.vertx.java.core.http.HttpServerRequest;
+import org.vertx.java.core.json.JsonObject;
+import org.vertx.java.core.logging.impl.LogDelegate;
+
+import com.globo.galeb.criteria.impl.RouteCache;
+import com.globo.galeb.criteria.impl.RulesCriterion;
+import com.globo.galeb.entity.IJsonable;
+import com.globo.galeb.entity.impl.frontend.NullRule;
+import com.globo.galeb.entity.impl.frontend.Rule;
+import com.globo.galeb.entity.impl.frontend.UriPath;
+import com.globo.galeb.entity.impl.frontend.Virtualhost;
+import com.globo.galeb.logger.SafeLogger;
+import com.globo.galeb.metrics.ICounter;
+import com.globo.galeb.request.RequestView;
+import com.globo.galeb.test.unit.util.FakeLogger;
+
+public class RouteCacheTest {
+
+    private SafeLogger newLogger() {
+        FakeLogger logger = new FakeLogger(mock(LogDelegate.class));
+        logger.setQuiet(true);
+        return new SafeLogger().setLogger(logger);
+    }
+
+    private Rule newRule(String id) {
+        return new NullRule(new JsonObject().putString(IJsonable.ID_FIELDNAME, id));
+    }
+
+    private Rule uriPath(String id, String match, int orderNum) {
+        Rule rule = new UriPath(new JsonObject().putString(IJsonable.ID_FIELDNAME, id)
+                .putObject(IJsonable.PROPERTIES_FIELDNAME, new JsonObject().putString(Rule.MATCH_FIELDNAME, match)));
+        rule.setPriorityOrder(orderNum);
+        return rule;
+    }
+
+    private RequestView requestView(String path) {
+        HttpServerRequest httpServerRequest = mock(HttpServerRequest.class);
+        when(httpServerRequest.path()).thenReturn(path);
+        when(httpServerRequest.headers()).thenReturn(new CaseInsensitiveMultiMap());
+        return new RequestView(httpServerRequest);
+    }
+
+    @Test
+    public void clockKeepsReferencedEntries() {
+        RouteCache routeCache = new RouteCache(3);
+        Rule rule = newRule("rule");
+
+        routeCache.get("/a", 1L);
+        routeCache.put("/a", rule, 1L).put("/b", rule, 1L).put("/c", rule, 1L);
+        assertThat(routeCache.get("/a", 1L)).isSameAs(rule);
+        assertThat(routeCache.get("/c", 1L)).isSameAs(rule);
+
+        routeCache.put("/d", rule, 1L);
+
+        assertThat(routeCache.size()).isEqualTo(3);
+        assertThat(routeCache.get("/b", 1L)).isNull();
+        assertThat(routeCache.get("/a", 1L)).isSameAs(rule);
+        assertThat(routeCache.get("/c", 1L)).isSameAs(rule);
+        assertThat(routeCache.get("/d", 1L)).isSameAs(rule);
+    }
+
+    @Test
+    public void newVersionDropsAllEntries() {
+        RouteCache routeCache = new RouteCache(10);
+        Rule rule = newRule("rule");
+        routeCache.get("/a", 1L);
+        routeCache.put("/a", rule, 1L);
+
+        assertThat(routeCache.get("/a", 2L)).isNull();
+        assertThat(routeCache.size()).isEqualTo(0);
+
+        routeCache.put("/a", rule, 1L);
+        assertThat(routeCache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void reportsHitsAndMisses() {
+        ICounter counter = mock(ICounter.class);
+        RouteCache routeCache = new RouteCache(10).setCounter(counter).setMetricKey("vhost").setReportPeriod(Long.MAX_VALUE);
+        Rule rule = newRule("rule");
+
+        routeCache.get("/a", 1L);
+        routeCache.put("/a", rule, 1L);
+        routeCache.get("/a", 1L);
+        routeCache.get("/a", 1L);
+        assertThat(routeCache.getHits()).isEqualTo(2L);
+        assertThat(routeCache.getMisses()).isEqualTo(1L);
+
+        routeCache.setReportPeriod(0L).get("/a", 1L);
+        verify(counter).sendRouteCache("vhost", 3L, 1L);
+        assertThat(routeCache.getHits()).isEqualTo(0L);
+    }
+
+    @Test
+    public void virtualhostCachesDecisionsUntilRulesChange() {
+        Virtualhost virtualhost = new Virtualhost(new JsonObject()
+                .putString(IJsonable.ID_FIELDNAME, "test.localdomain")
+                .putObject(IJsonable.PROPERTIES_FIELDNAME, new JsonObject()
+                        .putNumber(Virtualhost.ROUTE_CACHE_SIZE_FIELDNAME, 100)));
+        virtualhost.setLogger(newLogger());
+        virtualhost.start();
+        virtualhost.addEntity(uriPath("root", "/", 2));
+        RulesCriterion criterion = (RulesCriterion) virtualhost.getCriterion();
+        RouteCache routeCache = criterion.getRouteCache();
+
+        assertThat(criterion.when(requestView("/api/users")).thenGetResult().getId()).isEqualTo("root");
+        assertThat(criterion.when(requestView("/api/users")).thenGetResult().getId()).isEqualTo("root");
+        assertThat(routeCache.getHits()).isEqualTo(1L);
+        assertThat(routeCache.size()).isEqualTo(1);
+
+        virtualhost.addEntity(uriPath("api", "/api", 1));
+
+        assertThat(criterion.when(requestView("/api/users")).thenGetResult().getId()).isEqualTo("api");
+        assertThat(routeCache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void routeSnapshotCachesDecisionsUntilRulesChange() {
+        Virtualhost virtualhost = new Virtualhost(new JsonObject()
+                .putString(IJsonable.ID_FIELDNAME, "test.localdomain")
+                .putObject(IJsonable.PROPERTIES_FIELDNAME, new JsonObject()
+                        .putNumber(Virtualhost.ROUTE_CACHE_SIZE_FIELDNAME, 100)));
+        virtualhost.setLogger(newLogger());
+        virtualhost.start();
+        virtualhost.addEntity(uriPath("root", "/", 2));
+        RouteCache routeCache = ((RulesCriterion) virtualhost.getCriterion()).getRouteCache();
+
+        assertThat(virtualhost.getRouteSnapshot().getRule(requestView("/api/users")).getId()).isEqualTo("root");
+        assertThat(virtualhost.getRouteSnapshot().getRule(requestView("/api/users")).getId()).isEqualTo("root");
+        assertThat(routeCache.getHits()).isEqualTo(1L);
+
+        virtualhost.addEntity(uriPath("api", "/api", 1));
+
+        assertThat(virtualhost.getRouteSnapshot().getRule(requestView("/api/users")).getId()).isEqualTo("api");
+        assertThat(routeCache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void notCachedWithRulesNotOnlyByPath() {
+        Virtualhost virtualhost = new Virtualhost(new JsonObject()
+                .putString(IJsonable.ID_FIELDNAME, "test.localdomain")
+                .putObject(IJsonable.PROPERTIES_FIELDNAME, new JsonObject()
+                        .putNumber(Virtualhost.ROUTE_CACHE_SIZE_FIELDNAME, 100)));
+        virtualhost.setLogger(newLogger());
+        virtualhost.start();
+        virtualhost.addEntity(newRule("other"));
+        RulesCriterion criterion = (RulesCriterion) virtualhost.getCriterion();
+
+        criterion.when(requestView("/")).thenGetResult();
+        criterion.when(requestView("/")).thenGetResult();
+
+        assertThat(criterion.getRouteCache().size()).isEqualTo(0);
+        assertThat(criterion.getRouteCache().getHits()).isEqualTo(0L);
+    }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.test.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.vertx.java.core.json.JsonObject;
+
+import com.globo.galeb.criteria.CandidateSet;
+import com.globo.galeb.criteria.impl.LoadBalanceCriterion;
+import com.globo.galeb.entity.IJsonable;
+import com.globo.galeb.entity.impl.Farm;
+import com.globo.galeb.entity.impl.backend.Backend;
+import com.globo.galeb.entity.impl.backend.BackendPool;
+import com.globo.galeb.entity.impl.backend.IBackend;
+import com.globo.galeb.entity.impl.frontend.RouteSnapshot;
+import com.globo.galeb.entity.impl.frontend.Rule;
+import com.globo.galeb.entity.impl.frontend.UriPath;
+import com.globo.galeb.entity.impl.frontend.Virtualhost;
+import com.globo.galeb.logger.SafeLogger;
+import com.globo.galeb.rulereturn.HttpCode;
+
+public class RouteSnapshotTest {
+
+    private Farm farm;
+    private Virtualhost virtualhost;
+    private BackendPool backendPool;
+
+    @Before
+    public void setUp() {
+        farm = new Farm(null);
+        farm.setLogger(new SafeLogger()).start();
+
+        JsonObject backendPoolJson = new JsonObject().putString(IJsonable.ID_FIELDNAME, "pool0")
+                .putObject(IJsonable.PROPERTIES_FIELDNAME, new JsonObject()
+                        .putString(LoadBalanceCriterion.LOADBALANCE_POLICY_FIELDNAME, "RoundRobin"));
+        farm.addBackendPool(backendPoolJson);
+        backendPool = farm.getBackendPoolById("pool0");
+
+        JsonObject virtualhostJson = new JsonObject().putString(IJsonable.ID_FIELDNAME, "test.localdomain")
+                .putObject(IJsonable.PROPERTIES_FIELDNAME, new JsonObject()
+                        .putBoolean(Virtualhost.ENABLE_CHUNKED_FIELDNAME, false)
+                        .putBoolean(Virtualhost.ENABLE_ACCESSLOG_FIELDNAME, true));
+        virtualhost = new Virtualhost(virtualhostJson);
+        farm.addEntity(virtualhost);
+    }
+
+    private Rule newRule(String id, String returnType, String returnId) {
+        JsonObject ruleJson = new JsonObject().putString(IJsonable.ID_FIELDNAME, id)
+                .putObject(IJsonable.PROPERTIES_FIELDNAME, new JsonObject()
+                        .putString(Rule.MATCH_FIELDNAME, "/")
+                        .putString(Rule.RETURNTYPE_FIELDNAME, returnType)
+                        .putString(Rule.RETURNID_FIELDNAME, returnId));
+        return new UriPath(ruleJson);
+    }
+
+    @Test
+    public void snapshotHasVirtualhostFlags() {
+        RouteSnapshot route = virtualhost.getRouteSnapshot();
+
+        assertThat(route.getVirtualhostId()).isEqualTo("test.localdomain");
+        assertThat(route.isChunked()).isFalse();
+        assertThat(route.hasAccessLog()).isTrue();
+        assertThat(route.getRules().isEmpty()).isTrue();
+    }
+
+    @Test
+    public void ruleWithHttpCodeHasNotPoolRoute() {
+        Rule rule = newRule("rule0", HttpCode.class.getSimpleName(), "200");
+        virtualhost.addEntity(rule);
+
+        assertThat(virtualhost.getRouteSnapshot().getPoolRoute(rule)).isNull();
+    }
+
+    @Test
+    public void snapshotIsRebuiltWhenRuleChanges() {
+        RouteSnapshot before = virtualhost.getRouteSnapshot();
+        Rule rule = newRule("rule0", BackendPool.class.getSimpleName(), "pool0");
+        virtualhost.addEntity(rule);
+        RouteSnapshot after = virtualhost.getRouteSnapshot();
+
+        assertThat(after).isNotSameAs(before);
+        assertThat(after.getPoolRoute(rule)).isNotNull();
+        assertThat(after.getRules().size()).isEqualTo(1);
+        assertThat(after.getPoolRoute(rule).getBackendPool()).isSameAs(backendPool);
+        assertThat(after.getPoolRoute(rule).getLoadBalancePolicy()).isEqualTo("RoundRobin");
+        assertThat(after.uses(backendPool)).isTrue();
+    }
+
+    @Test
+    public void poolRouteFollowsBackendPoolChanges() {
+        Rule rule = newRule("rule0", BackendPool.class.getSimpleName(), "pool0");
+        virtualhost.addEntity(rule);
+        RouteSnapshot route = virtualhost.getRouteSnapshot();
+        assertThat(route.getPoolRoute(rule).isEmpty()).isTrue();
+
+        Backend backend = new Backend(new JsonObject().putString(IJsonable.ID_FIELDNAME, "127.0.0.1:8080"));
+        backendPool.addEntity(backend);
+
+        assertThat(virtualhost.getRouteSnapshot()).isSameAs(route);
+        RouteSnapshot.PoolRoute poolRoute = route.getPoolRoute(rule);
+        assertThat(poolRoute.isEmpty()).isFalse();
+        assertThat(poolRoute.getMetricKey(backend)).isEqualTo("test_localdomain.127_0_0_1_8080");
+
+        backendPool.removeEntity(backend);
+        assertThat(route.getPoolRoute(rule).isEmpty()).isTrue();
+    }
+
+    @Test
+    public void virtualhostsShareTheCandidatesOfThePool() {
+        Rule rule = newRule("rule0", BackendPool.class.getSimpleName(), "pool0");
+        virtualhost.addEntity(rule);
+        Virtualhost other = new Virtualhost(new JsonObject().putString(IJsonable.ID_FIELDNAME, "other.localdomain"));
+        farm.addEntity(other);
+        Rule otherRule = newRule("rule1", BackendPool.class.getSimpleName(), "pool0");
+        other.addEntity(otherRule);
+        backendPool.addEntity(new Backend(new JsonObject().putString(IJsonable.ID_FIELDNAME, "127.0.0.1:8080")));
+
+        CandidateSet<IBackend> candidates = virtualhost.getRouteSnapshot().getPoolRoute(rule).getCandidates();
+        assertThat(other.getRouteSnapshot().getPoolRoute(otherRule).getCandidates()).isSameAs(candidates);
+
+        virtualhost.addEntity(newRule("rule2", HttpCode.class.getSimpleName(), "200"));
+        assertThat(virtualhost.getRouteSnapshot().getPoolRoute(rule).getCandidates()).isSameAs(candidates);
+        assertThat(backendPool.getCandidates()).isSameAs(candidates);
+
+        backendPool.addEntity(new Backend(new JsonObject().putString(IJsonable.ID_FIELDNAME, "127.0.0.1:8081")));
+        CandidateSet<IBackend> rebuilt = backendPool.getCandidates();
+        assertThat(rebuilt).isNotSameAs(candidates);
+        assertThat(rebuilt.size()).isEqualTo(2);
+        assertThat(other.getRouteSnapshot().getPoolRoute(otherRule).getCandidates()).isSameAs(rebuilt);
+    }
+
+}
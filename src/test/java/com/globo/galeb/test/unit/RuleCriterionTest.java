@@ -16,6 +16,8 @@ package com.globo.galeb.test.unit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import com.globo.galeb.criteria.impl.RuleIndex;
+import com.globo.galeb.criteria.impl.RulesCriterion;
 import com.globo.galeb.entity.IJsonable;
 import com.globo.galeb.entity.impl.frontend.NullRule;
 import com.globo.galeb.entity.impl.frontend.Rule;
@@ -55,4 +57,42 @@ public class RuleCriterionTest {
         assertThat(rule).isEqualTo(expectedRule);
     }
 
+    @Test
+    public void lookupReadsPublishedTable() {
+        RulesCriterion criterion = (RulesCriterion) virtualhost.getCriterion();
+        RuleIndex ruleTable = criterion.getRuleTable();
+
+        criterion.thenGetResult();
+        criterion.thenGetResult();
+
+        assertThat(criterion.getRuleTable()).isSameAs(ruleTable);
+        assertThat(ruleTable.size()).isEqualTo(numRules);
+    }
+
+    @Test
+    public void ruleChangePublishesNewVersion() {
+        RulesCriterion criterion = (RulesCriterion) virtualhost.getCriterion();
+        RuleIndex before = criterion.getRuleTable();
+
+        virtualhost.removeEntity("5");
+        RuleIndex after = criterion.getRuleTable();
+
+        assertThat(after.getVersion()).isGreaterThan(before.getVersion());
+        assertThat(after.size()).isEqualTo(numRules-1);
+        assertThat(after.getRuleDefault()).isNull();
+        assertThat(before.size()).isEqualTo(numRules);
+
+        virtualhost.clearEntities();
+        assertThat(criterion.getRuleTable().size()).isEqualTo(0);
+    }
+
+    @Test
+    public void givenDoesNotGrowTable() {
+        for (int x=0; x<3; x++) {
+            virtualhost.setCriterion(virtualhost.getCriterion());
+        }
+
+        assertThat(((RulesCriterion) virtualhost.getCriterion()).getRuleTable().size()).isEqualTo(numRules);
+    }
+
 }
@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.test.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+import org.vertx.java.core.http.CaseInsensitiveMultiMap;
+import org.vertx.java.core.http.HttpServerRequest;
+import org.vertx.java.core.json.JsonObject;
+import org.vertx.java.core.logging.impl.LogDelegate;
+
+import com.globo.galeb.criteria.impl.RequestMatch;
+import com.globo.galeb.criteria.impl.RuleIndex;
+import com.globo.galeb.criteria.impl.UriPathRegexSet;
+import com.globo.galeb.criteria.impl.UriPathTrie;
+import com.globo.galeb.entity.IJsonable;
+import com.globo.galeb.entity.impl.frontend.Rule;
+import com.globo.galeb.entity.impl.frontend.UriPath;
+import com.globo.galeb.entity.impl.frontend.UriPathRegex;
+import com.globo.galeb.logger.SafeLogger;
+import com.globo.galeb.test.unit.util.FakeLogger;
+
+public class RuleIndexTest {
+
+    private final SafeLogger log = newLogger();
+
+    private SafeLogger newLogger() {
+        FakeLogger logger = new FakeLogger(mock(LogDelegate.class));
+        logger.setQuiet(true);
+        return new SafeLogger().setLogger(logger);
+    }
+
+    private Rule newRule(Rule rule, int orderNum, boolean ruleDefault) {
+        rule.setPriorityOrder(orderNum);
+        rule.setRuleDefault(ruleDefault);
+        rule.setLogger(log);
+        return rule;
+    }
+
+    private Rule uriPath(String id, String match, int orderNum) {
+        return newRule(new UriPath(new JsonObject().putString(IJsonable.ID_FIELDNAME, id)
+                .putObject(IJsonable.PROPERTIES_FIELDNAME, new JsonObject().putString(Rule.MATCH_FIELDNAME, match))),
+                orderNum, false);
+    }
+
+    private Rule uriPathRegex(String id, String match, int orderNum) {
+        return newRule(new UriPathRegex(new JsonObject().putString(IJsonable.ID_FIELDNAME, id)
+                .putObject(IJsonable.PROPERTIES_FIELDNAME, new JsonObject().putString(Rule.MATCH_FIELDNAME, match))),
+                orderNum, false);
+    }
+
+    private RequestMatch requestMatch(String path) {
+        HttpServerRequest httpServerRequest = mock(HttpServerRequest.class);
+        when(httpServerRequest.absoluteURI()).thenReturn(URI.create("http://test.localdomain"+path));
+        when(httpServerRequest.headers()).thenReturn(new CaseInsensitiveMultiMap());
+        when(httpServerRequest.params()).thenReturn(new CaseInsensitiveMultiMap());
+        when(httpServerRequest.remoteAddress()).thenReturn(InetSocketAddress.createUnresolved("127.0.0.1", 0));
+        return new RequestMatch(httpServerRequest);
+    }
+
+    private Rule linearMatch(List<Rule> rules, RequestMatch requestMatch) {
+        List<Rule> ruleList = new ArrayList<>(rules);
+        Collections.sort(ruleList, new Comparator<Rule>() {
+            @Override
+            public int compare(Rule r1, Rule r2) {
+                return r1.getPriorityOrder()-r2.getPriorityOrder();
+            }
+        });
+        for (Rule rule: ruleList) {
+            if (rule.isMatchWith(requestMatch)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void trieReturnsLowestPositionAmongPrefixes() {
+        UriPathTrie trie = new UriPathTrie().put("/api", 3)
+                                            .put("/api/v1", 1)
+                                            .put("/apix", 0)
+                                            .put("/a", 5)
+                                            .put("/api", 2);
+
+        assertThat(trie.size()).isEqualTo(4);
+        assertThat(trie.find("/api/v1/users")).isEqualTo(1);
+        assertThat(trie.find("/api/v2")).isEqualTo(2);
+        assertThat(trie.find("/apix")).isEqualTo(0);
+        assertThat(trie.find("/ap")).isEqualTo(5);
+        assertThat(trie.find("/b")).isEqualTo(UriPathTrie.NOT_FOUND);
+        assertThat(trie.find("")).isEqualTo(UriPathTrie.NOT_FOUND);
+    }
+
+    @Test
+    public void priorityWinsOverLongestPrefix() {
+        List<Rule> rules = new ArrayList<>();
+        rules.add(uriPath("root", "/", 10));
+        rules.add(uriPath("api", "/api", 20));
+        rules.add(uriPath("static", "/static", 1));
+
+        RuleIndex ruleIndex = new RuleIndex(rules);
+
+        assertThat(ruleIndex.match(requestMatch("/api/users")).getId()).isEqualTo("root");
+        assertThat(ruleIndex.match(requestMatch("/static/a.css")).getId()).isEqualTo("static");
+        assertThat(ruleIndex.getIndexedSize()).isEqualTo(3);
+    }
+
+    @Test
+    public void regexRulesAreCheckedInPriorityOrder() {
+        List<Rule> rules = new ArrayList<>();
+        rules.add(uriPath("api", "/api", 20));
+        rules.add(uriPathRegex("images", "^/api/.*\\.png$", 10));
+        rules.add(uriPathRegex("late", "^/.*$", 30));
+        Rule ruleDefault = uriPath("default", "/nomatch", 40).setRuleDefault(true);
+        rules.add(ruleDefault);
+
+        RuleIndex ruleIndex = new RuleIndex(rules);
+
+        assertThat(ruleIndex.match(requestMatch("/api/a.png")).getId()).isEqualTo("images");
+        assertThat(ruleIndex.match(requestMatch("/api/a.css")).getId()).isEqualTo("api");
+        assertThat(ruleIndex.match(requestMatch("/other")).getId()).isEqualTo("late");
+        assertThat(ruleIndex.getRuleDefault()).isSameAs(ruleDefault);
+    }
+
+    @Test
+    public void sameResultAsOrderedList() {
+        Random random = new Random(42L);
+        String[] segments = new String[] {"api", "v1", "v2", "users", "static", "img", "a", "ab"};
+        List<Rule> rules = new ArrayList<>();
+        for (int x=0; x<300; x++) {
+            StringBuilder match = new StringBuilder();
+            int depth = 1 + random.nextInt(3);
+            for (int d=0; d<depth; d++) {
+                match.append('/').append(segments[random.nextInt(segments.length)]);
+            }
+            if (x%10==0) {
+                rules.add(uriPathRegex(Integer.toString(x), "^"+match+"/[0-9]+$", random.nextInt(100)));
+            } else {
+                rules.add(uriPath(Integer.toString(x), match.toString(), random.nextInt(100)));
+            }
+        }
+        RuleIndex ruleIndex = new RuleIndex(rules);
+
+        for (int x=0; x<2000; x++) {
+            StringBuilder path = new StringBuilder();
+            int depth = 1 + random.nextInt(4);
+            for (int d=0; d<depth; d++) {
+                path.append('/').append(random.nextBoolean() ? segments[random.nextInt(segments.length)]
+                                                             : Integer.toString(random.nextInt(10)));
+            }
+            RequestMatch requestMatch = requestMatch(path.toString());
+            assertThat(ruleIndex.match(requestMatch)).isSameAs(linearMatch(rules, requestMatch));
+        }
+    }
+
+    @Test
+    public void lookupBenchmark() {
+        int samples = 100000;
+        for (int numRules = 10; numRules <= 10000; numRules *= 10) {
+            String[] prefixes = new String[numRules];
+            List<Rule> rules = new ArrayList<>();
+            for (int x=0; x<numRules; x++) {
+                prefixes[x] = String.format("/service%d/resource", x);
+                rules.add(uriPath(Integer.toString(x), prefixes[x], x));
+            }
+            RuleIndex ruleIndex = new RuleIndex(rules);
+            RequestMatch requestMatch = requestMatch(String.format("/service%d/resource/1", numRules-1));
+            String uriPath = requestMatch.getUriPath();
+
+            long initialTime = System.nanoTime();
+            int linearFound = 0;
+            for (int i = 0; i < samples; i++) {
+                for (int pos = 0; pos < numRules; pos++) {
+                    if (uriPath.startsWith(prefixes[pos])) {
+                        linearFound++;
+                        break;
+                    }
+                }
+            }
+            long linearTime = System.nanoTime() - initialTime;
+
+            initialTime = System.nanoTime();
+            int indexFound = 0;
+            for (int i = 0; i < samples; i++) {
+                if (ruleIndex.match(requestMatch)!=null) {
+                    indexFound++;
+                }
+            }
+            long indexTime = System.nanoTime() - initialTime;
+
+            System.out.println(String.format("RuleIndexTest.lookupBenchmark - %d rules, %d samples. Ordered list (ns/op): %d. RuleIndex (ns/op): %d",
+                    numRules, samples, linearTime / samples, indexTime / samples));
+
+            assertThat(linearFound).isEqualTo(samples);
+            assertThat(indexFound).isEqualTo(samples);
+            samples = Math.max(samples / 10, 1000);
+        }
+    }
+
+    @Test
+    public void regexSetReturnsBestRankInOneMatch() {
+        List<Pattern> patterns = new ArrayList<>();
+        patterns.add(Pattern.compile("/(a+)(b)/x"));
+        patterns.add(Pattern.compile("/(a)\\1/.*"));
+        patterns.add(Pattern.compile("/a.*"));
+        patterns.add(null);
+        patterns.add(Pattern.compile("/(?<name>b)/.*"));
+        patterns.add(Pattern.compile("/.*"));
+
+        UriPathRegexSet regexSet = new UriPathRegexSet(patterns, new int[] {1, 3, 4, 5, 7, 9});
+
+        assertThat(regexSet.getMergedSize()).isEqualTo(4);
+        assertThat(regexSet.getSinglesSize()).isEqualTo(1);
+        assertThat(regexSet.find("/aab/x")).isEqualTo(1);
+        assertThat(regexSet.find("/aa/y")).isEqualTo(3);
+        assertThat(regexSet.find("/ab/y")).isEqualTo(4);
+        assertThat(regexSet.find("/b/y")).isEqualTo(7);
+        assertThat(regexSet.find("/c")).isEqualTo(9);
+        assertThat(regexSet.find("c")).isEqualTo(UriPathTrie.NOT_FOUND);
+        assertThat(regexSet.find("/c", 2)).isEqualTo(2);
+    }
+
+    @Test
+    public void regexIsCompiledOnce() {
+        UriPathRegex rule = (UriPathRegex) uriPathRegex("regex", "/[0-9]+", 1);
+        Pattern pattern = rule.getPattern();
+
+        assertThat(rule.isMatchWith(requestMatch("/123"))).isTrue();
+        assertThat(rule.getPattern()).isSameAs(pattern);
+
+        rule.setMatch("/[a-z]+");
+        assertThat(rule.isMatchWith(requestMatch("/abc"))).isTrue();
+        assertThat(rule.isMatchWith(requestMatch("/123"))).isFalse();
+
+        rule.setMatch("/[0-9");
+        assertThat(rule.getPattern()).isNull();
+        assertThat(rule.isMatchWith(requestMatch("/123"))).isFalse();
+    }
+
+    @Test
+    public void regexLookupBenchmark() {
+        int samples = 10000;
+        for (int numRules = 10; numRules <= 1000; numRules *= 10) {
+            String[] regexes = new String[numRules];
+            List<Rule> rules = new ArrayList<>();
+            for (int x=0; x<numRules; x++) {
+                regexes[x] = String.format("^/service%d/[a-z]+/[0-9]+$", x);
+                rules.add(uriPathRegex(Integer.toString(x), regexes[x], x));
+            }
+            RuleIndex ruleIndex = new RuleIndex(rules);
+            RequestMatch requestMatch = requestMatch(String.format("/service%d/resource/1", numRules-1));
+            String uriPath = requestMatch.getUriPath();
+
+            long initialTime = System.nanoTime();
+            int perRequestFound = 0;
+            for (int i = 0; i < samples; i++) {
+                for (int pos = 0; pos < numRules; pos++) {
+                    if (uriPath.matches(regexes[pos])) {
+                        perRequestFound++;
+                        break;
+                    }
+                }
+            }
+            long perRequestTime = System.nanoTime() - initialTime;
+
+            initialTime = System.nanoTime();
+            int indexFound = 0;
+            for (int i = 0; i < samples; i++) {
+                if (ruleIndex.match(requestMatch)!=null) {
+                    indexFound++;
+                }
+            }
+            long indexTime = System.nanoTime() - initialTime;
+
+            System.out.println(String.format("RuleIndexTest.regexLookupBenchmark - %d rules, %d samples. Compiled per request (ns/op): %d. RuleIndex (ns/op): %d",
+                    numRules, samples, perRequestTime / samples, indexTime / samples));
+
+            assertThat(perRequestFound).isEqualTo(samples);
+            assertThat(indexFound).isEqualTo(samples);
+            samples = Math.max(samples / 10, 100);
+        }
+    }
+
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.test.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.vertx.java.core.http.CaseInsensitiveMultiMap;
+import org.vertx.java.core.http.HttpServerRequest;
+import org.vertx.java.core.json.JsonObject;
+
+import com.globo.galeb.criteria.CandidateSet;
+import com.globo.galeb.criteria.ISelectionCriterion;
+import com.globo.galeb.criteria.LoadBalanceCriterionFactory;
+import com.globo.galeb.criteria.impl.HostHeaderCriterion;
+import com.globo.galeb.criteria.impl.IPHashCriterion;
+import com.globo.galeb.criteria.impl.LeastConnCriterion;
+import com.globo.galeb.criteria.impl.RandomCriterion;
+import com.globo.galeb.criteria.impl.RoundRobinCriterion;
+import com.globo.galeb.criteria.impl.RulesCriterion;
+import com.globo.galeb.entity.IJsonable;
+import com.globo.galeb.entity.impl.backend.IBackend;
+import com.globo.galeb.entity.impl.frontend.NullRule;
+import com.globo.galeb.entity.impl.frontend.Rule;
+import com.globo.galeb.entity.impl.frontend.UriPath;
+import com.globo.galeb.request.RequestView;
+
+public class SelectionCriterionTest {
+
+    private RequestView requestView(String host, String path, String remoteAddress) {
+        HttpServerRequest httpServerRequest = mock(HttpServerRequest.class);
+        when(httpServerRequest.headers()).thenReturn(new CaseInsensitiveMultiMap().add("Host", host));
+        when(httpServerRequest.path()).thenReturn(path);
+        when(httpServerRequest.remoteAddress()).thenReturn(new InetSocketAddress(remoteAddress, 1234));
+        return new RequestView(httpServerRequest);
+    }
+
+    private Map<String, String> candidates(String prefix, int size) {
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int x=0; x<size; x++) {
+            map.put(prefix+x, prefix+x);
+        }
+        return map;
+    }
+
+    private IBackend backend(int activeConnections) {
+        IBackend backend = mock(IBackend.class);
+        when(backend.getActiveConnections()).thenReturn(activeConnections);
+        return backend;
+    }
+
+    @Test
+    public void poolsSharingACriterionDoNotShareState() {
+        ISelectionCriterion<String> roundRobin = new RoundRobinCriterion<>();
+        CandidateSet<String> pool1 = roundRobin.prepare(candidates("a", 3), new JsonObject());
+        CandidateSet<String> pool2 = roundRobin.prepare(candidates("b", 2), new JsonObject());
+        RequestView requestView = requestView("test.localdomain", "/", "10.0.0.1");
+
+        assertThat(roundRobin.select(pool1, requestView)).isEqualTo("a0");
+        assertThat(roundRobin.select(pool2, requestView)).isEqualTo("b0");
+        assertThat(roundRobin.select(pool1, requestView)).isEqualTo("a1");
+        assertThat(roundRobin.select(pool1, requestView)).isEqualTo("a2");
+        assertThat(roundRobin.select(pool2, requestView)).isEqualTo("b1");
+        assertThat(roundRobin.select(pool1, requestView)).isEqualTo("a0");
+        assertThat(roundRobin.select(pool2, requestView)).isEqualTo("b0");
+    }
+
+    @Test
+    public void emptyCandidatesSelectNothing() {
+        RequestView requestView = requestView("test.localdomain", "/", "10.0.0.1");
+
+        assertThat(new RandomCriterion<String>().select(new CandidateSet<String>(), requestView)).isNull();
+        ISelectionCriterion<String> roundRobin = new RoundRobinCriterion<>();
+        assertThat(roundRobin.select(roundRobin.prepare(null, null), requestView)).isNull();
+        ISelectionCriterion<String> ipHash = new IPHashCriterion<>();
+        assertThat(ipHash.select(ipHash.prepare(new HashMap<String, String>(), null), requestView)).isNull();
+    }
+
+    @Test
+    public void selectionsReadOnlyTheRequestView() {
+        ISelectionCriterion<String> ipHash = new IPHashCriterion<>();
+        CandidateSet<String> ring = ipHash.prepare(candidates("backend", 10), new JsonObject());
+        String chosen = ipHash.select(ring, requestView("test.localdomain", "/", "10.0.0.1"));
+        for (int x=0; x<10; x++) {
+            ipHash.select(ring, requestView("test.localdomain", "/", "10.0.0."+(x+2)));
+            assertThat(ipHash.select(ring, requestView("test.localdomain", "/", "10.0.0.1"))).isEqualTo(chosen);
+        }
+
+        ISelectionCriterion<String> random = new RandomCriterion<>();
+        CandidateSet<String> pool = random.prepare(candidates("backend", 10), new JsonObject());
+        for (int x=0; x<100; x++) {
+            assertThat(random.select(pool, null)).startsWith("backend");
+        }
+    }
+
+    @Test
+    public void leastConnChoosesTheIdlestBackend() {
+        Map<String, IBackend> backends = new HashMap<>();
+        IBackend idlest = backend(1);
+        backends.put("0", backend(5));
+        backends.put("1", idlest);
+        backends.put("2", backend(3));
+        ISelectionCriterion<IBackend> leastConn = new LeastConnCriterion<>();
+
+        assertThat(leastConn.select(leastConn.prepare(backends, new JsonObject()), null)).isSameAs(idlest);
+    }
+
+    @Test
+    public void leastConnFollowsConnectAndClose() {
+        Map<String, IBackend> backends = new HashMap<>();
+        IBackend backend1 = backend(0);
+        IBackend backend2 = backend(1);
+        backends.put("1", backend1);
+        backends.put("2", backend2);
+        ISelectionCriterion<IBackend> leastConn = new LeastConnCriterion<>();
+        LeastConnCriterion.Buckets<IBackend> buckets =
+                (LeastConnCriterion.Buckets<IBackend>) leastConn.prepare(backends, new JsonObject());
+
+        assertThat(leastConn.select(buckets, null)).isSameAs(backend1);
+
+        when(backend1.getActiveConnections()).thenReturn(2);
+        buckets.update(backend1);
+        assertThat(buckets.getLoad(backend1)).isEqualTo(2);
+        assertThat(leastConn.select(buckets, null)).isSameAs(backend2);
+
+        when(backend1.getActiveConnections()).thenReturn(0);
+        buckets.update(backend1);
+        assertThat(leastConn.select(buckets, null)).isSameAs(backend1);
+    }
+
+    @Test
+    public void leastConnBreaksTiesRandomly() {
+        Map<String, IBackend> backends = new HashMap<>();
+        for (int x=0; x<4; x++) {
+            backends.put(String.valueOf(x), backend(0));
+        }
+        backends.put("busy", backend(10));
+        ISelectionCriterion<IBackend> leastConn = new LeastConnCriterion<>();
+        CandidateSet<IBackend> buckets = leastConn.prepare(backends, new JsonObject());
+
+        Map<IBackend, Integer> choices = new IdentityHashMap<>();
+        for (int x=0; x<1000; x++) {
+            IBackend backend = leastConn.select(buckets, null);
+            Integer count = choices.get(backend);
+            choices.put(backend, count!=null ? count+1 : 1);
+        }
+
+        assertThat(choices).hasSize(4);
+        assertThat(choices).doesNotContainKey(backends.get("busy"));
+    }
+
+    @Test
+    public void hostHeaderAndRulesSelectFromTheirIndexes() {
+        Map<String, String> virtualhosts = new HashMap<>();
+        virtualhosts.put("test.localdomain", "vhost1");
+        virtualhosts.put("*.example.com", "vhost2");
+        ISelectionCriterion<String> hostHeader = new HostHeaderCriterion<>();
+        CandidateSet<String> hosts = hostHeader.prepare(virtualhosts, new JsonObject());
+
+        assertThat(hostHeader.select(hosts, requestView("TEST.localdomain:80", "/", "10.0.0.1"))).isEqualTo("vhost1");
+        assertThat(hostHeader.select(hosts, requestView("www.example.com", "/", "10.0.0.1"))).isEqualTo("vhost2");
+        assertThat(hostHeader.select(hosts, requestView("other", "/", "10.0.0.1"))).isNull();
+
+        Rule api = new UriPath(new JsonObject().putString(IJsonable.ID_FIELDNAME, "api")
+                .putObject(IJsonable.PROPERTIES_FIELDNAME, new JsonObject().putString(Rule.MATCH_FIELDNAME, "/api")));
+        Map<String, Rule> rules = new HashMap<>();
+        rules.put(api.getId(), api);
+        ISelectionCriterion<Rule> rulesCriterion = new RulesCriterion();
+        CandidateSet<Rule> ruleSet = rulesCriterion.prepare(rules, new JsonObject());
+
+        assertThat(rulesCriterion.select(ruleSet, requestView("test.localdomain", "/api/users", "10.0.0.1"))).isSameAs(api);
+        assertThat(rulesCriterion.select(ruleSet, requestView("test.localdomain", "/other", "10.0.0.1"))).isInstanceOf(NullRule.class);
+    }
+
+    @Test
+    public void factoryNeverSharesInstances() {
+        String policy = RoundRobinCriterion.class.getSimpleName().replaceAll(LoadBalanceCriterionFactory.CLASS_SUFFIX, "");
+
+        assertThat(LoadBalanceCriterionFactory.create(policy)).isNotSameAs(LoadBalanceCriterionFactory.create(policy));
+        assertThat(LoadBalanceCriterionFactory.newSelectionInstance(policy)).isInstanceOf(RoundRobinCriterion.class);
+        assertThat(LoadBalanceCriterionFactory.newSelectionInstance("NotExist")).isInstanceOf(RandomCriterion.class);
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.test.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.http.HttpClient;
+import org.vertx.java.core.impl.DefaultVertx;
+import org.vertx.java.core.json.JsonObject;
+
+import com.globo.galeb.entity.IJsonable;
+import com.globo.galeb.entity.impl.backend.BackendSession;
+import com.globo.galeb.entity.impl.backend.BackendWithoutSessionPool;
+import com.globo.galeb.entity.impl.backend.IBackend;
+import com.globo.galeb.entity.impl.backend.SessionIdleList;
+import com.globo.galeb.metrics.ICounter;
+import com.globo.galeb.request.RemoteUser;
+import com.globo.galeb.test.unit.util.MockVertx;
+
+public class SessionIdleListTest {
+
+    private DefaultVertx vertx;
+    private SessionIdleList idleList;
+
+    @Before
+    public void setUp() {
+        idleList = new SessionIdleList();
+        vertx = MockVertx.newVertx();
+    }
+
+    private BackendSession newSession(String id) {
+        return new BackendSession(new JsonObject().putString(IJsonable.ID_FIELDNAME, id));
+    }
+
+    @Test
+    public void expiresInLastUseOrder() {
+        BackendSession session1 = newSession("10.0.0.1:1000");
+        BackendSession session2 = newSession("10.0.0.2:2000");
+        BackendSession session3 = newSession("10.0.0.3:3000");
+
+        idleList.addLast(session1, 100L);
+        idleList.addLast(session2, 200L);
+        idleList.addLast(session3, 300L);
+        idleList.addLast(session1, 400L);
+
+        assertThat(idleList.size()).isEqualTo(3);
+        assertThat(idleList.pollExpired(350L, 100L)).isSameAs(session2);
+        assertThat(idleList.pollExpired(350L, 100L)).isNull();
+        assertThat(idleList.pollExpired(1000L, 100L)).isSameAs(session3);
+        assertThat(idleList.pollExpired(1000L, 100L)).isSameAs(session1);
+        assertThat(idleList.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void removeUnlinksAnyPosition() {
+        BackendSession session1 = newSession("10.0.0.1:1000");
+        BackendSession session2 = newSession("10.0.0.2:2000");
+        BackendSession session3 = newSession("10.0.0.3:3000");
+
+        idleList.addLast(session1, 100L);
+        idleList.addLast(session2, 200L);
+        idleList.addLast(session3, 300L);
+        idleList.remove(session2);
+        idleList.remove(session2);
+
+        assertThat(idleList.size()).isEqualTo(2);
+        assertThat(idleList.pollExpired(1000L, 0L)).isSameAs(session1);
+        assertThat(idleList.pollExpired(1000L, 0L)).isSameAs(session3);
+        assertThat(idleList.pollExpired(1000L, 0L)).isNull();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void backendEvictsOnlySessionsWithoutRequestsInFlight() throws InterruptedException {
+        BackendWithoutSessionPool backend = new BackendWithoutSessionPool(new JsonObject()
+                .putString(IJsonable.ID_FIELDNAME, "127.0.0.1:8080")
+                .putObject(IJsonable.PROPERTIES_FIELDNAME, new JsonObject()
+                        .putNumber(IBackend.KEEPALIVE_IDLE_TIMEOUT_FIELDNAME, 1L)));
+        ICounter counter = mock(ICounter.class);
+        backend.setCounter(counter);
+        backend.setPlataform(vertx);
+
+        RemoteUser remoteUser1 = new RemoteUser("10.0.0.1", 1000);
+        RemoteUser remoteUser2 = new RemoteUser("10.0.0.2", 2000);
+        HttpClient httpClient1 = backend.connect(remoteUser1);
+        HttpClient httpClient2 = backend.connect(remoteUser2);
+        backend.release(remoteUser1, httpClient1, true);
+
+        Thread.sleep(10L);
+
+        ArgumentCaptor<Handler> periodicHandlers = ArgumentCaptor.forClass(Handler.class);
+        verify(vertx, atLeastOnce()).setPeriodic(anyLong(), periodicHandlers.capture());
+        for (Handler<Long> periodicHandler: periodicHandlers.getAllValues()) {
+            periodicHandler.handle(0L);
+        }
+
+        verify(httpClient1).close();
+        verify(httpClient2, never()).close();
+        assertThat(backend.getEntities()).hasSize(1);
+        verify(counter).sendSessionCleanup("127_0_0_1_8080", 1L, 1L);
+    }
+
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.globo.galeb.test.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.VertxFactory;
+
+import com.globo.galeb.scheduler.IScheduler;
+import com.globo.galeb.scheduler.ISchedulerHandler;
+import com.globo.galeb.scheduler.impl.HashedTimingWheel;
+import com.globo.galeb.scheduler.impl.TimingWheelScheduler;
+import com.globo.galeb.scheduler.impl.VertxDelayScheduler;
+
+public class TimingWheelSchedulerTest {
+
+    private static final long TICK = 10L;
+    private static final int TICKS_PER_WHEEL = 64;
+
+    private HashedTimingWheel wheel;
+    private int fired;
+    private int canceled;
+
+    private final ISchedulerHandler countHandler = new ISchedulerHandler() {
+        @Override
+        public void handle() {
+            fired++;
+        }
+    };
+
+    @Before
+    public void setUp() {
+        wheel = new HashedTimingWheel(null, TICK, TICKS_PER_WHEEL).start();
+        fired = 0;
+        canceled = 0;
+    }
+
+    private long now() {
+        return System.currentTimeMillis();
+    }
+
+    @Test
+    public void firesOnlyAfterDeadline() {
+        new TimingWheelScheduler(wheel).setHandler(countHandler).setPeriod(100L).start();
+
+        wheel.tick(now());
+        assertThat(fired).isEqualTo(0);
+        assertThat(wheel.size()).isEqualTo(1);
+
+        assertThat(wheel.tick(now() + 100L + TICK)).isEqualTo(1);
+        assertThat(fired).isEqualTo(1);
+        assertThat(wheel.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void cancelPreventsFiring() {
+        IScheduler scheduler = new TimingWheelScheduler(wheel).setHandler(countHandler)
+                .setPeriod(50L)
+                .cancelHandler(new Handler<Void>() {
+                    @Override
+                    public void handle(Void event) {
+                        canceled++;
+                    }
+                })
+                .start();
+
+        scheduler.cancel();
+        wheel.tick(now() + 1000L);
+
+        assertThat(fired).isEqualTo(0);
+        assertThat(canceled).isEqualTo(1);
+        assertThat(wheel.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void cancelAfterExpireIsCancelFailed() {
+        final int[] cancelFailed = {0};
+        IScheduler scheduler = new TimingWheelScheduler(wheel).setHandler(countHandler)
+                .setPeriod(20L)
+                .cancelFailedHandler(new Handler<Void>() {
+                    @Override
+                    public void handle(Void event) {
+                        cancelFailed[0]++;
+                    }
+                })
+                .start();
+
+        wheel.tick(now() + 100L);
+        scheduler.cancel();
+
+        assertThat(fired).isEqualTo(1);
+        assertThat(cancelFailed[0]).isEqualTo(0);
+    }
+
+    @Test
+    public void deadlineBeyondWheelSizeUsesRounds() {
+        long delay = TICK * TICKS_PER_WHEEL * 3;
+        new TimingWheelScheduler(wheel).setHandler(countHandler).setPeriod(delay).start();
+
+        wheel.tick(now() + TICK * TICKS_PER_WHEEL);
+        assertThat(fired).isEqualTo(0);
+        wheel.tick(now() + TICK * TICKS_PER_WHEEL * 2);
+        assertThat(fired).isEqualTo(0);
+
+        wheel.tick(now() + delay + TICK);
+        assertThat(fired).isEqualTo(1);
+    }
+
+    @Test
+    public void restartReschedules() {
+        TimingWheelScheduler scheduler = new TimingWheelScheduler(wheel);
+        scheduler.setHandler(countHandler).setPeriod(20L).start();
+        scheduler.setPeriod(5000L).start();
+
+        assertThat(wheel.size()).isEqualTo(1);
+        wheel.tick(now() + 1000L);
+        assertThat(fired).isEqualTo(0);
+        assertThat(scheduler.isScheduled()).isTrue();
+
+        wheel.tick(now() + 6000L);
+        assertThat(fired).isEqualTo(1);
+        assertThat(scheduler.isScheduled()).isFalse();
+    }
+
+    @Test
+    public void handlerMayRescheduleItself() {
+        final TimingWheelScheduler scheduler = new TimingWheelScheduler(wheel);
+        scheduler.setHandler(new ISchedulerHandler() {
+            @Override
+            public void handle() {
+                if (++fired < 3) {
+                    scheduler.start();
+                }
+            }
+        }).setPeriod(TICK).start();
+
+        long now = now();
+        for (int i = 1; i < 10; i++) {
+            wheel.tick(now + i * TICK * 2);
+        }
+        assertThat(fired).isGreaterThanOrEqualTo(1);
+        assertThat(wheel.size()).isLessThanOrEqualTo(1);
+    }
+
+    @Test
+    public void manySchedulersAndCancels() {
+        int total = 10000;
+        TimingWheelScheduler[] schedulers = new TimingWheelScheduler[total];
+        for (int i = 0; i < total; i++) {
+            schedulers[i] = new TimingWheelScheduler(wheel);
+            schedulers[i].setHandler(countHandler).setPeriod((long) (i % 2000)).start();
+        }
+        assertThat(wheel.size()).isEqualTo(total);
+
+        for (int i = 0; i < total; i += 2) {
+            schedulers[i].cancel();
+        }
+        assertThat(wheel.size()).isEqualTo(total / 2);
+
+        wheel.tick(now() + 3000L);
+        assertThat(fired).isEqualTo(total / 2);
+        assertThat(wheel.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void startCancelThroughput() {
+        int samples = 100000;
+        // Scheduling from a non Vert.x thread binds a context to it, which replaces
+        // the thread context classloader. Restore it for the tests that run next.
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        Vertx vertx = VertxFactory.newVertx();
+
+        IScheduler vertxScheduler = new VertxDelayScheduler(vertx).setHandler(countHandler).setPeriod(60000L);
+        IScheduler wheelScheduler = new TimingWheelScheduler(wheel).setHandler(countHandler).setPeriod(60000L);
+
+        try {
+            runStartCancelRounds(samples, vertxScheduler, wheelScheduler);
+        } finally {
+            vertx.stop();
+            Thread.currentThread().setContextClassLoader(contextClassLoader);
+        }
+
+        assertThat(fired).isEqualTo(0);
+        assertThat(wheel.size()).isEqualTo(0);
+    }
+
+    private void runStartCancelRounds(int samples, IScheduler vertxScheduler, IScheduler wheelScheduler) {
+        for (int round = 0; round < 3; round++) {
+            long initialTime = System.currentTimeMillis();
+            for (int i = 0; i < samples; i++) {
+                vertxScheduler.start();
+                vertxScheduler.cancel();
+            }
+            long vertxTime = System.currentTimeMillis() - initialTime;
+
+            initialTime = System.currentTimeMillis();
+            for (int i = 0; i < samples; i++) {
+                wheelScheduler.start();
+                wheelScheduler.cancel();
+            }
+            long wheelTime = System.currentTimeMillis() - initialTime;
+
+            System.out.println(String.format("TimingWheelSchedulerTest.startCancelThroughput - round %d: %d samples. VertxDelayScheduler (ms): %d. TimingWheelScheduler (ms): %d",
+                    round + 1, samples, vertxTime, wheelTime));
+        }
+    }
+
+}
@@ -6,6 +6,7 @@ import static org.mockito.Mockito.when;
 import static org.mockito.Matchers.*;
 
 import org.junit.Test;
+import org.vertx.java.core.json.JsonArray;
 import org.vertx.java.core.json.JsonObject;
 import com.globo.galeb.bus.IQueueService;
 import com.globo.galeb.entity.IJsonable;
@@ -14,6 +15,7 @@ import com.globo.galeb.entity.impl.frontend.Rule;
 import com.globo.galeb.entity.impl.frontend.Virtualhost;
 import com.globo.galeb.logger.SafeLogger;
 import com.globo.galeb.metrics.ICounter;
+import com.globo.galeb.scheduler.impl.MaintenanceScheduler;
 
 public class VirtualhostTest {
 
@@ -66,6 +68,20 @@ public class VirtualhostTest {
         assertThat(virtualserver1).isNotEqualTo(virtualserver2);
     }
 
+    @Test
+    public void getAliasesIgnoresInvalidEntries() {
+        Virtualhost virtualserver2 = new Virtualhost(new JsonObject()
+                .putString(IJsonable.ID_FIELDNAME, "test.localdomain")
+                .putObject(IJsonable.PROPERTIES_FIELDNAME, new JsonObject()
+                        .putArray(Virtualhost.ALIASES_FIELDNAME, new JsonArray()
+                                .addString("www.localdomain")
+                                .addString("")
+                                .addNumber(1))));
+
+        assertThat(virtualserver2.getAliases()).containsExactly("www.localdomain");
+        assertThat(virtualserver.getAliases()).isEmpty();
+    }
+
     private boolean createRule(String ruleId, final Virtualhost virtualserver) {
         Rule rule = mock(Rule.class);
 
@@ -75,6 +91,7 @@ public class VirtualhostTest {
         when(rule.setFarm((Farm) anyObject())).thenReturn(rule);
         when(rule.setPlataform(anyObject())).thenReturn(rule);
         when(rule.setStaticConf((JsonObject) anyObject())).thenReturn(rule);
+        when(rule.setMaintenanceScheduler((MaintenanceScheduler) anyObject())).thenReturn(rule);
         when(rule.getId()).thenReturn(ruleId);
 
         return virtualserver.addEntity(rule);
@@ -108,6 +125,7 @@ public class VirtualhostTest {
         when(rule.setFarm((Farm) anyObject())).thenReturn(rule);
         when(rule.setPlataform(anyObject())).thenReturn(rule);
         when(rule.setStaticConf((JsonObject) anyObject())).thenReturn(rule);
+        when(rule.setMaintenanceScheduler((MaintenanceScheduler) anyObject())).thenReturn(rule);
         when(rule.getId()).thenReturn(ruleId);
 
         return virtualserver.removeEntity(rule);
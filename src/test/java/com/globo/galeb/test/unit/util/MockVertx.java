@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2014 Globo.com - ATeam
+ * All rights reserved.
+ *
+ * This source is subject to the Apache License, Version 2.0.
+ * Please see the LICENSE file for more information.
+ *
+ * Authors: See AUTHORS file
+ *
+ * THIS CODE AND INFORMATION ARE PROVIDED "AS IS" WITHOUT WARRANTY OF ANY
+ * KIND, EITHER EXPRESSED OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND/OR FITNESS FOR A
+ * PARTICULAR PURPOSE.
+ */
+package com.globo.galeb.test.unit.util;
+
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.vertx.java.core.http.HttpClient;
+import org.vertx.java.core.impl.DefaultVertx;
+
+public class MockVertx {
+
+    private MockVertx() {
+    }
+
+    public static HttpClient newHttpClient() {
+        HttpClient httpClient = mock(HttpClient.class);
+        when(httpClient.setKeepAlive(anyBoolean())).thenReturn(httpClient);
+        when(httpClient.setTCPKeepAlive(anyBoolean())).thenReturn(httpClient);
+        when(httpClient.setMaxPoolSize(anyInt())).thenReturn(httpClient);
+        when(httpClient.setConnectTimeout(anyInt())).thenReturn(httpClient);
+        return httpClient;
+    }
+
+    public static DefaultVertx newVertx() {
+        return newVertx(null);
+    }
+
+    public static DefaultVertx newVertx(final List<HttpClient> createdClients) {
+        DefaultVertx vertx = mock(DefaultVertx.class);
+        when(vertx.createHttpClient()).thenAnswer(new Answer<HttpClient>() {
+            @Override
+            public HttpClient answer(InvocationOnMock invocation) {
+                HttpClient httpClient = newHttpClient();
+                if (createdClients!=null) {
+                    createdClients.add(httpClient);
+                }
+                return httpClient;
+            }
+        });
+        return vertx;
+    }
+
+}